@@ -9,7 +9,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
+import com.ds2.jepto.actors.cluster.ClusterWorkload;
 import com.ds2.jepto.actors.cyclon.JoinMsg;
+import com.ds2.jepto.actors.trace.TraceRecorder;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigValueFactory;
@@ -67,11 +69,53 @@ public class ActorMain {
 		numReceivers  = Integer.parseUnsignedInt(config.getString(parameters[3]));
 		maxTtl        = Long.parseUnsignedLong(config.getString(parameters[4]));
 		roundInterval = Long.parseUnsignedLong(config.getString(parameters[5]));
-		asPaper       = Boolean.parseBoolean(config.getString(parameters[7]));
+		asPaper       = Boolean.parseBoolean(config.getString(parameters[6]));
 		if (config.hasPath("jepto.config.log-level"))
 			logLevel = DebugLevel.parse(config.getString("jepto.config.log-level"));
 	}
 
+	/**
+	 * Parse the parameters which may be omitted
+	 * from the configuration file.
+	 *
+	 * @param config
+	 */
+	public static void setOptionalParameters(Config config) {
+		if (config.hasPath("jepto.config.packed-balls"))
+			packedBalls = Boolean.parseBoolean(config.getString("jepto.config.packed-balls"));
+		// the random events are an optional load source
+		if (config.hasPath("jepto.config.generate-events"))
+			generateEvents = Boolean.parseBoolean(config.getString("jepto.config.generate-events"));
+		// split the balls exceeding the cap, 0 for no limit
+		if (config.hasPath("jepto.config.max-ball-bytes"))
+			maxBallBytes = Integer.parseUnsignedInt(config.getString("jepto.config.max-ball-bytes"));
+		if (config.hasPath("jepto.config.max-ball-events"))
+			maxBallEvents = Integer.parseUnsignedInt(config.getString("jepto.config.max-ball-events"));
+		// relay the new events without waiting for the round
+		if (config.hasPath("jepto.config.eager-relay"))
+			eagerRelay = Boolean.parseBoolean(config.getString("jepto.config.eager-relay"));
+		if (config.hasPath("jepto.config.relay-linger"))
+			relayLinger = Long.parseUnsignedLong(config.getString("jepto.config.relay-linger"));
+		// send digests of the balls, the peers pull the missing events
+		if (config.hasPath("jepto.config.push-pull"))
+			pushPull = Boolean.parseBoolean(config.getString("jepto.config.push-pull"));
+		// bound the submissions and the received set under back-pressure
+		if (config.hasPath("jepto.config.max-submitted"))
+			maxSubmitted = Integer.parseUnsignedInt(config.getString("jepto.config.max-submitted"));
+		if (config.hasPath("jepto.config.max-paused-events"))
+			maxPausedEvents = Integer.parseUnsignedInt(config.getString("jepto.config.max-paused-events"));
+		// record a binary trace of the protocol
+		if (config.hasPath("jepto.config.trace"))
+			trace = Boolean.parseBoolean(config.getString("jepto.config.trace"));
+		// back off the cyclon shuffles once the view is stable
+		if (config.hasPath("jepto.config.cyclon.shuffle-period-max-millis"))
+			shufflePeriodMax = Long.parseUnsignedLong(
+					config.getString("jepto.config.cyclon.shuffle-period-max-millis"));
+		// write the log from a background thread
+		if (config.hasPath("jepto.config.async-log"))
+			asyncLog = Boolean.parseBoolean(config.getString("jepto.config.async-log"));
+	}
+
 	public static void printRunParameters() {
 		StringBuilder str = new StringBuilder();
 		str.append("Seed:\t\t\t" + SEED + "\n");
@@ -80,18 +124,32 @@ public class ActorMain {
 		str.append("Num receivers (K):\t" + numReceivers + "\n");
 		str.append("Round interval:\t\t" + roundInterval + "\n");
 		str.append("As paper:\t\t" + asPaper + "\n");
+		str.append("Packed balls:\t\t" + packedBalls + "\n");
+		str.append("Generate events:\t" + generateEvents + "\n");
+		str.append("Max ball bytes:\t\t" + maxBallBytes + "\n");
+		str.append("Max ball events:\t" + maxBallEvents + "\n");
+		str.append("Eager relay:\t\t" + eagerRelay + "\n");
+		str.append("Relay linger:\t\t" + relayLinger + "\n");
+		str.append("Push pull:\t\t" + pushPull + "\n");
+		str.append("Max submitted:\t\t" + maxSubmitted + "\n");
+		str.append("Max paused events:\t" + maxPausedEvents + "\n");
+		str.append("Trace:\t\t\t" + trace + "\n");
+		str.append("Async log:\t\t" + asyncLog + "\n");
 		str.append("Cyclon view size:\t" + viewSize + "\n");
 		str.append("Cyclon shuffle length:\t"+ shuffleLength + "\n");
 		str.append("Cyclon shuffle period:\t" + shufflePeriod + "\n");
+		str.append("Cyclon shuffle period max:\t" + shufflePeriodMax + "\n");
 		LOGGER.log(Level.INFO, "Run parameters\n" + str.toString());
 	}
 
 	// the logger to be recorder to file is the one related to
 	// EptoActor, not to ActorMain
 	private static final Logger LOGGER = Logger.getLogger(EptoActor.class.getName());
-	private static FileHandler  loggerFileHandler;
+	private static Handler      loggerFileHandler;
 
 	private static final String SYSTEM_NAME = "epto";
+	// report file of the node, run by a cluster launcher
+	public static final String CLUSTER_REPORT = "cluster.report";
 	private static long  SEED = 42;
 
 	private static int  viewSize      = 10;
@@ -100,9 +158,23 @@ public class ActorMain {
 	private static long maxTtl       = 5;
 	private static long roundInterval = 5000l;
 	private static long shufflePeriod = 3000l;
+	// 0 to keep the shuffle period fixed
+	private static long shufflePeriodMax = 0l;
 
 	private static Level logLevel = Level.INFO;
 	private static boolean asPaper    = false;
+	private static boolean packedBalls = false;
+	private static boolean generateEvents = true;
+	// below the default akka maximum frame size (128000 bytes)
+	private static int maxBallBytes  = 120000;
+	private static int maxBallEvents = 0;
+	private static boolean eagerRelay = false;
+	private static long relayLinger   = 5l;
+	private static boolean pushPull   = false;
+	private static int maxSubmitted    = EptoActor.DEFAULT_MAX_SUBMITTED;
+	private static int maxPausedEvents = EptoActor.DEFAULT_MAX_PAUSED_EVENTS;
+	private static boolean trace      = false;
+	private static boolean asyncLog   = true;
 
 	private static void createActorLogFile(String actorName, Level level) {
 		try {
@@ -114,10 +186,13 @@ public class ActorMain {
 			if (!parent.mkdirs() && !parent.exists()) {
 			    throw new IllegalStateException("Couldn't create dir: " + parent);
 			}
-			loggerFileHandler = new FileHandler(path);
+			if (asyncLog) {
+				loggerFileHandler = new AsyncFileHandler(path);
+			} else {
+				loggerFileHandler = new FileHandler(path);
+				loggerFileHandler.setFormatter(new SimpleFormatter());
+			}
 			LOGGER.addHandler(loggerFileHandler);
-			SimpleFormatter sf = new SimpleFormatter();
-			loggerFileHandler.setFormatter(sf);
 			// change level for the handlers and the logger
 			LOGGER.setLevel(level);
 			for (Handler handler: LOGGER.getHandlers()) {
@@ -130,6 +205,16 @@ public class ActorMain {
 		}
 	}
 
+	private static void createActorTraceFile(String actorName) {
+		String path = System.getProperty("user.home") + File.separator
+				+ "EpTOlogs" + File.separator + actorName + ".trace";
+		try {
+			TraceRecorder.install(new File(path));
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Cannot trace to " + path, e);
+		}
+	}
+
 	private static boolean isTracker(Config config) {
 		if (!config.hasPath("participant.is_tracker"))
             return false;
@@ -158,6 +243,7 @@ public class ActorMain {
 		String inputActorId           = System.getProperty("peer");
 		String inputPortNumber        = System.getProperty("port");
 		String seed                   = System.getProperty("seed");
+		String clusterReport          = System.getProperty(CLUSTER_REPORT);
 
 		String asPaperStr = System.getProperty("as.paper");
 		String asPaperDefault = System.getProperty("as.paper.default");
@@ -185,11 +271,18 @@ public class ActorMain {
 							Integer.parseUnsignedInt(inputPortNumber)));
 			actorConfig = actorConfig.withValue("participant.id",
 					ConfigValueFactory.fromAnyRef(inputActorId));
-			if (seed != null) {
-				SEED = Integer.parseInt(seed);
-			}
 		}
-		EptoMain.setRunParameters(actorConfig);
+		if (seed != null) {
+			SEED = Integer.parseInt(seed);
+		}
+		setRunParameters(actorConfig);
+		// the command line wins over the configuration file
+		if (asPaperStr != null)
+			asPaper = Boolean.parseBoolean(asPaperStr);
+		setOptionalParameters(actorConfig);
+		// before the actor is created, it looks for the recorder
+		if (trace && actorConfig.hasPath("participant.id"))
+			createActorTraceFile(actorConfig.getString("participant.id"));
 
 		ActorSystem system;
         ActorRef    actor;
@@ -204,9 +297,18 @@ public class ActorMain {
 	        		viewSize,
 	        		shuffleLength,
 	        		shufflePeriod,
+	        		shufflePeriodMax,
 	        		SEED,
 	        		asPaper,
-	        		null),
+	        		packedBalls,
+	        		maxBallBytes,
+	        		maxBallEvents,
+	        		eagerRelay,
+	        		relayLinger,
+	        		pushPull,
+	        		maxSubmitted,
+	        		maxPausedEvents,
+	        		generateEvents ? null : false),
 	        		participantId);
 			createActorLogFile(participantId, logLevel);
 			LOGGER.log(Level.INFO, "Tracker {0} started.",
@@ -230,9 +332,18 @@ public class ActorMain {
 	        		viewSize,
 	        		shuffleLength,
 	        		shufflePeriod,
+	        		shufflePeriodMax,
 	        		SEED,
 	        		asPaper,
-	        		null),
+	        		packedBalls,
+	        		maxBallBytes,
+	        		maxBallEvents,
+	        		eagerRelay,
+	        		relayLinger,
+	        		pushPull,
+	        		maxSubmitted,
+	        		maxPausedEvents,
+	        		generateEvents ? null : false),
 	        		participantId);
 
 			// Let the node send a join request
@@ -267,5 +378,18 @@ public class ActorMain {
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
+		if (clusterReport != null) {
+			// driven by the launcher through the standard input
+			try {
+				new ClusterWorkload(new EptoNode(actor), clusterReport, SEED)
+				.run(System.in);
+				system.terminate();
+				Await.ready(system.whenTerminated(),
+						scala.concurrent.duration.Duration.create(10, TimeUnit.SECONDS));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			System.exit(0);
+		}
 	}
 }
@@ -0,0 +1,194 @@
+package com.ds2.jepto.actors;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Write the records to a file from a background thread,
+ * the same way a FileHandler with a SimpleFormatter does.
+ *
+ * Publishing a record only enqueues it to a bounded queue,
+ * blocking the actor logging it while the queue is full: no
+ * record is ever dropped, as the delivered and broadcast
+ * lines are the input of the offline checks. The writer
+ * drains the queue in batches, formatting the records and
+ * flushing the file once per batch instead of once per
+ * record.
+ *
+ * The arguments of a record are formatted by the writer,
+ * hence they must not change once logged.
+ */
+public class AsyncFileHandler extends Handler {
+
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final int  BATCH   = 1024;
+	private static final long POLL_MS = 100;
+
+	private final BlockingQueue<LogRecord> queue;
+	private final Writer     writer;
+	private final Thread     thread;
+	private final AtomicLong published;
+	// held by the publishers while they enqueue, taken
+	// exclusively by close to stop accepting records
+	private final ReadWriteLock lock;
+	private volatile long    written;
+	private volatile boolean closed;
+
+	public AsyncFileHandler(String path) throws IOException {
+		this(path, DEFAULT_CAPACITY);
+	}
+
+	public AsyncFileHandler(String path, int capacity) throws IOException {
+		super();
+		this.queue     = new ArrayBlockingQueue<>(capacity);
+		this.writer    = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(path), StandardCharsets.UTF_8), 1 << 16);
+		this.published = new AtomicLong();
+		this.lock      = new ReentrantReadWriteLock();
+		this.written   = 0;
+		this.closed    = false;
+		this.setFormatter(new SimpleFormatter());
+		this.thread = new Thread(this::drain, "jepto-log-writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void publish(LogRecord record) {
+		if (!this.isLoggable(record))
+			return;
+		// the caller is inferred from the stack of the thread
+		// logging the record, unless given explicitly
+		record.getSourceClassName();
+		this.lock.readLock().lock();
+		try {
+			if (this.closed)
+				return;
+			this.enqueue(record);
+			this.published.incrementAndGet();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Wait for room in the queue, deferring an interrupt of
+	 * the caller until the record is enqueued.
+	 */
+	private void enqueue(LogRecord record) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				this.queue.put(record);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private void drain() {
+		List<LogRecord> batch = new ArrayList<>(BATCH);
+		while (true) {
+			LogRecord record;
+			try {
+				record = this.queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				record = null;
+			}
+			if (record == null) {
+				if (this.closed && this.queue.isEmpty())
+					return;
+				continue;
+			}
+			batch.add(record);
+			this.queue.drainTo(batch, BATCH - 1);
+			this.write(batch);
+			batch.clear();
+		}
+	}
+
+	private void write(List<LogRecord> batch) {
+		for (LogRecord record : batch) {
+			try {
+				this.writer.write(this.getFormatter().format(record));
+			} catch (Exception e) {
+				this.reportError(null, e, ErrorManager.WRITE_FAILURE);
+			}
+		}
+		try {
+			this.writer.flush();
+		} catch (IOException e) {
+			this.reportError(null, e, ErrorManager.FLUSH_FAILURE);
+		}
+		synchronized (this) {
+			this.written += batch.size();
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Wait until the records published so far are written.
+	 */
+	@Override
+	public void flush() {
+		long target = this.published.get();
+		synchronized (this) {
+			while (this.written < target && this.thread.isAlive()) {
+				try {
+					this.wait(POLL_MS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop accepting records, write the ones still queued
+	 * and close the file.
+	 */
+	@Override
+	public void close() {
+		// wait for the publishers enqueueing a record, so that
+		// the writer sees all of them before it stops
+		this.lock.writeLock().lock();
+		try {
+			if (this.closed)
+				return;
+			this.closed = true;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+		try {
+			this.thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			this.writer.close();
+		} catch (IOException e) {
+			this.reportError(null, e, ErrorManager.CLOSE_FAILURE);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.ds2.jepto.actors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+
+/**
+ * Reassemble the chunks of the balls sent by the peers.
+ *
+ * Messages between two actors are delivered in order, hence
+ * there is at most one ball being assembled per sender: a
+ * chunk of a newer ball means that the previous one will not
+ * be completed (some chunks were lost), and the chunks
+ * received so far are returned as a partial ball.
+ */
+public class BallAssembler {
+
+	private static class Partial {
+		private final long        ballId;
+		private final List<Event> events;
+		private int received;
+
+		private Partial(long ballId) {
+			this.ballId   = ballId;
+			this.events   = new ArrayList<>();
+			this.received = 0;
+		}
+	}
+
+	private final Map<ActorRef, Partial> partials;
+
+	public BallAssembler() {
+		this.partials = new HashMap<>();
+	}
+
+	/**
+	 * Add the chunk, returning the balls ready to be
+	 * merged: the complete one, if this is its last chunk,
+	 * and possibly a partial ball of the same sender.
+	 *
+	 * @param sender
+	 * @param chunk
+	 * @return
+	 */
+	public List<List<Event>> add(ActorRef sender, BallChunkMsg chunk) {
+		List<List<Event>> ready = new ArrayList<>(1);
+		Partial partial = this.partials.get(sender);
+		if (partial != null && partial.ballId != chunk.getBallId()) {
+			this.partials.remove(sender);
+			ready.add(partial.events);
+			partial = null;
+		}
+		if (partial == null) {
+			partial = new Partial(chunk.getBallId());
+			this.partials.put(sender, partial);
+		}
+		partial.events.addAll(chunk.getEvents());
+		partial.received++;
+		if (partial.received >= chunk.getCount()) {
+			this.partials.remove(sender);
+			ready.add(partial.events);
+		}
+		return ready;
+	}
+
+	/**
+	 * Remove and return the balls still being assembled.
+	 *
+	 * @return
+	 */
+	public List<List<Event>> drain() {
+		List<List<Event>> partial = new ArrayList<>(this.partials.size());
+		for (Partial ball : this.partials.values()) {
+			partial.add(ball.events);
+		}
+		this.partials.clear();
+		return partial;
+	}
+
+	public boolean isEmpty() {
+		return this.partials.isEmpty();
+	}
+}
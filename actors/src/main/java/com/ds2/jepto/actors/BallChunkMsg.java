@@ -0,0 +1,51 @@
+package com.ds2.jepto.actors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A part of a ball too large to be sent as a single
+ * {@link BallMsg}. The chunks of a ball share its id,
+ * unique per sender, and are sent in index order.
+ */
+public class BallChunkMsg extends FanOutMsg {
+
+	private final long        ballId;
+	private final int         index;
+	private final int         count;
+	private final List<Event> events;
+
+	public BallChunkMsg(long ballId, int index, int count, List<Event> events) {
+		super();
+		this.ballId = ballId;
+		this.index  = index;
+		this.count  = count;
+		this.events = Collections.unmodifiableList(events);
+	}
+
+	public long getBallId() {
+		return ballId;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public List<Event> getEvents() {
+		return events;
+	}
+
+	public String toString() {
+		String eventsString =  String.join(", ",
+				this.events.stream()
+				.map(event -> event.toString())
+				.collect(Collectors.toList()));
+		return "chunk " + (index + 1) + "/" + count + " of ball " + ballId +
+				" { " + eventsString + " }";
+	}
+}
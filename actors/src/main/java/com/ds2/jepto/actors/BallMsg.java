@@ -1,19 +1,28 @@
 package com.ds2.jepto.actors;
 
-import java.io.Serializable;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class BallMsg implements Serializable {
+public class BallMsg extends FanOutMsg {
 
 	private List<Event> ball;
 
-	public BallMsg(EventMap ball) {
+	/**
+	 * The events of a frozen buffer are shared, not copied.
+	 *
+	 * @param ball
+	 */
+	public BallMsg(EventBuffer ball) {
 		super();
 		this.ball = Collections.unmodifiableList(ball.toList());
 	}
 
+	public BallMsg(List<Event> ball) {
+		super();
+		this.ball = Collections.unmodifiableList(ball);
+	}
+
 	public List<Event> getBall() {
 		return ball;
 	}
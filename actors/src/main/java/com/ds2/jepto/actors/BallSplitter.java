@@ -0,0 +1,117 @@
+package com.ds2.jepto.actors;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import akka.actor.ActorRef;
+import akka.serialization.Serialization;
+
+/**
+ * Split the balls exceeding a cap, in bytes and in events,
+ * into chunks within the cap.
+ *
+ * The size in bytes of a chunk is an upper bound of its
+ * encoding by the remote serializer: every source is
+ * counted with its full path, every event with its payload
+ * and the maximum size of its varint fields.
+ *
+ * Chunks are filled starting from the events having the
+ * highest ttl, the closest to be discarded by the senders,
+ * hence the first chunks carry the most urgent events.
+ */
+public class BallSplitter {
+
+	// chunk header (ball id, index, count, sources and
+	// events) and per event fields, as varints
+	private static final int HEADER_BYTES = 4 * 5 + 10;
+	private static final int EVENT_BYTES  = 5 + 5 + 10 + 5 + 1 + 5;
+	private static final int REF_BYTES    = 5 + 5;
+
+	private static final Comparator<Event> PRIORITY = new Comparator<Event>() {
+		@Override
+		public int compare(Event event0, Event event1) {
+			int cmp = Integer.compare(event1.getTtl(), event0.getTtl());
+			if (cmp != 0)
+				return cmp;
+			return Long.compare(event0.getOrderKey(), event1.getOrderKey());
+		}
+	};
+
+	private final int maxBytes;
+	private final int maxEvents;
+
+	/**
+	 * @param maxBytes  maximum size of a chunk, 0 for no limit
+	 * @param maxEvents maximum events in a chunk, 0 for no limit
+	 */
+	public BallSplitter(int maxBytes, int maxEvents) {
+		this.maxBytes  = maxBytes  > 0 ? maxBytes  : Integer.MAX_VALUE;
+		this.maxEvents = maxEvents > 0 ? maxEvents : Integer.MAX_VALUE;
+	}
+
+	private static int refSize(ActorRef ref) {
+		return REF_BYTES + Serialization.serializedActorPath(ref).length();
+	}
+
+	private static int eventSize(Event event) {
+		return EVENT_BYTES + event.getPayloadSize();
+	}
+
+	/**
+	 * Return true if the events fit in a single ball.
+	 */
+	public boolean fits(List<Event> events) {
+		if (events.size() > this.maxEvents)
+			return false;
+		if (this.maxBytes == Integer.MAX_VALUE)
+			return true;
+		Set<ActorRef> sources = new HashSet<>();
+		long size = HEADER_BYTES;
+		for (Event event : events) {
+			size += eventSize(event);
+			if (sources.add(event.getSource()))
+				size += refSize(event.getSource());
+			if (size > this.maxBytes)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Split the events into chunks, the most urgent first.
+	 * An event larger than the cap gets a chunk of its own.
+	 *
+	 * @param events
+	 * @return
+	 */
+	public List<List<Event>> split(List<Event> events) {
+		List<Event> sorted = new ArrayList<>(events);
+		sorted.sort(PRIORITY);
+		List<List<Event>> chunks = new ArrayList<>();
+		List<Event>   chunk   = new ArrayList<>();
+		Set<ActorRef> sources = new HashSet<>();
+		long size = HEADER_BYTES;
+		for (Event event : sorted) {
+			long eventSize = eventSize(event);
+			if (!sources.contains(event.getSource()))
+				eventSize += refSize(event.getSource());
+			if (!chunk.isEmpty() && (chunk.size() == this.maxEvents ||
+					size + eventSize > this.maxBytes)) {
+				chunks.add(chunk);
+				chunk = new ArrayList<>();
+				sources.clear();
+				size = HEADER_BYTES;
+				eventSize = eventSize(event) + refSize(event.getSource());
+			}
+			chunk.add(event);
+			sources.add(event.getSource());
+			size += eventSize;
+		}
+		if (!chunk.isEmpty())
+			chunks.add(chunk);
+		return chunks;
+	}
+}
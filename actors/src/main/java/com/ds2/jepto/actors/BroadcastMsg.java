@@ -0,0 +1,63 @@
+package com.ds2.jepto.actors;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+import com.ds2.jepto.actors.Event.Action;
+
+/**
+ * Ask the receiving node to EpTO-broadcast an event.
+ *
+ * Submissions are queued and stamped, all together, when
+ * the next round starts: the event joins the ball sent in
+ * that round.
+ */
+public class BroadcastMsg implements Serializable {
+	private final Action action;
+	private transient ByteBuffer payload;
+
+	public BroadcastMsg(Action action) {
+		this(action, Event.EMPTY_PAYLOAD);
+	}
+
+	/**
+	 * The remaining bytes of the payload are shared, not
+	 * copied, by the broadcast event.
+	 *
+	 * @param action
+	 * @param payload
+	 */
+	public BroadcastMsg(Action action, ByteBuffer payload) {
+		if (action == null)
+			throw new IllegalArgumentException("No action given");
+		this.action  = action;
+		this.payload = payload == null ?
+				Event.EMPTY_PAYLOAD : payload.slice().asReadOnlyBuffer();
+	}
+
+	public Action getAction() {
+		return action;
+	}
+
+	public ByteBuffer getPayload() {
+		return payload.duplicate();
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		byte[] bytes = new byte[this.payload.remaining()];
+		this.payload.duplicate().get(bytes);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		this.payload = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+}
@@ -0,0 +1,22 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+/**
+ * Reply to the sender of a {@link BroadcastMsg} the node
+ * did not accept, having max-submitted submissions
+ * already waiting for the next round (by default
+ * {@link EptoActor#DEFAULT_MAX_SUBMITTED}). The event is
+ * not broadcast, the sender may submit it again.
+ */
+public class BroadcastRejectedMsg implements Serializable {
+	private final BroadcastMsg broadcast;
+
+	public BroadcastRejectedMsg(BroadcastMsg broadcast) {
+		this.broadcast = broadcast;
+	}
+
+	public BroadcastMsg getBroadcast() {
+		return broadcast;
+	}
+}
@@ -0,0 +1,132 @@
+package com.ds2.jepto.actors;
+
+import java.util.Arrays;
+
+/**
+ * Keys of the delivered events, with bounded memory.
+ *
+ * Event ids are dense per source, hence for each source
+ * the set stores a watermark, meaning every id below it has
+ * been delivered, and a bitmap of the ids delivered within
+ * a window above the watermark. The watermark advances as
+ * soon as the ids just above it are delivered.
+ *
+ * An id which is never delivered (e.g. it was discarded, or
+ * never received) would stop the watermark forever: when an
+ * id falls beyond the window, the watermark is moved forward,
+ * regarding the ids left behind as delivered. This is safe
+ * since a source stamps increasing timestamps on increasing
+ * ids: an id lower than a delivered one of the same source
+ * has a timestamp lower than lastDeliveredTs, and would be
+ * discarded by the ordering component anyway.
+ */
+public class DeliveredSet {
+
+	public static final int DEFAULT_WINDOW = 1024;
+
+	private static class Source {
+		private int          watermark; // every id below has been delivered
+		private final long[] ring;      // bit (id % window) set if id delivered
+
+		private Source(int window) {
+			this.watermark = 0;
+			this.ring = new long[window / Long.SIZE];
+		}
+	}
+
+	private final int window;
+	private Source[]  sources; // indexed by node id
+	private long      size;
+
+	public DeliveredSet() {
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * @param window number of ids tracked above the watermark
+	 *               of each source, rounded up to a multiple of 64
+	 */
+	public DeliveredSet(int window) {
+		this.window  = Math.max(1, (window + Long.SIZE - 1) / Long.SIZE) * Long.SIZE;
+		this.sources = new Source[16];
+		this.size    = 0;
+	}
+
+	private Source getSource(int sourceId, boolean create) {
+		if (sourceId >= this.sources.length) {
+			if (!create)
+				return null;
+			this.sources = Arrays.copyOf(this.sources,
+					Math.max(this.sources.length << 1, sourceId + 1));
+		}
+		Source source = this.sources[sourceId];
+		if (source == null && create) {
+			source = new Source(this.window);
+			this.sources[sourceId] = source;
+		}
+		return source;
+	}
+
+	private boolean isSet(Source source, int id) {
+		int bit = id % this.window;
+		return (source.ring[bit >>> 6] & (1l << bit)) != 0;
+	}
+
+	private void set(Source source, int id) {
+		int bit = id % this.window;
+		source.ring[bit >>> 6] |= 1l << bit;
+	}
+
+	private void clear(Source source, int id) {
+		int bit = id % this.window;
+		source.ring[bit >>> 6] &= ~(1l << bit);
+	}
+
+	public boolean contains(int sourceId, int eventId) {
+		Source source = this.getSource(sourceId, false);
+		if (source == null)
+			return false;
+		if (eventId < source.watermark)
+			return true;
+		if (eventId - source.watermark >= this.window)
+			return false;
+		return this.isSet(source, eventId);
+	}
+
+	public boolean contains(Event event) {
+		return this.contains(event.getSourceId(), event.getId());
+	}
+
+	public void add(int sourceId, int eventId) {
+		Source source = this.getSource(sourceId, true);
+		if (this.contains(sourceId, eventId))
+			return;
+		// slide the window, giving up on the oldest gaps
+		int lowest = eventId - this.window + 1;
+		if (lowest - source.watermark >= this.window) {
+			Arrays.fill(source.ring, 0l);
+			source.watermark = lowest;
+		}
+		while (source.watermark < lowest) {
+			this.clear(source, source.watermark++);
+		}
+		this.set(source, eventId);
+		// advance the watermark over the delivered ids
+		while (this.isSet(source, source.watermark)) {
+			this.clear(source, source.watermark++);
+		}
+		this.size++;
+	}
+
+	public void add(Event event) {
+		this.add(event.getSourceId(), event.getId());
+	}
+
+	/**
+	 * Return the number of events added to the set.
+	 * @return
+	 */
+	public long size() {
+		return this.size;
+	}
+}
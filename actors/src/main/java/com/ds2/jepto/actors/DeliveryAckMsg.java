@@ -0,0 +1,19 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+/**
+ * Acknowledge every {@link DeliveryBatch} up to,
+ * and including, the given sequence.
+ */
+public class DeliveryAckMsg implements Serializable {
+	private final long sequence;
+
+	public DeliveryAckMsg(long sequence) {
+		this.sequence = sequence;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+}
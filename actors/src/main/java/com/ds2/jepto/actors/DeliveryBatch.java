@@ -0,0 +1,42 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The events delivered by a node within a round, in
+ * delivery order. Batches are numbered consecutively,
+ * starting from 1, for each subscriber.
+ *
+ * Actor subscribers acknowledge a batch by replying
+ * with a {@link DeliveryAckMsg} carrying its sequence.
+ */
+public class DeliveryBatch implements Serializable {
+
+	private final long        sequence;
+	private final List<Event> events;
+
+	public DeliveryBatch(long sequence, List<Event> events) {
+		super();
+		this.sequence = sequence;
+		this.events   = Collections.unmodifiableList(events);
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public List<Event> getEvents() {
+		return events;
+	}
+
+	public String toString() {
+		String eventsString =  String.join(", ",
+				this.events.stream()
+				.map(event -> event.toString())
+				.collect(Collectors.toList()));
+		return "DeliveryBatch [sequence=" + sequence + ", events={ " + eventsString + " }]";
+	}
+}
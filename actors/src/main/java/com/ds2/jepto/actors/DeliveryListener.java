@@ -0,0 +1,15 @@
+package com.ds2.jepto.actors;
+
+/**
+ * Callback receiving the events delivered by a local
+ * EpTO node, subscribed through {@link SubscribeMsg}.
+ *
+ * The callback runs on the thread of the node: it must
+ * not block, and it must not keep the events beyond the
+ * call if it has to modify them.
+ */
+@FunctionalInterface
+public interface DeliveryListener {
+
+	public void deliver(DeliveryBatch batch);
+}
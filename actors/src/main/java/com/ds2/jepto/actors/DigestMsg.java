@@ -0,0 +1,31 @@
+package com.ds2.jepto.actors;
+
+/**
+ * Describe, in push-pull mode, the ball sent by a node
+ * at the end of its round: the keys of the events and their
+ * ttl. The receiver raises the ttl of the events it knows and
+ * pulls the missing ones with a {@link PullMsg}.
+ */
+public class DigestMsg extends FanOutMsg {
+
+	private final long        ballId;
+	private final EventDigest digest;
+
+	public DigestMsg(long ballId, EventDigest digest) {
+		super();
+		this.ballId = ballId;
+		this.digest = digest;
+	}
+
+	public long getBallId() {
+		return ballId;
+	}
+
+	public EventDigest getDigest() {
+		return digest;
+	}
+
+	public String toString() {
+		return "digest of ball " + ballId + " " + digest.toString();
+	}
+}
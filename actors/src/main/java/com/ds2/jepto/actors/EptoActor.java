@@ -3,52 +3,106 @@ package com.ds2.jepto.actors;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import com.ds2.jepto.actors.Event.Action;
 import com.ds2.jepto.actors.cyclon.CyclonActor;
+import com.ds2.jepto.actors.cyclon.JoinMsg;
+import com.ds2.jepto.actors.trace.TraceRecord;
+import com.ds2.jepto.actors.trace.TraceRecorder;
 
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import akka.actor.Terminated;
 import scala.concurrent.duration.Duration;
 
 public class EptoActor extends CyclonActor {
 
 	private static final Logger LOGGER = Logger.getLogger(EptoActor.class.getName());
+	// given explicitly, the caller is not inferred from the stack
+	private static final String SOURCE = EptoActor.class.getName();
 
 	public static class RoundMsg implements Serializable {};
+	public static class RelayMsg implements Serializable {};
 	public static class GenEventMsg implements Serializable {};
 	public static class EptoStartMsg implements Serializable {};
 
+	// delay between two attempts to start EpTO while the node id is unknown
+	private static final long REGISTER_RETRY_MILLIS = 500l;
+
+	// submissions waiting for the next round, the next ones are rejected
+	public static final int DEFAULT_MAX_SUBMITTED = 1 << 14;
+	// received events beyond which the lagging subscribers are dropped
+	public static final int DEFAULT_MAX_PAUSED_EVENTS = 1 << 16;
+
 	public final long MAX_TTL;
 	public final int  NUM_RECEIVERS; // it's the K in the paper
 
 	// pseudo random number generator
 	private final Random prng;
 
-	// private int  id; USE THE ACTOR REF REFERENCE!
+	private int          nodeId;   // assigned by the tracker at join time
+	private ActorRef     tracker;
+	private NodeRegistry registry; // used only when acting as tracker
+
 	private long roundInterval;
 	private long genEventInterval;
 
 	private AtomicLong     clock; // logical clock
 	private AtomicInteger  nextEventId;
 
-	private EventMap nextBall;
-	private EventMap received;       // events received but not yet delivered
-	private Set<EventKey> delivered; // delivered events
-	private long lastDeliveredTs;    // maximum ts of delivered events
+	private EventBuffer nextBall;    // accessed by the actor thread only
+	private List<BroadcastMsg> submitted; // broadcast at the next round
+	private final int maxSubmitted;
+
+	private final BallSplitter  splitter;  // caps the outgoing balls
+	private final BallAssembler assembler; // incoming chunked balls
+	private long ballId;                   // id of the last ball sent
 
-	private boolean asPaper;
+	private final boolean eagerRelay;   // relay the new events within the round
+	private final long    relayLinger;  // millis a relay batch waits for more events
+	private EventBuffer   relayBatch;   // events to be relayed eagerly
+	private boolean       relayPending; // a RelayMsg is scheduled
+
+	private final PushPull pushPull;    // null when pushing the balls
+	private final OrderingComponent ordering;
+	private final TraceRecorder     trace;   // null when not tracing
+
+	/**
+	 * A subscriber to the delivered events, with the
+	 * sequence of the last batch sent and acknowledged.
+	 */
+	private static class Subscription {
+		private final ActorRef         subscriber;
+		private final DeliveryListener listener;
+		private final int              maxPendingBatches;
+		private long sent;
+		private long acked;
+
+		private Subscription(ActorRef subscriber, DeliveryListener listener, int maxPendingBatches) {
+			this.subscriber = subscriber;
+			this.listener   = listener;
+			this.maxPendingBatches = maxPendingBatches;
+			this.sent  = 0;
+			this.acked = 0;
+		}
+
+		private boolean isFull() {
+			return this.subscriber != null &&
+					this.sent - this.acked >= this.maxPendingBatches;
+		}
+	}
+
+	private List<Subscription> subscriptions;
+	private boolean            backPressure; // a subscriber is lagging behind
+	private final int          maxPausedEvents;
 
 	// flag used by single-run execution
 	private Boolean canSend;
@@ -60,22 +114,46 @@ public class EptoActor extends CyclonActor {
 			int viewSize,
 			int shuffleLength,
 			long shufflePeriod,
+			long shufflePeriodMax,
 			long seed,
 			boolean asPaper,
+			boolean packedBalls,
+			int maxBallBytes,
+			int maxBallEvents,
+			boolean eagerRelay,
+			long relayLinger,
+			boolean pushPull,
+			int maxSubmitted,
+			int maxPausedEvents,
 			Boolean canSend) {
-		super(viewSize, shuffleLength, shufflePeriod, seed);
+		super(viewSize, shuffleLength, shufflePeriod,
+				shufflePeriodMax > 0 ? shufflePeriodMax : shufflePeriod, seed);
+		this.nodeId   = -1;
+		this.tracker  = null;
+		this.registry = null;
 		this.roundInterval    = roundInterval;
 		this.genEventInterval = roundInterval;
 		this.clock = new AtomicLong(0);
 		this.nextEventId = new AtomicInteger(0);
-		this.nextBall = new EventMap();
+		this.nextBall = packedBalls ? new PackedEventMap() : new EventMap();
+		this.submitted = new ArrayList<>();
+		this.maxSubmitted = maxSubmitted > 0 ? maxSubmitted : DEFAULT_MAX_SUBMITTED;
+		this.splitter  = new BallSplitter(maxBallBytes, maxBallEvents);
+		this.assembler = new BallAssembler();
+		this.ballId    = 0;
+		this.eagerRelay   = eagerRelay;
+		this.relayLinger  = relayLinger;
+		this.relayBatch   = packedBalls ? new PackedEventMap() : new EventMap();
+		this.relayPending = false;
+		this.pushPull     = pushPull ? new PushPull(max_ttl) : null;
 		this.NUM_RECEIVERS = numReceivers;
 		this.MAX_TTL = max_ttl;
 		this.prng = new Random(seed);
-		this.received = new EventMap();
-		this.delivered = new HashSet<>();
-		this.lastDeliveredTs = -1l;
-		this.asPaper = asPaper;
+		this.ordering = new OrderingComponent(max_ttl, asPaper);
+		this.trace    = TraceRecorder.current();
+		this.subscriptions = new ArrayList<>();
+		this.backPressure  = false;
+		this.maxPausedEvents = maxPausedEvents > 0 ? maxPausedEvents : DEFAULT_MAX_PAUSED_EVENTS;
 		this.canSend = canSend;
 	}
 
@@ -86,8 +164,17 @@ public class EptoActor extends CyclonActor {
 			int viewSize,
 			int shuffleLength,
 			long shufflePeriod,
+			long shufflePeriodMax,
 			long seed,
 			boolean asPaper,
+			boolean packedBalls,
+			int maxBallBytes,
+			int maxBallEvents,
+			boolean eagerRelay,
+			long relayLinger,
+			boolean pushPull,
+			int maxSubmitted,
+			int maxPausedEvents,
 			Boolean canSend)
 	{
 		return Props.create(EptoActor.class,
@@ -97,8 +184,17 @@ public class EptoActor extends CyclonActor {
 						viewSize,
 						shuffleLength,
 						shufflePeriod,
+						shufflePeriodMax,
 						seed,
 						asPaper,
+						packedBalls,
+						maxBallBytes,
+						maxBallEvents,
+						eagerRelay,
+						relayLinger,
+						pushPull,
+						maxSubmitted,
+						maxPausedEvents,
 						canSend));
 	}
 
@@ -107,23 +203,67 @@ public class EptoActor extends CyclonActor {
 	}
 
 /*---------------------------------------------------------------------------*/
-/*                            LOGICAL CLOCK HANDLING                         */
+/*                                 NODE IDS                                  */
 /*---------------------------------------------------------------------------*/
+	private NodeRegistry getRegistry() {
+		if (this.registry == null)
+			this.registry = new NodeRegistry();
+		return this.registry;
+	}
+
+	@Override
+	protected void onJoinMsg(JoinMsg msg) {
+		super.onJoinMsg(msg);
+		this.tracker = msg.getTracker();
+		this.requestNodeId();
+	}
+
 	/**
-	 * Return true if the event has a ttl greater
-	 * than MAX_TTL.
-	 *
-	 * @param event
-	 * @return
+	 * Ask the tracker for a node id. A node without
+	 * a tracker, or joining itself, is the tracker and
+	 * assigns its own id.
 	 */
-	private boolean isDeliverable(Event event) {
-		return event.getTtl() > this.MAX_TTL;
+	private void requestNodeId() {
+		if (this.tracker == null || this.tracker.equals(this.getSelf())) {
+			this.setNodeId(this.getRegistry().register(this.getSelf()));
+		} else {
+			this.tracker.tell(new RegisterMsg(), this.getSelf());
+		}
+	}
+
+	private void setNodeId(int nodeId) {
+		if (this.nodeId >= 0)
+			return;
+		this.nodeId = nodeId;
+		LOGGER.logp(Level.INFO, SOURCE, "setNodeId",
+				"EpTO: {0} at_{1}_{2} node_id {3}",
+				new Object[] {
+						this.getSelf().path().name(),
+						Long.toString(System.currentTimeMillis()),
+						this.clock.get(),
+						Integer.toString(nodeId)});
+	}
+
+	private void onRegisterMsg(RegisterMsg msg) {
+		if (this.tracker != null && !this.tracker.equals(this.getSelf())) {
+			// ids are assigned by a single registry
+			this.tracker.forward(msg, this.getContext());
+			return;
+		}
+		if (this.nodeId < 0)
+			this.setNodeId(this.getRegistry().register(this.getSelf()));
+		this.getSender().tell(
+				new NodeIdMsg(this.getRegistry().register(this.getSender())),
+				this.getSelf());
 	}
 
-	private long getClock() {
-		return this.clock.incrementAndGet();
+	private void onNodeIdMsg(NodeIdMsg msg) {
+		this.setNodeId(msg.getNodeId());
 	}
 
+/*---------------------------------------------------------------------------*/
+/*                            LOGICAL CLOCK HANDLING                         */
+/*---------------------------------------------------------------------------*/
 	private void updateClock(long newClock) {
 		synchronized (clock) {
 			if (newClock > this.clock.get())
@@ -134,266 +274,568 @@ public class EptoActor extends CyclonActor {
 /*                         EpTO: DISSEMINATION COMPONENT                     */
 /*---------------------------------------------------------------------------*/
 	/**
-	 * Insert an event into the next ball of the current process.
+	 * Queue an event to be broadcast at the next round,
+	 * or reject it when too many are queued already.
 	 *
-	 * @param event
+	 * @param msg
 	 */
-	private void eptoBroadcast(Event event) {
-		event.setTimestamp(this.getClock());
-		event.setTtl(0);
-		event.setSource(this.getSelf());
-		synchronized (nextBall) {
+	private void onBroadcastMsg(BroadcastMsg msg) {
+		if (!this.submit(msg))
+			this.getSender().tell(new BroadcastRejectedMsg(msg), this.getSelf());
+	}
+
+	/**
+	 * Queue an event to be broadcast at the next round.
+	 * The queue grows while a subscriber is lagging behind,
+	 * up to maxSubmitted events.
+	 *
+	 * @param msg
+	 * @return false if the event was not queued
+	 */
+	private boolean submit(BroadcastMsg msg) {
+		if (this.submitted.size() >= this.maxSubmitted) {
+			this.getMetrics().onRejected();
+			return false;
+		}
+		this.submitted.add(msg);
+		this.getMetrics().onSubmitted();
+		return true;
+	}
+
+	/**
+	 * Insert the events submitted since the last round into
+	 * the next ball of the current process. This is the only
+	 * place where own events are stamped: a single clock update
+	 * reserves consecutive timestamps for all of them.
+	 *
+	 * Submissions are kept while a subscriber is lagging behind.
+	 *
+	 * @throws IllegalStateException if the timestamps would go
+	 * past NodeRegistry.MAX_TIMESTAMP
+	 */
+	private void eptoBroadcast() {
+		if (this.submitted.isEmpty() || this.backPressure)
+			return;
+		if (this.clock.get() > NodeRegistry.MAX_TIMESTAMP - this.submitted.size())
+			throw new IllegalStateException("No timestamps left for "
+					+ this.submitted.size() + " events at " + this.clock.get());
+		long timestamp = this.clock.addAndGet(this.submitted.size())
+				- this.submitted.size();
+		for (BroadcastMsg msg : this.submitted) {
+			Event event = new Event(this.nextEventId.getAndIncrement(),
+					msg.getAction(),
+					msg.getPayload());
+			event.setTimestamp(++timestamp);
+			event.setTtl(0);
+			event.setSource(this.getSelf(), this.nodeId);
 			this.nextBall.insert(event);
+			this.getMetrics().onBroadcast(event.getId());
+			this.trace(TraceRecord.BROADCAST, timestamp, event.getId(), event.getPayloadSize());
+			if (LOGGER.isLoggable(Level.INFO)) {
+				LOGGER.logp(Level.INFO, SOURCE, "eptoBroadcast",
+						"EpTO: {0} at_{2}_{3} broadcast {1}",
+						new Object[] {
+								this.getSelf().path().name(),
+								new LoggedEvents(event),
+								Long.toString(System.currentTimeMillis()),
+								timestamp});
+			}
 		}
-		LOGGER.log(Level.INFO,
-				"EpTO: {0} at_{2}_{3} broadcast {1}",
-				new Object[] {
-						this.getSelf().path().name(),
-						event.toString(),
-						Long.toString(System.currentTimeMillis()),
-						this.clock.get()});
+		this.submitted.clear();
 	}
 
 	private void onBallMsg(BallMsg msg) {
-		LOGGER.log(DebugLevel.DEBUG,
-				"EpTO: {0} at_{2}_{3} received_ball_from {1} {4}",
-				new Object[] {
-						this.getSelf().path().name(),
-						this.getSender().path().name(),
-						Long.toString(System.currentTimeMillis()),
-						this.clock.get(),
-						msg.toString()});
-		synchronized (this.nextBall) {
-			List<Event> events = msg.getBall();
-			Event tmp;
-			for (Event event : events) {
-				if (event.getTtl() < this.MAX_TTL) {
-					tmp = this.nextBall.get(event);
-					if (tmp != null) {
-						if (tmp.getTtl() < event.getTtl()) {
-							this.nextBall.update(event);
-						}
-					} else {
-						this.nextBall.insert(event);
-					}
-				}
-				this.updateClock(event.getTimestamp());
+		if (LOGGER.isLoggable(DebugLevel.DEBUG)) {
+			LOGGER.logp(DebugLevel.DEBUG, SOURCE, "onBallMsg",
+					"EpTO: {0} at_{2}_{3} received_ball_from {1} {4}",
+					new Object[] {
+							this.getSelf().path().name(),
+							this.getSender().path().name(),
+							Long.toString(System.currentTimeMillis()),
+							this.clock.get(),
+							msg.toString()});
+		}
+		this.getMetrics().onBallReceived(msg.getBall().size());
+		this.trace(TraceRecord.BALL_RECEIVED, this.clock.get(), msg.getBall().size(), -1);
+		this.mergeBall(msg.getBall());
+	}
+
+	private void onBallChunkMsg(BallChunkMsg msg) {
+		if (LOGGER.isLoggable(DebugLevel.DEBUG)) {
+			LOGGER.logp(DebugLevel.DEBUG, SOURCE, "onBallChunkMsg",
+					"EpTO: {0} at_{2}_{3} received_ball_from {1} {4}",
+					new Object[] {
+							this.getSelf().path().name(),
+							this.getSender().path().name(),
+							Long.toString(System.currentTimeMillis()),
+							this.clock.get(),
+							msg.toString()});
+		}
+		this.getMetrics().onBallReceived(msg.getEvents().size());
+		this.trace(TraceRecord.BALL_RECEIVED, this.clock.get(), msg.getEvents().size(),
+				msg.getIndex());
+		for (List<Event> ball : this.assembler.add(this.getSender(), msg)) {
+			this.mergeBall(ball);
+		}
+	}
+
+	private void mergeBall(List<Event> events) {
+		for (Event event : events) {
+			if (event.getTtl() < this.MAX_TTL) {
+				// new, or seen with a lower ttl so far
+				if (this.eagerRelay && this.nextBall.getTtl(event) < event.getTtl())
+					this.relayBatch.merge(this.toRelayed(event));
+				this.nextBall.merge(event);
 			}
+			this.updateClock(event.getTimestamp());
 		}
+		if (this.eagerRelay)
+			this.scheduleRelay();
 	}
 
-	private void onRoundMsg(RoundMsg msg) {
-		EventMap ball;
-		String arrayString = "";
-		synchronized (this.nextBall) {
-			this.nextBall.incrementTtl();
-			ball = this.nextBall.clone();
-			this.nextBall.clear();
+	/**
+	 * Relay the events collected by the relay batch
+	 * once the linger time has elapsed, in a single
+	 * message per peer.
+	 */
+	private void scheduleRelay() {
+		if (this.relayBatch.isEmpty() || this.relayPending)
+			return;
+		if (this.relayLinger <= 0) {
+			this.relay();
+			return;
 		}
-		if (!ball.isEmpty()) {
-			List<ActorRef> peers = getPeers();
-			BallMsg ballMsg = new BallMsg(ball.clone());
-			arrayString = String.join(", ",
-					peers.stream()
-					.map(peer -> peer.path().name())
-					.collect(Collectors.toList()));
-			LOGGER.log(DebugLevel.DEBUG,
-					"EpTO: {0} at_{2}_{3} sent_ball_to [{1}]",
+		this.relayPending = true;
+		this.getContext()
+		.getSystem()
+		.scheduler()
+		.scheduleOnce(Duration.create(this.relayLinger,
+				TimeUnit.MILLISECONDS),
+				this.getSelf(),
+				new RelayMsg(),
+				getContext().system().dispatcher(),
+				this.getSelf());
+	}
+
+	/**
+	 * Send the digest of the ball to the peers, which
+	 * pull the events they miss.
+	 *
+	 * @param ball
+	 * @param peers
+	 */
+	private void sendDigest(EventBuffer ball, List<ActorRef> peers) {
+		this.ballId++;
+		DigestMsg digestMsg = new DigestMsg(this.ballId,
+				this.pushPull.offer(this.ballId, ball.toList()));
+		for (ActorRef peer : peers) {
+			peer.tell(digestMsg, this.getSelf());
+		}
+	}
+
+	private void onDigestMsg(DigestMsg msg) {
+		if (LOGGER.isLoggable(DebugLevel.DEBUG)) {
+			LOGGER.logp(DebugLevel.DEBUG, SOURCE, "onDigestMsg",
+					"EpTO: {0} at_{2}_{3} received_digest_from {1} {4}",
 					new Object[] {
 							this.getSelf().path().name(),
-							arrayString,
+							this.getSender().path().name(),
+							Long.toString(System.currentTimeMillis()),
+							this.clock.get(),
+							msg.toString()});
+		}
+		EventDigest missing = this.pushPull == null ? null :
+			this.pushPull.merge(msg.getDigest(), this.nextBall,
+					this.ordering.getReceived(), this.ordering.getDelivered());
+		if (missing != null)
+			this.getSender().tell(new PullMsg(msg.getBallId(), missing), this.getSelf());
+	}
+
+	private void onPullMsg(PullMsg msg) {
+		if (this.pushPull == null)
+			return;
+		List<Event> events = this.pushPull.pull(msg.getBallId(), msg.getMissing());
+		if (!events.isEmpty())
+			this.sendBall(events, Collections.singletonList(this.getSender()));
+	}
+
+	/**
+	 * Return a copy of the event as relayed eagerly, one round
+	 * younger than received: a relay is not a round. Otherwise the
+	 * copy could reach a node whose round ends before the one of
+	 * the relaying node, and the ttl would grow faster than it does
+	 * through the balls, breaking the assumption of the ordering
+	 * component. This way the ttl of an event never exceeds the one
+	 * it would have without eager relays, only the event arrives
+	 * earlier.
+	 *
+	 * @param event
+	 * @return
+	 */
+	private Event toRelayed(Event event) {
+		Event relayed = new Event(event);
+		relayed.setTtl(Math.max(0, event.getTtl() - 1));
+		return relayed;
+	}
+
+	private void onRelayMsg(RelayMsg msg) {
+		this.relayPending = false;
+		this.relay();
+	}
+
+	/**
+	 * Send the relay batch to K peers. Its events are sent
+	 * again, with their ttl incremented, within the ball at
+	 * the end of the round.
+	 */
+	private void relay() {
+		if (this.relayBatch.isEmpty())
+			return;
+		EventBuffer batch = this.relayBatch.freeze();
+		this.relayBatch = batch.next();
+		List<ActorRef> peers = getPeers();
+		if (LOGGER.isLoggable(DebugLevel.DEBUG)) {
+			LOGGER.logp(DebugLevel.DEBUG, SOURCE, "relay",
+					"EpTO: {0} at_{2}_{3} relayed_ball_to [{1}]",
+					new Object[] {
+							this.getSelf().path().name(),
+							peerNames(peers),
 							Long.toString(System.currentTimeMillis()),
 							this.clock.get()});
+		}
+		this.sendBall(batch, peers);
+	}
+
+	/**
+	 * Send the ball to the peers, split into chunks
+	 * if larger than the cap.
+	 *
+	 * @param ball
+	 * @param peers
+	 */
+	private void sendBall(EventBuffer ball, List<ActorRef> peers) {
+		this.sendBall(ball.toList(), peers);
+	}
+
+	private void sendBall(List<Event> events, List<ActorRef> peers) {
+		this.ballId++;
+		if (this.splitter.fits(events)) {
+			BallMsg ballMsg = new BallMsg(events);
 			for (ActorRef peer : peers) {
 				peer.tell(ballMsg, this.getSelf());
 			}
+			this.getMetrics().onBallSent(peers.size());
+			this.trace(TraceRecord.BALL_SENT, this.clock.get(), peers.size(), events.size());
+			return;
 		}
-		if (this.asPaper) {
-			this.paperOrderEvents(ball);
-		} else {
-			this.orderEvents(ball);
+		List<List<Event>> chunks = this.splitter.split(events);
+		for (int i = 0; i < chunks.size(); i++) {
+			BallChunkMsg chunkMsg = new BallChunkMsg(this.ballId, i, chunks.size(), chunks.get(i));
+			for (ActorRef peer : peers) {
+				peer.tell(chunkMsg, this.getSelf());
+			}
+			this.getMetrics().onBallSent(peers.size());
+			this.trace(TraceRecord.BALL_SENT, this.clock.get(), peers.size(),
+					chunks.get(i).size());
 		}
+	}
+
+	private void onRoundMsg(RoundMsg msg) {
+		long start = System.nanoTime();
+		if (!this.assembler.isEmpty()) {
+			// chunks still missing, do not wait any longer
+			for (List<Event> partial : this.assembler.drain()) {
+				this.mergeBall(partial);
+			}
+		}
+		this.eptoBroadcast();
+		// hand the ball off: it is frozen and shared, without
+		// copies, by the outgoing message and by the ordering
+		// component, while a fresh buffer collects the next one
+		this.nextBall.incrementTtl();
+		EventBuffer ball = this.nextBall.freeze();
+		this.nextBall = ball.next();
+		// the events waiting to be relayed are sent within the ball
+		if (this.eagerRelay)
+			this.relayBatch.clear();
+		if (!ball.isEmpty()) {
+			List<ActorRef> peers = getPeers();
+			if (LOGGER.isLoggable(DebugLevel.DEBUG)) {
+				LOGGER.logp(DebugLevel.DEBUG, SOURCE, "onRoundMsg",
+						"EpTO: {0} at_{2}_{3} sent_ball_to [{1}]",
+						new Object[] {
+								this.getSelf().path().name(),
+								peerNames(peers),
+								Long.toString(System.currentTimeMillis()),
+								this.clock.get()});
+			}
+			if (this.pushPull != null) {
+				this.sendDigest(ball, peers);
+			} else {
+				this.sendBall(ball, peers);
+			}
+		}
+		this.orderEvents(ball);
+		this.getMetrics().onRound(start,
+				this.nextBall.size(),
+				this.ordering.getReceived().size(),
+				this.ordering.getDelivered().size(),
+				this.ordering.getDiscarded());
+		this.trace(TraceRecord.ROUND, this.clock.get(),
+				this.ordering.getReceived().size(), ball.size());
 		sendRoundMsg();
 	}
 /*---------------------------------------------------------------------------*/
 /*                         EpTO: ORDERING COMPONENT                          */
 /*---------------------------------------------------------------------------*/
-	public void orderEvents(EventMap ball) {
-		// received and delivered are used only within this
+	/**
+	 * Order the events of the ball, as described in the paper
+	 * or with the changes of {@link OrderingComponent}.
+	 *
+	 * @param ball
+	 */
+	public void orderEvents(EventBuffer ball) {
+		// the ordering component is used only within this
 		// method. Hence no concurrent access should be
 		// of concern (hopefully)
-		received.incrementTtl();
+		this.ordering.nextRound();
 		for (Event event : ball.toList()) {
-			// TODO:HERE: changed from >= to > wrt the original paper
-			if (!this.delivered.contains(new EventKey(event)) &&
-					event.getTimestamp() > this.lastDeliveredTs) {
-				if (this.received.contains(event)) {
-					if (this.received.get(event).getTtl() < event.getTtl()) {
-						this.received.update(event);
-					}
-				} else {
-					this.received.insert(event);
-				}
-			}
-			// END:TODO
+			this.ordering.receive(event);
 		}
+		if (this.backPressure &&
+				this.ordering.getReceived().size() > this.maxPausedEvents)
+			this.dropLaggingSubscribers();
+		if (!this.backPressure)
+			this.deliverEvents(this.ordering.deliver());
+	}
 
-		long minTs = Long.MAX_VALUE;
-		EventMap deliverable = new EventMap();
-		for (Event event : this.received.toList()) {
-			if (isDeliverable(event)) {
-				deliverable.insert(event);
-			} else if (minTs > event.getTimestamp()) {
-				minTs = event.getTimestamp();
-			}
+
+	/**
+	 * Log and publish the events delivered by the
+	 * ordering component, sorted in delivery order.
+	 *
+	 * @param deliverable
+	 */
+	private void deliverEvents(List<Event> deliverable) {
+		if (LOGGER.isLoggable(DebugLevel.DEBUG)) {
+			String globalTime  = Long.toString(System.currentTimeMillis());
+			Long   logicalTime = this.clock.get();
+			LOGGER.logp(DebugLevel.DEBUG, SOURCE, "deliverEvents",
+					"EpTO: {0} at_{1}_{2} received_set {3}",
+					new Object[] {
+							this.getSelf().path().name(),
+							globalTime,
+							logicalTime,
+							this.ordering.getReceived().toString()});
+			LOGGER.logp(DebugLevel.DEBUG, SOURCE, "deliverEvents",
+					"EpTO: {0} at_{1}_{2} deliverable_set '{' {3} '}'",
+					new Object[] {
+							this.getSelf().path().name(),
+							globalTime,
+							logicalTime,
+							new LoggedEvents(deliverable)});
 		}
-		for (Event event : deliverable.toList()) {
-			// TODO:HERE: changed from > to >= wrt the original paper
-			if (event.getTimestamp() >= minTs) {
-				deliverable.remove(event);
-			} else {
-				received.remove(event);
+		if (deliverable.isEmpty())
+			return;
+		this.getMetrics().onDelivered(deliverable, this.nodeId);
+		if (this.trace != null) {
+			for (Event event : deliverable) {
+				this.trace(TraceRecord.DELIVER, event.getTimestamp(),
+						event.getSourceId(), event.getId());
 			}
-			// END:TODO:HERE:
 		}
-		String globalTime  = Long.toString(System.currentTimeMillis());
-		Long   logicalTime = this.clock.get();
-		LOGGER.log(DebugLevel.DEBUG,
-				"EpTO: {0} at_{1}_{2} received_set {3}",
-				new Object[] {
-						this.getSelf().path().name(),
-						globalTime,
-						logicalTime,
-						received.toString()});
-		LOGGER.log(DebugLevel.DEBUG,
-				"EpTO: {0} at_{1}_{2} deliverable_set {3}",
-				new Object[] {
-						this.getSelf().path().name(),
-						globalTime,
-						logicalTime,
-						deliverable.toString()});
-		for (Event event : deliverable.toSortedList()) {
-			this.delivered.add(new EventKey(event));
-			this.lastDeliveredTs = event.getTimestamp();
-			this.deliver(event);
+		// copied before being handed to the subscribers
+		LoggedEvents delivered = LOGGER.isLoggable(Level.INFO) ?
+				new LoggedEvents(deliverable) : null;
+		this.publish(deliverable);
+		if (delivered != null) {
+			LOGGER.logp(Level.INFO, SOURCE, "deliverEvents",
+					"EpTO: {0} at_{2}_{3} delivered '{' {1} '}'",
+					new Object[] {
+							this.getSelf().path().name(),
+							delivered,
+							Long.toString(System.currentTimeMillis()),
+							this.clock.get()});
 		}
-		if (deliverable.isEmpty())
-			return;
-		String deliveryList = String.join(", ",
-				deliverable.toSortedList().stream()
-				.map(event -> event.toString())
-				.collect(Collectors.toList()));
-		LOGGER.log(Level.INFO,
-				"EpTO: {0} at_{2}_{3} delivered '{' {1} '}'",
-				new Object[] {
-						this.getSelf().path().name(),
-						deliveryList,
-						Long.toString(System.currentTimeMillis()),
-						this.clock.get()});
 	}
 
+	private static String peerNames(List<ActorRef> peers) {
+		StringBuilder str = new StringBuilder();
+		for (ActorRef peer : peers) {
+			if (str.length() > 0)
+				str.append(", ");
+			str.append(peer.path().name());
+		}
+		return str.toString();
+	}
+
+	/**
+	 * Record an event of the node to the binary trace, if any
+	 * (see {@link TraceRecord} for the meaning of the fields).
+	 */
+	private void trace(int type, long clock, int a, int b) {
+		if (this.trace != null)
+			this.trace.record(type, this.nodeId, clock, a, b);
+	}
 
+/*---------------------------------------------------------------------------*/
+/*                               SUBSCRIBERS                                 */
+/*---------------------------------------------------------------------------*/
 	/**
-	 * Implement orderEvents as described in the paper.
+	 * Hand the delivered events of the round, as a single
+	 * batch, to every subscriber.
 	 *
-	 * @return
+	 * @param deliverable
 	 */
-	public void paperOrderEvents(EventMap ball) {
-		// received and delivered are used only within this
-		// method. Hence no concurrent access should be
-		// of concern (hopefully)
-		received.incrementTtl();
-		for (Event event : ball.toList()) {
-			if (!this.delivered.contains(new EventKey(event)) &&
-					event.getTimestamp() >= this.lastDeliveredTs) {
-				if (this.received.contains(event)) {
-					if (this.received.get(event).getTtl() < event.getTtl()) {
-						this.received.update(event);
-					}
-				} else {
-					this.received.insert(event);
-				}
-			}
-		}
-		long minTs = Long.MAX_VALUE;
-		EventMap deliverable = new EventMap();
-		for (Event event : this.received.toList()) {
-			if (isDeliverable(event)) {
-				deliverable.insert(event);
-			} else if (minTs > event.getTimestamp()) {
-				minTs = event.getTimestamp();
-			}
-		}
-		for (Event event : deliverable.toList()) {
-			if (event.getTimestamp() > minTs) {
-				deliverable.remove(event);
+	private void publish(List<Event> deliverable) {
+		for (Subscription subscription : this.subscriptions) {
+			DeliveryBatch batch = new DeliveryBatch(++subscription.sent, deliverable);
+			if (subscription.listener != null) {
+				subscription.listener.deliver(batch);
+				subscription.acked = subscription.sent;
 			} else {
-				received.remove(event);
+				subscription.subscriber.tell(batch, this.getSelf());
 			}
 		}
-		String globalTime  = Long.toString(System.currentTimeMillis());
-		Long   logicalTime = this.clock.get();
-		LOGGER.log(DebugLevel.DEBUG,
-				"EpTO: {0} at_{1}_{2} received_set {3}",
-				new Object[] {
-						this.getSelf().path().name(),
-						globalTime,
-						logicalTime,
-						received.toString()});
-		LOGGER.log(DebugLevel.DEBUG,
-				"EpTO: {0} at_{1}_{2} deliverable_set {3}",
-				new Object[] {
-						this.getSelf().path().name(),
-						globalTime,
-						logicalTime,
-						deliverable.toString()});
-		for (Event event : deliverable.toSortedList()) {
-			this.delivered.add(new EventKey(event));
-			this.lastDeliveredTs = event.getTimestamp();
-			this.deliver(event);
+		this.updateBackPressure();
+	}
+
+	private Subscription findSubscription(ActorRef subscriber, DeliveryListener listener) {
+		for (Subscription subscription : this.subscriptions) {
+			if (subscriber != null && subscriber.equals(subscription.subscriber))
+				return subscription;
+			if (listener != null && listener == subscription.listener)
+				return subscription;
 		}
-		if (deliverable.isEmpty())
+		return null;
+	}
+
+	/**
+	 * Stop delivering, and broadcasting, while a subscriber
+	 * has too many batches not yet acknowledged.
+	 */
+	private void updateBackPressure() {
+		boolean full = false;
+		for (Subscription subscription : this.subscriptions) {
+			full |= subscription.isFull();
+		}
+		if (full == this.backPressure)
 			return;
-		String deliveryList = String.join(", ",
-				deliverable.toSortedList().stream()
-				.map(event -> event.toString())
-				.collect(Collectors.toList()));
-		LOGGER.log(Level.INFO,
-				"EpTO: {0} at_{2}_{3} delivered '{' {1} '}'",
+		this.backPressure = full;
+		LOGGER.logp(Level.INFO, SOURCE, "updateBackPressure",
+				"EpTO: {0} at_{1}_{2} back_pressure {3}",
 				new Object[] {
 						this.getSelf().path().name(),
-						deliveryList,
 						Long.toString(System.currentTimeMillis()),
-						this.clock.get()});
+						this.clock.get(),
+						full ? "on" : "off"});
 	}
 
-/*---------------------------------------------------------------------------*/
+	private void onSubscribeMsg(SubscribeMsg msg) {
+		if (this.findSubscription(msg.getSubscriber(), msg.getListener()) != null)
+			return;
+		if (msg.getSubscriber() == null && msg.getListener() == null)
+			return;
+		if (msg.getSubscriber() != null)
+			this.getContext().watch(msg.getSubscriber());
+		this.subscriptions.add(new Subscription(
+				msg.getSubscriber(),
+				msg.getListener(),
+				msg.getMaxPendingBatches()));
+	}
 
-	private List<ActorRef> getPeers() {
-		Map<ActorRef, Long> view = this.getView();
-		List<ActorRef> listActors = new ArrayList<ActorRef>(view.keySet());
-		Collections.shuffle(listActors, new Random(prng.nextInt()));
-		int size = Integer.min(listActors.size(), NUM_RECEIVERS);
-		return listActors.subList(0, size);
+	private void unsubscribe(ActorRef subscriber, DeliveryListener listener) {
+		Subscription subscription = this.findSubscription(subscriber, listener);
+		if (subscription == null)
+			return;
+		this.subscriptions.remove(subscription);
+		if (subscriber != null)
+			this.getContext().unwatch(subscriber);
+		this.updateBackPressure();
+	}
+
+	/**
+	 * Remove the subscribers pausing the delivery. While
+	 * paused, the balls of the other nodes keep filling the
+	 * received set: this bounds it to maxPausedEvents
+	 * events, plus the ones of a round.
+	 */
+	private void dropLaggingSubscribers() {
+		for (Subscription subscription : new ArrayList<>(this.subscriptions)) {
+			if (!subscription.isFull())
+				continue;
+			LOGGER.logp(Level.WARNING, SOURCE, "dropLaggingSubscribers",
+					"EpTO: {0} at_{1}_{2} dropped_subscriber {3}",
+					new Object[] {
+							this.getSelf().path().name(),
+							Long.toString(System.currentTimeMillis()),
+							this.clock.get(),
+							subscription.subscriber.path().name()});
+			subscription.subscriber.tell(
+					new SubscriptionDroppedMsg(subscription.sent), this.getSelf());
+			this.unsubscribe(subscription.subscriber, null);
+		}
+	}
+
+	private void onUnsubscribeMsg(UnsubscribeMsg msg) {
+		this.unsubscribe(msg.getSubscriber(), msg.getListener());
 	}
 
-	private void deliver(Event event) {
-		// delivered event
+	private void onTerminated(Terminated msg) {
+		this.unsubscribe(msg.getActor(), null);
 	}
 
+	private void onDeliveryAckMsg(DeliveryAckMsg msg) {
+		Subscription subscription = this.findSubscription(this.getSender(), null);
+		if (subscription == null)
+			return;
+		if (msg.getSequence() > subscription.acked)
+			subscription.acked = Math.min(msg.getSequence(), subscription.sent);
+		this.updateBackPressure();
+	}
+
+/*---------------------------------------------------------------------------*/
+
+	private List<ActorRef> getPeers() {
+		return this.getPeers(NUM_RECEIVERS);
+	}
+
+	/**
+	 * Optional load source, submitting random events
+	 * as an application would do.
+	 */
 	private void onGenEventMsg(GenEventMsg msg) {
+		if (this.backPressure) {
+			// throttled by a lagging subscriber
+			sendGenEventMsg();
+			return;
+		}
 		if (canSend != null && canSend) {
 			canSend = false;
 		}
-		Event newEvent = new Event(
-				nextEventId.getAndIncrement(),
-				Action.values()[this.prng
-				                .nextInt(Action.values().length)]);
-		this.eptoBroadcast(newEvent);
+		this.submit(new BroadcastMsg(Action.values()[this.prng
+		                                             .nextInt(Action.values().length)]));
 		sendGenEventMsg();
 	}
 
 	private void onEptoStartMsg(EptoStartMsg msg) {
+		if (this.nodeId < 0) {
+			// events cannot be stamped without a node id,
+			// ask for it again and postpone the start
+			this.requestNodeId();
+			if (this.nodeId < 0) {
+				this.getContext()
+				.getSystem()
+				.scheduler()
+				.scheduleOnce(Duration.create(REGISTER_RETRY_MILLIS,
+						TimeUnit.MILLISECONDS),
+						this.getSelf(),
+						msg,
+						getContext().system().dispatcher(),
+						this.getSelf());
+				return;
+			}
+		}
 		sendRoundMsg(); // start first round
 		sendGenEventMsg();
 	}
@@ -432,9 +874,20 @@ public class EptoActor extends CyclonActor {
 	public Receive createReceive() {
 		return super.createBuilder()
 				.match(BallMsg.class, this::onBallMsg)
+				.match(BallChunkMsg.class, this::onBallChunkMsg)
+				.match(DigestMsg.class, this::onDigestMsg)
+				.match(PullMsg.class, this::onPullMsg)
 				.match(RoundMsg.class, this::onRoundMsg)
+				.match(RelayMsg.class, this::onRelayMsg)
 				.match(GenEventMsg.class, this::onGenEventMsg)
+				.match(BroadcastMsg.class, this::onBroadcastMsg)
 				.match(EptoStartMsg.class, this::onEptoStartMsg)
+				.match(RegisterMsg.class, this::onRegisterMsg)
+				.match(NodeIdMsg.class, this::onNodeIdMsg)
+				.match(SubscribeMsg.class, this::onSubscribeMsg)
+				.match(UnsubscribeMsg.class, this::onUnsubscribeMsg)
+				.match(DeliveryAckMsg.class, this::onDeliveryAckMsg)
+				.match(Terminated.class, this::onTerminated)
 				.build();
 	}
 }
@@ -1,7 +1,9 @@
 package com.ds2.jepto.actors;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -15,7 +17,9 @@ import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
 import com.ds2.jepto.actors.ActorMain.EptoInputException;
+import com.ds2.jepto.actors.analysis.TotalOrderChecker;
 import com.ds2.jepto.actors.cyclon.JoinMsg;
+import com.ds2.jepto.actors.trace.TraceRecorder;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -26,7 +30,7 @@ import scala.concurrent.duration.Duration;
 public class EptoMain {
 
 	private static final Logger LOGGER = Logger.getLogger("");
-	private static FileHandler loggerFileHandler;
+	private static Handler loggerFileHandler;
 
 	private static final String SYSTEM_NAME = "epto";
 	private static AtomicLong  SEED = new AtomicLong(42);
@@ -40,9 +44,22 @@ public class EptoMain {
 	private static long maxTtl        = 2;
 	private static long roundInterval = 5000l;
 	private static long shufflePeriod = 100l;
+	// 0 to keep the shuffle period fixed
+	private static long shufflePeriodMax = 0l;
 
 	private static long numActors   = 100l;
 	private static boolean asPaper  = false;
+	private static boolean packedBalls = false;
+	private static int maxBallBytes    = 0;
+	private static int maxBallEvents   = 0;
+	private static boolean eagerRelay  = false;
+	private static long relayLinger    = 5l;
+	private static boolean pushPull    = false;
+	private static int maxSubmitted    = EptoActor.DEFAULT_MAX_SUBMITTED;
+	private static int maxPausedEvents = EptoActor.DEFAULT_MAX_PAUSED_EVENTS;
+	private static boolean trace       = false;
+	private static boolean checkOrder  = false;
+	private static boolean asyncLog    = true;
 	private static Level logLevel   = Level.INFO;
 	private static Duration simTime = null;
 
@@ -58,10 +75,13 @@ public class EptoMain {
 			if (!parent.mkdirs() && !parent.exists()) {
 			    throw new IllegalStateException("Couldn't create dir: " + parent);
 			}
-			loggerFileHandler = new FileHandler(path);
+			if (asyncLog) {
+				loggerFileHandler = new AsyncFileHandler(path);
+			} else {
+				loggerFileHandler = new FileHandler(path);
+				loggerFileHandler.setFormatter(new SimpleFormatter());
+			}
 			LOGGER.addHandler(loggerFileHandler);
-			SimpleFormatter sf = new SimpleFormatter();
-			loggerFileHandler.setFormatter(sf);
 
 			// change level for the handlers and the logger
 			LOGGER.setLevel(level);
@@ -75,6 +95,16 @@ public class EptoMain {
 		}
 	}
 
+	private static void createExecutionTraceFile() {
+		String path = System.getProperty("user.home") + File.separator
+				+ "EpTOlogs" + File.separator + "execution.trace";
+		try {
+			TraceRecorder.install(new File(path));
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Cannot trace to " + path, e);
+		}
+	}
+
 	/**
 	 * Convenience method used to generate actors quickly.
 	 *
@@ -89,10 +119,19 @@ public class EptoMain {
 				viewSize,
 				shuffleLength,
 				shufflePeriod,
+				shufflePeriodMax,
 				// TODO: for easy wrong execution select SEED.get()
 				//SEED.get(),
 				SEED.getAndIncrement(),
 				asPaper,
+				packedBalls,
+				maxBallBytes,
+				maxBallEvents,
+				eagerRelay,
+				relayLinger,
+				pushPull,
+				maxSubmitted,
+				maxPausedEvents,
 				canSend),
 				name);
 	}
@@ -147,6 +186,14 @@ public class EptoMain {
 			}
 		}
 
+		TotalOrderChecker checker = null;
+		if (checkOrder) {
+			checker = new TotalOrderChecker();
+			for (ActorRef peer : peers) {
+				new EptoNode(peer).subscribe(checker.listener(peer.path().name()));
+			}
+		}
+
 		//peers.get(23).tell(new DebugMsg(DebugType.TRACE_CACHE), null);
 		// create a star topology centered at the
 		// first element of the list
@@ -161,6 +208,15 @@ public class EptoMain {
 			if (simTime != null) {
 				Thread.sleep(simTime.toMillis());
 				system.terminate();
+				if (TraceRecorder.current() != null)
+					TraceRecorder.current().close();
+				if (checker != null) {
+					system.getWhenTerminated().toCompletableFuture().join();
+					checker.check();
+					ByteArrayOutputStream report = new ByteArrayOutputStream();
+					checker.printReport(new PrintStream(report, true));
+					LOGGER.log(Level.INFO, "Total order check\n" + report.toString());
+				}
 			}
 		} catch (InterruptedException e) {
 			e.printStackTrace();
@@ -206,6 +262,40 @@ public class EptoMain {
 		// 3) get num senders
 		if (config.hasPath("jepto.config.num-senders"))
 			numSenders = Long.parseUnsignedLong(config.getString("jepto.config.num-senders"));
+		// 4) store the balls in primitive arrays
+		if (config.hasPath("jepto.config.packed-balls"))
+			packedBalls = Boolean.parseBoolean(config.getString("jepto.config.packed-balls"));
+		// 5) split the balls exceeding the cap, 0 for no limit
+		if (config.hasPath("jepto.config.max-ball-bytes"))
+			maxBallBytes = Integer.parseUnsignedInt(config.getString("jepto.config.max-ball-bytes"));
+		if (config.hasPath("jepto.config.max-ball-events"))
+			maxBallEvents = Integer.parseUnsignedInt(config.getString("jepto.config.max-ball-events"));
+		// 6) relay the new events without waiting for the round
+		if (config.hasPath("jepto.config.eager-relay"))
+			eagerRelay = Boolean.parseBoolean(config.getString("jepto.config.eager-relay"));
+		if (config.hasPath("jepto.config.relay-linger"))
+			relayLinger = Long.parseUnsignedLong(config.getString("jepto.config.relay-linger"));
+		// 7) send digests of the balls, the peers pull the missing events
+		if (config.hasPath("jepto.config.push-pull"))
+			pushPull = Boolean.parseBoolean(config.getString("jepto.config.push-pull"));
+		// 8) bound the submissions and the received set under back-pressure
+		if (config.hasPath("jepto.config.max-submitted"))
+			maxSubmitted = Integer.parseUnsignedInt(config.getString("jepto.config.max-submitted"));
+		if (config.hasPath("jepto.config.max-paused-events"))
+			maxPausedEvents = Integer.parseUnsignedInt(config.getString("jepto.config.max-paused-events"));
+		// 9) record a binary trace of the protocol
+		if (config.hasPath("jepto.config.trace"))
+			trace = Boolean.parseBoolean(config.getString("jepto.config.trace"));
+		// 10) check the total order of the deliveries, live
+		if (config.hasPath("jepto.config.check-order"))
+			checkOrder = Boolean.parseBoolean(config.getString("jepto.config.check-order"));
+		// back off the cyclon shuffles once the views are stable
+		if (config.hasPath("jepto.config.cyclon.shuffle-period-max-millis"))
+			shufflePeriodMax = Long.parseUnsignedLong(
+					config.getString("jepto.config.cyclon.shuffle-period-max-millis"));
+		// 11) write the log from a background thread
+		if (config.hasPath("jepto.config.async-log"))
+			asyncLog = Boolean.parseBoolean(config.getString("jepto.config.async-log"));
 	}
 
 	public static void printRunParameters() {
@@ -218,7 +308,19 @@ public class EptoMain {
 		str.append("Cyclon view size:\t" + viewSize + "\n");
 		str.append("Cyclon shuffle length:\t"+ shuffleLength + "\n");
 		str.append("Cyclon shuffle period:\t" + shufflePeriod + "\n");
+		str.append("Cyclon shuffle period max:\t" + shufflePeriodMax + "\n");
 		str.append("Num Senders:\t\t" + numSenders + "\n");
+		str.append("Packed balls:\t\t" + packedBalls + "\n");
+		str.append("Max ball bytes:\t\t" + maxBallBytes + "\n");
+		str.append("Max ball events:\t" + maxBallEvents + "\n");
+		str.append("Eager relay:\t\t" + eagerRelay + "\n");
+		str.append("Relay linger:\t\t" + relayLinger + "\n");
+		str.append("Push pull:\t\t" + pushPull + "\n");
+		str.append("Max submitted:\t\t" + maxSubmitted + "\n");
+		str.append("Max paused events:\t" + maxPausedEvents + "\n");
+		str.append("Trace:\t\t\t" + trace + "\n");
+		str.append("Check order:\t\t" + checkOrder + "\n");
+		str.append("Async log:\t\t" + asyncLog + "\n");
 		LOGGER.log(Level.INFO, "Run parameters\n" + str.toString());
 	}
 
@@ -257,6 +359,8 @@ public class EptoMain {
 			}
 		}
 		createExecutionLogFile(logLevel);
+		if (trace)
+			createExecutionTraceFile();
 		LOGGER.log(logLevel, "Set base log level to " + logLevel.toString());
 		printRunParameters();
 		/*********************************************************************/
@@ -0,0 +1,91 @@
+package com.ds2.jepto.actors;
+
+import java.nio.ByteBuffer;
+
+import com.ds2.jepto.actors.Event.Action;
+
+import akka.actor.ActorRef;
+
+/**
+ * Java facade over an EpTO node, hiding the
+ * messages understood by the {@link EptoActor}.
+ */
+public class EptoNode {
+
+	private final ActorRef node;
+
+	public EptoNode(ActorRef node) {
+		if (node == null)
+			throw new IllegalArgumentException("No node given");
+		this.node = node;
+	}
+
+	public ActorRef getActorRef() {
+		return this.node;
+	}
+
+	/**
+	 * Broadcast an event carrying the given action.
+	 *
+	 * @param action
+	 */
+	public void broadcast(Action action) {
+		this.node.tell(new BroadcastMsg(action), ActorRef.noSender());
+	}
+
+	/**
+	 * Broadcast an event carrying the given action and the
+	 * remaining bytes of the payload, which must not change
+	 * afterwards: they are shared, not copied.
+	 *
+	 * @param action
+	 * @param payload
+	 */
+	public void broadcast(Action action, ByteBuffer payload) {
+		this.broadcast(action, payload, ActorRef.noSender());
+	}
+
+	/**
+	 * Broadcast an event as {@link #broadcast(Action, ByteBuffer)}
+	 * does, replying to the sender with a {@link BroadcastRejectedMsg}
+	 * if the node has too many events waiting for the next round.
+	 * Without a sender, the rejection goes to the dead letters.
+	 *
+	 * @param action
+	 * @param payload
+	 * @param sender
+	 */
+	public void broadcast(Action action, ByteBuffer payload, ActorRef sender) {
+		this.node.tell(new BroadcastMsg(action, payload), sender);
+	}
+
+	/**
+	 * Call the listener, on the thread of the node, with
+	 * the events delivered at every round. The node must
+	 * belong to the local actor system.
+	 *
+	 * @param listener
+	 */
+	public void subscribe(DeliveryListener listener) {
+		this.node.tell(new SubscribeMsg(listener), ActorRef.noSender());
+	}
+
+	/**
+	 * Send the events delivered at every round to the
+	 * subscriber, which must acknowledge them.
+	 *
+	 * @param subscriber
+	 * @param maxPendingBatches
+	 */
+	public void subscribe(ActorRef subscriber, int maxPendingBatches) {
+		this.node.tell(new SubscribeMsg(subscriber, maxPendingBatches), ActorRef.noSender());
+	}
+
+	public void unsubscribe(DeliveryListener listener) {
+		this.node.tell(new UnsubscribeMsg(listener), ActorRef.noSender());
+	}
+
+	public void unsubscribe(ActorRef subscriber) {
+		this.node.tell(new UnsubscribeMsg(subscriber), ActorRef.noSender());
+	}
+}
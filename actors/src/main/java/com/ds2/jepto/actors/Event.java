@@ -1,33 +1,69 @@
 package com.ds2.jepto.actors;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import akka.actor.ActorRef;
 
 public class Event implements Serializable {
 
-	enum Action {
+	public static final ByteBuffer EMPTY_PAYLOAD =
+			ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+	public enum Action {
 		DO,
 		DONT
 	}
 
 	private int id;
 	private ActorRef source;
+	private int sourceId; // node id of the source
 	private long timestamp;
-	private int  ttl;
+	private int  ttl;   // used when not bound to a clock
 	private final Action action;
 
-	private Event(int id,
+	// read-only, shared by every copy of the event
+	private transient ByteBuffer payload;
+
+	// when bound to a clock the ttl is derived
+	// from the round at which it was 0
+	private transient RoundClock clock;
+	private long birth;
+
+	public Event(int id,
 			Action action,
 			ActorRef source,
+			int sourceId,
 			long timestamp,
 			int ttl) {
+		this(id, action, source, sourceId, timestamp, ttl, EMPTY_PAYLOAD);
+	}
+
+	/**
+	 * The payload is not copied: a read-only view of its
+	 * remaining bytes is shared by the event and its copies,
+	 * hence its content must not be changed afterwards.
+	 */
+	public Event(int id,
+			Action action,
+			ActorRef source,
+			int sourceId,
+			long timestamp,
+			int ttl,
+			ByteBuffer payload) {
 		super();
 		this.id = id;
 		this.action = action;
 		this.source = source;
+		this.sourceId = sourceId;
 		this.timestamp = timestamp;
 		this.ttl = ttl;
+		this.payload = readOnly(payload);
+		this.clock = null;
+		this.birth = 0;
 	}
 
 	/**
@@ -37,15 +73,69 @@ public class Event implements Serializable {
 	 * @param timestamp
 	 */
 	public Event(int id, Action action) {
-		this(id, action, null, 0l, 0);
+		this(id, action, null, -1, 0l, 0);
+	}
+
+	public Event(int id, Action action, ByteBuffer payload) {
+		this(id, action, null, -1, 0l, 0, payload);
+	}
+
+	private static ByteBuffer readOnly(ByteBuffer payload) {
+		if (payload == null || !payload.hasRemaining())
+			return EMPTY_PAYLOAD;
+		return payload.slice().asReadOnlyBuffer();
 	}
 
+	/**
+	 * Copy the event, not bound to any clock.
+	 * The payload is shared.
+	 *
+	 * @param event
+	 */
 	public Event(Event event) {
 		this(event.id,
 			event.action,
 			event.source,
+			event.sourceId,
 			event.timestamp,
-			event.ttl);
+			event.getTtl());
+		this.payload = event.payload;
+	}
+
+	/**
+	 * Copy the event, binding it to the given clock:
+	 * its ttl will grow at every tick of the clock.
+	 *
+	 * @param event
+	 * @param clock
+	 */
+	public Event(Event event, RoundClock clock) {
+		this(event);
+		this.clock = clock;
+		this.birth = clock.now() - this.ttl;
+	}
+
+	/**
+	 * Java serialization carries the current ttl,
+	 * not the birth round.
+	 */
+	private Object writeReplace() {
+		return this.clock == null ? this : new Event(this);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		byte[] bytes = new byte[this.payload.remaining()];
+		this.payload.duplicate().get(bytes);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		this.payload = readOnly(ByteBuffer.wrap(bytes));
 	}
 
 	public long getTimestamp() {
@@ -56,24 +146,72 @@ public class Event implements Serializable {
 		return source;
 	}
 
+	public int getSourceId() {
+		return sourceId;
+	}
+
+	/**
+	 * Position of the event in the delivery order:
+	 * events are sorted by timestamp, ties are broken
+	 * by the node id of their source.
+	 *
+	 * @return
+	 */
+	public long getOrderKey() {
+		return NodeRegistry.orderKey(timestamp, sourceId);
+	}
+
 	public int getId() {
 		return id;
 	}
 
 	public int getTtl() {
-		return ttl;
+		if (clock == null)
+			return ttl;
+		return (int) (clock.now() - birth);
 	}
 
 	public void setTtl(int ttl) {
-		this.ttl = ttl;
+		if (clock == null)
+			this.ttl = ttl;
+		else
+			this.birth = clock.now() - ttl;
 	}
 
 	public Action getAction() {
 		return action;
 	}
 
-	public void setSource(ActorRef source) {
+	/**
+	 * Return a read-only view of the payload, sharing its
+	 * content: the position of the returned buffer can be
+	 * changed freely.
+	 *
+	 * @return
+	 */
+	public ByteBuffer getPayload() {
+		return this.payload.duplicate();
+	}
+
+	public int getPayloadSize() {
+		return this.payload.remaining();
+	}
+
+	/**
+	 * Return the payload itself, to be shared
+	 * with {@link #sharePayload(ByteBuffer)}.
+	 */
+	ByteBuffer sharedPayload() {
+		return this.payload;
+	}
+
+	void sharePayload(ByteBuffer payload) {
+		this.payload = payload;
+	}
+
+	public void setSource(ActorRef source, int sourceId) {
 		this.source = source;
+		this.sourceId = sourceId;
 	}
 
 	public void setTimestamp(long timestamp) {
@@ -86,6 +224,6 @@ public class Event implements Serializable {
 				", source=" + source.path().name() +
 				", id=" + id +
 				", action=" + action +
-				", ttl=" + ttl + "]";
+				", ttl=" + getTtl() + "]";
 	}
 }
@@ -0,0 +1,107 @@
+package com.ds2.jepto.actors;
+
+import java.util.List;
+
+/**
+ * Events collected by the dissemination component
+ * during a round, at most one per event key.
+ *
+ * Implementations copy the events given to them:
+ * callers can keep using their own instances.
+ */
+public interface EventBuffer {
+
+	public void insert(Event event);
+
+	public void remove(Event event);
+
+	/**
+	 * Return the event having the same key of the
+	 * given one, null if not present.
+	 *
+	 * @param event
+	 * @return
+	 */
+	public Event get(Event event);
+
+	public boolean contains(Event event);
+
+	/**
+	 * Return the ttl of the event having the same key of
+	 * the given one, -1 if not present.
+	 *
+	 * @param event
+	 * @return
+	 */
+	public int getTtl(Event event);
+
+	/**
+	 * If event is contained within the buffer,
+	 * update its ttl.
+	 *
+	 * @param event
+	 */
+	public void update(Event event);
+
+	/**
+	 * Insert the event if not present, otherwise raise the
+	 * ttl of the contained one if the given one is greater.
+	 *
+	 * @param event
+	 */
+	public void merge(Event event);
+
+	/**
+	 * Raise the ttl of the event having the given key
+	 * to the given one, if greater.
+	 *
+	 * @param sourceId
+	 * @param eventId
+	 * @param ttl
+	 * @return false if the event is not present
+	 */
+	public boolean raiseTtl(int sourceId, int eventId, int ttl);
+
+	/**
+	 * Increment the ttl of every event.
+	 */
+	public void incrementTtl();
+
+	/**
+	 * Return a copy of the events, or the events
+	 * themselves if the buffer is frozen.
+	 *
+	 * @return
+	 */
+	public List<Event> toList();
+
+	public List<Event> toSortedList();
+
+	public boolean isEmpty();
+
+	public int size();
+
+	public void clear();
+
+	/**
+	 * Make the buffer immutable and return it.
+	 *
+	 * A frozen buffer hands out its own events instead of
+	 * copies: they must be treated as read-only, buffers
+	 * receiving them copy them on insertion.
+	 *
+	 * @return
+	 */
+	public EventBuffer freeze();
+
+	public boolean isFrozen();
+
+	/**
+	 * Return an empty buffer, of the same kind, collecting
+	 * the events of the next round. A frozen buffer may
+	 * hand its storage over to it.
+	 *
+	 * @return
+	 */
+	public EventBuffer next();
+}
@@ -0,0 +1,195 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compact description of a set of events: the ids of each
+ * source, as runs of consecutive ids, optionally followed by
+ * the ttl of every event.
+ *
+ * Sources number their events consecutively, hence a ball
+ * is usually described by a few runs per source.
+ */
+public class EventDigest implements Serializable {
+
+	/**
+	 * Called with the key, and the ttl if carried (-1 otherwise),
+	 * of the events of a digest, in key order.
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+		public void visit(int sourceId, int eventId, int ttl);
+	}
+
+	private static final Comparator<Event> KEY_ORDER = new Comparator<Event>() {
+		@Override
+		public int compare(Event event0, Event event1) {
+			return Long.compare(
+					EventKey.pack(event0.getSourceId(), event0.getId()),
+					EventKey.pack(event1.getSourceId(), event1.getId()));
+		}
+	};
+
+	// one entry per run
+	private final int[] sourceIds;
+	private final int[] firstIds;
+	private final int[] lengths;
+	private final int   numRuns;
+	// one entry per event, in run order, null if not carried
+	private final int[] ttls;
+	private final int   size;
+
+	public EventDigest(int[] sourceIds, int[] firstIds, int[] lengths, int numRuns, int[] ttls) {
+		super();
+		int size = 0;
+		for (int i = 0; i < numRuns; i++) {
+			size += lengths[i];
+		}
+		if (ttls != null && ttls.length < size)
+			throw new IllegalArgumentException("Expected " + size + " ttls, found " + ttls.length);
+		this.sourceIds = sourceIds;
+		this.firstIds  = firstIds;
+		this.lengths   = lengths;
+		this.numRuns   = numRuns;
+		this.ttls      = ttls;
+		this.size      = size;
+	}
+
+	/**
+	 * Describe the given events.
+	 *
+	 * @param events
+	 * @param withTtl if true, the ttl of the events is carried too
+	 * @return
+	 */
+	public static EventDigest of(List<Event> events, boolean withTtl) {
+		List<Event> sorted = new ArrayList<>(events);
+		sorted.sort(KEY_ORDER);
+		Builder builder = new Builder(sorted.size());
+		for (Event event : sorted) {
+			builder.add(event.getSourceId(), event.getId(), event.getTtl());
+		}
+		return builder.build(withTtl);
+	}
+
+	/**
+	 * Collect the keys of a digest, given in key order.
+	 */
+	public static class Builder {
+		private int[] sourceIds;
+		private int[] firstIds;
+		private int[] lengths;
+		private int   numRuns;
+		private int[] ttls;
+		private int   size;
+
+		public Builder() {
+			this(16);
+		}
+
+		public Builder(int capacity) {
+			capacity = Math.max(capacity, 1);
+			this.sourceIds = new int[capacity];
+			this.firstIds  = new int[capacity];
+			this.lengths   = new int[capacity];
+			this.ttls      = new int[capacity];
+			this.numRuns   = 0;
+			this.size      = 0;
+		}
+
+		public void add(int sourceId, int eventId, int ttl) {
+			int last = this.numRuns - 1;
+			if (last >= 0 &&
+					this.sourceIds[last] == sourceId &&
+					this.firstIds[last] + this.lengths[last] == eventId) {
+				this.lengths[last]++;
+			} else {
+				if (this.numRuns == this.sourceIds.length) {
+					int capacity = this.numRuns << 1;
+					this.sourceIds = Arrays.copyOf(this.sourceIds, capacity);
+					this.firstIds  = Arrays.copyOf(this.firstIds, capacity);
+					this.lengths   = Arrays.copyOf(this.lengths, capacity);
+				}
+				this.sourceIds[this.numRuns] = sourceId;
+				this.firstIds[this.numRuns]  = eventId;
+				this.lengths[this.numRuns]   = 1;
+				this.numRuns++;
+			}
+			if (this.size == this.ttls.length)
+				this.ttls = Arrays.copyOf(this.ttls, this.size << 1);
+			this.ttls[this.size++] = ttl;
+		}
+
+		public boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		public EventDigest build(boolean withTtl) {
+			return new EventDigest(this.sourceIds,
+					this.firstIds,
+					this.lengths,
+					this.numRuns,
+					withTtl ? this.ttls : null);
+		}
+	}
+
+	public void forEach(Visitor visitor) {
+		int event = 0;
+		for (int run = 0; run < this.numRuns; run++) {
+			for (int i = 0; i < this.lengths[run]; i++, event++) {
+				visitor.visit(this.sourceIds[run],
+						this.firstIds[run] + i,
+						this.ttls == null ? -1 : this.ttls[event]);
+			}
+		}
+	}
+
+	public int getNumRuns() {
+		return numRuns;
+	}
+
+	public int getSourceId(int run) {
+		return sourceIds[run];
+	}
+
+	public int getFirstId(int run) {
+		return firstIds[run];
+	}
+
+	public int getLength(int run) {
+		return lengths[run];
+	}
+
+	public boolean hasTtl() {
+		return ttls != null;
+	}
+
+	public int getTtl(int event) {
+		return ttls[event];
+	}
+
+	/**
+	 * Return the number of events described.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public String toString() {
+		StringBuilder str = new StringBuilder("{ ");
+		for (int run = 0; run < this.numRuns; run++) {
+			if (run > 0)
+				str.append(", ");
+			str.append(this.sourceIds[run])
+			.append(':')
+			.append(this.firstIds[run])
+			.append('-')
+			.append(this.firstIds[run] + this.lengths[run] - 1);
+		}
+		return str.append(" }").toString();
+	}
+}
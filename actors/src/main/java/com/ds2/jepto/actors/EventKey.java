@@ -1,34 +1,38 @@
 package com.ds2.jepto.actors;
 
-import akka.actor.ActorRef;
-
+/**
+ * Identify an event by the node id of its source
+ * and its id, packed in a single long.
+ */
 public class EventKey {
-	private final ActorRef peer;
-	private final int eventId;
-	
-	public EventKey(ActorRef peer, int eventId) {
+	private final long key;
+
+	public EventKey(int sourceId, int eventId) {
 		super();
-		this.peer = peer;
-		this.eventId = eventId;
+		this.key = pack(sourceId, eventId);
 	}
-	
+
 	public EventKey(Event event) {
-		this(event.getSource(), event.getId());
+		this(event.getSourceId(), event.getId());
 	}
-	
-	public ActorRef getPeer() {
-		return peer;
+
+	public static long pack(int sourceId, int eventId) {
+		return ((long) sourceId << Integer.SIZE) | (eventId & 0xFFFFFFFFl);
+	}
+
+	public int getSourceId() {
+		return (int) (key >>> Integer.SIZE);
 	}
 	public int getEventId() {
-		return eventId;
+		return (int) key;
+	}
+	public long getKey() {
+		return key;
 	}
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + eventId;
-		result = prime * result + ((peer == null) ? 0 : peer.hashCode());
-		return result;
+		// spread source and event ids over the whole int
+		return Long.hashCode(key * 0x9E3779B97F4A7C15l);
 	}
 	@Override
 	public boolean equals(Object obj) {
@@ -39,13 +43,6 @@ public class EventKey {
 		if (getClass() != obj.getClass())
 			return false;
 		EventKey other = (EventKey) obj;
-		if (eventId != other.eventId)
-			return false;
-		if (peer == null) {
-			if (other.peer != null)
-				return false;
-		} else if (!peer.equals(other.peer))
-			return false;
-		return true;
+		return key == other.key;
 	}
 }
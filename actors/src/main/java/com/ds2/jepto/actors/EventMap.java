@@ -1,67 +1,147 @@
 package com.ds2.jepto.actors;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public class EventMap {
+/**
+ * Event buffer backed by a hash map of event copies.
+ *
+ * @see PackedEventMap
+ */
+public class EventMap implements EventBuffer {
+
+	private static final Comparator<Event> DELIVERY_ORDER = new Comparator<Event>() {
+		@Override
+		public int compare(Event event0, Event event1) {
+			return Long.compare(event0.getOrderKey(), event1.getOrderKey());
+		}
+	};
 
 	private Map<EventKey, Event> events;
+	private RoundClock           clock;  // ttl of the events
+
+	// once frozen the map cannot change, hence its
+	// events can be shared instead of being copied
+	private boolean     frozen;
+	private List<Event> frozenList;
 
 	public EventMap() {
 		this.events = new HashMap<>();
+		this.clock  = new RoundClock();
+		this.frozen = false;
+		this.frozenList = null;
 	}
 
 	public EventMap(Map<EventKey, Event> events) {
-		this.events = new HashMap<>();
+		this();
 		// do not use putAll due to reference copy!
 		for (Event event : events.values()) {
 			this.insert(event);
 		}
 	}
 
+	private void checkMutable() {
+		if (this.frozen)
+			throw new IllegalStateException("The event map is frozen");
+	}
+
+	@Override
+	public EventMap freeze() {
+		if (!this.frozen) {
+			this.frozen = true;
+			this.frozenList = Collections.unmodifiableList(
+					new ArrayList<>(this.events.values()));
+		}
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+
+	@Override
 	public void insert(Event event) {
+		this.checkMutable();
 		this.events.put(
-				new EventKey(event.getSource(), event.getId()),
-				new Event(event));
+				new EventKey(event),
+				new Event(event, this.clock));
 	}
 
+	@Override
 	public void remove(Event event) {
+		this.checkMutable();
 		this.events.remove(new EventKey(event));
 	}
 
+	@Override
 	public Event get(Event event) {
 		return this.events.get(
-				new EventKey(event.getSource(),
-				event.getId()));
+				new EventKey(event));
 	}
 
+	@Override
 	public boolean contains(Event event) {
 		return this.events.containsKey(new EventKey(event));
 	}
 
-	/**
-	 * If event is contained within the map,
-	 * update its ttl.
-	 *
-	 * @param fevent
-	 */
+	@Override
+	public int getTtl(Event event) {
+		Event stored = this.get(event);
+		if (stored == null)
+			return -1;
+		return stored.getTtl();
+	}
+
+	@Override
 	public void update(Event event) {
+		this.checkMutable();
 		this.events.put(
-				new EventKey(event.getSource(), event.getId()),
-				new Event(event));
+				new EventKey(event),
+				new Event(event, this.clock));
 	}
 
-	public void incrementTtl() {
-		for (Event event : events.values()) {
-			event.setTtl(event.getTtl() + 1);
+	@Override
+	public void merge(Event event) {
+		this.checkMutable();
+		Event stored = this.get(event);
+		if (stored == null) {
+			this.insert(event);
+		} else if (stored.getTtl() < event.getTtl()) {
+			stored.setTtl(event.getTtl());
 		}
 	}
 
+	@Override
+	public boolean raiseTtl(int sourceId, int eventId, int ttl) {
+		this.checkMutable();
+		Event stored = this.events.get(new EventKey(sourceId, eventId));
+		if (stored == null)
+			return false;
+		if (stored.getTtl() < ttl)
+			stored.setTtl(ttl);
+		return true;
+	}
+
+	/**
+	 * Increment the ttl of every event, in constant time.
+	 */
+	@Override
+	public void incrementTtl() {
+		this.checkMutable();
+		this.clock.tick();
+	}
+
+	@Override
 	public List<Event> toList() {
+		if (this.frozen)
+			return this.frozenList;
 		EventMap eventMap = this.clone();
 		Event events[] = new Event[eventMap.events.size()];
 		return Arrays.asList(eventMap.events.values().toArray(events));
@@ -72,41 +152,55 @@ public class EventMap {
 	 * @param eventList
 	 */
 	public void fromList(List<Event> eventList) {
+		this.checkMutable();
 		this.events.clear();
 		for (Event event : eventList) {
 			this.events.put(
-					new EventKey(event.getSource(), event.getId()),
-					new Event(event));
+					new EventKey(event),
+					new Event(event, this.clock));
 		}
 	}
 
+	@Override
 	public boolean isEmpty() {
 		return this.events.isEmpty();
 	}
 
+	@Override
+	public int size() {
+		return this.events.size();
+	}
+
+	@Override
 	public void clear() {
+		this.checkMutable();
 		this.events.clear();
 	}
 
+	@Override
+	public EventMap next() {
+		return new EventMap();
+	}
+
+	/**
+	 * Return a mutable deep copy of the map.
+	 */
 	public EventMap clone() {
 		EventMap temp = new EventMap(this.events);
 		return temp;
 	}
 
+	@Override
 	public List<Event> toSortedList() {
-		EventMap eventMap = this.clone();
-		Event events[] = new Event[eventMap.events.size()];
-		List<Event> tmp = Arrays.asList(eventMap.events.values().toArray(events));
-		tmp.sort(new Comparator<Event>() {
-			@Override
-			public int compare(Event event0, Event event1) {
-				if (event0.getTimestamp() < event1.getTimestamp())
-					return -1;
-				if (event0.getTimestamp() > event1.getTimestamp())
-					return 1;
-				return event0.getSource().toString().compareTo(event1.getSource().toString());
-			}
-		});
+		List<Event> tmp;
+		if (this.frozen) {
+			tmp = new ArrayList<>(this.frozenList);
+		} else {
+			EventMap eventMap = this.clone();
+			Event events[] = new Event[eventMap.events.size()];
+			tmp = Arrays.asList(eventMap.events.values().toArray(events));
+		}
+		tmp.sort(DELIVERY_ORDER);
 		return tmp;
 	}
 
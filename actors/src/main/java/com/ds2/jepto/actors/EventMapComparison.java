@@ -0,0 +1,130 @@
+package com.ds2.jepto.actors;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.ds2.jepto.actors.Event.Action;
+
+/**
+ * Compare the allocation rate and the throughput of the
+ * {@link EventMap} against the {@link PackedEventMap}, replaying
+ * the rounds of a node: merging the incoming balls into the
+ * next ball, then handing it off to the ordering component.
+ *
+ * Run it with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.EventMapComparison
+ * </pre>
+ */
+public class EventMapComparison {
+
+	private static final int[] BALL_SIZES = new int[] {10, 100, 1000, 5000};
+
+	private static final int NUM_SOURCES  = 100;
+	private static final int NUM_INCOMING = 17;  // balls received per round
+	private static final int MAX_TTL      = 43;
+
+	private static final int WARMUP_ROUNDS  = 2_000;
+	private static final int MEASURE_ROUNDS = 2_000;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Build the balls received within a round: each one carries
+	 * a random subset of the events alive in the system.
+	 */
+	private static List<List<Event>> makeIncoming(int ballSize, Random prng) {
+		List<Event> alive = new ArrayList<>(ballSize * 2);
+		for (int i = 0; i < ballSize * 2; i++) {
+			alive.add(new Event(i / NUM_SOURCES,
+					Action.values()[prng.nextInt(Action.values().length)],
+					null,
+					i % NUM_SOURCES,
+					1000 + prng.nextInt(100_000),
+					prng.nextInt(MAX_TTL + 1)));
+		}
+		List<List<Event>> incoming = new ArrayList<>(NUM_INCOMING);
+		for (int i = 0; i < NUM_INCOMING; i++) {
+			List<Event> ball = new ArrayList<>(ballSize);
+			for (int j = 0; j < ballSize; j++) {
+				ball.add(alive.get(prng.nextInt(alive.size())));
+			}
+			incoming.add(ball);
+		}
+		return incoming;
+	}
+
+	private static long sink;
+
+	/**
+	 * Run a round, accumulating the bytes allocated
+	 * by the merge and by the hand off.
+	 *
+	 * @return the next ball
+	 */
+	private static EventBuffer round(EventBuffer nextBall,
+			List<List<Event>> incoming, long[] allocated) {
+		long before = THREADS.getCurrentThreadAllocatedBytes();
+		for (List<Event> ball : incoming) {
+			for (Event event : ball) {
+				if (event.getTtl() < MAX_TTL)
+					nextBall.merge(event);
+			}
+		}
+		long merged = THREADS.getCurrentThreadAllocatedBytes();
+		nextBall.incrementTtl();
+		EventBuffer ball = nextBall.freeze();
+		nextBall = ball.next();
+		for (Event event : ball.toList()) {
+			sink += event.getTimestamp();
+		}
+		long handedOff = THREADS.getCurrentThreadAllocatedBytes();
+		allocated[0] += merged - before;
+		allocated[1] += handedOff - merged;
+		return nextBall;
+	}
+
+	/**
+	 * Return { merge bytes/round, hand off bytes/round, rounds/s }.
+	 */
+	private static double[] measure(Supplier<EventBuffer> factory, List<List<Event>> incoming) {
+		long[] allocated = new long[2];
+		EventBuffer nextBall = factory.get();
+		for (int i = 0; i < WARMUP_ROUNDS; i++)
+			nextBall = round(nextBall, incoming, allocated);
+		allocated[0] = 0;
+		allocated[1] = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURE_ROUNDS; i++)
+			nextBall = round(nextBall, incoming, allocated);
+		long elapsed = System.nanoTime() - start;
+		return new double[] {
+				(double) allocated[0] / MEASURE_ROUNDS,
+				(double) allocated[1] / MEASURE_ROUNDS,
+				MEASURE_ROUNDS * 1e9 / elapsed};
+	}
+
+	public static void main(String[] args) {
+		Random prng = new Random(42);
+		System.out.println(String.format("%8s %10s %14s %14s %14s %14s %12s %12s",
+				"ball", "merged", "map_merge_B", "packed_merge_B",
+				"map_handoff_B", "packed_hand_B", "map_rnd/s", "packed_rnd/s"));
+		for (int ballSize : BALL_SIZES) {
+			List<List<Event>> incoming = makeIncoming(ballSize, prng);
+			double[] map    = measure(EventMap::new, incoming);
+			double[] packed = measure(PackedEventMap::new, incoming);
+			System.out.println(String.format("%8d %10d %14.0f %14.0f %14.0f %14.0f %12.0f %12.0f",
+					ballSize,
+					ballSize * NUM_INCOMING,
+					map[0], packed[0],
+					map[1], packed[1],
+					map[2], packed[2]));
+		}
+		if (sink == 42)
+			System.out.println();
+	}
+}
@@ -0,0 +1,28 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+/**
+ * A message sent unchanged to several peers, such as a ball.
+ *
+ * The message is immutable, hence it is encoded once, by the
+ * first remote send, and the bytes are then shared by the sends
+ * to the other remote peers. Local peers receive the message
+ * itself and never encode it.
+ */
+public abstract class FanOutMsg implements Serializable {
+
+	// written by the remoting threads, the bytes are never modified
+	private transient volatile byte[] encoded;
+
+	/**
+	 * Return the bytes of the message, null if not encoded yet.
+	 */
+	public byte[] getEncoded() {
+		return encoded;
+	}
+
+	public void setEncoded(byte[] encoded) {
+		this.encoded = encoded;
+	}
+}
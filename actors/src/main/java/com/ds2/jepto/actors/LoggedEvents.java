@@ -0,0 +1,67 @@
+package com.ds2.jepto.actors;
+
+import java.util.Collection;
+
+import com.ds2.jepto.actors.Event.Action;
+
+/**
+ * Copy of the fields of events printed to the log, formatted
+ * as by {@link Event#toString()}, and separated by commas,
+ * only when the record is written.
+ *
+ * Events are not immutable (their ttl changes with the
+ * rounds), hence they are copied when logged.
+ */
+class LoggedEvents {
+
+	private final long[]   timestamps;
+	private final String[] sources;
+	private final int[]    ids;
+	private final Action[] actions;
+	private final int[]    ttls;
+
+	public LoggedEvents(Event event) {
+		this(1);
+		this.set(0, event);
+	}
+
+	public LoggedEvents(Collection<Event> events) {
+		this(events.size());
+		int i = 0;
+		for (Event event : events) {
+			this.set(i++, event);
+		}
+	}
+
+	private LoggedEvents(int size) {
+		super();
+		this.timestamps = new long[size];
+		this.sources    = new String[size];
+		this.ids        = new int[size];
+		this.actions    = new Action[size];
+		this.ttls       = new int[size];
+	}
+
+	private void set(int i, Event event) {
+		this.timestamps[i] = event.getTimestamp();
+		this.sources[i]    = event.getSource().path().name();
+		this.ids[i]        = event.getId();
+		this.actions[i]    = event.getAction();
+		this.ttls[i]       = event.getTtl();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder(this.ids.length * 72);
+		for (int i = 0; i < this.ids.length; i++) {
+			if (i > 0)
+				str.append(", ");
+			str.append("Event [timestamp=").append(this.timestamps[i])
+			.append(", source=").append(this.sources[i])
+			.append(", id=").append(this.ids[i])
+			.append(", action=").append(this.actions[i])
+			.append(", ttl=").append(this.ttls[i]).append(']');
+		}
+		return str.toString();
+	}
+}
@@ -0,0 +1,19 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+/**
+ * The node id assigned by the tracker
+ * to the receiving peer.
+ */
+public class NodeIdMsg implements Serializable {
+	private final int nodeId;
+
+	public NodeIdMsg(int nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	public int getNodeId() {
+		return nodeId;
+	}
+}
@@ -0,0 +1,84 @@
+package com.ds2.jepto.actors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+
+/**
+ * Assign compact numeric identifiers to the peers of
+ * the system.
+ *
+ * The registry is held by the tracker: every peer asks for
+ * its identifier when joining (see {@link RegisterMsg}),
+ * and then stamps it on the events it broadcasts.
+ * Identifiers are dense, starting from 0, and the same peer
+ * always obtains the same identifier.
+ *
+ * Node ids fit in NODE_ID_BITS bits, so that an event
+ * position in the delivery order can be packed together with
+ * its timestamp in a single long (see {@link Event#getOrderKey()}).
+ */
+public class NodeRegistry {
+
+	public static final int  NODE_ID_BITS  = 20;
+	public static final int  MAX_NODES     = 1 << NODE_ID_BITS;
+	public static final long MAX_TIMESTAMP = (1l << (Long.SIZE - 1 - NODE_ID_BITS)) - 1;
+
+	private final Map<ActorRef, Integer> ids;
+	private final List<ActorRef>         nodes;
+
+	public NodeRegistry() {
+		this.ids   = new HashMap<>();
+		this.nodes = new ArrayList<>();
+	}
+
+	/**
+	 * Return the identifier of the given node,
+	 * assigning a new one if it is not known yet.
+	 *
+	 * @param node
+	 * @return
+	 */
+	public int register(ActorRef node) {
+		Integer id = ids.get(node);
+		if (id == null) {
+			if (nodes.size() >= MAX_NODES)
+				throw new IllegalStateException("No node ids left for " + node);
+			id = nodes.size();
+			ids.put(node, id);
+			nodes.add(node);
+		}
+		return id;
+	}
+
+	public ActorRef lookup(int id) {
+		if (id < 0 || id >= nodes.size())
+			return null;
+		return nodes.get(id);
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Pack a timestamp and a node id in a single long,
+	 * ordered by timestamp first and by node id then.
+	 *
+	 * @param timestamp between 0 and MAX_TIMESTAMP
+	 * @param nodeId between 0 and MAX_NODES - 1
+	 * @return
+	 * @throws IllegalArgumentException if either would not fit,
+	 * instead of wrapping into the key of another event
+	 */
+	public static long orderKey(long timestamp, int nodeId) {
+		if (timestamp < 0 || timestamp > MAX_TIMESTAMP)
+			throw new IllegalArgumentException("Timestamp out of range: " + timestamp);
+		if (nodeId < 0 || nodeId >= MAX_NODES)
+			throw new IllegalArgumentException("Node id out of range: " + nodeId);
+		return (timestamp << NODE_ID_BITS) | nodeId;
+	}
+}
@@ -0,0 +1,104 @@
+package com.ds2.jepto.actors;
+
+import java.util.List;
+
+/**
+ * The EpTO ordering component, shared by the actors and
+ * by the simulator: the events of the balls are collected
+ * in the received set, aged once per round, and delivered
+ * once their ttl exceeds MAX_TTL, in (timestamp, source id)
+ * order.
+ *
+ * Not thread safe, it is used by the thread of its node only.
+ */
+public class OrderingComponent {
+
+	public final long MAX_TTL;
+
+	private final boolean asPaper;
+	private ReceivedSet   received;        // events received but not yet delivered
+	private DeliveredSet  delivered;       // delivered events
+	private long          lastDeliveredTs; // maximum ts of delivered events
+	private long          discarded;       // events too late to be delivered
+
+	public OrderingComponent(long maxTtl, boolean asPaper) {
+		this(maxTtl, asPaper, new DeliveredSet());
+	}
+
+	public OrderingComponent(long maxTtl, boolean asPaper, DeliveredSet delivered) {
+		super();
+		this.MAX_TTL   = maxTtl;
+		this.asPaper   = asPaper;
+		this.received  = new ReceivedSet();
+		this.delivered = delivered;
+		this.lastDeliveredTs = -1l;
+		this.discarded = 0;
+	}
+
+	/**
+	 * Increment the ttl of the received events.
+	 */
+	public void nextRound() {
+		this.received.nextRound();
+	}
+
+	/**
+	 * Collect an event of the ball of the round, unless it
+	 * was delivered already or it would be delivered out
+	 * of order.
+	 *
+	 * @param event
+	 */
+	public void receive(Event event) {
+		if (this.delivered.contains(event))
+			return;
+		// TODO:HERE: changed from >= to > wrt the original paper
+		if (this.asPaper ?
+				event.getTimestamp() >= this.lastDeliveredTs :
+				event.getTimestamp() > this.lastDeliveredTs) {
+			this.received.merge(event);
+		} else {
+			this.discarded++;
+		}
+		// END:TODO
+	}
+
+	/**
+	 * Remove the deliverable events from the received set
+	 * and mark them as delivered.
+	 *
+	 * @return the delivered events, in delivery order
+	 */
+	public List<Event> deliver() {
+		// TODO:HERE: changed from > to >= wrt the original paper,
+		// deliverable events having timestamp equal to minTs
+		// are kept in the received set
+		List<Event> deliverable = this.received.removeDeliverable(this.MAX_TTL, this.asPaper);
+		// END:TODO:HERE:
+		for (Event event : deliverable) {
+			this.delivered.add(event);
+			this.lastDeliveredTs = event.getTimestamp();
+		}
+		return deliverable;
+	}
+
+	public ReceivedSet getReceived() {
+		return received;
+	}
+
+	public DeliveredSet getDelivered() {
+		return delivered;
+	}
+
+	public long getLastDeliveredTs() {
+		return lastDeliveredTs;
+	}
+
+	/**
+	 * Return the number of events not delivered, so far,
+	 * because a later one was delivered already.
+	 */
+	public long getDiscarded() {
+		return discarded;
+	}
+}
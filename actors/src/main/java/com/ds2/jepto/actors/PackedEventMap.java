@@ -0,0 +1,405 @@
+package com.ds2.jepto.actors;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.ds2.jepto.actors.Event.Action;
+
+import akka.actor.ActorRef;
+
+/**
+ * Event buffer storing the fields of the events in
+ * parallel primitive arrays, indexed by an open addressing
+ * table keyed on the packed (source id, event id) pair.
+ *
+ * Looking events up, inserting them and raising their ttl
+ * neither allocate keys nor copy events: once the arrays
+ * have grown to the size of a ball, merging the incoming
+ * balls is allocation free. Events are built only when
+ * they are handed out, that is when the buffer is frozen,
+ * or by {@link #get(Event)} and {@link #toList()}. Freezing
+ * still builds one event per entry, once per round, as the
+ * ball sent to the peers is a list of events.
+ *
+ * As for {@link EventMap}, the ttl of the events is derived
+ * from the round at which it was 0 (see {@link RoundClock}).
+ * A frozen buffer hands its arrays over to the buffer returned
+ * by {@link #next()}, which reuses them for the next round.
+ */
+public class PackedEventMap implements EventBuffer {
+
+	private static final Action[] ACTIONS = Action.values();
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final Comparator<Event> DELIVERY_ORDER = new Comparator<Event>() {
+		@Override
+		public int compare(Event event0, Event event1) {
+			return Long.compare(event0.getOrderKey(), event1.getOrderKey());
+		}
+	};
+
+	// parallel arrays, one entry per event
+	private long[]       timestamps;
+	private int[]        sourceIds;
+	private int[]        ids;
+	private long[]       births;   // round at which the ttl was 0
+	private byte[]       actions;
+	private ActorRef[]   sources;
+	private ByteBuffer[] payloads; // shared with the events
+	private int          size;
+
+	// open addressing index: entry + 1, 0 if the slot is empty
+	private int[] slots;
+	private int   mask;
+
+	private long round;
+
+	private boolean     frozen;
+	private List<Event> frozenList;
+
+	public PackedEventMap() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public PackedEventMap(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+		this.allocate(slots >>> 1, slots);
+		this.size   = 0;
+		this.round  = 0;
+		this.frozen = false;
+		this.frozenList = null;
+	}
+
+	private PackedEventMap(PackedEventMap storage) {
+		this.timestamps = storage.timestamps;
+		this.sourceIds  = storage.sourceIds;
+		this.ids        = storage.ids;
+		this.births     = storage.births;
+		this.actions    = storage.actions;
+		this.sources    = storage.sources;
+		this.payloads   = storage.payloads;
+		this.slots      = storage.slots;
+		this.mask       = storage.mask;
+		this.size   = storage.size;
+		this.round  = 0;
+		this.frozen = false;
+		this.frozenList = null;
+		this.clear();
+	}
+
+	private void allocate(int capacity, int numSlots) {
+		this.timestamps = new long[capacity];
+		this.sourceIds  = new int[capacity];
+		this.ids        = new int[capacity];
+		this.births     = new long[capacity];
+		this.actions    = new byte[capacity];
+		this.sources    = new ActorRef[capacity];
+		this.payloads   = new ByteBuffer[capacity];
+		this.slots      = new int[numSlots];
+		this.mask       = numSlots - 1;
+	}
+
+	private void checkMutable() {
+		if (this.frozen)
+			throw new IllegalStateException("The event map is frozen");
+	}
+
+	private boolean hasStorage() {
+		return this.slots != null;
+	}
+
+	private int hash(int sourceId, int eventId) {
+		long key = EventKey.pack(sourceId, eventId);
+		return (int) ((key * 0x9E3779B97F4A7C15l) >>> 32) & this.mask;
+	}
+
+	/**
+	 * Return the slot of the given key, or the empty
+	 * slot where it would be placed.
+	 */
+	private int findSlot(int sourceId, int eventId) {
+		int slot = this.hash(sourceId, eventId);
+		int entry;
+		while ((entry = this.slots[slot]) != 0) {
+			if (this.ids[entry - 1] == eventId &&
+					this.sourceIds[entry - 1] == sourceId)
+				return slot;
+			slot = (slot + 1) & this.mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Return the entry of the given key, -1 if not present.
+	 */
+	private int indexOf(int sourceId, int eventId) {
+		return this.slots[this.findSlot(sourceId, eventId)] - 1;
+	}
+
+	private void grow() {
+		int capacity = this.timestamps.length << 1;
+		this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+		this.sourceIds  = Arrays.copyOf(this.sourceIds, capacity);
+		this.ids        = Arrays.copyOf(this.ids, capacity);
+		this.births     = Arrays.copyOf(this.births, capacity);
+		this.actions    = Arrays.copyOf(this.actions, capacity);
+		this.sources    = Arrays.copyOf(this.sources, capacity);
+		this.payloads   = Arrays.copyOf(this.payloads, capacity);
+		this.slots = new int[capacity << 1];
+		this.mask  = this.slots.length - 1;
+		for (int i = 0; i < this.size; i++) {
+			this.slots[this.findSlot(this.sourceIds[i], this.ids[i])] = i + 1;
+		}
+	}
+
+	private void append(int slot, Event event) {
+		int i = this.size++;
+		this.timestamps[i] = event.getTimestamp();
+		this.sourceIds[i]  = event.getSourceId();
+		this.ids[i]        = event.getId();
+		this.births[i]     = this.round - event.getTtl();
+		this.actions[i]    = (byte) event.getAction().ordinal();
+		this.sources[i]    = event.getSource();
+		this.payloads[i]   = event.sharedPayload();
+		this.slots[slot]   = i + 1;
+	}
+
+	private void put(Event event, boolean raiseOnly) {
+		this.checkMutable();
+		if (this.size == this.timestamps.length)
+			this.grow();
+		int slot  = this.findSlot(event.getSourceId(), event.getId());
+		int entry = this.slots[slot] - 1;
+		if (entry < 0) {
+			this.append(slot, event);
+		} else {
+			long birth = this.round - event.getTtl();
+			if (!raiseOnly || birth < this.births[entry])
+				this.births[entry] = birth;
+		}
+	}
+
+	private Event materialize(int i) {
+		Event event = new Event(this.ids[i],
+				ACTIONS[this.actions[i]],
+				this.sources[i],
+				this.sourceIds[i],
+				this.timestamps[i],
+				(int) (this.round - this.births[i]));
+		event.sharePayload(this.payloads[i]);
+		return event;
+	}
+
+	private List<Event> materialize() {
+		List<Event> events = new ArrayList<>(this.size);
+		for (int i = 0; i < this.size; i++) {
+			events.add(this.materialize(i));
+		}
+		return events;
+	}
+
+	/**
+	 * Return the frozen event having the same key of the
+	 * given one, once the storage has been handed over.
+	 */
+	private Event findFrozen(Event event) {
+		for (Event frozenEvent : this.frozenList) {
+			if (frozenEvent.getId() == event.getId() &&
+					frozenEvent.getSourceId() == event.getSourceId())
+				return frozenEvent;
+		}
+		return null;
+	}
+
+	@Override
+	public void insert(Event event) {
+		this.put(event, false);
+	}
+
+	@Override
+	public void remove(Event event) {
+		this.checkMutable();
+		int slot  = this.findSlot(event.getSourceId(), event.getId());
+		int entry = this.slots[slot] - 1;
+		if (entry < 0)
+			return;
+		// backward shift deletion, keeping the probe
+		// sequences of the following keys unbroken
+		int hole = slot;
+		int next = (hole + 1) & this.mask;
+		while (this.slots[next] != 0) {
+			int moved = this.slots[next] - 1;
+			int home  = this.hash(this.sourceIds[moved], this.ids[moved]);
+			if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+				this.slots[hole] = this.slots[next];
+				hole = next;
+			}
+			next = (next + 1) & this.mask;
+		}
+		this.slots[hole] = 0;
+		// fill the entry with the last one
+		int last = --this.size;
+		if (entry != last) {
+			this.slots[this.findSlot(this.sourceIds[last], this.ids[last])] = entry + 1;
+			this.timestamps[entry] = this.timestamps[last];
+			this.sourceIds[entry]  = this.sourceIds[last];
+			this.ids[entry]        = this.ids[last];
+			this.births[entry]     = this.births[last];
+			this.actions[entry]    = this.actions[last];
+			this.sources[entry]    = this.sources[last];
+			this.payloads[entry]   = this.payloads[last];
+		}
+		this.sources[last]  = null;
+		this.payloads[last] = null;
+	}
+
+	/**
+	 * Return a copy of the event having the same key of the
+	 * given one, null if not present. Prefer {@link #contains(Event)}
+	 * and {@link #getTtl(Event)}, which do not allocate.
+	 */
+	@Override
+	public Event get(Event event) {
+		if (!this.hasStorage())
+			return this.findFrozen(event);
+		int entry = this.indexOf(event.getSourceId(), event.getId());
+		if (entry < 0)
+			return null;
+		return this.materialize(entry);
+	}
+
+	@Override
+	public boolean contains(Event event) {
+		if (!this.hasStorage())
+			return this.findFrozen(event) != null;
+		return this.indexOf(event.getSourceId(), event.getId()) >= 0;
+	}
+
+	@Override
+	public int getTtl(Event event) {
+		if (!this.hasStorage()) {
+			Event frozenEvent = this.findFrozen(event);
+			return frozenEvent == null ? -1 : frozenEvent.getTtl();
+		}
+		int entry = this.indexOf(event.getSourceId(), event.getId());
+		if (entry < 0)
+			return -1;
+		return (int) (this.round - this.births[entry]);
+	}
+
+	@Override
+	public void update(Event event) {
+		this.put(event, false);
+	}
+
+	@Override
+	public void merge(Event event) {
+		this.put(event, true);
+	}
+
+	@Override
+	public boolean raiseTtl(int sourceId, int eventId, int ttl) {
+		this.checkMutable();
+		int entry = this.indexOf(sourceId, eventId);
+		if (entry < 0)
+			return false;
+		long birth = this.round - ttl;
+		if (birth < this.births[entry])
+			this.births[entry] = birth;
+		return true;
+	}
+
+	@Override
+	public void incrementTtl() {
+		this.checkMutable();
+		this.round++;
+	}
+
+	@Override
+	public List<Event> toList() {
+		if (this.frozen)
+			return this.frozenList;
+		return this.materialize();
+	}
+
+	@Override
+	public List<Event> toSortedList() {
+		List<Event> tmp;
+		if (this.frozen) {
+			tmp = new ArrayList<>(this.frozenList);
+		} else {
+			tmp = this.materialize();
+		}
+		tmp.sort(DELIVERY_ORDER);
+		return tmp;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void clear() {
+		this.checkMutable();
+		Arrays.fill(this.slots, 0);
+		Arrays.fill(this.sources, 0, this.size, null);
+		Arrays.fill(this.payloads, 0, this.size, null);
+		this.size = 0;
+	}
+
+	@Override
+	public PackedEventMap freeze() {
+		if (!this.frozen) {
+			this.frozen = true;
+			this.frozenList = Collections.unmodifiableList(this.materialize());
+		}
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+
+	/**
+	 * If the buffer is frozen, its arrays are handed over to
+	 * the returned one: the events of this buffer are still
+	 * available through {@link #toList()}, while looking them
+	 * up takes linear time.
+	 */
+	@Override
+	public PackedEventMap next() {
+		if (!this.frozen || !this.hasStorage())
+			return new PackedEventMap(this.timestamps == null ?
+					INITIAL_CAPACITY : this.timestamps.length);
+		PackedEventMap next = new PackedEventMap(this);
+		this.timestamps = null;
+		this.sourceIds  = null;
+		this.ids        = null;
+		this.births     = null;
+		this.actions    = null;
+		this.sources    = null;
+		this.payloads   = null;
+		this.slots      = null;
+		return next;
+	}
+
+	public String toString() {
+		List<String> events = new ArrayList<>(this.size);
+		for (Event event : this.toList()) {
+			events.add(event.toString());
+		}
+		return "{ " + String.join(", ", events) + " }";
+	}
+}
@@ -0,0 +1,32 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+/**
+ * Ask the sender of a {@link DigestMsg} for the events
+ * of its ball that the receiver is missing. They are
+ * sent back within a {@link BallMsg}.
+ */
+public class PullMsg implements Serializable {
+
+	private final long        ballId;
+	private final EventDigest missing;  // without ttl
+
+	public PullMsg(long ballId, EventDigest missing) {
+		super();
+		this.ballId  = ballId;
+		this.missing = missing;
+	}
+
+	public long getBallId() {
+		return ballId;
+	}
+
+	public EventDigest getMissing() {
+		return missing;
+	}
+
+	public String toString() {
+		return "pull from ball " + ballId + " " + missing.toString();
+	}
+}
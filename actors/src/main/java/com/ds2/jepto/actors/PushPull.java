@@ -0,0 +1,106 @@
+package com.ds2.jepto.actors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Push-pull dissemination: at the end of a round, instead of
+ * its ball, a node sends to K peers a digest of it, carrying the
+ * keys and the ttl of the events. A receiver raises the ttl of
+ * the events it already has, and pulls only the missing ones.
+ *
+ * The balls sent within the last rounds are kept to answer
+ * the pulls; events of older balls are no longer sent.
+ */
+public class PushPull {
+
+	// rounds a ball can be pulled for
+	public static final int DEFAULT_WINDOW = 2;
+
+	private final long maxTtl;
+	private final Map<Long, Map<Long, Event>> sentBalls;
+
+	public PushPull(long maxTtl) {
+		this(maxTtl, DEFAULT_WINDOW);
+	}
+
+	public PushPull(long maxTtl, int window) {
+		if (window < 1)
+			throw new IllegalArgumentException("The window must contain at least a ball");
+		this.maxTtl = maxTtl;
+		this.sentBalls = new LinkedHashMap<Long, Map<Long, Event>>() {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Map<Long, Event>> eldest) {
+				return this.size() > window;
+			}
+		};
+	}
+
+	/**
+	 * Keep the ball, to be pulled, and return its digest.
+	 *
+	 * @param ballId
+	 * @param ball
+	 * @return
+	 */
+	public EventDigest offer(long ballId, List<Event> ball) {
+		Map<Long, Event> index = new HashMap<>(ball.size() * 2);
+		for (Event event : ball) {
+			index.put(EventKey.pack(event.getSourceId(), event.getId()), event);
+		}
+		this.sentBalls.put(ballId, index);
+		return EventDigest.of(ball, true);
+	}
+
+	/**
+	 * Merge a received digest into the next ball, as a
+	 * received ball would be: the ttl of the events already
+	 * in the ball is raised, events still in the received set
+	 * are inserted again. Events already delivered are
+	 * considered known, and no longer relayed.
+	 *
+	 * @return the missing events, null if none
+	 */
+	public EventDigest merge(EventDigest digest, EventBuffer nextBall,
+			ReceivedSet received, DeliveredSet delivered) {
+		EventDigest.Builder missing = new EventDigest.Builder();
+		digest.forEach((sourceId, eventId, ttl) -> {
+			if (ttl >= this.maxTtl)
+				return;
+			if (nextBall.raiseTtl(sourceId, eventId, ttl))
+				return;
+			Event event = received.get(sourceId, eventId);
+			if (event != null) {
+				event.setTtl(ttl);
+				nextBall.merge(event);
+			} else if (!delivered.contains(sourceId, eventId)) {
+				missing.add(sourceId, eventId, ttl);
+			}
+		});
+		return missing.isEmpty() ? null : missing.build(false);
+	}
+
+	/**
+	 * Return the events of a ball sent within
+	 * the window, as they were sent.
+	 *
+	 * @param ballId
+	 * @param missing
+	 * @return
+	 */
+	public List<Event> pull(long ballId, EventDigest missing) {
+		Map<Long, Event> index = this.sentBalls.get(ballId);
+		List<Event> events = new ArrayList<>(missing.size());
+		if (index == null)
+			return events;
+		missing.forEach((sourceId, eventId, ttl) -> {
+			Event event = index.get(EventKey.pack(sourceId, eventId));
+			if (event != null)
+				events.add(event);
+		});
+		return events;
+	}
+}
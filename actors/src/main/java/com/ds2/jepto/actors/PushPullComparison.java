@@ -0,0 +1,213 @@
+package com.ds2.jepto.actors;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.serialization.EptoSerializer;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Props;
+
+/**
+ * Compare the wire bytes per received event of the push
+ * dissemination against the push-pull one, for 100 and 1000
+ * nodes.
+ *
+ * The nodes are not actors: they run the dissemination
+ * component in lockstep rounds, each one sending to K nodes
+ * picked uniformly at random, and every message is encoded
+ * by the {@link EptoSerializer} to count its bytes. K and the
+ * max ttl follow the formulas of the readme, with c = 1.
+ *
+ * Run it with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.PushPullComparison
+ * </pre>
+ */
+public class PushPullComparison {
+
+	private static final int[] SIZES = new int[] {100, 1000};
+
+	private static final int EVENTS_PER_ROUND = 2;
+	private static final int BROADCAST_ROUNDS = 20;
+	private static final int PAYLOAD_SIZE     = 16;
+
+	private static class Node {
+		private final int         id;
+		private final ReceivedSet known;  // every event received
+		private final PushPull    pushPull;
+		private EventBuffer       nextBall;
+		private int               nextEventId;
+
+		private Node(int id, long maxTtl) {
+			this.id = id;
+			this.known    = new ReceivedSet();
+			this.pushPull = new PushPull(maxTtl);
+			this.nextBall = new PackedEventMap();
+			this.nextEventId = 0;
+		}
+	}
+
+	private static final DeliveredSet NONE_DELIVERED = new DeliveredSet();
+
+	private final EptoSerializer serializer;
+	private final List<ActorRef> refs;
+	private final Random         prng;
+	private final int  numNodes;
+	private final int  numReceivers;
+	private final long maxTtl;
+	private final boolean pushPull;
+
+	private long bytes;
+	private long messages;
+	private long receptions;
+
+	private PushPullComparison(EptoSerializer serializer, List<ActorRef> refs,
+			int numNodes, boolean pushPull) {
+		this.serializer = serializer;
+		this.refs     = refs;
+		this.prng     = new Random(42);
+		this.numNodes = numNodes;
+		this.numReceivers = (int) Math.ceil(2 * Math.E * Math.log(numNodes) /
+				Math.log(Math.log(numNodes)));
+		this.maxTtl   = 2 * (long) Math.ceil(2 * Math.log(numNodes) / Math.log(2)) + 1;
+		this.pushPull = pushPull;
+	}
+
+	private int size(Object msg) {
+		this.messages++;
+		return this.serializer.toBinary(msg).length;
+	}
+
+	private List<Node> pickPeers(List<Node> nodes, Node self) {
+		List<Node> peers = new ArrayList<>(this.numReceivers);
+		while (peers.size() < this.numReceivers) {
+			Node peer = nodes.get(this.prng.nextInt(nodes.size()));
+			if (peer != self && !peers.contains(peer))
+				peers.add(peer);
+		}
+		return peers;
+	}
+
+	private void receive(Node node, List<Event> events) {
+		for (Event event : events) {
+			if (event.getTtl() < this.maxTtl)
+				node.nextBall.merge(event);
+			if (!node.known.contains(event)) {
+				node.known.merge(event);
+				this.receptions++;
+			}
+		}
+	}
+
+	private void broadcast(Node node, long timestamp) {
+		Event event = new Event(node.nextEventId++,
+				Action.DO,
+				this.refs.get(node.id),
+				node.id,
+				timestamp,
+				0,
+				ByteBuffer.allocate(PAYLOAD_SIZE));
+		node.nextBall.insert(event);
+		node.known.merge(event);
+	}
+
+	/**
+	 * Return { bytes per reception, messages per reception, reached % }.
+	 */
+	private double[] run() {
+		List<Node> nodes = new ArrayList<>(this.numNodes);
+		for (int i = 0; i < this.numNodes; i++) {
+			nodes.add(new Node(i, this.maxTtl));
+		}
+		long timestamp = 0;
+		long ballId    = 0;
+		int  rounds    = BROADCAST_ROUNDS + (int) this.maxTtl + 2;
+		for (int round = 0; round < rounds; round++) {
+			if (round < BROADCAST_ROUNDS) {
+				for (int i = 0; i < EVENTS_PER_ROUND; i++) {
+					this.broadcast(nodes.get(this.prng.nextInt(this.numNodes)), ++timestamp);
+				}
+			}
+			List<List<Event>> balls = new ArrayList<>(this.numNodes);
+			for (Node node : nodes) {
+				node.nextBall.incrementTtl();
+				EventBuffer ball = node.nextBall.freeze();
+				node.nextBall = ball.next();
+				balls.add(ball.toList());
+			}
+			for (Node node : nodes) {
+				List<Event> ball = balls.get(node.id);
+				if (ball.isEmpty())
+					continue;
+				List<Node> peers = this.pickPeers(nodes, node);
+				ballId++;
+				if (!this.pushPull) {
+					this.bytes += (long) peers.size() * this.size(new BallMsg(ball));
+					this.messages += peers.size() - 1;
+					for (Node peer : peers) {
+						this.receive(peer, ball);
+					}
+					continue;
+				}
+				DigestMsg digest = new DigestMsg(ballId, node.pushPull.offer(ballId, ball));
+				this.bytes += (long) peers.size() * this.size(digest);
+				this.messages += peers.size() - 1;
+				for (Node peer : peers) {
+					EventDigest missing = peer.pushPull.merge(digest.getDigest(),
+							peer.nextBall, peer.known, NONE_DELIVERED);
+					if (missing == null)
+						continue;
+					this.bytes += this.size(new PullMsg(ballId, missing));
+					List<Event> events = node.pushPull.pull(ballId, missing);
+					this.bytes += this.size(new BallMsg(events));
+					this.receive(peer, events);
+				}
+			}
+		}
+		long expected = (long) BROADCAST_ROUNDS * EVENTS_PER_ROUND * (this.numNodes - 1);
+		return new double[] {
+				(double) this.bytes / this.receptions,
+				(double) this.messages / this.receptions,
+				100.0 * this.receptions / expected};
+	}
+
+	public static void main(String[] args) {
+		Config config = ConfigFactory.parseString(
+				"akka.actor.provider = remote\n" +
+				"akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n" +
+				"akka.remote.netty.tcp.port = 0\n")
+				.withFallback(ConfigFactory.parseResources("serialization.conf"))
+				.withFallback(ConfigFactory.load());
+		ActorSystem system = ActorSystem.create("epto", config);
+		EptoSerializer serializer = new EptoSerializer((ExtendedActorSystem) system);
+		List<ActorRef> refs = new ArrayList<>();
+		for (int i = 0; i < SIZES[SIZES.length - 1]; i++) {
+			refs.add(system.actorOf(Props.empty(), "actor_" + i));
+		}
+
+		System.out.println(String.format("%6s %4s %4s %10s %12s %12s %10s",
+				"nodes", "K", "ttl", "mode", "bytes/event", "msgs/event", "reached_%"));
+		for (int numNodes : SIZES) {
+			for (boolean pushPull : new boolean[] {false, true}) {
+				PushPullComparison comparison =
+						new PushPullComparison(serializer, refs, numNodes, pushPull);
+				double[] result = comparison.run();
+				System.out.println(String.format("%6d %4d %4d %10s %12.1f %12.2f %10.1f",
+						numNodes,
+						comparison.numReceivers,
+						comparison.maxTtl,
+						pushPull ? "push-pull" : "push",
+						result[0], result[1], result[2]));
+			}
+		}
+		system.terminate();
+	}
+}
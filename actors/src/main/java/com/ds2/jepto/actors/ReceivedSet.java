@@ -0,0 +1,178 @@
+package com.ds2.jepto.actors;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Events received but not yet delivered, as used
+ * by the EpTO ordering component.
+ *
+ * Events are indexed by key and by their position in
+ * the delivery order (timestamp, source node id).
+ * Events are bound to the round clock of the set (see
+ * {@link RoundClock}): aging the whole set is a single
+ * counter increment, and an event born at round b becomes
+ * deliverable at round b + MAX_TTL + 1.
+ *
+ * Finding the smallest timestamp among the events that are
+ * not deliverable yet, and the deliverable events preceding
+ * it, only walks the head of the delivery order: the cost is
+ * proportional to the number of delivered events, plus the
+ * events sharing that smallest timestamp.
+ */
+public class ReceivedSet {
+
+	private static final Comparator<Event> DELIVERY_ORDER = new Comparator<Event>() {
+		@Override
+		public int compare(Event event0, Event event1) {
+			int cmp = Long.compare(event0.getOrderKey(), event1.getOrderKey());
+			if (cmp != 0)
+				return cmp;
+			return Long.compare(
+					EventKey.pack(event0.getSourceId(), event0.getId()),
+					EventKey.pack(event1.getSourceId(), event1.getId()));
+		}
+	};
+
+	private final Map<EventKey, Event> events;
+	private final TreeSet<Event>       byOrder;
+	private final RoundClock           clock;
+
+	public ReceivedSet() {
+		this.events  = new HashMap<>();
+		this.byOrder = new TreeSet<>(DELIVERY_ORDER);
+		this.clock   = new RoundClock();
+	}
+
+	/**
+	 * Increment the ttl of every event.
+	 */
+	public void nextRound() {
+		this.clock.tick();
+	}
+
+	public long getRound() {
+		return this.clock.now();
+	}
+
+	public boolean contains(Event event) {
+		return this.events.containsKey(new EventKey(event));
+	}
+
+	/**
+	 * Return a copy, no longer bound to the clock of the set,
+	 * of the event having the given key, null if not present.
+	 *
+	 * @param sourceId
+	 * @param eventId
+	 * @return
+	 */
+	public Event get(int sourceId, int eventId) {
+		Event stored = this.events.get(new EventKey(sourceId, eventId));
+		if (stored == null)
+			return null;
+		return new Event(stored);
+	}
+
+	/**
+	 * Return the current ttl of the given event, -1
+	 * if the event is not in the set.
+	 *
+	 * @param event
+	 * @return
+	 */
+	public int getTtl(Event event) {
+		Event stored = this.events.get(new EventKey(event));
+		if (stored == null)
+			return -1;
+		return stored.getTtl();
+	}
+
+	/**
+	 * Insert a copy of the event if not present,
+	 * otherwise raise the ttl of the one in the set
+	 * if the given one is greater.
+	 *
+	 * @param event
+	 */
+	public void merge(Event event) {
+		EventKey key = new EventKey(event);
+		Event stored = this.events.get(key);
+		if (stored == null) {
+			stored = new Event(event, this.clock);
+			this.events.put(key, stored);
+			this.byOrder.add(stored);
+		} else if (stored.getTtl() < event.getTtl()) {
+			stored.setTtl(event.getTtl());
+		}
+	}
+
+	/**
+	 * Remove and return, in delivery order, the deliverable
+	 * events (ttl greater than maxTtl) having a timestamp lower
+	 * than every event which is not deliverable yet. The returned
+	 * events are no longer bound to the clock of the set.
+	 *
+	 * @param maxTtl
+	 * @param inclusive if true, deliverable events having a timestamp
+	 *                  equal to the minimum one of the non deliverable
+	 *                  events are returned too (as in the paper)
+	 * @return
+	 */
+	public List<Event> removeDeliverable(long maxTtl, boolean inclusive) {
+		List<Event> deliverable = new ArrayList<>();
+		long minTs = Long.MAX_VALUE;
+		Iterator<Event> iterator = this.byOrder.iterator();
+		while (iterator.hasNext()) {
+			Event event = iterator.next();
+			long timestamp = event.getTimestamp();
+			if (timestamp > minTs)
+				break;
+			if (event.getTtl() <= maxTtl) {
+				if (minTs == Long.MAX_VALUE) {
+					minTs = timestamp;
+					if (!inclusive) {
+						// drop deliverable events sharing minTs
+						while (!deliverable.isEmpty() &&
+								deliverable.get(deliverable.size() - 1)
+								.getTimestamp() == minTs) {
+							deliverable.remove(deliverable.size() - 1);
+						}
+						break;
+					}
+				}
+			} else {
+				deliverable.add(event);
+			}
+		}
+		for (int i = 0; i < deliverable.size(); i++) {
+			Event event = deliverable.get(i);
+			this.byOrder.remove(event);
+			this.events.remove(new EventKey(event));
+			deliverable.set(i, new Event(event));
+		}
+		return deliverable;
+	}
+
+	public boolean isEmpty() {
+		return this.events.isEmpty();
+	}
+
+	public int size() {
+		return this.events.size();
+	}
+
+	public String toString() {
+		String eventsString =  String.join(", ",
+				this.byOrder.stream()
+				.map(event -> event.toString())
+				.collect(Collectors.toList()));
+		return "{ " + eventsString + " }";
+	}
+}
@@ -0,0 +1,10 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+/**
+ * Sent by a joining peer to its tracker, to obtain
+ * its node id. The tracker replies with a {@link NodeIdMsg}.
+ */
+public class RegisterMsg implements Serializable {
+}
@@ -0,0 +1,211 @@
+package com.ds2.jepto.actors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.cyclon.JoinMsg;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+
+/**
+ * Compare the dissemination latency, that is the time needed by
+ * an event to reach every node, of the round based relay against
+ * the eager one, for a few linger times.
+ *
+ * Receptions are collected from the DEBUG log of the nodes, as
+ * done by the analysis scripts, hence the absolute figures include
+ * its overhead.
+ *
+ * Run it with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.RelayComparison
+ * </pre>
+ */
+public class RelayComparison {
+
+	private static final long[] LINGERS = new long[] {0l, 5l, 20l}; // millis
+
+	private static final int  NUM_ACTORS     = 16;
+	private static final int  NUM_RECEIVERS  = 3;
+	private static final long MAX_TTL        = 5;
+	private static final long ROUND_INTERVAL = 200l;
+	private static final int  RATE           = 20; // events/s
+
+	private static final long JOIN_MILLIS    = 2_000l;
+	private static final long WARMUP_MILLIS  = 2_000l;
+	private static final long MEASURE_MILLIS = 8_000l;
+	private static final long DRAIN_MILLIS   = 4_000l;
+
+	private static final Logger LOGGER = Logger.getLogger(EptoActor.class.getName());
+
+	private static final Pattern EVENT = Pattern.compile("source=([^,]+), id=(\\d+)");
+
+	/**
+	 * Record when each event was broadcast, when each node
+	 * received it first, and how many balls were received.
+	 */
+	private static class Recorder extends Handler {
+
+		private final Map<String, Long>              broadcast = new HashMap<>();
+		private final Map<String, Map<String, Long>> firstSeen = new HashMap<>();
+		private final Map<String, Long>              delivered = new HashMap<>();
+		private long balls = 0;
+
+		@Override
+		public synchronized void publish(LogRecord record) {
+			String message = record.getMessage();
+			Object[] params = record.getParameters();
+			if (message.contains(" received_ball_from ")) {
+				this.balls++;
+				Matcher matcher = EVENT.matcher((String) params[4]);
+				while (matcher.find()) {
+					String key = matcher.group(1) + ":" + matcher.group(2);
+					this.firstSeen.computeIfAbsent(key, k -> new HashMap<>())
+							.putIfAbsent((String) params[0], record.getMillis());
+				}
+			} else if (message.contains(" broadcast ")) {
+				Matcher matcher = EVENT.matcher((String) params[1]);
+				if (matcher.find())
+					this.broadcast.put(matcher.group(1) + ":" + matcher.group(2), record.getMillis());
+			} else if (message.contains(" delivered ")) {
+				Matcher matcher = EVENT.matcher((String) params[1]);
+				while (matcher.find())
+					this.delivered.putIfAbsent(matcher.group(1) + ":" + matcher.group(2), record.getMillis());
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+	}
+
+	/**
+	 * Return { reached all %, mean ms, p50 ms, p99 ms, first delivery ms, balls/event }.
+	 */
+	private static double[] measure(boolean eagerRelay, long linger) throws InterruptedException {
+		Recorder recorder = new Recorder();
+		LOGGER.addHandler(recorder);
+		ActorSystem system = ActorSystem.create("epto");
+		List<ActorRef> peers = new ArrayList<>();
+		for (int i = 0; i < NUM_ACTORS; i++) {
+			peers.add(system.actorOf(EptoActor.props(MAX_TTL,
+					NUM_RECEIVERS,
+					ROUND_INTERVAL,
+					NUM_ACTORS - 1,
+					3,
+					100l,
+					0l,
+					i,
+					false,
+					false,
+					0,
+					0,
+					eagerRelay,
+					linger,
+					false,
+					0,
+					0,
+					false),
+					"actor_" + i));
+		}
+		for (ActorRef peer : peers) {
+			peer.tell(new JoinMsg(peers.get(0)), null);
+		}
+		Thread.sleep(JOIN_MILLIS);
+		for (ActorRef peer : peers) {
+			peer.tell(new EptoActor.EptoStartMsg(), null);
+		}
+
+		long period = 1_000_000_000l / RATE;
+		long start  = System.nanoTime();
+		long warmupEnd  = start + WARMUP_MILLIS * 1_000_000l;
+		long measureEnd = warmupEnd + MEASURE_MILLIS * 1_000_000l;
+		long fromMillis = System.currentTimeMillis() + WARMUP_MILLIS;
+		long toMillis   = fromMillis + MEASURE_MILLIS;
+		long next = start;
+		int sent = 0;
+		long now;
+		while ((now = System.nanoTime()) < measureEnd) {
+			if (now < next) {
+				Thread.sleep(Math.max(0, (next - now) / 1_000_000l));
+				continue;
+			}
+			new EptoNode(peers.get(sent % NUM_ACTORS)).broadcast(Action.DO);
+			sent++;
+			next += period;
+		}
+		Thread.sleep(DRAIN_MILLIS);
+		system.terminate();
+		LOGGER.removeHandler(recorder);
+
+		synchronized (recorder) {
+			List<Long> latencies  = new ArrayList<>();
+			List<Long> deliveries = new ArrayList<>();
+			int measured = 0;
+			for (Map.Entry<String, Long> entry : recorder.broadcast.entrySet()) {
+				long broadcast = entry.getValue();
+				if (broadcast < fromMillis || broadcast >= toMillis)
+					continue;
+				measured++;
+				String source = entry.getKey().substring(0, entry.getKey().lastIndexOf(':'));
+				Map<String, Long> seen = recorder.firstSeen.getOrDefault(entry.getKey(), new HashMap<>());
+				seen.remove(source);
+				if (seen.size() == NUM_ACTORS - 1) {
+					long last = 0;
+					for (long millis : seen.values())
+						last = Math.max(last, millis);
+					latencies.add(last - broadcast);
+				}
+				Long delivered = recorder.delivered.get(entry.getKey());
+				if (delivered != null)
+					deliveries.add(delivered - broadcast);
+			}
+			long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+			Arrays.sort(sorted);
+			if (sorted.length == 0)
+				return new double[] {0, 0, 0, 0, 0, 0};
+			return new double[] {
+					100.0 * sorted.length / measured,
+					Arrays.stream(sorted).average().getAsDouble(),
+					percentile(sorted, 0.5),
+					percentile(sorted, 0.99),
+					deliveries.stream().mapToLong(Long::longValue).average().orElse(0),
+					(double) recorder.balls / recorder.broadcast.size()};
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		LOGGER.setUseParentHandlers(false);
+		LOGGER.setLevel(DebugLevel.DEBUG);
+		System.out.println(String.format("%10s %10s %10s %10s %10s %12s %12s",
+				"relay", "reached_%", "mean_ms", "p50_ms", "p99_ms", "deliver_ms", "balls/event"));
+		double[] round = measure(false, 0l);
+		print("round", round);
+		for (long linger : LINGERS) {
+			print("eager_" + linger, measure(true, linger));
+		}
+	}
+
+	private static void print(String label, double[] result) {
+		System.out.println(String.format("%10s %10.1f %10.0f %10.0f %10.0f %12.0f %12.1f",
+				label, result[0], result[1], result[2], result[3], result[4], result[5]));
+	}
+}
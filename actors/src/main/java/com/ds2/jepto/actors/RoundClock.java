@@ -0,0 +1,25 @@
+package com.ds2.jepto.actors;
+
+/**
+ * Round counter shared by the events of a collection.
+ *
+ * Events bound to a clock store their birth round, the round
+ * at which their ttl was 0, and derive the ttl from the current
+ * round: aging the whole collection is a single increment.
+ */
+public class RoundClock {
+
+	private long round;
+
+	public RoundClock() {
+		this.round = 0;
+	}
+
+	public long now() {
+		return this.round;
+	}
+
+	public void tick() {
+		this.round++;
+	}
+}
@@ -0,0 +1,59 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+import akka.actor.ActorRef;
+
+/**
+ * Subscribe to the events delivered by the receiving node.
+ *
+ * An actor subscriber receives a {@link DeliveryBatch} per
+ * round and must acknowledge it. When a subscriber has
+ * maxPendingBatches batches not yet acknowledged, the node
+ * stops delivering, keeping the events in its received set,
+ * and stops broadcasting its own events until the subscriber
+ * catches up. A subscriber lagging behind for too long is
+ * dropped with a {@link SubscriptionDroppedMsg}.
+ *
+ * A {@link DeliveryListener} is called synchronously by the
+ * node, hence it needs no acknowledgement. Listeners can
+ * subscribe only to nodes within the same actor system.
+ */
+public class SubscribeMsg implements Serializable {
+
+	public static final int DEFAULT_MAX_PENDING_BATCHES = 16;
+
+	private final ActorRef subscriber;
+	private final transient DeliveryListener listener;
+	private final int maxPendingBatches;
+
+	public SubscribeMsg(ActorRef subscriber, int maxPendingBatches) {
+		if (maxPendingBatches < 1)
+			throw new IllegalArgumentException("At least a pending batch must be allowed");
+		this.subscriber = subscriber;
+		this.listener   = null;
+		this.maxPendingBatches = maxPendingBatches;
+	}
+
+	public SubscribeMsg(ActorRef subscriber) {
+		this(subscriber, DEFAULT_MAX_PENDING_BATCHES);
+	}
+
+	public SubscribeMsg(DeliveryListener listener) {
+		this.subscriber = null;
+		this.listener   = listener;
+		this.maxPendingBatches = 0;
+	}
+
+	public ActorRef getSubscriber() {
+		return subscriber;
+	}
+
+	public DeliveryListener getListener() {
+		return listener;
+	}
+
+	public int getMaxPendingBatches() {
+		return maxPendingBatches;
+	}
+}
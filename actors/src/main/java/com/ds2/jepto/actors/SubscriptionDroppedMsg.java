@@ -0,0 +1,26 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+/**
+ * Tell an actor subscriber that the node removed its
+ * subscription: it kept the delivery paused while the
+ * received set grew beyond max-paused-events events (by
+ * default {@link EptoActor#DEFAULT_MAX_PAUSED_EVENTS}).
+ * The batches not yet sent are lost for it, it may
+ * subscribe again.
+ */
+public class SubscriptionDroppedMsg implements Serializable {
+	private final long sequence;
+
+	public SubscriptionDroppedMsg(long sequence) {
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Return the sequence of the last batch sent.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+}
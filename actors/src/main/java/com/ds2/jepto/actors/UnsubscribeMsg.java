@@ -0,0 +1,32 @@
+package com.ds2.jepto.actors;
+
+import java.io.Serializable;
+
+import akka.actor.ActorRef;
+
+/**
+ * Remove a subscription made through {@link SubscribeMsg}.
+ */
+public class UnsubscribeMsg implements Serializable {
+
+	private final ActorRef subscriber;
+	private final transient DeliveryListener listener;
+
+	public UnsubscribeMsg(ActorRef subscriber) {
+		this.subscriber = subscriber;
+		this.listener   = null;
+	}
+
+	public UnsubscribeMsg(DeliveryListener listener) {
+		this.subscriber = null;
+		this.listener   = listener;
+	}
+
+	public ActorRef getSubscriber() {
+		return subscriber;
+	}
+
+	public DeliveryListener getListener() {
+		return listener;
+	}
+}
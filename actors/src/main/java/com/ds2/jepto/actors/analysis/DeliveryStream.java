@@ -0,0 +1,129 @@
+package com.ds2.jepto.actors.analysis;
+
+import com.ds2.jepto.actors.analysis.Violation.Kind;
+
+/**
+ * The deliveries of a node, or a stretch of them, checked one
+ * at a time: an event must follow in the total order the last
+ * one delivered, that is have a greater rank. This is enough
+ * for any two nodes to deliver the events they have in common
+ * in the same order, without comparing their sequences.
+ *
+ * Stretches of the same node, checked apart, are then joined
+ * in order (see {@link #append(DeliveryStream)}).
+ */
+class DeliveryStream {
+
+	private final String node;
+	private long count;
+
+	private long firstRank;
+	private int  firstId;
+	private long firstWall;
+	private long lastRank; // the greatest one delivered
+	private int  lastId;
+
+	private Violation    violation;  // the first one
+	private final long[] violations; // by kind
+
+	DeliveryStream(String node) {
+		super();
+		this.node  = node;
+		this.count = 0;
+		this.firstRank = -1;
+		this.lastRank  = -1;
+		this.violation  = null;
+		this.violations = new long[Kind.values().length];
+	}
+
+	/**
+	 * Check the delivery of the given event, counting
+	 * it in the table of the events.
+	 *
+	 * @param rank of the event in the total order
+	 * @param id of the event
+	 * @param wall time of the delivery, in millis
+	 * @param events
+	 * @return false if it violates the total order
+	 */
+	boolean deliver(long rank, int id, long wall, RankTable events) {
+		long position = this.count++;
+		if (position == 0) {
+			this.firstRank = rank;
+			this.firstId   = id;
+			this.firstWall = wall;
+		}
+		if (position > 0 && rank <= this.lastRank) {
+			Kind kind = rank == this.lastRank ? Kind.DUPLICATE : Kind.ORDER;
+			this.report(Violation.delivery(kind, this.node, position, wall,
+					rank, id, this.lastRank, this.lastId));
+			if (kind == Kind.ORDER)
+				events.delivered(rank, id);
+			return false;
+		}
+		int other = events.delivered(rank, id);
+		if (other != id)
+			this.report(Violation.delivery(Kind.ALTERED, this.node, position, wall,
+					rank, id, rank, other));
+		this.lastRank = rank;
+		this.lastId   = id;
+		return true;
+	}
+
+	/**
+	 * Join the deliveries following the ones of this
+	 * stream, checked apart.
+	 *
+	 * @param next
+	 */
+	void append(DeliveryStream next) {
+		if (next.count == 0)
+			return;
+		if (this.count == 0) {
+			this.firstRank = next.firstRank;
+			this.firstId   = next.firstId;
+			this.firstWall = next.firstWall;
+		} else if (next.firstRank <= this.lastRank) {
+			this.report(Violation.delivery(
+					next.firstRank == this.lastRank ? Kind.DUPLICATE : Kind.ORDER,
+					this.node, this.count, next.firstWall,
+					next.firstRank, next.firstId, this.lastRank, this.lastId));
+		}
+		if (next.violation != null && this.violation == null)
+			this.violation = next.violation.moved(this.count);
+		for (int i = 0; i < this.violations.length; i++) {
+			this.violations[i] += next.violations[i];
+		}
+		if (next.lastRank > this.lastRank) {
+			this.lastRank = next.lastRank;
+			this.lastId   = next.lastId;
+		}
+		this.count += next.count;
+	}
+
+	private void report(Violation violation) {
+		this.violations[violation.getKind().ordinal()]++;
+		if (this.violation == null)
+			this.violation = violation;
+	}
+
+	String getNode() {
+		return this.node;
+	}
+
+	long getCount() {
+		return this.count;
+	}
+
+	long getLastRank() {
+		return this.lastRank;
+	}
+
+	Violation getViolation() {
+		return this.violation;
+	}
+
+	long getViolations(Kind kind) {
+		return this.violations[kind.ordinal()];
+	}
+}
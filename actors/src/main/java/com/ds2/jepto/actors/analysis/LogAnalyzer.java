@@ -0,0 +1,419 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+/**
+ * Statistics of the execution logs of many runs, such as the
+ * ones collected by multi_exec.sh: the distribution of the
+ * delivery delays, from the broadcast of an event to each of
+ * its deliveries, the delivery rate of the events and the
+ * traffic of every round, averaged over the runs.
+ *
+ * Each log is memory mapped and parsed in parallel chunks,
+ * split on line boundaries (see {@link LogLine}), from the
+ * records:
+ * <pre>
+ * broadcast Event [..]
+ * delivered { Event [..], .. }
+ * received_ball_from {actor} { Event [..], .. }   (DEBUG)
+ * sent_ball_to [{actor}, ..]                      (DEBUG)
+ * </pre>
+ * Rounds are windows of the round interval of the run, as
+ * logged with its parameters, from the first record.
+ *
+ * Run it on log files or on the folders holding them:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.analysis.LogAnalyzer -Dexec.args="[-round millis] [-csv prefix] ~/EpTOlogs/run_100_2"
+ * </pre>
+ */
+public class LogAnalyzer {
+
+	private static final byte[] BROADCAST      = "broadcast".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] DELIVERED      = "delivered".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] RECEIVED_BALL  = "received_ball_from".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] SENT_BALL      = "sent_ball_to".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ROUND_INTERVAL = "Round interval:".getBytes(StandardCharsets.US_ASCII);
+
+	// traffic of a round
+	private static final int BROADCASTS      = 0;
+	private static final int BALLS_SENT      = 1; // one per peer
+	private static final int BALLS_RECEIVED  = 2;
+	private static final int EVENTS_RECEIVED = 3;
+	private static final int DELIVERIES      = 4;
+	private static final String[] COUNTERS = new String[] {
+			"broadcasts", "balls_sent", "balls_received", "events_received", "deliveries"};
+
+	private static final int SIGNIFICANT_DIGITS = 3;
+	private static final int LINES_OF_HEADER    = 1000; // searched for the round interval
+
+	private final long defaultRoundInterval;
+	private final int  parts; // chunks of a log
+
+	// across the runs
+	private int  runs;
+	private long actors;
+	private long broadcasts;
+	private long deliveries;
+	private long unmatched; // deliveries of events whose broadcast is not logged
+	private final Histogram    delays; // millis
+	private final Histogram    rates;  // percent of the actors, by event
+	private final List<long[]> rounds; // traffic summed over the runs
+
+	public LogAnalyzer(long defaultRoundInterval) {
+		super();
+		this.defaultRoundInterval = defaultRoundInterval;
+		this.parts  = Runtime.getRuntime().availableProcessors() * 4;
+		this.delays = new Histogram(SIGNIFICANT_DIGITS);
+		this.rates  = new Histogram(100, SIGNIFICANT_DIGITS);
+		this.rounds = new ArrayList<>();
+	}
+
+	/**
+	 * The records of a chunk of a log. Events are keyed by the
+	 * index of their source in the chunk and by their id.
+	 */
+	private static class Chunk {
+		private final NameTable actors  = new NameTable();
+		private final NameTable sources = new NameTable();
+		private final LongMap   broadcasts = new LongMap(); // wall by event
+		private final LongMap   delivered  = new LongMap(); // deliveries by event
+		private final Histogram delays  = new Histogram(SIGNIFICANT_DIGITS);
+		// deliveries of events broadcast in other chunks
+		private long[] pendingEvents = new long[64];
+		private long[] pendingWalls  = new long[64];
+		private int    pending = 0;
+		// traffic by window of the round interval
+		private final Map<Long, long[]> windows = new HashMap<>();
+		private long   window   = -1;
+		private long[] counters = null;
+
+		private long[] counters(long wall, long roundInterval) {
+			long window = wall / roundInterval;
+			if (window != this.window) {
+				this.window   = window;
+				this.counters = this.windows.computeIfAbsent(window, w -> new long[COUNTERS.length]);
+			}
+			return this.counters;
+		}
+
+		private long event(LogLine line) {
+			long source = this.sources.intern(line.getBuffer(), line.getSourceStart(), line.getSourceEnd());
+			return (source << 32) | (line.getId() & 0xffffffffl);
+		}
+
+		private void parse(ByteBuffer buffer, long roundInterval) {
+			LogLine line = new LogLine(buffer);
+			while (line.next()) {
+				if (!line.parseRecord())
+					continue;
+				long wall = line.getWall();
+				if (line.isAction(DELIVERED)) {
+					this.actors.intern(buffer, line.getActorStart(), line.getActorEnd());
+					long[] counters = this.counters(wall, roundInterval);
+					while (line.nextEvent()) {
+						long event = this.event(line);
+						counters[DELIVERIES]++;
+						this.delivered.add(event, 1);
+						long broadcast = this.broadcasts.get(event, -1);
+						if (broadcast >= 0)
+							this.delays.recordValue(Math.max(0, wall - broadcast));
+						else
+							this.addPending(event, wall);
+					}
+				} else if (line.isAction(RECEIVED_BALL)) {
+					long[] counters = this.counters(wall, roundInterval);
+					counters[BALLS_RECEIVED]++;
+					counters[EVENTS_RECEIVED] += line.countEvents();
+				} else if (line.isAction(SENT_BALL)) {
+					int peers = 0;
+					for (int i = line.getArgument(); i < line.getEnd(); i++) {
+						byte c = buffer.get(i);
+						if (c == ',' || (peers == 0 && c != '[' && c != ']' && c != ' '))
+							peers++;
+					}
+					this.counters(wall, roundInterval)[BALLS_SENT] += peers;
+				} else if (line.isAction(BROADCAST)) {
+					this.actors.intern(buffer, line.getActorStart(), line.getActorEnd());
+					if (line.nextEvent()) {
+						this.broadcasts.put(this.event(line), wall);
+						this.counters(wall, roundInterval)[BROADCASTS]++;
+					}
+				}
+			}
+		}
+
+		private void addPending(long event, long wall) {
+			if (this.pending == this.pendingEvents.length) {
+				this.pendingEvents = Arrays.copyOf(this.pendingEvents, this.pending << 1);
+				this.pendingWalls  = Arrays.copyOf(this.pendingWalls, this.pending << 1);
+			}
+			this.pendingEvents[this.pending] = event;
+			this.pendingWalls[this.pending]  = wall;
+			this.pending++;
+		}
+	}
+
+	/**
+	 * Add the statistics of the run of the given log.
+	 *
+	 * @param log
+	 * @throws IOException
+	 */
+	public void analyze(File log) throws IOException {
+		List<MappedByteBuffer> buffers = LogChunks.split(log, this.parts);
+		if (buffers.isEmpty())
+			return;
+		long roundInterval = this.roundInterval(buffers.get(0));
+		List<Chunk> chunks = IntStream.range(0, buffers.size()).parallel()
+				.mapToObj(i -> {
+					Chunk chunk = new Chunk();
+					chunk.parse(buffers.get(i), roundInterval);
+					return chunk;
+				})
+				.collect(Collectors.toList());
+
+		// events keyed by the index of their source in the run
+		Map<String, Integer> sources = new HashMap<>();
+		Set<String> actors = new HashSet<>();
+		LongMap broadcasts = new LongMap();
+		LongMap delivered  = new LongMap();
+		long[][] indexes = new long[chunks.size()][];
+		for (int c = 0; c < chunks.size(); c++) {
+			Chunk chunk = chunks.get(c);
+			long[] index = new long[chunk.sources.size()];
+			for (int i = 0; i < index.length; i++) {
+				String name = chunk.sources.name(i);
+				index[i] = sources.computeIfAbsent(name, n -> sources.size());
+			}
+			indexes[c] = index;
+			for (int i = 0; i < chunk.actors.size(); i++) {
+				actors.add(chunk.actors.name(i));
+			}
+			chunk.broadcasts.forEach((event, wall) -> broadcasts.put(runEvent(index, event), wall));
+			chunk.delivered.forEach((event, count) -> delivered.add(runEvent(index, event), count));
+			this.delays.add(chunk.delays);
+		}
+		for (int c = 0; c < chunks.size(); c++) {
+			Chunk chunk = chunks.get(c);
+			for (int i = 0; i < chunk.pending; i++) {
+				long broadcast = broadcasts.get(runEvent(indexes[c], chunk.pendingEvents[i]), -1);
+				if (broadcast >= 0)
+					this.delays.recordValue(Math.max(0, chunk.pendingWalls[i] - broadcast));
+				else
+					this.unmatched++;
+			}
+		}
+		int numActors = actors.size();
+		if (numActors > 0) {
+			broadcasts.forEach((event, wall) -> this.rates.recordValue(
+					Math.min(100, delivered.get(event, 0) * 100 / numActors)));
+		}
+
+		// rounds from the first window of the run
+		long first = Long.MAX_VALUE;
+		for (Chunk chunk : chunks) {
+			for (long window : chunk.windows.keySet()) {
+				first = Math.min(first, window);
+			}
+		}
+		for (Chunk chunk : chunks) {
+			for (Map.Entry<Long, long[]> window : chunk.windows.entrySet()) {
+				int round = (int) (window.getKey() - first);
+				while (this.rounds.size() <= round)
+					this.rounds.add(new long[COUNTERS.length]);
+				long[] counters = this.rounds.get(round);
+				for (int i = 0; i < COUNTERS.length; i++) {
+					counters[i] += window.getValue()[i];
+				}
+			}
+		}
+		this.runs++;
+		this.actors += numActors;
+		this.broadcasts += broadcasts.size();
+		for (Chunk chunk : chunks) {
+			chunk.delivered.forEach((event, count) -> this.deliveries += count);
+		}
+	}
+
+	private static long runEvent(long[] index, long event) {
+		return (index[(int) (event >>> 32)] << 32) | (event & 0xffffffffl);
+	}
+
+	/*
+	 * Return the round interval logged with the parameters
+	 * of the run, the default one if missing.
+	 */
+	private long roundInterval(ByteBuffer buffer) {
+		LogLine line = new LogLine(buffer);
+		for (int i = 0; i < LINES_OF_HEADER && line.next(); i++) {
+			if (!line.matches(line.getStart(), ROUND_INTERVAL))
+				continue;
+			int from = line.getStart() + ROUND_INTERVAL.length;
+			while (from < line.getEnd() && buffer.get(from) == '\t')
+				from++;
+			int digits = line.digits(from);
+			long interval = line.parseLong(from, digits);
+			if (interval > 0)
+				return interval;
+		}
+		return this.defaultRoundInterval;
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                 REPORT                                    */
+/*---------------------------------------------------------------------------*/
+	public int getRuns() {
+		return this.runs;
+	}
+
+	public long getDeliveries() {
+		return this.deliveries;
+	}
+
+	public Histogram getDelays() {
+		return this.delays;
+	}
+
+	/**
+	 * Return the traffic of the given round, averaged over
+	 * the runs: broadcasts, balls sent (one per peer), balls
+	 * received, events received and deliveries.
+	 */
+	public double[] getRound(int round) {
+		double[] mean = new double[COUNTERS.length];
+		if (round < this.rounds.size()) {
+			for (int i = 0; i < COUNTERS.length; i++) {
+				mean[i] = (double) this.rounds.get(round)[i] / this.runs;
+			}
+		}
+		return mean;
+	}
+
+	public int getRounds() {
+		return this.rounds.size();
+	}
+
+	public void printReport(PrintStream out) {
+		out.println(String.format("Runs:\t\t\t%d", this.runs));
+		if (this.runs == 0)
+			return;
+		out.println(String.format("Actors per run:\t\t%.1f", (double) this.actors / this.runs));
+		out.println(String.format("Broadcasts:\t\t%d", this.broadcasts));
+		out.println(String.format("Deliveries:\t\t%d (%d without broadcast)",
+				this.deliveries, this.unmatched));
+		out.println(String.format("Delivery rate (%%):\tmin %d, mean %.2f, max %d",
+				this.rates.getMinValue(), this.rates.getMean(), this.rates.getMaxValue()));
+		out.println(String.format("Delay (ms):\t\tmean %.1f, p50 %d, p90 %d, p99 %d, max %d",
+				this.delays.getMean(),
+				this.delays.getValueAtPercentile(50.0),
+				this.delays.getValueAtPercentile(90.0),
+				this.delays.getValueAtPercentile(99.0),
+				this.delays.getMaxValue()));
+		out.println("Traffic per round, mean over the runs:");
+		out.println("round\t" + String.join("\t", COUNTERS));
+		for (int round = 0; round < this.rounds.size(); round++) {
+			StringBuilder str = new StringBuilder().append(round);
+			for (double value : this.getRound(round)) {
+				str.append(String.format("\t%.1f", value));
+			}
+			out.println(str.toString());
+		}
+	}
+
+	/**
+	 * Write the distribution of the delivery delays, as
+	 * delay (ms), deliveries and cumulative fraction.
+	 *
+	 * @param file
+	 * @throws FileNotFoundException
+	 */
+	public void writeDelays(File file) throws FileNotFoundException {
+		try (PrintStream out = new PrintStream(file)) {
+			out.println("delay,deliveries,cdf");
+			long total = this.delays.getTotalCount();
+			long count = 0;
+			for (HistogramIterationValue value : this.delays.recordedValues()) {
+				count += value.getCountAtValueIteratedTo();
+				out.println(value.getValueIteratedTo() + "," +
+						value.getCountAtValueIteratedTo() + "," + (double) count / total);
+			}
+		}
+	}
+
+	public void writeRounds(File file) throws FileNotFoundException {
+		try (PrintStream out = new PrintStream(file)) {
+			out.println("round," + String.join(",", COUNTERS));
+			for (int round = 0; round < this.rounds.size(); round++) {
+				StringBuilder str = new StringBuilder().append(round);
+				for (double value : this.getRound(round)) {
+					str.append(',').append(value);
+				}
+				out.println(str.toString());
+			}
+		}
+	}
+
+	private static void addLogs(File file, List<File> logs) {
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			if (files == null)
+				return;
+			Arrays.sort(files);
+			for (File child : files) {
+				addLogs(child, logs);
+			}
+		} else if (file.getName().endsWith(".log")) {
+			logs.add(file);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		long roundInterval = 5000l;
+		String csv = null;
+		List<File> logs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-round") && i + 1 < args.length)
+				roundInterval = Long.parseUnsignedLong(args[++i]);
+			else if (args[i].equals("-csv") && i + 1 < args.length)
+				csv = args[++i];
+			else
+				addLogs(new File(args[i]), logs);
+		}
+		if (logs.isEmpty()) {
+			System.err.println("Usage: LogAnalyzer [-round millis] [-csv prefix] <log file or folder>...");
+			System.exit(1);
+		}
+		long start = System.nanoTime();
+		long bytes = 0;
+		LogAnalyzer analyzer = new LogAnalyzer(roundInterval);
+		for (File log : logs) {
+			analyzer.analyze(log);
+			bytes += log.length();
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		analyzer.printReport(System.out);
+		System.out.println(String.format("Analyzed %.1f MB in %.3f s", bytes / 1e6, elapsed));
+		if (csv != null) {
+			analyzer.writeDelays(new File(csv + "_delays.csv"));
+			analyzer.writeRounds(new File(csv + "_rounds.csv"));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Split a log file into memory-mapped chunks, on line
+ * boundaries, to be parsed in parallel.
+ */
+public final class LogChunks {
+
+	// bytes of a chunk at most, a mapping being limited to 2 GB
+	private static final long MAX_CHUNK = 1l << 30;
+
+	private LogChunks() {
+	}
+
+	/**
+	 * Map the given file as about the given number of chunks,
+	 * each made of whole lines. Chunks are in file order.
+	 *
+	 * @param file
+	 * @param parts
+	 * @return the chunks, none for an empty file
+	 * @throws IOException
+	 */
+	public static List<MappedByteBuffer> split(File file, int parts) throws IOException {
+		List<MappedByteBuffer> chunks = new ArrayList<>();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			parts = (int) Math.max(parts, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+			long start = 0;
+			for (int i = 1; i <= parts && start < size; i++) {
+				long end = i == parts ? size : lineEnd(channel, Math.max(start, size / parts * i));
+				if (end - start > Integer.MAX_VALUE)
+					throw new IOException("Line too long in " + file);
+				if (end > start)
+					chunks.add(channel.map(MapMode.READ_ONLY, start, end - start));
+				start = end;
+			}
+		}
+		return chunks;
+	}
+
+	/*
+	 * Return the offset following the first line feed
+	 * from the given one, the end of the file if none.
+	 */
+	private static long lineEnd(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long size = channel.size();
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0)
+				break;
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n')
+					return position + i + 1;
+			}
+			position += read;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,269 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor over the lines of a chunk of an EpTO log, parsing
+ * the records logged by the actors in place, without regular
+ * expressions nor allocations:
+ * <pre>
+ * LEVEL: EpTO: {actor} at_{wall}_{logical} {action} {argument}
+ * </pre>
+ * and the events of their argument, as printed by
+ * {@link com.ds2.jepto.actors.Event#toString()}:
+ * <pre>
+ * Event [timestamp=.., source=.., id=.., action=.., ttl=..]
+ * </pre>
+ * The fields are offsets into the buffer, valid until the
+ * next line.
+ */
+public class LogLine {
+
+	private static final byte[] EPTO      = ": EpTO: ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] AT        = "at_".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TIMESTAMP = "timestamp=".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] SOURCE    = ", source=".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ID        = ", id=".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TTL       = ", ttl=".getBytes(StandardCharsets.US_ASCII);
+
+	private final ByteBuffer buffer;
+	private int position; // start of the next line
+
+	// current line
+	private int start;
+	private int end;
+
+	// current record
+	private int  actorStart;
+	private int  actorEnd;
+	private long wall;
+	private long logical;
+	private int  actionStart;
+	private int  actionEnd;
+	private int  argument;
+
+	// current event of the argument
+	private int  cursor;
+	private long timestamp;
+	private int  sourceStart;
+	private int  sourceEnd;
+	private int  id;
+	private int  ttl;
+
+	public LogLine(ByteBuffer buffer) {
+		super();
+		this.buffer   = buffer;
+		this.position = 0;
+	}
+
+	/**
+	 * Move to the next line.
+	 *
+	 * @return false at the end of the buffer
+	 */
+	public boolean next() {
+		int limit = this.buffer.limit();
+		if (this.position >= limit)
+			return false;
+		this.start = this.position;
+		int i = this.start;
+		while (i < limit && this.buffer.get(i) != '\n')
+			i++;
+		this.end = i > this.start && this.buffer.get(i - 1) == '\r' ? i - 1 : i;
+		this.position = i + 1;
+		return true;
+	}
+
+	/**
+	 * Parse the line as a record of an actor.
+	 *
+	 * @return false if the line is not a record
+	 */
+	public boolean parseRecord() {
+		int i = this.start;
+		while (i < this.end && this.buffer.get(i) >= 'A' && this.buffer.get(i) <= 'Z')
+			i++;
+		if (i == this.start || !this.matches(i, EPTO))
+			return false;
+		this.actorStart = i + EPTO.length;
+		this.actorEnd   = this.indexOf(this.actorStart, ' ');
+		if (this.actorEnd < 0 || !this.matches(this.actorEnd + 1, AT))
+			return false;
+		i = this.actorEnd + 1 + AT.length;
+		int digits = this.digits(i);
+		if (digits == i || digits >= this.end || this.buffer.get(digits) != '_')
+			return false;
+		this.wall = this.parseLong(i, digits);
+		i = digits + 1;
+		digits = this.digits(i);
+		if (digits == i || digits >= this.end || this.buffer.get(digits) != ' ')
+			return false;
+		this.logical = this.parseLong(i, digits);
+		this.actionStart = digits + 1;
+		int space = this.indexOf(this.actionStart, ' ');
+		this.actionEnd = space < 0 ? this.end : space;
+		this.argument  = space < 0 ? this.end : space + 1;
+		this.cursor    = this.argument;
+		return true;
+	}
+
+	public boolean isAction(byte[] action) {
+		return this.actionEnd - this.actionStart == action.length &&
+				this.matches(this.actionStart, action);
+	}
+
+	/**
+	 * Move to the next event of the argument of the record.
+	 *
+	 * @return false if there are no more events
+	 */
+	public boolean nextEvent() {
+		int i = this.find(this.cursor, TIMESTAMP);
+		if (i < 0)
+			return false;
+		i += TIMESTAMP.length;
+		int digits = this.digits(i);
+		this.timestamp = this.parseLong(i, digits);
+		if (!this.matches(digits, SOURCE))
+			return false;
+		this.sourceStart = digits + SOURCE.length;
+		this.sourceEnd   = this.indexOf(this.sourceStart, ',');
+		if (this.sourceEnd < 0 || !this.matches(this.sourceEnd, ID))
+			return false;
+		i = this.sourceEnd + ID.length;
+		digits = this.digits(i);
+		this.id = (int) this.parseLong(i, digits);
+		i = this.find(digits, TTL);
+		if (i < 0)
+			return false;
+		i += TTL.length;
+		digits = this.digits(i);
+		this.ttl = (int) this.parseLong(i, digits);
+		this.cursor = digits;
+		return true;
+	}
+
+	/**
+	 * Count the events of the argument of the record,
+	 * without parsing them.
+	 */
+	public int countEvents() {
+		int count = 0;
+		for (int i = this.find(this.argument, TIMESTAMP); i >= 0;
+				i = this.find(i + TIMESTAMP.length, TIMESTAMP)) {
+			count++;
+		}
+		return count;
+	}
+
+	public ByteBuffer getBuffer() {
+		return this.buffer;
+	}
+
+	public int getStart() {
+		return this.start;
+	}
+
+	public int getEnd() {
+		return this.end;
+	}
+
+	public int getActorStart() {
+		return this.actorStart;
+	}
+
+	public int getActorEnd() {
+		return this.actorEnd;
+	}
+
+	public long getWall() {
+		return this.wall;
+	}
+
+	public long getLogical() {
+		return this.logical;
+	}
+
+	/**
+	 * Offset of the argument of the record, the end
+	 * of the line if there is none.
+	 */
+	public int getArgument() {
+		return this.argument;
+	}
+
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	public int getSourceStart() {
+		return this.sourceStart;
+	}
+
+	public int getSourceEnd() {
+		return this.sourceEnd;
+	}
+
+	public int getId() {
+		return this.id;
+	}
+
+	public int getTtl() {
+		return this.ttl;
+	}
+
+	/**
+	 * Return the offset of the first given character of
+	 * the line from the given offset, -1 if missing.
+	 */
+	public int indexOf(int from, char c) {
+		for (int i = from; i < this.end; i++) {
+			if (this.buffer.get(i) == c)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the offset of the first occurrence of the given
+	 * bytes in the line from the given offset, -1 if missing.
+	 */
+	public int find(int from, byte[] pattern) {
+		int last = this.end - pattern.length;
+		for (int i = from; i <= last; i++) {
+			if (this.buffer.get(i) == pattern[0] && this.matches(i, pattern))
+				return i;
+		}
+		return -1;
+	}
+
+	public boolean matches(int at, byte[] pattern) {
+		if (at < 0 || at + pattern.length > this.end)
+			return false;
+		for (int i = 0; i < pattern.length; i++) {
+			if (this.buffer.get(at + i) != pattern[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the offset following the digits from the
+	 * given offset, the offset itself if there are none.
+	 */
+	public int digits(int from) {
+		int i = from;
+		while (i < this.end && this.buffer.get(i) >= '0' && this.buffer.get(i) <= '9')
+			i++;
+		return i;
+	}
+
+	public long parseLong(int from, int to) {
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			value = value * 10 + (this.buffer.get(i) - '0');
+		}
+		return value;
+	}
+}
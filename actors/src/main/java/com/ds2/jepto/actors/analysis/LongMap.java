@@ -0,0 +1,84 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Map of primitive longs, by open addressing. Not thread safe.
+ */
+final class LongMap {
+
+	@FunctionalInterface
+	interface Visitor {
+		void visit(long key, long value);
+	}
+
+	private static final long FREE = Long.MIN_VALUE;
+
+	private long[] keys;
+	private long[] values;
+	private int    size;
+
+	LongMap() {
+		super();
+		this.allocate(64);
+	}
+
+	private void allocate(int capacity) {
+		this.keys   = new long[capacity];
+		this.values = new long[capacity];
+		Arrays.fill(this.keys, FREE);
+		this.size = 0;
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9e3779b97f4a7c15l;
+		int mask = this.keys.length - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (this.keys[slot] != key && this.keys[slot] != FREE)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	long get(long key, long missing) {
+		int slot = this.slot(key);
+		return this.keys[slot] == FREE ? missing : this.values[slot];
+	}
+
+	void put(long key, long value) {
+		int slot = this.slot(key);
+		if (this.keys[slot] == FREE) {
+			if ((this.size + 1) * 2 > this.keys.length) {
+				this.grow();
+				slot = this.slot(key);
+			}
+			this.keys[slot] = key;
+			this.size++;
+		}
+		this.values[slot] = value;
+	}
+
+	void add(long key, long delta) {
+		this.put(key, this.get(key, 0) + delta);
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	void forEach(Visitor visitor) {
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != FREE)
+				visitor.visit(this.keys[i], this.values[i]);
+		}
+	}
+
+	private void grow() {
+		long[] keys   = this.keys;
+		long[] values = this.values;
+		this.allocate(keys.length << 1);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE)
+				this.put(keys[i], values[i]);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Intern the names read from a buffer, such as the actor
+ * names of a log, as dense indexes: a name is turned into
+ * a String only the first time it is met. Not thread safe.
+ */
+public class NameTable {
+
+	private int[]        slots;  // index + 1 of the name, 0 when free
+	private int[]        hashes; // by index
+	private final List<byte[]> bytes;
+	private final List<String> names;
+
+	public NameTable() {
+		super();
+		this.slots  = new int[64];
+		this.hashes = new int[32];
+		this.bytes  = new ArrayList<>();
+		this.names  = new ArrayList<>();
+	}
+
+	/**
+	 * Return the index of the name between the given offsets
+	 * of the buffer, adding it if new.
+	 *
+	 * @param buffer
+	 * @param start inclusive
+	 * @param end exclusive
+	 * @return
+	 */
+	public int intern(ByteBuffer buffer, int start, int end) {
+		int hash = 1;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + buffer.get(i);
+		}
+		int mask = this.slots.length - 1;
+		for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+			int index = this.slots[slot] - 1;
+			if (index < 0)
+				return this.add(buffer, start, end, hash, slot);
+			if (this.hashes[index] == hash && equals(this.bytes.get(index), buffer, start, end))
+				return index;
+		}
+	}
+
+	public int size() {
+		return this.names.size();
+	}
+
+	public String name(int index) {
+		return this.names.get(index);
+	}
+
+	private int add(ByteBuffer buffer, int start, int end, int hash, int slot) {
+		byte[] name = new byte[end - start];
+		for (int i = start; i < end; i++) {
+			name[i - start] = buffer.get(i);
+		}
+		int index = this.names.size();
+		this.bytes.add(name);
+		this.names.add(new String(name, StandardCharsets.UTF_8));
+		if (index == this.hashes.length)
+			this.hashes = Arrays.copyOf(this.hashes, index << 1);
+		this.hashes[index] = hash;
+		this.slots[slot] = index + 1;
+		if (this.names.size() * 2 > this.slots.length)
+			this.rehash();
+		return index;
+	}
+
+	private void rehash() {
+		this.slots = new int[this.slots.length << 1];
+		int mask = this.slots.length - 1;
+		for (int index = 0; index < this.names.size(); index++) {
+			int slot = mix(this.hashes[index]) & mask;
+			while (this.slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			this.slots[slot] = index + 1;
+		}
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equals(byte[] name, ByteBuffer buffer, int start, int end) {
+		if (name.length != end - start)
+			return false;
+		for (int i = 0; i < name.length; i++) {
+			if (name[i] != buffer.get(start + i))
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,152 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.util.Arrays;
+
+/**
+ * The events delivered or broadcast, by rank: the id of the
+ * event, the number of its deliveries and whether its broadcast
+ * was seen. Split into shards, each with its own lock, hence
+ * updated by many nodes at once, in primitive arrays.
+ */
+final class RankTable {
+
+	/**
+	 * Receive the events of a shard.
+	 */
+	@FunctionalInterface
+	interface Visitor {
+		void visit(long rank, int id, int deliveries, boolean broadcast);
+	}
+
+	static final int SHARDS = 64;
+
+	private static final int  SHARD_SHIFT = Long.SIZE - 6; // log2(SHARDS)
+	private static final long FREE        = -1l;           // ranks are positive
+
+	private static final class Shard {
+		private long[]    ranks;
+		private int[]     ids;
+		private int[]     deliveries;
+		private boolean[] broadcast;
+		private int       size;
+
+		private Shard() {
+			this.allocate(64);
+		}
+
+		private void allocate(int capacity) {
+			this.ranks      = new long[capacity];
+			this.ids        = new int[capacity];
+			this.deliveries = new int[capacity];
+			this.broadcast  = new boolean[capacity];
+			Arrays.fill(this.ranks, FREE);
+			this.size = 0;
+		}
+
+		/*
+		 * Return the slot of the given rank, adding it
+		 * with the given id if missing.
+		 */
+		private int slot(long rank, long hash, int id) {
+			int mask = this.ranks.length - 1;
+			int slot = (int) hash & mask;
+			while (this.ranks[slot] != rank) {
+				if (this.ranks[slot] == FREE) {
+					if ((this.size + 1) * 2 > this.ranks.length) {
+						this.grow();
+						return this.slot(rank, hash, id);
+					}
+					this.ranks[slot] = rank;
+					this.ids[slot]   = id;
+					this.size++;
+					return slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private void grow() {
+			long[]    ranks      = this.ranks;
+			int[]     ids        = this.ids;
+			int[]     deliveries = this.deliveries;
+			boolean[] broadcast  = this.broadcast;
+			this.allocate(ranks.length << 1);
+			for (int i = 0; i < ranks.length; i++) {
+				if (ranks[i] == FREE)
+					continue;
+				int slot = this.slot(ranks[i], hash(ranks[i]), ids[i]);
+				this.deliveries[slot] = deliveries[i];
+				this.broadcast[slot]  = broadcast[i];
+			}
+		}
+	}
+
+	private final Shard[] shards;
+
+	RankTable() {
+		super();
+		this.shards = new Shard[SHARDS];
+		for (int i = 0; i < SHARDS; i++) {
+			this.shards[i] = new Shard();
+		}
+	}
+
+	private static long hash(long rank) {
+		long hash = rank * 0x9e3779b97f4a7c15l;
+		return hash ^ (hash >>> 29);
+	}
+
+	/**
+	 * Count a delivery of the given event.
+	 *
+	 * @return the id of the event with the given rank,
+	 * the first one delivered or broadcast
+	 */
+	int delivered(long rank, int id) {
+		long hash = hash(rank);
+		Shard shard = this.shards[(int) (hash >>> SHARD_SHIFT)];
+		synchronized (shard) {
+			int slot = shard.slot(rank, hash, id);
+			shard.deliveries[slot]++;
+			return shard.ids[slot];
+		}
+	}
+
+	/**
+	 * Mark the given event as broadcast.
+	 *
+	 * @return the id of the event with the given rank,
+	 * the first one delivered or broadcast
+	 */
+	int broadcast(long rank, int id) {
+		long hash = hash(rank);
+		Shard shard = this.shards[(int) (hash >>> SHARD_SHIFT)];
+		synchronized (shard) {
+			int slot = shard.slot(rank, hash, id);
+			shard.broadcast[slot] = true;
+			return shard.ids[slot];
+		}
+	}
+
+	void forEach(int shardIndex, Visitor visitor) {
+		Shard shard = this.shards[shardIndex];
+		synchronized (shard) {
+			for (int i = 0; i < shard.ranks.length; i++) {
+				if (shard.ranks[i] != FREE)
+					visitor.visit(shard.ranks[i], shard.ids[i],
+							shard.deliveries[i], shard.broadcast[i]);
+			}
+		}
+	}
+
+	long size() {
+		long size = 0;
+		for (Shard shard : this.shards) {
+			synchronized (shard) {
+				size += shard.size;
+			}
+		}
+		return size;
+	}
+}
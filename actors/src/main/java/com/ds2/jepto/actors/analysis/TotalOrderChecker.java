@@ -0,0 +1,383 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.ds2.jepto.actors.DeliveryListener;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.NodeRegistry;
+import com.ds2.jepto.actors.analysis.Violation.Kind;
+
+/**
+ * Check the properties of the total order broadcast over the
+ * deliveries of a run, in a single pass:
+ * <ul>
+ * <li>total order: every node delivers the events in increasing
+ * rank, that is (timestamp, source id) order, hence any two nodes
+ * deliver the events they have in common in the same order;</li>
+ * <li>integrity: no event is delivered twice by a node, events
+ * with the same rank are the same event and, when the broadcasts
+ * are known, every delivered event was broadcast;</li>
+ * <li>agreement: every event preceding the last delivery of all
+ * the nodes in the total order is delivered by all of them, the
+ * following ones being possibly still on their way at the end of
+ * the run.</li>
+ * </ul>
+ * Each node is checked on its own, against its last delivery,
+ * while the events are counted in a table shared by the nodes:
+ * the check is linear in the deliveries, and the nodes are
+ * checked in parallel.
+ *
+ * The deliveries are given live, through a {@link #listener(String)}
+ * subscribed to each node, or read from the logs of a run, the
+ * execution log or the logs of each actor:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.analysis.TotalOrderChecker -Dexec.args="~/EpTOlogs/execution.log"
+ * </pre>
+ */
+public class TotalOrderChecker {
+
+	private static final byte[] BROADCAST = "broadcast".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] DELIVERED = "delivered".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] NODE_ID   = "node_id".getBytes(StandardCharsets.US_ASCII);
+
+	private final RankTable                   events;
+	private final Map<String, DeliveryStream> streams; // by node
+	private final Map<Integer, String>        sources; // names by node id
+	private volatile boolean broadcasts; // broadcasts are known
+
+	// results of the last check
+	private long        deliveries;
+	private final long[] violations; // by kind
+	private Violation   first;
+
+	public TotalOrderChecker() {
+		super();
+		this.events  = new RankTable();
+		this.streams = new LinkedHashMap<>();
+		this.sources = new ConcurrentHashMap<>();
+		this.broadcasts = false;
+		this.violations = new long[Kind.values().length];
+	}
+
+	private synchronized DeliveryStream stream(String node) {
+		return this.streams.computeIfAbsent(node, DeliveryStream::new);
+	}
+
+	private synchronized void putStream(String node, DeliveryStream stream) {
+		this.streams.put(node, stream);
+	}
+
+	/**
+	 * Name the node with the given id, in the reports.
+	 *
+	 * @param nodeId
+	 * @param name
+	 */
+	public void setSourceName(int nodeId, String name) {
+		this.sources.put(nodeId, name);
+	}
+
+	private String sourceName(int nodeId) {
+		return this.sources.getOrDefault(nodeId, "node_" + nodeId);
+	}
+
+	/**
+	 * Record the broadcast of the given event: once called,
+	 * every event delivered must have been broadcast.
+	 *
+	 * @param rank
+	 * @param id
+	 */
+	public void broadcast(long rank, int id) {
+		this.broadcasts = true;
+		this.events.broadcast(rank, id);
+	}
+
+	/**
+	 * Check the delivery of the given event by the given node.
+	 * The deliveries of a node are given by one thread at a time.
+	 *
+	 * @param node
+	 * @param rank of the event, see {@link Event#getOrderKey()}
+	 * @param id of the event
+	 * @param wall time of the delivery, in millis
+	 * @return false if it violates the total order
+	 */
+	public boolean deliver(String node, long rank, int id, long wall) {
+		DeliveryStream stream = this.stream(node);
+		synchronized (stream) {
+			return stream.deliver(rank, id, wall, this.events);
+		}
+	}
+
+	/**
+	 * Return a listener checking the deliveries of the
+	 * given node, to be subscribed to it.
+	 *
+	 * @param node
+	 * @return
+	 */
+	public DeliveryListener listener(String node) {
+		DeliveryStream stream = this.stream(node);
+		return batch -> {
+			long now = System.currentTimeMillis();
+			synchronized (stream) {
+				for (Event event : batch.getEvents()) {
+					stream.deliver(event.getOrderKey(), event.getId(), now, this.events);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Complete the check with the agreement on the events
+	 * delivered so far.
+	 *
+	 * @return the first violation found, null if none
+	 */
+	public synchronized Violation check() {
+		Arrays.fill(this.violations, 0);
+		this.deliveries = 0;
+		this.first = null;
+		List<DeliveryStream> streams = new ArrayList<>(this.streams.values());
+		long horizon = Long.MAX_VALUE;
+		for (DeliveryStream stream : streams) {
+			synchronized (stream) {
+				this.deliveries += stream.getCount();
+				if (stream.getCount() > 0)
+					horizon = Math.min(horizon, stream.getLastRank());
+				for (Kind kind : Kind.values()) {
+					this.violations[kind.ordinal()] += stream.getViolations(kind);
+				}
+				// the earliest one
+				Violation violation = stream.getViolation();
+				if (violation != null && (this.first == null ||
+						violation.getWall() < this.first.getWall()))
+					this.first = violation;
+			}
+		}
+		int numNodes = streams.size();
+		long stable  = horizon;
+		boolean broadcasts = this.broadcasts;
+		Violation[] missing = new Violation[RankTable.SHARDS]; // lowest rank by shard
+		long[][] counts = new long[RankTable.SHARDS][Kind.values().length];
+		IntStream.range(0, RankTable.SHARDS).parallel().forEach(shard ->
+			this.events.forEach(shard, (rank, id, deliveries, broadcast) -> {
+				Violation violation = null;
+				if (broadcasts && !broadcast && deliveries > 0)
+					violation = Violation.event(Kind.UNKNOWN, rank, id, deliveries, numNodes);
+				else if (rank <= stable && deliveries < numNodes)
+					violation = Violation.event(Kind.AGREEMENT, rank, id, deliveries, numNodes);
+				if (violation == null)
+					return;
+				counts[shard][violation.getKind().ordinal()]++;
+				if (missing[shard] == null || rank < missing[shard].getRank())
+					missing[shard] = violation;
+			}));
+		Violation event = null;
+		for (int shard = 0; shard < RankTable.SHARDS; shard++) {
+			for (Kind kind : Kind.values()) {
+				this.violations[kind.ordinal()] += counts[shard][kind.ordinal()];
+			}
+			if (missing[shard] != null &&
+					(event == null || missing[shard].getRank() < event.getRank()))
+				event = missing[shard];
+		}
+		if (this.first == null)
+			this.first = event;
+		return this.first;
+	}
+
+	public synchronized int getNodes() {
+		return this.streams.size();
+	}
+
+	public long getEvents() {
+		return this.events.size();
+	}
+
+	public synchronized long getDeliveries() {
+		return this.deliveries;
+	}
+
+	public synchronized long getViolations(Kind kind) {
+		return this.violations[kind.ordinal()];
+	}
+
+	public synchronized Violation getFirstViolation() {
+		return this.first;
+	}
+
+	public String describe(Violation violation) {
+		return violation.getKind() + ": " + violation.describe(this::sourceName);
+	}
+
+	/**
+	 * Print the outcome of the last {@link #check()}.
+	 *
+	 * @param out
+	 */
+	public synchronized void printReport(PrintStream out) {
+		out.println(String.format("Nodes:\t\t%d", this.streams.size()));
+		out.println(String.format("Events:\t\t%d", this.getEvents()));
+		out.println(String.format("Deliveries:\t%d", this.deliveries));
+		for (Kind kind : Kind.values()) {
+			out.println(String.format("%-16s%d", kind.name().toLowerCase() + ":",
+					this.violations[kind.ordinal()]));
+		}
+		if (this.first == null)
+			out.println("Total order satisfied");
+		else
+			out.println("First violation\t" + this.describe(this.first));
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                  LOGS                                     */
+/*---------------------------------------------------------------------------*/
+	/**
+	 * Check the deliveries of the given logs, in parallel over
+	 * chunks of them. The deliveries of a node spanning more logs
+	 * follow the order of the files.
+	 *
+	 * The rank of an event needs the node id of its source, as
+	 * logged by the node when joining: when an id is missing, the
+	 * sources are ranked by name instead, as older runs did.
+	 *
+	 * @param logs
+	 * @return the checker, already checked
+	 * @throws IOException
+	 */
+	public static TotalOrderChecker checkLogs(List<File> logs) throws IOException {
+		int parts = Runtime.getRuntime().availableProcessors() * 4;
+		List<MappedByteBuffer> chunks = new ArrayList<>();
+		for (File log : logs) {
+			chunks.addAll(LogChunks.split(log, parts));
+		}
+		TotalOrderChecker checker = new TotalOrderChecker();
+
+		// node ids, from a first quick pass over the record headers
+		Map<String, Integer> ids   = new ConcurrentHashMap<>();
+		Map<String, Boolean> actorNames = new ConcurrentHashMap<>();
+		IntStream.range(0, chunks.size()).parallel().forEach(chunk -> {
+			LogLine line = new LogLine(chunks.get(chunk));
+			NameTable actors = new NameTable();
+			while (line.next()) {
+				if (!line.parseRecord())
+					continue;
+				int known = actors.size();
+				int actor = actors.intern(line.getBuffer(), line.getActorStart(), line.getActorEnd());
+				if (actor == known)
+					actorNames.put(actors.name(actor), true);
+				if (line.isAction(NODE_ID)) {
+					int digits = line.digits(line.getArgument());
+					if (digits > line.getArgument())
+						ids.put(actors.name(actor), (int) line.parseLong(line.getArgument(), digits));
+				}
+			}
+		});
+		if (!ids.keySet().containsAll(actorNames.keySet())) {
+			ids.clear();
+			for (String name : new TreeSet<>(actorNames.keySet())) {
+				ids.put(name, ids.size());
+			}
+		}
+		AtomicInteger nextId = new AtomicInteger(ids.values().stream()
+				.mapToInt(Integer::intValue).max().orElse(-1) + 1);
+		ids.forEach((name, id) -> checker.setSourceName(id, name));
+
+		// then the broadcasts and the deliveries, each chunk
+		// checking its own stretch of the deliveries of a node
+		List<Map<String, DeliveryStream>> stretches = IntStream.range(0, chunks.size())
+				.parallel().mapToObj(chunk -> {
+			LogLine line = new LogLine(chunks.get(chunk));
+			NameTable actors  = new NameTable();
+			NameTable sources = new NameTable();
+			List<DeliveryStream> streams = new ArrayList<>();
+			int[] sourceIds = new int[16];
+			while (line.next()) {
+				if (!line.parseRecord())
+					continue;
+				boolean broadcast = line.isAction(BROADCAST);
+				if (!broadcast && !line.isAction(DELIVERED))
+					continue;
+				int actor = actors.intern(line.getBuffer(), line.getActorStart(), line.getActorEnd());
+				if (actor == streams.size())
+					streams.add(new DeliveryStream(actors.name(actor)));
+				DeliveryStream stream = streams.get(actor);
+				while (line.nextEvent()) {
+					int known  = sources.size();
+					int source = sources.intern(line.getBuffer(), line.getSourceStart(), line.getSourceEnd());
+					if (source == known) {
+						if (source == sourceIds.length)
+							sourceIds = Arrays.copyOf(sourceIds, source << 1);
+						String name = sources.name(source);
+						sourceIds[source] = ids.computeIfAbsent(name, n -> {
+							int id = nextId.getAndIncrement();
+							checker.setSourceName(id, n);
+							return id;
+						});
+					}
+					long rank = NodeRegistry.orderKey(line.getTimestamp(), sourceIds[source]);
+					if (broadcast)
+						checker.broadcast(rank, line.getId());
+					else
+						stream.deliver(rank, line.getId(), line.getWall(), checker.events);
+				}
+			}
+			Map<String, DeliveryStream> byNode = new LinkedHashMap<>();
+			for (DeliveryStream stream : streams) {
+				byNode.put(stream.getNode(), stream);
+			}
+			return byNode;
+		}).collect(Collectors.toList());
+		TreeSet<String> names = new TreeSet<>();
+		for (Map<String, DeliveryStream> byNode : stretches) {
+			names.addAll(byNode.keySet());
+		}
+		List<String> nodes = new ArrayList<>(names);
+		DeliveryStream[] streams = new DeliveryStream[nodes.size()];
+		IntStream.range(0, nodes.size()).parallel().forEach(node -> {
+			streams[node] = new DeliveryStream(nodes.get(node));
+			for (Map<String, DeliveryStream> byNode : stretches) {
+				DeliveryStream stretch = byNode.get(nodes.get(node));
+				if (stretch != null)
+					streams[node].append(stretch);
+			}
+		});
+		for (DeliveryStream stream : streams) {
+			checker.putStream(stream.getNode(), stream);
+		}
+		checker.check();
+		return checker;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: TotalOrderChecker <log file>...");
+			System.exit(1);
+		}
+		List<File> logs = new ArrayList<>();
+		for (String arg : args) {
+			logs.add(new File(arg));
+		}
+		long start = System.nanoTime();
+		TotalOrderChecker checker = checkLogs(logs);
+		checker.printReport(System.out);
+		System.out.println(String.format("Checked in %.3f s", (System.nanoTime() - start) / 1e9));
+		System.exit(checker.getFirstViolation() == null ? 0 : 2);
+	}
+}
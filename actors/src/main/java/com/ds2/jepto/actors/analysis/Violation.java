@@ -0,0 +1,159 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.util.function.IntFunction;
+
+import com.ds2.jepto.actors.NodeRegistry;
+
+/**
+ * A violation of the properties of the total order broadcast,
+ * with the events and the delivery involved. Events are given
+ * by their rank in the total order (see
+ * {@link com.ds2.jepto.actors.Event#getOrderKey()}) and id.
+ */
+public class Violation {
+
+	public enum Kind {
+		/** delivered before an event preceding it */
+		ORDER,
+		/** delivered twice in a row by the same node */
+		DUPLICATE,
+		/** two events with the same rank */
+		ALTERED,
+		/** delivered by some of the nodes only */
+		AGREEMENT,
+		/** delivered but never broadcast */
+		UNKNOWN
+	}
+
+	private final Kind   kind;
+	private final String node;     // null for AGREEMENT and UNKNOWN
+	private final long   position; // of the delivery for the node
+	private final long   wall;     // time of the delivery, millis
+	private final long   rank;
+	private final int    id;
+	private final long   previousRank;
+	private final int    previousId;
+	private final int    deliveredBy;
+	private final int    nodes;
+
+	private Violation(Kind kind, String node, long position, long wall,
+			long rank, int id, long previousRank, int previousId,
+			int deliveredBy, int nodes) {
+		super();
+		this.kind     = kind;
+		this.node     = node;
+		this.position = position;
+		this.wall     = wall;
+		this.rank     = rank;
+		this.id       = id;
+		this.previousRank = previousRank;
+		this.previousId   = previousId;
+		this.deliveredBy  = deliveredBy;
+		this.nodes        = nodes;
+	}
+
+	/**
+	 * A delivery by the given node conflicting with a previous
+	 * event: the last one it delivered (ORDER, DUPLICATE) or
+	 * another event with the same rank (ALTERED).
+	 */
+	public static Violation delivery(Kind kind, String node, long position, long wall,
+			long rank, int id, long previousRank, int previousId) {
+		return new Violation(kind, node, position, wall, rank, id,
+				previousRank, previousId, 0, 0);
+	}
+
+	/**
+	 * An event delivered by a number of nodes other than
+	 * the total (AGREEMENT), or never broadcast (UNKNOWN).
+	 */
+	public static Violation event(Kind kind, long rank, int id, int deliveredBy, int nodes) {
+		return new Violation(kind, null, -1, -1, rank, id, -1, -1, deliveredBy, nodes);
+	}
+
+	/**
+	 * The same violation, with the position of the
+	 * delivery moved forward by the given offset.
+	 */
+	Violation moved(long offset) {
+		return new Violation(this.kind, this.node, this.position + offset, this.wall,
+				this.rank, this.id, this.previousRank, this.previousId,
+				this.deliveredBy, this.nodes);
+	}
+
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	public String getNode() {
+		return this.node;
+	}
+
+	public long getPosition() {
+		return this.position;
+	}
+
+	public long getWall() {
+		return this.wall;
+	}
+
+	public long getRank() {
+		return this.rank;
+	}
+
+	public int getId() {
+		return this.id;
+	}
+
+	public long getPreviousRank() {
+		return this.previousRank;
+	}
+
+	public int getPreviousId() {
+		return this.previousId;
+	}
+
+	public int getDeliveredBy() {
+		return this.deliveredBy;
+	}
+
+	/**
+	 * Describe the violation, naming the sources of the
+	 * events through the given function of their node id.
+	 *
+	 * @param sources
+	 * @return
+	 */
+	public String describe(IntFunction<String> sources) {
+		String event = event(this.rank, this.id, sources);
+		switch (this.kind) {
+		case ORDER:
+			return this.node + " delivered " + event + " after " +
+					event(this.previousRank, this.previousId, sources) +
+					", following it in the total order" + this.at();
+		case DUPLICATE:
+			return this.node + " delivered " + event + " twice" + this.at();
+		case ALTERED:
+			return this.node + " delivered " + event + ", while the event with the same rank is " +
+					event(this.previousRank, this.previousId, sources) + this.at();
+		case AGREEMENT:
+			return event + " delivered by " + this.deliveredBy + " of " + this.nodes + " nodes";
+		default:
+			return event + " delivered by " + this.deliveredBy + " nodes, but never broadcast";
+		}
+	}
+
+	private String at() {
+		return " (delivery " + this.position + ", at " + this.wall + ")";
+	}
+
+	private static String event(long rank, int id, IntFunction<String> sources) {
+		return sources.apply((int) (rank & (NodeRegistry.MAX_NODES - 1))) + ":" + id +
+				"@" + (rank >>> NodeRegistry.NODE_ID_BITS);
+	}
+
+	@Override
+	public String toString() {
+		return this.kind + ": " + this.describe(id -> "node_" + id);
+	}
+}
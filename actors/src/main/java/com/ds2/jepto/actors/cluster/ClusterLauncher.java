@@ -0,0 +1,334 @@
+package com.ds2.jepto.actors.cluster;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.ds2.jepto.actors.ActorMain;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+
+/**
+ * Run a cluster of {@link ActorMain} JVMs on the loopback
+ * interface: a tracker on the base port, then the peers on
+ * the following ports, each one with its own seed. The nodes
+ * are launched in batches, each batch waiting for the previous
+ * one to be ready. Once every node is ready they all run the
+ * {@link ClusterWorkload}, then they are stopped and their
+ * reports are gathered into a {@link ClusterReport}.
+ *
+ * The parameters are read from cluster.conf, or from the file
+ * given with -Drun.config on top of it:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.cluster.ClusterLauncher -Drun.config=cluster.conf
+ * </pre>
+ */
+public class ClusterLauncher {
+
+	private static final String PREFIX = "jepto.cluster.";
+	private static final String HOST   = "127.0.0.1";
+
+	private static final long POLL_MILLIS     = 100l;
+	private static final long START_MILLIS    = 1_000l;  // to deliver the start commands
+	private static final long SHUTDOWN_MILLIS = 30_000l;
+
+	private static class Node {
+		private final String  name;
+		private final int     port;
+		private final long    seed;
+		private final File    log;
+		private final File    report;
+		private Process       process;
+		private PrintStream   control;
+		private volatile boolean ready  = false;
+		private volatile boolean done   = false;
+		private volatile boolean exited = false;
+
+		private Node(String name, int port, long seed, File outputDir) {
+			this.name = name;
+			this.port = port;
+			this.seed = seed;
+			this.log    = new File(outputDir, name + ".out");
+			this.report = new File(outputDir, name + ".report");
+		}
+
+		private void send(String command) {
+			this.control.println(command);
+			this.control.flush();
+		}
+	}
+
+	private final int    numNodes;
+	private final int    numReceivers;
+	private final long   maxTtl;
+	private final long   roundInterval;
+	private final int    basePort;
+	private final long   seed;
+	private final int    launchBatch;
+	private final long   readyTimeout;  // millis
+	private final double rate;          // events/s over all the nodes
+	private final long   warmup;        // millis
+	private final long   duration;      // millis
+	private final long   drain;         // millis
+	private final List<String> jvmOptions;
+	private final List<String> nodeOptions; // -D overrides of the node config
+	private final String classpath;
+	private final File   outputDir;
+
+	private final List<Node> nodes;
+
+	public ClusterLauncher(Config config) {
+		super();
+		this.numNodes = config.getInt(PREFIX + "num-nodes");
+		if (this.numNodes < 2)
+			throw new IllegalArgumentException("Too few nodes defined");
+		// 0 for the formulas of the readme, with c = 1
+		int k = config.getInt(PREFIX + "node.num-receivers");
+		this.numReceivers = k > 0 ? k :
+			(int) Math.ceil(2 * Math.E * Math.log(this.numNodes) / Math.log(Math.log(this.numNodes)));
+		long ttl = config.getLong(PREFIX + "node.max-ttl");
+		this.maxTtl = ttl > 0 ? ttl :
+			2 * (long) Math.ceil(2 * Math.log(this.numNodes) / Math.log(2)) + 1;
+		this.roundInterval = config.getLong(PREFIX + "node.round-interval");
+		this.basePort     = config.getInt(PREFIX + "base-port");
+		this.seed         = config.getLong(PREFIX + "seed");
+		this.launchBatch  = Math.max(1, config.getInt(PREFIX + "launch-batch"));
+		this.readyTimeout = config.getLong(PREFIX + "ready-timeout") * 1000l;
+		this.rate     = config.getDouble(PREFIX + "workload.rate");
+		this.warmup   = config.getLong(PREFIX + "workload.warmup") * 1000l;
+		this.duration = config.getLong(PREFIX + "workload.duration") * 1000l;
+		// 0 to wait for the events broadcast last to be delivered
+		long drain = config.getLong(PREFIX + "workload.drain") * 1000l;
+		this.drain = drain > 0 ? drain : 2 * (this.maxTtl + 2) * this.roundInterval;
+		this.jvmOptions = config.getStringList(PREFIX + "jvm-options");
+		this.classpath  = classpath(config);
+		this.outputDir  = new File(config.getString(PREFIX + "output-dir"));
+
+		this.nodeOptions = new ArrayList<>();
+		for (Map.Entry<String, ConfigValue> entry :
+				config.getConfig(PREFIX + "node").entrySet()) {
+			String value;
+			if (entry.getKey().equals("num-receivers"))
+				value = Integer.toString(this.numReceivers);
+			else if (entry.getKey().equals("max-ttl"))
+				value = Long.toString(this.maxTtl);
+			else
+				value = entry.getValue().unwrapped().toString();
+			this.nodeOptions.add("-Djepto.config." + entry.getKey() + "=" + value);
+		}
+		this.nodes = new ArrayList<>(this.numNodes);
+	}
+
+	/*
+	 * exec:java runs the launcher within a class loader of its
+	 * own, the class path of the JVM is the one of maven.
+	 */
+	private static String classpath(Config config) {
+		if (config.hasPath(PREFIX + "classpath") &&
+				!config.getString(PREFIX + "classpath").isEmpty())
+			return config.getString(PREFIX + "classpath");
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader instanceof URLClassLoader) {
+			List<String> paths = new ArrayList<>();
+			try {
+				for (URL url : ((URLClassLoader) loader).getURLs()) {
+					paths.add(new File(url.toURI()).getPath());
+				}
+				return String.join(File.pathSeparator, paths);
+			} catch (URISyntaxException e) {
+				// fall back to the class path of the JVM
+			}
+		}
+		return System.getProperty("java.class.path");
+	}
+
+	private List<String> command(Node node) {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" +
+				File.separator + "java");
+		command.addAll(this.jvmOptions);
+		command.add("-cp");
+		command.add(this.classpath);
+		if (node.port == this.basePort) {
+			command.add("-Dconfig.resource=tracker0.conf");
+			command.add("-Dakka.remote.netty.tcp.port=" + node.port);
+		} else {
+			command.add("-Dconfig.resource.default=peer_factory.conf");
+			command.add("-Dpeer=" + node.name);
+			command.add("-Dport=" + node.port);
+			command.add("-Dparticipant.tracker_address=" + HOST + ":" + this.basePort);
+		}
+		command.add("-Dseed=" + node.seed);
+		command.addAll(this.nodeOptions);
+		command.add("-D" + ActorMain.CLUSTER_REPORT + "=" + node.report.getAbsolutePath());
+		command.add(ActorMain.class.getName());
+		return command;
+	}
+
+	private void launch(Node node) throws IOException {
+		node.report.delete();
+		ProcessBuilder builder = new ProcessBuilder(this.command(node));
+		builder.redirectErrorStream(true);
+		node.process = builder.start();
+		node.control = new PrintStream(node.process.getOutputStream(), true);
+		// copy the output of the node to its log, watching for the markers
+		Thread pump = new Thread(() -> {
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(node.process.getInputStream()));
+					PrintStream log = new PrintStream(node.log)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					log.println(line);
+					if (line.equals(ClusterWorkload.READY))
+						node.ready = true;
+					else if (line.equals(ClusterWorkload.DONE))
+						node.done = true;
+				}
+			} catch (IOException e) {
+				// the node is gone
+			}
+			node.exited = true;
+		}, "cluster-" + node.name);
+		pump.setDaemon(true);
+		pump.start();
+	}
+
+	/*
+	 * Wait for the given nodes to be ready, failing if any
+	 * of them exits or the timeout expires.
+	 */
+	private void awaitReady(List<Node> batch) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + this.readyTimeout;
+		for (Node node : batch) {
+			while (!node.ready) {
+				if (node.exited)
+					throw new IllegalStateException("Node " + node.name +
+							" exited before being ready, see " + node.log);
+				if (System.currentTimeMillis() > deadline)
+					throw new IllegalStateException("Node " + node.name +
+							" not ready within the timeout, see " + node.log);
+				Thread.sleep(POLL_MILLIS);
+			}
+		}
+	}
+
+	private void start() throws IOException, InterruptedException {
+		if (!this.outputDir.mkdirs() && !this.outputDir.isDirectory())
+			throw new IOException("Couldn't create dir: " + this.outputDir);
+		for (int i = 0; i < this.numNodes; i++) {
+			String name = i == 0 ? "tracker_0" : "actor_" + i;
+			this.nodes.add(new Node(name, this.basePort + i, this.seed + i, this.outputDir));
+		}
+		// the peers join the tracker as soon as they start
+		Node tracker = this.nodes.get(0);
+		this.launch(tracker);
+		this.awaitReady(this.nodes.subList(0, 1));
+		for (int from = 1; from < this.numNodes; from += this.launchBatch) {
+			List<Node> batch = this.nodes.subList(from,
+					Math.min(this.numNodes, from + this.launchBatch));
+			for (Node node : batch) {
+				this.launch(node);
+			}
+			this.awaitReady(batch);
+		}
+	}
+
+	private void runWorkload() throws InterruptedException {
+		long begin = System.currentTimeMillis() + START_MILLIS;
+		long from  = begin + this.warmup;
+		long to    = from + this.duration;
+		long period = Math.max(1l, Math.round(1000.0 * this.numNodes / this.rate));
+		for (Node node : this.nodes) {
+			node.send("start " + begin + " " + from + " " + to + " " + period);
+		}
+		Thread.sleep(Math.max(0, to + this.drain - System.currentTimeMillis()));
+	}
+
+	/*
+	 * Ask every node to write its report and to exit, then
+	 * kill the ones still alive after the timeout.
+	 */
+	private void shutdown() throws InterruptedException {
+		for (Node node : this.nodes) {
+			if (node.process != null && node.process.isAlive())
+				node.send("stop");
+		}
+		long deadline = System.currentTimeMillis() + SHUTDOWN_MILLIS;
+		for (Node node : this.nodes) {
+			if (node.process == null)
+				continue;
+			long left = Math.max(0, deadline - System.currentTimeMillis());
+			if (!node.process.waitFor(left, TimeUnit.MILLISECONDS)) {
+				node.process.destroy();
+				if (!node.process.waitFor(POLL_MILLIS * 10, TimeUnit.MILLISECONDS))
+					node.process.destroyForcibly();
+			}
+		}
+	}
+
+	private void kill() {
+		for (Node node : this.nodes) {
+			if (node.process != null && node.process.isAlive())
+				node.process.destroyForcibly();
+		}
+	}
+
+	private ClusterReport collect() throws IOException {
+		ClusterReport report = new ClusterReport(this.duration);
+		for (Node node : this.nodes) {
+			if (node.done && node.report.exists())
+				report.add(ClusterReport.NodeReport.parse(node.name, node.report));
+			else
+				report.addMissing(node.name);
+		}
+		return report;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String runConfigPath = System.getProperty("run.config", "cluster.conf");
+		// try to parse the config file as an external
+		// file. If it fails, default to a file within the classpath
+		File configFile = new File(runConfigPath);
+		Config config = configFile.exists() ?
+				ConfigFactory.parseFile(configFile).withFallback(ConfigFactory.parseResources("cluster.conf")) :
+				ConfigFactory.parseResources(runConfigPath);
+		config = config.resolve();
+
+		ClusterLauncher launcher = new ClusterLauncher(config);
+		System.out.println(String.format("Nodes %d, K %d, max ttl %d, round interval %d ms, %.1f events/s",
+				launcher.numNodes, launcher.numReceivers, launcher.maxTtl,
+				launcher.roundInterval, launcher.rate));
+		// never leave orphan JVMs behind
+		Runtime.getRuntime().addShutdownHook(new Thread(launcher::kill));
+		long startTime = System.nanoTime();
+		try {
+			launcher.start();
+		} catch (IllegalStateException e) {
+			System.err.println(e.getMessage());
+			launcher.kill();
+			System.exit(1);
+		}
+		System.out.println(String.format("Ready in %.1f s, running the workload for %d s",
+				(System.nanoTime() - startTime) / 1e9,
+				(START_MILLIS + launcher.warmup + launcher.duration + launcher.drain) / 1000));
+		launcher.runWorkload();
+		long stopTime = System.nanoTime();
+		launcher.shutdown();
+		System.out.println(String.format("Shut down in %.1f s", (System.nanoTime() - stopTime) / 1e9));
+
+		ClusterReport report = launcher.collect();
+		report.print(System.out);
+		report.writeLatencies(new File(launcher.outputDir, "latencies.csv").getPath());
+		System.out.println("Logs and reports in " + launcher.outputDir);
+	}
+}
@@ -0,0 +1,265 @@
+package com.ds2.jepto.actors.cluster;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gather the reports written by the nodes of a cluster run
+ * (see {@link ClusterWorkload}): the events broadcast within
+ * the measurement window, their deliveries and the delivery
+ * latency, from the broadcast to the delivery by each node.
+ */
+public class ClusterReport {
+
+	/**
+	 * The report of a single node.
+	 */
+	public static class NodeReport {
+		private final String name;
+		private long   sent;
+		private long   delivered;
+		private long   deliveries;
+		private long   violations;
+		private long   cpuMillis;
+		private long[] latencies; // number of deliveries per latency millis
+
+		private NodeReport(String name) {
+			this.name = name;
+			this.cpuMillis = -1;
+			this.latencies = new long[0];
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getSent() {
+			return sent;
+		}
+
+		public long getDelivered() {
+			return delivered;
+		}
+
+		/**
+		 * Return the number of events delivered, including
+		 * the ones broadcast out of the window.
+		 */
+		public long getDeliveries() {
+			return deliveries;
+		}
+
+		public long getViolations() {
+			return violations;
+		}
+
+		public long getCpuMillis() {
+			return cpuMillis;
+		}
+
+		/**
+		 * Parse the report file of a node.
+		 *
+		 * @param name
+		 * @param file
+		 * @return
+		 * @throws IOException
+		 */
+		public static NodeReport parse(String name, File file) throws IOException {
+			NodeReport report = new NodeReport(name);
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] fields = line.trim().split("\\s+");
+					switch (fields[0]) {
+					case "sent":
+						report.sent = Long.parseLong(fields[1]);
+						break;
+					case "delivered":
+						report.delivered = Long.parseLong(fields[1]);
+						break;
+					case "deliveries":
+						report.deliveries = Long.parseLong(fields[1]);
+						break;
+					case "violations":
+						report.violations = Long.parseLong(fields[1]);
+						break;
+					case "cpu-millis":
+						report.cpuMillis = Long.parseLong(fields[1]);
+						break;
+					case "latency":
+						int latency = Integer.parseInt(fields[1]);
+						report.latencies = add(report.latencies, latency, Long.parseLong(fields[2]));
+						break;
+					default:
+						break;
+					}
+				}
+			}
+			return report;
+		}
+	}
+
+	private final long             window;    // millis
+	private final List<NodeReport> nodes;
+	private final List<String>     missing;   // nodes without report
+	private long[] latencies;
+
+	public ClusterReport(long window) {
+		super();
+		this.window    = window;
+		this.nodes     = new ArrayList<>();
+		this.missing   = new ArrayList<>();
+		this.latencies = new long[0];
+	}
+
+	public void add(NodeReport node) {
+		this.nodes.add(node);
+		for (int latency = 0; latency < node.latencies.length; latency++) {
+			if (node.latencies[latency] > 0)
+				this.latencies = add(this.latencies, latency, node.latencies[latency]);
+		}
+	}
+
+	public void addMissing(String name) {
+		this.missing.add(name);
+	}
+
+	private static long[] add(long[] latencies, int latency, long count) {
+		if (latency >= latencies.length)
+			latencies = Arrays.copyOf(latencies,
+					Math.max(latency + 1, Math.max(1024, latencies.length << 1)));
+		latencies[latency] += count;
+		return latencies;
+	}
+
+	public long getBroadcasts() {
+		long sent = 0;
+		for (NodeReport node : this.nodes)
+			sent += node.sent;
+		return sent;
+	}
+
+	public long getDeliveries() {
+		long delivered = 0;
+		for (NodeReport node : this.nodes)
+			delivered += node.delivered;
+		return delivered;
+	}
+
+	/**
+	 * Return the deliveries expected, every node delivering
+	 * every event broadcast within the window.
+	 */
+	public long getExpected() {
+		return this.getBroadcasts() * (this.nodes.size() + this.missing.size());
+	}
+
+	public long getViolations() {
+		long violations = 0;
+		for (NodeReport node : this.nodes)
+			violations += node.violations;
+		return violations;
+	}
+
+	/**
+	 * Return the latency, in millis, below which the given
+	 * fraction of the deliveries falls, -1 if none.
+	 *
+	 * @param latencies
+	 * @param fraction
+	 * @return
+	 */
+	public static long percentile(long[] latencies, double fraction) {
+		long total = 0;
+		for (long count : latencies)
+			total += count;
+		if (total == 0)
+			return -1;
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int latency = 0; latency < latencies.length; latency++) {
+			seen += latencies[latency];
+			if (seen >= Math.max(1, rank))
+				return latency;
+		}
+		return latencies.length - 1;
+	}
+
+	public static double mean(long[] latencies) {
+		double sum = 0;
+		long total = 0;
+		for (int latency = 0; latency < latencies.length; latency++) {
+			sum   += (double) latency * latencies[latency];
+			total += latencies[latency];
+		}
+		return total == 0 ? 0 : sum / total;
+	}
+
+	public void print(PrintStream out) {
+		double seconds = this.window / 1000.0;
+		out.println(String.format("%-12s %8s %10s %10s %9s %8s %8s %8s %10s %10s",
+				"node", "sent", "delivered", "deliv/s", "mean_ms", "p50_ms", "p99_ms", "max_ms",
+				"cpu_ms", "violations"));
+		for (NodeReport node : this.nodes) {
+			out.println(String.format("%-12s %8d %10d %10.1f %9.1f %8d %8d %8d %10d %10d",
+					node.name,
+					node.sent,
+					node.delivered,
+					node.delivered / seconds,
+					mean(node.latencies),
+					percentile(node.latencies, 0.5),
+					percentile(node.latencies, 0.99),
+					percentile(node.latencies, 1.0),
+					node.cpuMillis,
+					node.violations));
+		}
+		for (String name : this.missing) {
+			out.println(String.format("%-12s %8s", name, "no report"));
+		}
+		long expected = this.getExpected();
+		long cpu = 0;
+		for (NodeReport node : this.nodes)
+			cpu += Math.max(0, node.cpuMillis);
+		out.println(String.format("Broadcasts:\t\t%d (%.1f events/s)",
+				this.getBroadcasts(), this.getBroadcasts() / seconds));
+		out.println(String.format("Deliveries:\t\t%d of %d (%.2f %%, %.1f deliveries/s)",
+				this.getDeliveries(), expected,
+				expected == 0 ? 0.0 : 100.0 * this.getDeliveries() / expected,
+				this.getDeliveries() / seconds));
+		out.println(String.format("Order violations:\t%d", this.getViolations()));
+		out.println(String.format("Latency ms:\t\tmean %.1f p50 %d p90 %d p99 %d p99.9 %d max %d",
+				mean(this.latencies),
+				percentile(this.latencies, 0.5),
+				percentile(this.latencies, 0.9),
+				percentile(this.latencies, 0.99),
+				percentile(this.latencies, 0.999),
+				percentile(this.latencies, 1.0)));
+		out.println(String.format("Cpu:\t\t\t%.2f cores over the window",
+				cpu / (double) this.window));
+	}
+
+	/**
+	 * Write the latency distribution of every node as csv
+	 * lines (latency millis, deliveries), omitting empty ones.
+	 *
+	 * @param path
+	 * @throws FileNotFoundException
+	 */
+	public void writeLatencies(String path) throws FileNotFoundException {
+		try (PrintStream out = new PrintStream(path)) {
+			out.println("latency_ms,deliveries");
+			for (int latency = 0; latency < this.latencies.length; latency++) {
+				if (this.latencies[latency] > 0)
+					out.println(latency + "," + this.latencies[latency]);
+			}
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package com.ds2.jepto.actors.cluster;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.ds2.jepto.actors.DeliveryBatch;
+import com.ds2.jepto.actors.DeliveryListener;
+import com.ds2.jepto.actors.EptoNode;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+
+/**
+ * The workload run by a node of a {@link ClusterLauncher}
+ * cluster, driven through the standard input of its JVM:
+ * <pre>
+ * start &lt;begin&gt; &lt;from&gt; &lt;to&gt; &lt;period&gt;
+ * stop
+ * </pre>
+ * Times are epoch millis, shared by the JVMs of the same
+ * machine. Starting at begin the node broadcasts an event
+ * every period millis, with a random phase, until to: each
+ * event carries the time it was broadcast. The events sent
+ * within [from, to) are measured at delivery, by every node.
+ *
+ * On stop, or when the input is closed, the report of the
+ * node is written to file. The node prints {@link #READY}
+ * once it accepts commands and {@link #DONE} once the report
+ * is written.
+ */
+public class ClusterWorkload implements DeliveryListener {
+
+	public static final String READY = "cluster:ready";
+	public static final String DONE  = "cluster:done";
+
+	private static final int PAYLOAD_SIZE = 8;
+
+	private final EptoNode node;
+	private final String   reportPath;
+	private final Random   prng;
+
+	private volatile long from = Long.MAX_VALUE;
+	private volatile long to   = Long.MAX_VALUE;
+
+	private long   sent;
+	private long   delivered;  // events sent within the window
+	private long   deliveries; // any event
+	private long   violations;
+	private long   lastOrderKey;
+	private long[] latencies;  // number of deliveries per latency millis
+	private volatile long cpuFrom;
+	private volatile long cpuTo;
+
+	private Thread sender;
+
+	public ClusterWorkload(EptoNode node, String reportPath, long seed) {
+		super();
+		this.node = node;
+		this.reportPath = reportPath;
+		this.prng = new Random(seed);
+		this.lastOrderKey = Long.MIN_VALUE;
+		this.latencies = new long[1024];
+		this.cpuFrom = -1;
+		this.cpuTo   = -1;
+	}
+
+	@Override
+	public synchronized void deliver(DeliveryBatch batch) {
+		long now = System.currentTimeMillis();
+		for (Event event : batch.getEvents()) {
+			this.deliveries++;
+			if (event.getOrderKey() <= this.lastOrderKey)
+				this.violations++;
+			this.lastOrderKey = event.getOrderKey();
+			ByteBuffer payload = event.getPayload();
+			if (event.getPayloadSize() != PAYLOAD_SIZE)
+				continue;
+			long time = payload.getLong(payload.position());
+			if (time < this.from || time >= this.to)
+				continue;
+			this.delivered++;
+			int latency = (int) Math.min(Integer.MAX_VALUE - 1, Math.max(0, now - time));
+			if (latency >= this.latencies.length)
+				this.latencies = Arrays.copyOf(this.latencies,
+						Math.max(latency + 1, this.latencies.length << 1));
+			this.latencies[latency]++;
+		}
+	}
+
+	/**
+	 * Subscribe to the node and serve the commands read
+	 * from the input, until stop or the end of the input.
+	 *
+	 * @param control
+	 * @throws IOException
+	 */
+	public void run(InputStream control) throws IOException {
+		this.node.subscribe(this);
+		System.out.println(READY);
+		System.out.flush();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(control));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] command = line.trim().split("\\s+");
+			if (command[0].equals("start") && command.length == 5) {
+				this.start(Long.parseLong(command[1]),
+						Long.parseLong(command[2]),
+						Long.parseLong(command[3]),
+						Long.parseLong(command[4]));
+			} else if (command[0].equals("stop")) {
+				break;
+			}
+		}
+		this.stop();
+		System.out.println(DONE);
+		System.out.flush();
+	}
+
+	private void start(long begin, long from, long to, long period) {
+		if (this.sender != null)
+			return;
+		this.from = from;
+		this.to   = to;
+		long phase = period > 1 ? (this.prng.nextLong() & Long.MAX_VALUE) % period : 0;
+		this.sender = new Thread(() -> this.send(begin + phase, period), "cluster-workload");
+		this.sender.setDaemon(true);
+		this.sender.start();
+	}
+
+	private void send(long next, long period) {
+		try {
+			long now;
+			while ((now = System.currentTimeMillis()) < this.to) {
+				if (this.cpuFrom < 0 && now >= this.from)
+					this.cpuFrom = processCpuTime();
+				if (now < next) {
+					// wake up at the window start to sample the cpu time
+					long wakeUp = this.cpuFrom < 0 ? Math.min(next, this.from) : next;
+					Thread.sleep(Math.max(1, wakeUp - now));
+					continue;
+				}
+				ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_SIZE).putLong(0, now);
+				this.node.broadcast(Action.DO, payload);
+				if (now >= this.from)
+					synchronized (this) {
+						this.sent++;
+					}
+				next += period;
+			}
+			this.cpuTo = processCpuTime();
+		} catch (InterruptedException e) {
+			// stopped before the end of the window
+		}
+	}
+
+	private void stop() throws FileNotFoundException {
+		if (this.sender != null)
+			this.sender.interrupt();
+		synchronized (this) {
+			this.write();
+		}
+	}
+
+	private static long processCpuTime() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean)
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+		return -1;
+	}
+
+	/*
+	 * One "key value" pair per line, then one
+	 * "latency millis deliveries" line per latency.
+	 */
+	private void write() throws FileNotFoundException {
+		try (PrintStream out = new PrintStream(this.reportPath)) {
+			out.println("sent " + this.sent);
+			out.println("delivered " + this.delivered);
+			out.println("deliveries " + this.deliveries);
+			out.println("violations " + this.violations);
+			out.println("cpu-millis " + (this.cpuFrom >= 0 && this.cpuTo >= 0 ?
+					(this.cpuTo - this.cpuFrom) / 1_000_000l : -1));
+			for (int latency = 0; latency < this.latencies.length; latency++) {
+				if (this.latencies[latency] > 0)
+					out.println("latency " + latency + " " + this.latencies[latency]);
+			}
+		}
+	}
+}
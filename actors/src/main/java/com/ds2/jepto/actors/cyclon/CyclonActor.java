@@ -1,21 +1,20 @@
 package com.ds2.jepto.actors.cyclon;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+
+import com.ds2.jepto.actors.metrics.NodeMetrics;
+
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
+import akka.actor.Cancellable;
 import akka.actor.Props;
 import akka.japi.pf.ReceiveBuilder;
 import scala.concurrent.duration.Duration;
@@ -25,50 +24,88 @@ public class CyclonActor extends AbstractActor {
 	private static final Logger LOGGER = Logger.getLogger(CyclonActor.class.getName());
 
 	public static class AgingMsg implements Serializable {};
-	private static class ShufflingMsg implements Serializable {};
+	private static class ShufflingMsg implements Serializable {
+		private final int timer;
 
-	private final Random prng;
-	private long shufflePeriod;
-	private int  cacheSize;
-	private int msgId;
+		private ShufflingMsg(int timer) {
+			this.timer = timer;
+		}
+	};
 
+	private final ShuffleRate shuffleRate;
+	private Cancellable shuffleTimer;
+	private int         shuffleTimerId; // the only timer not cancelled
 	private boolean debugCache;
 
-	private CyclonShufflingMsg buffer;
-
-
-	// describes the number of nodes selected,
-	// from the cache, in the shuffling process
-	private int shuffleLength;
-
 	/*
 	 * BEWARE:
 	 * Check, in case of problems, the hashing
 	 * function on ActorRef
 	 */
-	private Map<ActorRef, Long> cache;
+	private final CyclonView<ActorRef> view;
+	private final NodeMetrics metrics;
 
 	public CyclonActor(int cacheSize, int shuffleLength, long shufflePeriod, long seed) {
+		this(cacheSize, shuffleLength, shufflePeriod, shufflePeriod, seed);
+	}
+
+	/**
+	 * The view is shuffled every shufflePeriod millis while it
+	 * changes, backing off up to every shufflePeriodMax millis
+	 * once stable (see {@link ShuffleRate}).
+	 */
+	public CyclonActor(int cacheSize, int shuffleLength, long shufflePeriod,
+			long shufflePeriodMax, long seed) {
 		super();
-		this.cacheSize = cacheSize;
-		this.shuffleLength = shuffleLength;
-		if (shuffleLength > cacheSize)
-			this.shuffleLength = cacheSize;
-		this.shufflePeriod = shufflePeriod;
-		this.prng = new Random(seed);
-		this.cache = new HashMap<ActorRef, Long>();
-		this.buffer = null;
-		this.msgId = 0;
+		this.shuffleRate = new ShuffleRate(shufflePeriod, shufflePeriodMax);
+		this.shuffleTimer   = null;
+		this.shuffleTimerId = 0;
+		this.view = new CyclonView<ActorRef>(cacheSize, shuffleLength, new Random(seed));
 		this.debugCache = false;
+		this.metrics = new NodeMetrics();
+		this.metrics.onShufflePeriod(shufflePeriod);
 	}
 
 	public static Props props(int cacheSize, int shuffleLength, long shufflePeriod, long seed) {
+		return props(cacheSize, shuffleLength, shufflePeriod, shufflePeriod, seed);
+	}
+
+	public static Props props(int cacheSize, int shuffleLength, long shufflePeriod,
+			long shufflePeriodMax, long seed) {
 		return Props.create(CyclonActor.class,
-				() -> new CyclonActor(cacheSize, shuffleLength, shufflePeriod, seed));
+				() -> new CyclonActor(cacheSize, shuffleLength, shufflePeriod,
+						shufflePeriodMax, seed));
+	}
+
+	@Override
+	public void preStart() {
+		try {
+			this.metrics.register(this.getContext().getSystem().name(),
+					this.getSelf().path().name());
+		} catch (JMException e) {
+			// another node of the same name in the JVM
+			LOGGER.log(Level.WARNING, "Metrics of {0} not exposed: {1}",
+					new Object[] {this.getSelf().path().name(), e.getMessage()});
+		}
+	}
+
+	@Override
+	public void postStop() {
+		if (this.shuffleTimer != null)
+			this.shuffleTimer.cancel();
+		try {
+			this.metrics.unregister();
+		} catch (JMException e) {
+			// already gone
+		}
+	}
+
+	public NodeMetrics getMetrics() {
+		return this.metrics;
 	}
 
 	public int getCacheSize() {
-		return cacheSize;
+		return this.view.getCacheSize();
 	}
 
 	/**
@@ -76,96 +113,32 @@ public class CyclonActor extends AbstractActor {
 	 * @return
 	 */
 	public Map<ActorRef, Long> getCache() {
-		synchronized (cache) {
-			return new HashMap<>(cache);
+		synchronized (view) {
+			return this.view.getAges();
 		}
 	}
 
-	private void onJoinMsg(JoinMsg msg) {
-		if (cache.size() < this.cacheSize)
-			cache.put(msg.getTracker(), 0l);
-		// start exchanging entries
-		sendShufflingMsg();
-	}
 	/**
-	 *
-	 * Given entries coming from Q, remove reference
-	 * to P and try to accomodate every received entry.
-	 * If space doesn't allow so, replace new entry with
-	 * the one previously sent.
-	 *
-	 * If those entries are no more in the cache, block
-	 * the merge process and return.
-	 *
-	 * @param other
-	 * @param shuffledElements
+	 * Return up to count peers of the view, picked at random.
 	 */
-	private void merge(Map<ActorRef, Long> other, Set<ActorRef> shuffledElements) {
-		synchronized (this.cache) {
-			Map<ActorRef, Long> other2 = new HashMap<ActorRef, Long>(other);
-			// remove reference to P
-			if (other.containsKey(this.getSelf()))
-				other2.remove(this.getSelf());
-			for (ActorRef actor : other.keySet()) {
-				if (cache.containsKey(actor)) {
-					other2.remove(actor);
-				}
-			}
-			Iterator<ActorRef> shuffledIter = shuffledElements.iterator();
-			ActorRef tmp;
-			for (ActorRef newActor : other2.keySet()) {
-				if (cache.size() < this.cacheSize ) {
-					cache.put(newActor, other2.get(newActor));
-				} else {
-					// replace previously sent entry with new one
-					if (shuffledIter.hasNext()) {
-						tmp = shuffledIter.next();
-						if (cache.containsKey(tmp)) {
-							cache.remove(tmp);
-							cache.put(newActor, other2.get(newActor));
-						}
-					}
-					else
-						break;
-				}
-			}
+	public List<ActorRef> getPeers(int count) {
+		synchronized (view) {
+			return this.view.getPeers(count);
 		}
-		if (debugCache) {
-			String dbg = this.self().path().name() + "\n" + printCache();
-			LOGGER.log(Level.INFO, dbg);
-		}
-
 	}
 
-	private ActorRef selectNeighbour() {
-		long max = -1l;
-		ActorRef old = null;
-		for (ActorRef tmp : cache.keySet()) {
-			if (cache.get(tmp) > max) {
-				max = cache.get(tmp);
-				old = tmp;
-			}
+	protected void onJoinMsg(JoinMsg msg) {
+		synchronized (view) {
+			this.view.join(msg.getTracker());
 		}
-		return old;
-	}
-
-	/*
-	 * copyCache is changed!
-	 */
-	private Map<ActorRef, Long> selectOthersFrom(int numOthers, Map<ActorRef, Long> copyCache) {
-		List<ActorRef> listActors = new ArrayList<ActorRef>(copyCache.keySet());
-		Collections.shuffle(listActors, new Random(prng.nextInt()));
-		int index = 0;
-		while (copyCache.size() > numOthers)
-			copyCache.remove(listActors.get(index++));
-		return copyCache;
+		// start exchanging entries
+		sendShufflingMsg(this.shuffleRate.getPeriod());
 	}
 
-	private void increaseAge() {
-		synchronized (cache) {
-			for (ActorRef actor : cache.keySet()) {
-				cache.put(actor, cache.get(actor)+1);
-			}
+	private void printDebugCache() {
+		if (debugCache) {
+			String dbg = this.self().path().name() + "\n" + printCache();
+			LOGGER.log(Level.INFO, dbg);
 		}
 	}
 
@@ -173,55 +146,77 @@ public class CyclonActor extends AbstractActor {
 
 
 	private void onShufflingMsg(ShufflingMsg msg) {
-		if (this.buffer != null) {
-			// timeout occurs, remove previous Q
-			cache.remove(buffer.getReceiver());
-		}
-		synchronized (cache) {
-			increaseAge();
-			ActorRef q = selectNeighbour();
-			if (q != null) {
-				Map<ActorRef, Long> copyCache = new HashMap<>(this.cache);
-				copyCache.remove(q);
-				copyCache = selectOthersFrom(this.shuffleLength - 1, copyCache);
-				copyCache.put(q, cache.get(q)); // owltrick
-				this.buffer = new CyclonShufflingMsg(msgId, copyCache, this.getSelf(), q);
-				copyCache.remove(q);
-				copyCache.put(this.getSelf(), 0l);
-				RequestMsg r = new RequestMsg(msgId++, copyCache, this.getSelf(), q);
-				q.tell(r, this.getSelf());
+		if (msg.timer != this.shuffleTimerId)
+			return; // fired while being cancelled
+		long period;
+		synchronized (view) {
+			long timeouts = this.view.getTimeouts();
+			CyclonView.Shuffle<ActorRef> shuffle = this.view.startShuffle(this.getSelf());
+			this.metrics.onShuffle(this.view.getTimeouts() > timeouts);
+			if (shuffle != null) {
+				RequestMsg r = new RequestMsg(shuffle.getId(),
+						shuffle.getEntries(),
+						this.getSelf(),
+						shuffle.getTarget());
+				shuffle.getTarget().tell(r, this.getSelf());
 			}
+			period = this.shuffleRate.next(this.view);
 		}
-		sendShufflingMsg();
+		this.metrics.onShufflePeriod(period);
+		sendShufflingMsg(period);
 	}
 
 	private void onRequestMsg(RequestMsg msg) {
-		Map<ActorRef, Long> copyCache = new HashMap<>(this.cache);
-		copyCache = selectOthersFrom(this.shuffleLength, copyCache);
-		ReplyMsg reply = new ReplyMsg(msg.getId(), copyCache, this.getSelf(), this.getSender());
-		this.getSender().tell(reply, this.getSelf());
-		merge(msg.getUpdatingCache(), reply.getUpdatingCache().keySet());
+		synchronized (view) {
+			Map<ActorRef, Long> copyCache = this.view.onRequest(msg.getUpdatingCache(), this.getSelf());
+			ReplyMsg reply = new ReplyMsg(msg.getId(), copyCache, this.getSelf(), this.getSender());
+			this.getSender().tell(reply, this.getSelf());
+		}
+		this.metrics.onShuffleRequest();
+		this.onMerge();
+		printDebugCache();
 	}
 
 	private void onReplyMsg(ReplyMsg msg) {
-		synchronized (cache) {
-			if (msg.getId() == this.msgId - 1) {
-				merge(msg.getUpdatingCache(), buffer.getUpdatingCache().keySet());
-				buffer = null;
-			} else {
-				merge(msg.getUpdatingCache(), new HashSet<ActorRef>());
-			}
+		synchronized (view) {
+			this.view.onReply(msg.getId(), msg.getUpdatingCache(), this.getSelf());
+		}
+		this.metrics.onShuffleReply();
+		this.onMerge();
+		printDebugCache();
+	}
+
+	/**
+	 * Shuffle again soon if the view changed
+	 * while shuffling at a slow pace.
+	 */
+	private void onMerge() {
+		boolean shortened;
+		synchronized (view) {
+			shortened = this.shuffleRate.onMerge(this.view);
+		}
+		if (shortened && this.shuffleTimer != null) {
+			this.metrics.onShufflePeriod(this.shuffleRate.getPeriod());
+			sendShufflingMsg(this.shuffleRate.getPeriod());
 		}
 	}
 
-	private void sendShufflingMsg() {
-		this.getContext()
+	/**
+	 * Schedule the next shuffle, replacing the one
+	 * already scheduled, if any.
+	 *
+	 * @param delay in millis
+	 */
+	private void sendShufflingMsg(long delay) {
+		if (this.shuffleTimer != null)
+			this.shuffleTimer.cancel();
+		this.shuffleTimer = this.getContext()
 		.getSystem()
 		.scheduler()
-		.scheduleOnce(Duration.create(this.shufflePeriod,
+		.scheduleOnce(Duration.create(delay,
 				TimeUnit.MILLISECONDS),
 				this.getSelf(),
-				new ShufflingMsg(),
+				new ShufflingMsg(++this.shuffleTimerId),
 				getContext().system().dispatcher(),
 				this.getSelf());
 	}
@@ -231,8 +226,8 @@ public class CyclonActor extends AbstractActor {
 	private String printCache() {
 		StringBuilder str = new StringBuilder();
 		str.append("id,age\n");
-		for (ActorRef actor : cache.keySet()) {
-			str.append(actor.path().name() + "," + cache.get(actor) + "\n");
+		for (Map.Entry<ActorRef, Long> entry : this.getCache().entrySet()) {
+			str.append(entry.getKey().path().name() + "," + entry.getValue() + "\n");
 		}
 		return str.toString();
 	}
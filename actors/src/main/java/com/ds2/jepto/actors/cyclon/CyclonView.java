@@ -0,0 +1,426 @@
+package com.ds2.jepto.actors.cyclon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The Cyclon view of a node and the shuffling logic, shared
+ * by the actors and by the simulator. Peers are identified by
+ * any type having consistent equals and hashCode.
+ *
+ * The entries are kept in arrays, indexed by a map, and in a
+ * heap ordered by age: peers are sampled, and the oldest is
+ * found, without copying nor scanning the view, whose size
+ * only weighs on the heap, logarithmically.
+ *
+ * Not thread safe, it is used by the thread of its node only.
+ */
+public class CyclonView<P> {
+
+	// peers remembered as known, the least recently seen forgotten first
+	public static final int MAX_KNOWN = 1 << 12;
+
+	/**
+	 * Entries sent to a peer, with the id of the shuffle.
+	 */
+	public static class Shuffle<P> {
+		private final int         id;
+		private final P           target;
+		private final Map<P, Long> entries;
+
+		private Shuffle(int id, P target, Map<P, Long> entries) {
+			this.id      = id;
+			this.target  = target;
+			this.entries = Collections.unmodifiableMap(entries);
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public P getTarget() {
+			return target;
+		}
+
+		/**
+		 * Return the entries, mapped to their age.
+		 */
+		public Map<P, Long> getEntries() {
+			return entries;
+		}
+	}
+
+	private final Random prng;
+	private final int    cacheSize;
+	// describes the number of nodes selected,
+	// from the cache, in the shuffling process
+	private final int    shuffleLength;
+
+	/*
+	 * Entries are in slots 0..size-1, their birth being the epoch
+	 * at which their age was 0: aging the cache is a single
+	 * increment.
+	 */
+	private final P[]    peers;
+	private final long[] births;
+	private final Map<P, Integer> slots;
+	private int  size;
+	private long epoch;
+
+	// binary heap of the slots, the oldest entry (born first) on top
+	private final int[] heap;
+	private final int[] heapIndex; // position of every slot in the heap
+
+	// identity permutation of the slots, but while sampling
+	private final int[] order;
+
+	// peers in the view or received, up to MAX_KNOWN
+	private final Set<P> known;
+	private long         discoveries; // peers not known when seen
+
+	private int          msgId;
+	private long         timeouts; // shuffles not replied in time
+	private Shuffle<P>   pending;  // the last shuffle started, until replied
+	private List<P>      shuffled; // entries to be replaced by the reply
+
+	@SuppressWarnings("unchecked")
+	public CyclonView(int cacheSize, int shuffleLength, Random prng) {
+		super();
+		this.cacheSize = cacheSize;
+		this.shuffleLength = Math.min(shuffleLength, cacheSize);
+		this.prng   = prng;
+		this.peers  = (P[]) new Object[cacheSize];
+		this.births = new long[cacheSize];
+		this.slots  = new HashMap<P, Integer>(cacheSize * 2);
+		this.size   = 0;
+		this.epoch  = 0;
+		this.heap      = new int[cacheSize];
+		this.heapIndex = new int[cacheSize];
+		this.order     = new int[cacheSize];
+		for (int i = 0; i < cacheSize; i++)
+			this.order[i] = i;
+		this.known = Collections.newSetFromMap(new LinkedHashMap<P, Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<P, Boolean> eldest) {
+				return this.size() > MAX_KNOWN;
+			}
+		});
+		this.discoveries = 0;
+		this.msgId = 0;
+		this.timeouts = 0;
+		this.pending  = null;
+		this.shuffled = null;
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Return the number of shuffles not replied
+	 * before the next one started.
+	 */
+	public long getTimeouts() {
+		return this.timeouts;
+	}
+
+	/**
+	 * Return the number of times a peer not known was added
+	 * to the view or received from another node. A peer
+	 * dropped because of a timeout, or not seen among the
+	 * last MAX_KNOWN ones, is no longer known.
+	 */
+	public long getDiscoveries() {
+		return this.discoveries;
+	}
+
+	private void see(P peer) {
+		if (this.known.add(peer))
+			this.discoveries++;
+	}
+
+	public boolean contains(P peer) {
+		return this.slots.containsKey(peer);
+	}
+
+	/**
+	 * Return a new copy of the cache, mapping
+	 * the entries to their age.
+	 */
+	public Map<P, Long> getAges() {
+		Map<P, Long> ages = new HashMap<>(this.size * 2);
+		for (int slot = 0; slot < this.size; slot++) {
+			ages.put(this.peers[slot], this.epoch - this.births[slot]);
+		}
+		return ages;
+	}
+
+	/**
+	 * Return up to count peers picked at random.
+	 *
+	 * @param count
+	 * @return
+	 */
+	public List<P> getPeers(int count) {
+		int[] picked = this.sample(count, -1);
+		List<P> peers = new ArrayList<P>(picked.length);
+		for (int slot : picked) {
+			peers.add(this.peers[slot]);
+		}
+		return peers;
+	}
+
+	/**
+	 * Add the entry of a peer being joined, if there is room.
+	 *
+	 * @param peer
+	 */
+	public void join(P peer) {
+		if (this.size < this.cacheSize && !this.slots.containsKey(peer)) {
+			this.add(peer, this.epoch);
+			this.see(peer);
+		}
+	}
+
+	/**
+	 * Age the cache and pick the oldest peer, which is sent
+	 * the shuffle: a random subset of the cache, where the
+	 * entry of the oldest peer is replaced by a fresh entry
+	 * of the given node. The target of the previous shuffle,
+	 * if not replied yet, is dropped from the cache unless it
+	 * is the only entry.
+	 *
+	 * @param self
+	 * @return null if the cache is empty
+	 */
+	public Shuffle<P> startShuffle(P self) {
+		if (this.pending != null) {
+			// timeout occurs, remove previous Q, unless it is
+			// the last entry: an empty view never shuffles again
+			if (this.size > 1) {
+				this.remove(this.pending.getTarget());
+				// discovered again if still alive
+				this.known.remove(this.pending.getTarget());
+			}
+			this.pending = null;
+			this.timeouts++;
+		}
+		this.epoch++;
+		if (this.size == 0)
+			return null;
+		int q = this.heap[0];
+		int[] others = this.sample(this.shuffleLength - 1, q);
+		Map<P, Long> entries = new HashMap<P, Long>((others.length + 1) * 2);
+		// the reply replaces q first, then the entries sent
+		this.shuffled = new ArrayList<P>(others.length + 1);
+		this.shuffled.add(this.peers[q]);
+		for (int slot : others) {
+			entries.put(this.peers[slot], this.epoch - this.births[slot]);
+			this.shuffled.add(this.peers[slot]);
+		}
+		entries.put(self, 0l);
+		this.pending = new Shuffle<P>(this.msgId++, this.peers[q], entries);
+		return this.pending;
+	}
+
+	/**
+	 * Answer the shuffle of another node with a random subset
+	 * of the cache, then merge the entries received.
+	 *
+	 * @param entries received, mapped to their age
+	 * @param self
+	 * @return the entries of the reply, mapped to their age
+	 */
+	public Map<P, Long> onRequest(Map<P, Long> entries, P self) {
+		int[] picked = this.sample(this.shuffleLength, -1);
+		Map<P, Long> reply = new HashMap<P, Long>(picked.length * 2);
+		List<P> sent = new ArrayList<P>(picked.length);
+		for (int slot : picked) {
+			reply.put(this.peers[slot], this.epoch - this.births[slot]);
+			sent.add(this.peers[slot]);
+		}
+		this.merge(entries, sent, self);
+		return reply;
+	}
+
+	/**
+	 * Merge the reply to a shuffle. Only the reply to the last
+	 * shuffle replaces the entries sent.
+	 *
+	 * @param id of the shuffle replied
+	 * @param entries received, mapped to their age
+	 * @param self
+	 */
+	public void onReply(int id, Map<P, Long> entries, P self) {
+		if (id == this.msgId - 1 && this.pending != null) {
+			this.merge(entries, this.shuffled, self);
+			this.pending  = null;
+			this.shuffled = null;
+		} else {
+			this.merge(entries, Collections.<P>emptyList(), self);
+		}
+	}
+
+	/**
+	 *
+	 * Given entries coming from Q, remove reference
+	 * to P and try to accomodate every received entry.
+	 * If space doesn't allow so, replace new entry with
+	 * the one previously sent.
+	 *
+	 * If those entries are no more in the cache, block
+	 * the merge process and return.
+	 *
+	 * @param other
+	 * @param shuffledElements
+	 * @param self
+	 */
+	private void merge(Map<P, Long> other, List<P> shuffledElements, P self) {
+		// remove reference to P, and the peers already known
+		List<Map.Entry<P, Long>> other2 = new ArrayList<>(other.size());
+		for (Map.Entry<P, Long> entry : other.entrySet()) {
+			if (!entry.getKey().equals(self) && !this.slots.containsKey(entry.getKey()))
+				other2.add(entry);
+			if (!entry.getKey().equals(self))
+				this.see(entry.getKey());
+		}
+		Iterator<P> shuffledIter = shuffledElements.iterator();
+		for (Map.Entry<P, Long> entry : other2) {
+			long birth = this.epoch - entry.getValue();
+			if (this.size < this.cacheSize) {
+				this.add(entry.getKey(), birth);
+			} else {
+				// replace previously sent entry with new one
+				if (shuffledIter.hasNext()) {
+					Integer slot = this.slots.get(shuffledIter.next());
+					if (slot != null)
+						this.replace(slot, entry.getKey(), birth);
+				}
+				else
+					break;
+			}
+		}
+	}
+
+	/*
+	 * Partial Fisher-Yates shuffle of the slots, but the one
+	 * to be skipped (-1 for none): the first count slots of the
+	 * order are picked at random, then the swaps are undone.
+	 */
+	private int[] sample(int count, int skip) {
+		int n = this.size;
+		if (skip >= 0)
+			this.swap(skip, --n);
+		count = Math.max(0, Math.min(count, n));
+		int[] picked  = new int[count];
+		int[] swapped = new int[count];
+		for (int i = 0; i < count; i++) {
+			swapped[i] = i + this.prng.nextInt(n - i);
+			this.swap(i, swapped[i]);
+			picked[i] = this.order[i];
+		}
+		for (int i = count - 1; i >= 0; i--)
+			this.swap(i, swapped[i]);
+		if (skip >= 0)
+			this.swap(skip, n);
+		return picked;
+	}
+
+	private void swap(int i, int j) {
+		int tmp = this.order[i];
+		this.order[i] = this.order[j];
+		this.order[j] = tmp;
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                  ENTRIES                                  */
+/*---------------------------------------------------------------------------*/
+	private void add(P peer, long birth) {
+		int slot = this.size++;
+		this.peers[slot]  = peer;
+		this.births[slot] = birth;
+		this.slots.put(peer, slot);
+		this.heap[slot] = slot;
+		this.siftUp(slot);
+	}
+
+	private void remove(P peer) {
+		Integer slot = this.slots.remove(peer);
+		if (slot == null)
+			return;
+		// the last slot of the heap fills the hole
+		int last = --this.size;
+		int index = this.heapIndex[slot];
+		if (index < last) {
+			int moved = this.heap[last];
+			this.heap[index] = moved;
+			this.siftDown(index);
+			this.siftUp(this.heapIndex[moved]);
+		}
+		// the last slot of the arrays fills the hole
+		if (slot < last) {
+			this.peers[slot]  = this.peers[last];
+			this.births[slot] = this.births[last];
+			this.slots.put(this.peers[slot], slot);
+			this.heapIndex[slot] = this.heapIndex[last];
+			this.heap[this.heapIndex[slot]] = slot;
+		}
+		this.peers[last] = null;
+	}
+
+	private void replace(int slot, P peer, long birth) {
+		this.slots.remove(this.peers[slot]);
+		this.peers[slot]  = peer;
+		this.births[slot] = birth;
+		this.slots.put(peer, slot);
+		this.siftDown(this.heapIndex[slot]);
+		this.siftUp(this.heapIndex[slot]);
+	}
+
+	private void siftUp(int index) {
+		int slot = this.heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (this.births[this.heap[parent]] <= this.births[slot])
+				break;
+			this.place(index, this.heap[parent]);
+			index = parent;
+		}
+		this.place(index, slot);
+	}
+
+	private void siftDown(int index) {
+		int slot = this.heap[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= this.size)
+				break;
+			if (child + 1 < this.size &&
+					this.births[this.heap[child + 1]] < this.births[this.heap[child]])
+				child++;
+			if (this.births[slot] <= this.births[this.heap[child]])
+				break;
+			this.place(index, this.heap[child]);
+			index = child;
+		}
+		this.place(index, slot);
+	}
+
+	private void place(int index, int slot) {
+		this.heap[index] = slot;
+		this.heapIndex[slot] = index;
+	}
+}
@@ -0,0 +1,112 @@
+package com.ds2.jepto.actors.cyclon;
+
+/**
+ * Adaptive period of the shuffles of a Cyclon view, driven
+ * by the churn seen per shuffle: shuffles not replied (peers
+ * leaving) and peers not known before (peers joining).
+ *
+ * A shuffle not replied brings the period back to the
+ * shortest one. Otherwise the period is doubled after every
+ * STABLE_SHUFFLES shuffles discovering fewer peers than
+ * shuffles, up to the longest one, and brought back to the
+ * shortest one as soon as the discoveries exceed them.
+ *
+ * The discoveries are weighed per shuffle, not counted one
+ * by one: a view holding a subset of a large system keeps
+ * receiving a few peers it has not seen before, at random,
+ * and the nodes reset by them would shuffle faster than the
+ * others, which would be less and less known. A wave of
+ * joins still resets the period, while a single peer joining
+ * does not: its own shuffles, at the shortest period as it
+ * discovers its view, spread its entries.
+ *
+ * A fixed period when the two are the same.
+ */
+public class ShuffleRate {
+
+	public static final int STABLE_SHUFFLES = 10;
+
+	private final long minPeriod;
+	private final long maxPeriod;
+
+	private long period;
+	private int  stable;   // shuffles in the window, at this period
+	private long window;   // discoveries since the window started
+
+	// the view when last checked
+	private long timeouts;
+	private long discoveries;
+
+	public ShuffleRate(long minPeriod, long maxPeriod) {
+		super();
+		this.minPeriod = minPeriod;
+		this.maxPeriod = Math.max(minPeriod, maxPeriod);
+		this.period = minPeriod;
+		this.stable = 0;
+		this.window = 0;
+		this.timeouts    = 0;
+		this.discoveries = 0;
+	}
+
+	public long getPeriod() {
+		return this.period;
+	}
+
+	public boolean isAdaptive() {
+		return this.maxPeriod > this.minPeriod;
+	}
+
+	/**
+	 * Return the period until the next shuffle, given
+	 * the view once the current one was started.
+	 *
+	 * @param view
+	 * @return
+	 */
+	public long next(CyclonView<?> view) {
+		if (this.churned(view)) {
+			this.reset();
+		} else if (++this.stable >= STABLE_SHUFFLES) {
+			this.period = Math.min(this.maxPeriod, this.period << 1);
+			this.stable = 0;
+			this.window = 0;
+		}
+		return this.period;
+	}
+
+	/**
+	 * Check the view once entries are merged, going back
+	 * to the shortest period if it discovered more peers
+	 * than it shuffled.
+	 *
+	 * @param view
+	 * @return true if the period was shortened, hence the
+	 * next shuffle should be brought forward
+	 */
+	public boolean onMerge(CyclonView<?> view) {
+		if (!this.churned(view))
+			return false;
+		boolean shortened = this.period != this.minPeriod;
+		this.reset();
+		return shortened;
+	}
+
+	private void reset() {
+		this.period = this.minPeriod;
+		this.stable = 0;
+		this.window = 0;
+	}
+
+	/**
+	 * Return true if shuffles timed out since the last check,
+	 * or if the discoveries of the window exceed a peer per
+	 * shuffle.
+	 */
+	private boolean churned(CyclonView<?> view) {
+		long timeouts = view.getTimeouts() - this.timeouts;
+		this.window     += view.getDiscoveries() - this.discoveries;
+		this.timeouts    = view.getTimeouts();
+		this.discoveries = view.getDiscoveries();
+		return timeouts > 0 || this.window > STABLE_SHUFFLES;
+	}
+}
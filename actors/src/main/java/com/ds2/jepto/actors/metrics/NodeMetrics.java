@@ -0,0 +1,453 @@
+package com.ds2.jepto.actors.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.ds2.jepto.actors.Event;
+
+/**
+ * Metrics registry of an EpTO node, exposed through JMX
+ * under com.ds2.jepto:type=Node,system=...,name=...
+ *
+ * The node updates the metrics from its own thread, with
+ * counters and histograms that neither lock nor allocate:
+ * the histograms are read, the rates computed and nothing
+ * is formatted until a JMX client asks for them.
+ *
+ * The latency is measured by the source of each event, from
+ * its submission to its delivery: every node delivers an
+ * event at about the same round, clocks being unsynchronized
+ * the source is the only one knowing when it was submitted.
+ */
+public class NodeMetrics implements NodeMetricsMXBean {
+
+	public static final String DOMAIN = "com.ds2.jepto";
+
+	private static final int  SIGNIFICANT_DIGITS = 3;
+	private static final long RATE_PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+	/*
+	 * Submission times of the own events, by event id:
+	 * events still undelivered after CAPACITY newer ones
+	 * are not measured.
+	 */
+	private static final int CAPACITY = 1 << 12;
+	private static final int MASK     = CAPACITY - 1;
+
+	private final LongAdder ballsSent      = new LongAdder();
+	private final LongAdder ballsReceived  = new LongAdder();
+	private final LongAdder eventsReceived = new LongAdder();
+	private final LongAdder eventsBroadcast = new LongAdder();
+	private final LongAdder eventsRejected  = new LongAdder();
+	private final LongAdder eventsDelivered = new LongAdder();
+	private final LongAdder rounds          = new LongAdder();
+	private final LongAdder shuffles        = new LongAdder();
+	private final LongAdder shuffleTimeouts = new LongAdder();
+	private final LongAdder shuffleRequests = new LongAdder();
+	private final LongAdder shuffleReplies  = new LongAdder();
+
+	private volatile long eventsDiscarded;
+	private volatile int  nextBallSize;
+	private volatile int  receivedSize;
+	private volatile long deliveredSize;
+
+	// written by the node once per second at most
+	private volatile double ballsSentPerSecond;
+	private volatile double ballsReceivedPerSecond;
+	private long lastRateTime;
+	private long lastBallsSent;
+	private long lastBallsReceived;
+
+	// written by the node at every shuffle
+	private volatile long   shufflePeriod;
+	private volatile double shuffleMessagesPerSecond;
+	private long lastShuffleRateTime;
+	private long lastShuffleMessages;
+
+	private final Recorder latencyRecorder;
+	private final Recorder roundTimeRecorder;
+	// accumulated by the readers
+	private Histogram latencies;
+	private Histogram roundTimes;
+	private Histogram latencyInterval;   // recycled
+	private Histogram roundTimeInterval; // recycled
+
+	// own events, accessed by the node thread only
+	private long[] pending;  // submission times, not yet stamped
+	private int    pendingHead;
+	private int    pendingSize;
+	private final long[] submitTimes;
+	private final int[]  submitIds;
+
+	private ObjectName name;
+
+	public NodeMetrics() {
+		super();
+		this.latencyRecorder   = new Recorder(SIGNIFICANT_DIGITS);
+		this.roundTimeRecorder = new Recorder(SIGNIFICANT_DIGITS);
+		this.latencies  = new Histogram(SIGNIFICANT_DIGITS);
+		this.roundTimes = new Histogram(SIGNIFICANT_DIGITS);
+		this.latencyInterval   = null;
+		this.roundTimeInterval = null;
+		this.pending    = new long[16];
+		this.pendingHead = 0;
+		this.pendingSize = 0;
+		this.submitTimes = new long[CAPACITY];
+		this.submitIds   = new int[CAPACITY];
+		Arrays.fill(this.submitIds, -1);
+		this.lastRateTime = System.nanoTime();
+		this.lastShuffleRateTime = this.lastRateTime;
+	}
+
+	/**
+	 * Register the metrics to the platform MBean server, under
+	 * the given system and node names.
+	 *
+	 * @param system
+	 * @param node
+	 * @throws JMException if the name is taken or invalid
+	 */
+	public void register(String system, String node) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName(DOMAIN + ":type=Node,system=" +
+				ObjectName.quote(system) + ",name=" + ObjectName.quote(node));
+		server.registerMBean(this, objectName);
+		this.name = objectName;
+	}
+
+	public void unregister() throws JMException {
+		if (this.name == null)
+			return;
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+		this.name = null;
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                               UPDATES                                     */
+/*---------------------------------------------------------------------------*/
+	/**
+	 * An own event was submitted, it is stamped later on.
+	 */
+	public void onSubmitted() {
+		if (this.pendingSize == this.pending.length) {
+			long[] tmp = new long[this.pending.length << 1];
+			for (int i = 0; i < this.pendingSize; i++) {
+				tmp[i] = this.pending[(this.pendingHead + i) % this.pending.length];
+			}
+			this.pending = tmp;
+			this.pendingHead = 0;
+		}
+		this.pending[(this.pendingHead + this.pendingSize) % this.pending.length] = System.nanoTime();
+		this.pendingSize++;
+	}
+
+	/**
+	 * An own event was rejected, too many being
+	 * submitted and not yet stamped.
+	 */
+	public void onRejected() {
+		this.eventsRejected.increment();
+	}
+
+	/**
+	 * The oldest own event submitted was stamped
+	 * with the given id, in submission order.
+	 *
+	 * @param eventId
+	 */
+	public void onBroadcast(int eventId) {
+		this.eventsBroadcast.increment();
+		if (this.pendingSize == 0)
+			return;
+		this.submitTimes[eventId & MASK] = this.pending[this.pendingHead];
+		this.submitIds[eventId & MASK]   = eventId;
+		this.pendingHead = (this.pendingHead + 1) % this.pending.length;
+		this.pendingSize--;
+	}
+
+	/**
+	 * Record the events delivered by the node, measuring
+	 * the latency of its own events.
+	 *
+	 * @param delivered
+	 * @param nodeId of the node
+	 */
+	public void onDelivered(List<Event> delivered, int nodeId) {
+		if (delivered.isEmpty())
+			return;
+		long now = System.nanoTime();
+		this.eventsDelivered.add(delivered.size());
+		for (Event event : delivered) {
+			if (event.getSourceId() != nodeId)
+				continue;
+			int slot = event.getId() & MASK;
+			if (this.submitIds[slot] != event.getId())
+				continue;
+			this.submitIds[slot] = -1;
+			this.latencyRecorder.recordValue(
+					Math.max(0, (now - this.submitTimes[slot]) / 1000));
+		}
+	}
+
+	public void onBallSent(int peers) {
+		this.ballsSent.add(peers);
+	}
+
+	public void onBallReceived(int events) {
+		this.ballsReceived.increment();
+		this.eventsReceived.add(events);
+	}
+
+	/**
+	 * Record a round, its processing time and the sizes of
+	 * the buffers at its end.
+	 *
+	 * @param startNanos
+	 * @param nextBall
+	 * @param received
+	 * @param delivered
+	 * @param discarded events dropped by the ordering so far
+	 */
+	public void onRound(long startNanos, int nextBall, int received,
+			long delivered, long discarded) {
+		long now = System.nanoTime();
+		this.rounds.increment();
+		this.roundTimeRecorder.recordValue(Math.max(0, (now - startNanos) / 1000));
+		this.nextBallSize    = nextBall;
+		this.receivedSize    = received;
+		this.deliveredSize   = delivered;
+		this.eventsDiscarded = discarded;
+		long elapsed = now - this.lastRateTime;
+		if (elapsed < RATE_PERIOD)
+			return;
+		long sentBalls     = this.ballsSent.sum();
+		long receivedBalls = this.ballsReceived.sum();
+		this.ballsSentPerSecond     = (sentBalls - this.lastBallsSent) * 1e9 / elapsed;
+		this.ballsReceivedPerSecond = (receivedBalls - this.lastBallsReceived) * 1e9 / elapsed;
+		this.lastBallsSent     = sentBalls;
+		this.lastBallsReceived = receivedBalls;
+		this.lastRateTime = now;
+	}
+
+	public void onShuffle(boolean timedOut) {
+		this.shuffles.increment();
+		if (timedOut)
+			this.shuffleTimeouts.increment();
+		long now = System.nanoTime();
+		long elapsed = now - this.lastShuffleRateTime;
+		if (elapsed < RATE_PERIOD)
+			return;
+		long messages = this.getShuffleMessages();
+		this.shuffleMessagesPerSecond = (messages - this.lastShuffleMessages) * 1e9 / elapsed;
+		this.lastShuffleMessages = messages;
+		this.lastShuffleRateTime = now;
+	}
+
+	/**
+	 * The period until the next shuffle changed.
+	 *
+	 * @param period in millis
+	 */
+	public void onShufflePeriod(long period) {
+		this.shufflePeriod = period;
+	}
+
+	public void onShuffleRequest() {
+		this.shuffleRequests.increment();
+	}
+
+	public void onShuffleReply() {
+		this.shuffleReplies.increment();
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                 READS                                     */
+/*---------------------------------------------------------------------------*/
+	private synchronized Histogram latencies() {
+		this.latencyInterval = this.latencyRecorder.getIntervalHistogram(this.latencyInterval);
+		this.latencies.add(this.latencyInterval);
+		return this.latencies;
+	}
+
+	private synchronized Histogram roundTimes() {
+		this.roundTimeInterval = this.roundTimeRecorder.getIntervalHistogram(this.roundTimeInterval);
+		this.roundTimes.add(this.roundTimeInterval);
+		return this.roundTimes;
+	}
+
+	@Override
+	public long getBallsSent() {
+		return this.ballsSent.sum();
+	}
+
+	@Override
+	public long getBallsReceived() {
+		return this.ballsReceived.sum();
+	}
+
+	@Override
+	public long getEventsReceived() {
+		return this.eventsReceived.sum();
+	}
+
+	@Override
+	public double getBallsSentPerSecond() {
+		return this.ballsSentPerSecond;
+	}
+
+	@Override
+	public double getBallsReceivedPerSecond() {
+		return this.ballsReceivedPerSecond;
+	}
+
+	@Override
+	public double getEventsPerBall() {
+		long balls = this.ballsReceived.sum();
+		return balls == 0 ? 0 : (double) this.eventsReceived.sum() / balls;
+	}
+
+	@Override
+	public long getEventsBroadcast() {
+		return this.eventsBroadcast.sum();
+	}
+
+	@Override
+	public long getEventsRejected() {
+		return this.eventsRejected.sum();
+	}
+
+	@Override
+	public long getEventsDelivered() {
+		return this.eventsDelivered.sum();
+	}
+
+	@Override
+	public long getEventsDiscarded() {
+		return this.eventsDiscarded;
+	}
+
+	@Override
+	public int getNextBallSize() {
+		return this.nextBallSize;
+	}
+
+	@Override
+	public int getReceivedSize() {
+		return this.receivedSize;
+	}
+
+	@Override
+	public long getDeliveredSize() {
+		return this.deliveredSize;
+	}
+
+	@Override
+	public long getRounds() {
+		return this.rounds.sum();
+	}
+
+	@Override
+	public double getRoundTimeMean() {
+		return this.roundTimes().getMean();
+	}
+
+	@Override
+	public long getRoundTimeP99() {
+		return this.roundTimes().getValueAtPercentile(99.0);
+	}
+
+	@Override
+	public long getRoundTimeMax() {
+		return this.roundTimes().getMaxValue();
+	}
+
+	@Override
+	public long getLatencyCount() {
+		return this.latencies().getTotalCount();
+	}
+
+	@Override
+	public double getLatencyMean() {
+		return this.latencies().getMean();
+	}
+
+	@Override
+	public long getLatencyP50() {
+		return this.latencies().getValueAtPercentile(50.0);
+	}
+
+	@Override
+	public long getLatencyP90() {
+		return this.latencies().getValueAtPercentile(90.0);
+	}
+
+	@Override
+	public long getLatencyP99() {
+		return this.latencies().getValueAtPercentile(99.0);
+	}
+
+	@Override
+	public long getLatencyP999() {
+		return this.latencies().getValueAtPercentile(99.9);
+	}
+
+	@Override
+	public long getLatencyMax() {
+		return this.latencies().getMaxValue();
+	}
+
+	@Override
+	public long getShuffles() {
+		return this.shuffles.sum();
+	}
+
+	@Override
+	public long getShuffleTimeouts() {
+		return this.shuffleTimeouts.sum();
+	}
+
+	@Override
+	public long getShuffleRequests() {
+		return this.shuffleRequests.sum();
+	}
+
+	@Override
+	public long getShuffleReplies() {
+		return this.shuffleReplies.sum();
+	}
+
+	@Override
+	public long getShuffleMessages() {
+		// every request received is replied
+		return this.shuffles.sum() + this.shuffleReplies.sum() +
+				2 * this.shuffleRequests.sum();
+	}
+
+	@Override
+	public double getShuffleMessagesPerSecond() {
+		return this.shuffleMessagesPerSecond;
+	}
+
+	@Override
+	public long getShufflePeriod() {
+		return this.shufflePeriod;
+	}
+
+	@Override
+	public synchronized void reset() {
+		this.latencies();
+		this.roundTimes();
+		this.latencies.reset();
+		this.roundTimes.reset();
+	}
+}
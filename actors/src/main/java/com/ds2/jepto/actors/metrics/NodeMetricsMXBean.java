@@ -0,0 +1,92 @@
+package com.ds2.jepto.actors.metrics;
+
+/**
+ * The metrics of an EpTO node, as exposed through JMX.
+ *
+ * Latencies and round times are in microseconds, since the
+ * node started or since the last reset. Rates are measured
+ * over the last second elapsed.
+ */
+public interface NodeMetricsMXBean {
+
+	// dissemination
+
+	public long getBallsSent();
+
+	public long getBallsReceived();
+
+	public long getEventsReceived();
+
+	public double getBallsSentPerSecond();
+
+	public double getBallsReceivedPerSecond();
+
+	public double getEventsPerBall();
+
+	// ordering
+
+	public long getEventsBroadcast();
+
+	public long getEventsRejected();
+
+	public long getEventsDelivered();
+
+	public long getEventsDiscarded();
+
+	public int getNextBallSize();
+
+	public int getReceivedSize();
+
+	public long getDeliveredSize();
+
+	// rounds
+
+	public long getRounds();
+
+	public double getRoundTimeMean();
+
+	public long getRoundTimeP99();
+
+	public long getRoundTimeMax();
+
+	// latency from the broadcast to the delivery, by the source
+
+	public long getLatencyCount();
+
+	public double getLatencyMean();
+
+	public long getLatencyP50();
+
+	public long getLatencyP90();
+
+	public long getLatencyP99();
+
+	public long getLatencyP999();
+
+	public long getLatencyMax();
+
+	// cyclon
+
+	public long getShuffles();
+
+	public long getShuffleTimeouts();
+
+	public long getShuffleRequests();
+
+	public long getShuffleReplies();
+
+	// requests and replies, sent and received
+
+	public long getShuffleMessages();
+
+	public double getShuffleMessagesPerSecond();
+
+	// millis, adapted to the changes of the view
+
+	public long getShufflePeriod();
+
+	/**
+	 * Clear the latency and round time histograms.
+	 */
+	public void reset();
+}
@@ -0,0 +1,105 @@
+package com.ds2.jepto.actors.serialization;
+
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Counterpart of {@link ByteWriter}, reading fields
+ * back from a byte array.
+ */
+public class ByteReader {
+
+	private final byte[] buffer;
+	private final int    limit;
+	private int          position;
+
+	public ByteReader(byte[] buffer) {
+		this.buffer = buffer;
+		this.limit = buffer.length;
+		this.position = 0;
+	}
+
+	private void require(int length) throws NotSerializableException {
+		if (length < 0)
+			throw new NotSerializableException("Invalid length " + length +
+					" at offset " + position);
+		// compared to what is left, position + length may overflow
+		if (length > remaining())
+			throw new NotSerializableException("Truncated message: needed " +
+					length + " bytes at offset " + position);
+	}
+
+	public int readByte() throws NotSerializableException {
+		require(1);
+		return buffer[position++] & 0xFF;
+	}
+
+	public int readVarInt() throws NotSerializableException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new NotSerializableException("Malformed varint at offset " + position);
+	}
+
+	public long readVarLong() throws NotSerializableException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new NotSerializableException("Malformed varlong at offset " + position);
+	}
+
+	/**
+	 * Read the number of the elements that follow, checking
+	 * it against the bytes left before anything is allocated
+	 * for them.
+	 *
+	 * @param minBytes the least bytes taken by an element
+	 * @return
+	 * @throws NotSerializableException
+	 */
+	public int readCount(int minBytes) throws NotSerializableException {
+		int count = readVarInt();
+		if (count < 0 || (long) count * minBytes > remaining())
+			throw new NotSerializableException("Invalid count " + count +
+					" at offset " + position + ", " + remaining() + " bytes left");
+		return count;
+	}
+
+	public String readString() throws NotSerializableException {
+		int length = readVarInt();
+		require(length);
+		String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return value;
+	}
+
+	/**
+	 * Return a read-only view of the next length bytes,
+	 * sharing the array being read instead of copying it.
+	 *
+	 * @param length
+	 * @return
+	 * @throws NotSerializableException
+	 */
+	public ByteBuffer readSlice(int length) throws NotSerializableException {
+		require(length);
+		ByteBuffer slice = ByteBuffer.wrap(buffer, position, length)
+				.slice()
+				.asReadOnlyBuffer();
+		position += length;
+		return slice;
+	}
+
+	public int remaining() {
+		return limit - position;
+	}
+}
@@ -0,0 +1,127 @@
+package com.ds2.jepto.actors.serialization;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer used by the serializer to write
+ * fixed-width and variable-length (LEB128) fields.
+ *
+ * Values are expected to be non negative: negative
+ * numbers are still encoded correctly, but always
+ * take the maximum number of bytes.
+ */
+public class ByteWriter {
+
+	private byte[] buffer;
+	private int    position;
+
+	/**
+	 * Given the exact size of the message, the bytes are
+	 * written once: see {@link #toByteArray()}.
+	 *
+	 * @param initialCapacity
+	 */
+	public ByteWriter(int initialCapacity) {
+		this.buffer = new byte[Math.max(0, initialCapacity)];
+		this.position = 0;
+	}
+
+	/**
+	 * Return the number of bytes taken by the value written
+	 * as a varint.
+	 */
+	public static int sizeOfVarInt(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Return the number of bytes taken by the value written
+	 * as a varlong.
+	 */
+	public static int sizeOfVarLong(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	private void ensure(int length) {
+		if (position + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer,
+					Math.max(Math.max(16, buffer.length << 1), position + length));
+		}
+	}
+
+	public void writeByte(int value) {
+		ensure(1);
+		buffer[position++] = (byte) value;
+	}
+
+	public void writeVarInt(int value) {
+		ensure(sizeOfVarInt(value));
+		while ((value & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	public void writeVarLong(long value) {
+		ensure(sizeOfVarLong(value));
+		while ((value & ~0x7FL) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	public void writeBytes(byte[] bytes, int offset, int length) {
+		ensure(length);
+		System.arraycopy(bytes, offset, buffer, position, length);
+		position += length;
+	}
+
+	/**
+	 * Write the remaining bytes of the buffer, leaving
+	 * its position unchanged.
+	 *
+	 * @param bytes
+	 */
+	public void writeBytes(ByteBuffer bytes) {
+		int length = bytes.remaining();
+		ensure(length);
+		bytes.duplicate().get(buffer, position, length);
+		position += length;
+	}
+
+	public void writeString(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		writeBytes(bytes, 0, bytes.length);
+	}
+
+	public int size() {
+		return position;
+	}
+
+	/**
+	 * Return the written bytes: the buffer itself when
+	 * they fill it, otherwise a copy trimmed to the
+	 * current size.
+	 * @return
+	 */
+	public byte[] toByteArray() {
+		if (position == buffer.length)
+			return buffer;
+		return Arrays.copyOf(buffer, position);
+	}
+}
@@ -0,0 +1,602 @@
+package com.ds2.jepto.actors.serialization;
+
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ds2.jepto.actors.BallChunkMsg;
+import com.ds2.jepto.actors.BallMsg;
+import com.ds2.jepto.actors.BroadcastMsg;
+import com.ds2.jepto.actors.BroadcastRejectedMsg;
+import com.ds2.jepto.actors.DeliveryAckMsg;
+import com.ds2.jepto.actors.DeliveryBatch;
+import com.ds2.jepto.actors.DigestMsg;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.EventDigest;
+import com.ds2.jepto.actors.FanOutMsg;
+import com.ds2.jepto.actors.NodeIdMsg;
+import com.ds2.jepto.actors.NodeRegistry;
+import com.ds2.jepto.actors.PullMsg;
+import com.ds2.jepto.actors.RegisterMsg;
+import com.ds2.jepto.actors.SubscribeMsg;
+import com.ds2.jepto.actors.SubscriptionDroppedMsg;
+import com.ds2.jepto.actors.UnsubscribeMsg;
+import com.ds2.jepto.actors.cyclon.CyclonShufflingMsg;
+import com.ds2.jepto.actors.cyclon.JoinMsg;
+import com.ds2.jepto.actors.cyclon.ReplyMsg;
+import com.ds2.jepto.actors.cyclon.RequestMsg;
+
+import akka.actor.ActorRef;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.Serialization;
+import akka.serialization.SerializerWithStringManifest;
+
+/**
+ * Hand-written binary serializer for the EpTO and Cyclon
+ * protocol messages, bound through the akka configuration
+ * (see serialization.conf).
+ *
+ * Every message starts with a table of the actor references
+ * it mentions: each reference is written once as its
+ * serialized path and then referred to by its index within
+ * the table. All the numeric fields are written as varints.
+ *
+ * Ball layout, where each source is written with its node id:
+ * <pre>
+ * varint refs, refs * (string path, varint node id)
+ * varint events, events * (varint source, varint id,
+ *                          varlong timestamp, varint ttl, byte action,
+ *                          varint payload length, payload)
+ * </pre>
+ * Decoded payloads are read-only views of the received
+ * byte array: they are not copied.
+ * Balls, chunks and digests cache their bytes (see
+ * {@link FanOutMsg}), hence they are encoded once whatever
+ * the number of peers they are sent to.
+ * A delivery batch is a varlong sequence followed by
+ * its events, with the ball layout. A ball chunk is a
+ * varlong ball id, varint index and varint count followed
+ * by its events.
+ *
+ * Digest layout, preceded by a varlong ball id, where the
+ * source and the first id of a run are written as the difference
+ * from the previous run (from the end of it, for the same source):
+ * <pre>
+ * varint runs, runs * (varint source, varint first id, varint length)
+ * byte has ttl, events * varint ttl
+ * </pre>
+ *
+ * Shuffling message layout:
+ * <pre>
+ * varint refs, refs * string path
+ * varint id, varint sender, varint receiver
+ * varint entries, entries * (varint ref, varlong age)
+ * </pre>
+ */
+public class EptoSerializer extends SerializerWithStringManifest {
+
+	// arbitrary, but must be unique among the registered serializers
+	// (0 - 40 are reserved by akka)
+	public static final int IDENTIFIER = 4207;
+
+	private static final String BALL_MANIFEST    = "B";
+	private static final String EVENT_MANIFEST   = "E";
+	private static final String REQUEST_MANIFEST = "Q";
+	private static final String REPLY_MANIFEST   = "R";
+	private static final String SHUFFLE_MANIFEST = "S";
+	private static final String JOIN_MANIFEST    = "J";
+	private static final String REGISTER_MANIFEST = "G";
+	private static final String NODE_ID_MANIFEST  = "N";
+	private static final String BATCH_MANIFEST       = "D";
+	private static final String ACK_MANIFEST         = "A";
+	private static final String SUBSCRIBE_MANIFEST   = "U";
+	private static final String UNSUBSCRIBE_MANIFEST = "X";
+	private static final String BROADCAST_MANIFEST   = "C";
+	private static final String CHUNK_MANIFEST       = "K";
+	private static final String DIGEST_MANIFEST      = "I";
+	private static final String PULL_MANIFEST        = "P";
+	private static final String REJECTED_MANIFEST    = "V";
+	private static final String DROPPED_MANIFEST     = "L";
+
+	private static final Action[] ACTIONS = Action.values();
+
+	private final ExtendedActorSystem system;
+
+	public EptoSerializer(ExtendedActorSystem system) {
+		this.system = system;
+	}
+
+	@Override
+	public int identifier() {
+		return IDENTIFIER;
+	}
+
+	@Override
+	public String manifest(Object obj) {
+		// subclasses first
+		if (obj instanceof RequestMsg)
+			return REQUEST_MANIFEST;
+		if (obj instanceof ReplyMsg)
+			return REPLY_MANIFEST;
+		if (obj instanceof CyclonShufflingMsg)
+			return SHUFFLE_MANIFEST;
+		if (obj instanceof BallMsg)
+			return BALL_MANIFEST;
+		if (obj instanceof BallChunkMsg)
+			return CHUNK_MANIFEST;
+		if (obj instanceof DigestMsg)
+			return DIGEST_MANIFEST;
+		if (obj instanceof PullMsg)
+			return PULL_MANIFEST;
+		if (obj instanceof Event)
+			return EVENT_MANIFEST;
+		if (obj instanceof JoinMsg)
+			return JOIN_MANIFEST;
+		if (obj instanceof RegisterMsg)
+			return REGISTER_MANIFEST;
+		if (obj instanceof NodeIdMsg)
+			return NODE_ID_MANIFEST;
+		if (obj instanceof DeliveryBatch)
+			return BATCH_MANIFEST;
+		if (obj instanceof DeliveryAckMsg)
+			return ACK_MANIFEST;
+		if (obj instanceof SubscribeMsg)
+			return SUBSCRIBE_MANIFEST;
+		if (obj instanceof UnsubscribeMsg)
+			return UNSUBSCRIBE_MANIFEST;
+		if (obj instanceof BroadcastMsg)
+			return BROADCAST_MANIFEST;
+		if (obj instanceof BroadcastRejectedMsg)
+			return REJECTED_MANIFEST;
+		if (obj instanceof SubscriptionDroppedMsg)
+			return DROPPED_MANIFEST;
+		throw new IllegalArgumentException("Cannot serialize " + obj.getClass());
+	}
+
+	/**
+	 * The bytes of a {@link FanOutMsg} are cached by the message,
+	 * hence a ball sent to K remote peers is encoded once and the
+	 * same array is handed to the K sends.
+	 */
+	@Override
+	public byte[] toBinary(Object obj) {
+		if (obj instanceof FanOutMsg) {
+			FanOutMsg msg = (FanOutMsg) obj;
+			byte[] encoded = msg.getEncoded();
+			if (encoded == null) {
+				encoded = this.encode(obj);
+				msg.setEncoded(encoded);
+			}
+			return encoded;
+		}
+		return this.encode(obj);
+	}
+
+	/**
+	 * Encode the message, ignoring the bytes it may have cached.
+	 */
+	public byte[] encode(Object obj) {
+		if (obj instanceof CyclonShufflingMsg)
+			return writeShuffle((CyclonShufflingMsg) obj);
+		if (obj instanceof BallMsg)
+			return writeEvents(((BallMsg) obj).getBall());
+		if (obj instanceof BallChunkMsg) {
+			BallChunkMsg chunk = (BallChunkMsg) obj;
+			EventsLayout layout = new EventsLayout(chunk.getEvents());
+			ByteWriter writer = new ByteWriter(ByteWriter.sizeOfVarLong(chunk.getBallId()) +
+					ByteWriter.sizeOfVarInt(chunk.getIndex()) +
+					ByteWriter.sizeOfVarInt(chunk.getCount()) + layout.size());
+			writer.writeVarLong(chunk.getBallId());
+			writer.writeVarInt(chunk.getIndex());
+			writer.writeVarInt(chunk.getCount());
+			layout.write(writer);
+			return writer.toByteArray();
+		}
+		if (obj instanceof DigestMsg) {
+			DigestMsg msg = (DigestMsg) obj;
+			ByteWriter writer = new ByteWriter(32 + 8 * msg.getDigest().getNumRuns() +
+					2 * msg.getDigest().size());
+			writer.writeVarLong(msg.getBallId());
+			writeDigest(writer, msg.getDigest());
+			return writer.toByteArray();
+		}
+		if (obj instanceof PullMsg) {
+			PullMsg msg = (PullMsg) obj;
+			ByteWriter writer = new ByteWriter(32 + 8 * msg.getMissing().getNumRuns());
+			writer.writeVarLong(msg.getBallId());
+			writeDigest(writer, msg.getMissing());
+			return writer.toByteArray();
+		}
+		if (obj instanceof DeliveryBatch) {
+			DeliveryBatch batch = (DeliveryBatch) obj;
+			EventsLayout layout = new EventsLayout(batch.getEvents());
+			ByteWriter writer = new ByteWriter(ByteWriter.sizeOfVarLong(batch.getSequence()) +
+					layout.size());
+			writer.writeVarLong(batch.getSequence());
+			layout.write(writer);
+			return writer.toByteArray();
+		}
+		if (obj instanceof Event)
+			return writeEvents(Collections.singletonList((Event) obj));
+		if (obj instanceof JoinMsg) {
+			ByteWriter writer = new ByteWriter(64);
+			writer.writeString(Serialization.serializedActorPath(((JoinMsg) obj).getTracker()));
+			return writer.toByteArray();
+		}
+		if (obj instanceof RegisterMsg)
+			return new byte[0];
+		if (obj instanceof NodeIdMsg) {
+			ByteWriter writer = new ByteWriter(8);
+			writer.writeVarInt(((NodeIdMsg) obj).getNodeId());
+			return writer.toByteArray();
+		}
+		if (obj instanceof DeliveryAckMsg) {
+			ByteWriter writer = new ByteWriter(8);
+			writer.writeVarLong(((DeliveryAckMsg) obj).getSequence());
+			return writer.toByteArray();
+		}
+		if (obj instanceof SubscribeMsg) {
+			SubscribeMsg msg = (SubscribeMsg) obj;
+			if (msg.getSubscriber() == null)
+				throw new IllegalArgumentException("Delivery listeners cannot be sent remotely");
+			ByteWriter writer = new ByteWriter(64);
+			writer.writeString(Serialization.serializedActorPath(msg.getSubscriber()));
+			writer.writeVarInt(msg.getMaxPendingBatches());
+			return writer.toByteArray();
+		}
+		if (obj instanceof UnsubscribeMsg) {
+			UnsubscribeMsg msg = (UnsubscribeMsg) obj;
+			if (msg.getSubscriber() == null)
+				throw new IllegalArgumentException("Delivery listeners cannot be sent remotely");
+			ByteWriter writer = new ByteWriter(64);
+			writer.writeString(Serialization.serializedActorPath(msg.getSubscriber()));
+			return writer.toByteArray();
+		}
+		if (obj instanceof BroadcastMsg)
+			return writeBroadcast((BroadcastMsg) obj);
+		if (obj instanceof BroadcastRejectedMsg)
+			return writeBroadcast(((BroadcastRejectedMsg) obj).getBroadcast());
+		if (obj instanceof SubscriptionDroppedMsg) {
+			ByteWriter writer = new ByteWriter(8);
+			writer.writeVarLong(((SubscriptionDroppedMsg) obj).getSequence());
+			return writer.toByteArray();
+		}
+		throw new IllegalArgumentException("Cannot serialize " + obj.getClass());
+	}
+
+	@Override
+	public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+		ByteReader reader = new ByteReader(bytes);
+		switch (manifest) {
+		case BALL_MANIFEST:
+			return new BallMsg(readEvents(reader));
+		case EVENT_MANIFEST:
+			List<Event> events = readEvents(reader);
+			if (events.size() != 1)
+				throw new NotSerializableException("Expected a single event, found " + events.size());
+			return events.get(0);
+		case REQUEST_MANIFEST:
+		case REPLY_MANIFEST:
+		case SHUFFLE_MANIFEST:
+			return readShuffle(reader, manifest);
+		case JOIN_MANIFEST:
+			return new JoinMsg(resolve(reader.readString()));
+		case REGISTER_MANIFEST:
+			return new RegisterMsg();
+		case NODE_ID_MANIFEST:
+			return new NodeIdMsg(reader.readVarInt());
+		case CHUNK_MANIFEST:
+			long ballId = reader.readVarLong();
+			int  index  = reader.readVarInt();
+			int  count  = reader.readVarInt();
+			if (index < 0 || index >= count)
+				throw new NotSerializableException("Invalid chunk " + index + " of " + count);
+			return new BallChunkMsg(ballId, index, count, readEvents(reader));
+		case DIGEST_MANIFEST:
+			long digestId = reader.readVarLong();
+			return new DigestMsg(digestId, readDigest(reader));
+		case PULL_MANIFEST:
+			long pullId = reader.readVarLong();
+			return new PullMsg(pullId, readDigest(reader));
+		case BATCH_MANIFEST:
+			long sequence = reader.readVarLong();
+			return new DeliveryBatch(sequence, readEvents(reader));
+		case ACK_MANIFEST:
+			return new DeliveryAckMsg(reader.readVarLong());
+		case SUBSCRIBE_MANIFEST:
+			ActorRef subscriber = resolve(reader.readString());
+			int maxPendingBatches = reader.readVarInt();
+			if (maxPendingBatches < 1)
+				throw new NotSerializableException("Invalid max pending batches " + maxPendingBatches);
+			return new SubscribeMsg(subscriber, maxPendingBatches);
+		case UNSUBSCRIBE_MANIFEST:
+			return new UnsubscribeMsg(resolve(reader.readString()));
+		case BROADCAST_MANIFEST:
+			return readBroadcast(reader);
+		case REJECTED_MANIFEST:
+			return new BroadcastRejectedMsg(readBroadcast(reader));
+		case DROPPED_MANIFEST:
+			return new SubscriptionDroppedMsg(reader.readVarLong());
+		default:
+			throw new NotSerializableException("Unknown manifest " + manifest);
+		}
+	}
+
+	private static byte[] writeBroadcast(BroadcastMsg msg) {
+		ByteBuffer payload = msg.getPayload();
+		ByteWriter writer = new ByteWriter(1 + ByteWriter.sizeOfVarInt(payload.remaining()) +
+				payload.remaining());
+		writer.writeByte(msg.getAction().ordinal());
+		writer.writeVarInt(payload.remaining());
+		writer.writeBytes(payload);
+		return writer.toByteArray();
+	}
+
+	private static BroadcastMsg readBroadcast(ByteReader reader) throws NotSerializableException {
+		int action = reader.readByte();
+		if (action >= ACTIONS.length)
+			throw new NotSerializableException("Invalid action " + action);
+		return new BroadcastMsg(ACTIONS[action], reader.readSlice(reader.readVarInt()));
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                              ACTOR REF TABLE                              */
+/*---------------------------------------------------------------------------*/
+
+	private static int indexOf(Map<ActorRef, Integer> table, ActorRef ref) {
+		Integer index = table.get(ref);
+		if (index == null) {
+			index = table.size();
+			table.put(ref, index);
+		}
+		return index;
+	}
+
+	private static void writeTable(ByteWriter writer, Map<ActorRef, Integer> table) {
+		writer.writeVarInt(table.size());
+		for (ActorRef ref : table.keySet()) {
+			writer.writeString(Serialization.serializedActorPath(ref));
+		}
+	}
+
+	private ActorRef[] readTable(ByteReader reader) throws NotSerializableException {
+		// a reference takes at least its length
+		ActorRef[] table = new ActorRef[reader.readCount(1)];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = resolve(reader.readString());
+		}
+		return table;
+	}
+
+	private ActorRef resolve(String path) {
+		return system.provider().resolveActorRef(path);
+	}
+
+	private static ActorRef lookup(ActorRef[] table, int index) throws NotSerializableException {
+		if (index < 0 || index >= table.length)
+			throw new NotSerializableException("Invalid actor reference index " + index);
+		return table[index];
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                 EVENTS                                    */
+/*---------------------------------------------------------------------------*/
+
+	private static byte[] writeEvents(List<Event> events) {
+		EventsLayout layout = new EventsLayout(events);
+		ByteWriter writer = new ByteWriter(layout.size());
+		layout.write(writer);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * The encoding of a list of events, sized before it is
+	 * written: the writer of a message is allocated with its
+	 * exact length, hence each payload is copied once, into
+	 * the array handed to the transport.
+	 */
+	private static class EventsLayout {
+
+		private final List<Event>            events;
+		private final Map<ActorRef, Integer> table;
+		private final List<byte[]>           paths;
+		private final List<Integer>          sourceIds;
+		private final int                    size;
+
+		EventsLayout(List<Event> events) {
+			this.events    = events;
+			this.table     = new LinkedHashMap<>();
+			this.paths     = new ArrayList<>();
+			this.sourceIds = new ArrayList<>();
+			int size = 0;
+			for (Event event : events) {
+				int index = indexOf(this.table, event.getSource());
+				if (index == this.sourceIds.size()) {
+					byte[] path = Serialization.serializedActorPath(event.getSource())
+							.getBytes(StandardCharsets.UTF_8);
+					this.paths.add(path);
+					this.sourceIds.add(event.getSourceId());
+					size += ByteWriter.sizeOfVarInt(path.length) + path.length +
+							ByteWriter.sizeOfVarInt(event.getSourceId());
+				}
+				size += ByteWriter.sizeOfVarInt(index) +
+						ByteWriter.sizeOfVarInt(event.getId()) +
+						ByteWriter.sizeOfVarLong(event.getTimestamp()) +
+						ByteWriter.sizeOfVarInt(event.getTtl()) +
+						1 +
+						ByteWriter.sizeOfVarInt(event.getPayloadSize()) +
+						event.getPayloadSize();
+			}
+			size += ByteWriter.sizeOfVarInt(this.table.size()) +
+					ByteWriter.sizeOfVarInt(events.size());
+			this.size = size;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		void write(ByteWriter writer) {
+			writer.writeVarInt(this.table.size());
+			for (int index = 0; index < this.paths.size(); index++) {
+				byte[] path = this.paths.get(index);
+				writer.writeVarInt(path.length);
+				writer.writeBytes(path, 0, path.length);
+				writer.writeVarInt(this.sourceIds.get(index));
+			}
+			writer.writeVarInt(this.events.size());
+			for (Event event : this.events) {
+				writer.writeVarInt(this.table.get(event.getSource()));
+				writer.writeVarInt(event.getId());
+				writer.writeVarLong(event.getTimestamp());
+				writer.writeVarInt(event.getTtl());
+				writer.writeByte(event.getAction().ordinal());
+				writer.writeVarInt(event.getPayloadSize());
+				writer.writeBytes(event.getPayload());
+			}
+		}
+	}
+
+	private List<Event> readEvents(ByteReader reader) throws NotSerializableException {
+		// a source takes at least its length and id, an
+		// event at least a byte per field
+		ActorRef[] table     = new ActorRef[reader.readCount(2)];
+		int[]      sourceIds = new int[table.length];
+		for (int i = 0; i < table.length; i++) {
+			table[i]     = resolve(reader.readString());
+			sourceIds[i] = reader.readVarInt();
+		}
+		int size = reader.readCount(6);
+		List<Event> events = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			int  index      = reader.readVarInt();
+			ActorRef source = lookup(table, index);
+			int  id         = reader.readVarInt();
+			long timestamp  = reader.readVarLong();
+			if (timestamp < 0 || timestamp > NodeRegistry.MAX_TIMESTAMP)
+				throw new NotSerializableException("Invalid timestamp " + timestamp);
+			int  ttl        = reader.readVarInt();
+			int  action     = reader.readByte();
+			if (action >= ACTIONS.length)
+				throw new NotSerializableException("Invalid action " + action);
+			ByteBuffer payload = reader.readSlice(reader.readVarInt());
+			events.add(new Event(id, ACTIONS[action], source, sourceIds[index], timestamp, ttl, payload));
+		}
+		return events;
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                 DIGESTS                                   */
+/*---------------------------------------------------------------------------*/
+
+	private static void writeDigest(ByteWriter writer, EventDigest digest) {
+		writer.writeVarInt(digest.getNumRuns());
+		int source = 0;
+		int next   = 0; // first id following the previous run
+		for (int run = 0; run < digest.getNumRuns(); run++) {
+			int sourceId = digest.getSourceId(run);
+			if (sourceId != source)
+				next = 0;
+			writer.writeVarInt(sourceId - source);
+			writer.writeVarInt(digest.getFirstId(run) - next);
+			writer.writeVarInt(digest.getLength(run));
+			source = sourceId;
+			next   = digest.getFirstId(run) + digest.getLength(run);
+		}
+		writer.writeByte(digest.hasTtl() ? 1 : 0);
+		if (digest.hasTtl()) {
+			for (int i = 0; i < digest.size(); i++) {
+				writer.writeVarInt(digest.getTtl(i));
+			}
+		}
+	}
+
+	private static EventDigest readDigest(ByteReader reader) throws NotSerializableException {
+		// a run takes at least a byte per field
+		int numRuns = reader.readCount(3);
+		int[] sourceIds = new int[numRuns];
+		int[] firstIds  = new int[numRuns];
+		int[] lengths   = new int[numRuns];
+		int source = 0;
+		int next   = 0;
+		long size  = 0;
+		for (int run = 0; run < numRuns; run++) {
+			int delta = reader.readVarInt();
+			if (delta != 0)
+				next = 0;
+			source += delta;
+			sourceIds[run] = source;
+			firstIds[run]  = next + reader.readVarInt();
+			lengths[run]   = reader.readVarInt();
+			if (lengths[run] <= 0)
+				throw new NotSerializableException("Invalid run length " + lengths[run]);
+			next  = firstIds[run] + lengths[run];
+			size += lengths[run];
+		}
+		int[] ttls = null;
+		if (reader.readByte() != 0) {
+			// a ttl takes at least a byte
+			if (size > reader.remaining())
+				throw new NotSerializableException("Invalid digest size " + size +
+						", " + reader.remaining() + " bytes left");
+			ttls = new int[(int) size];
+			for (int i = 0; i < ttls.length; i++) {
+				ttls[i] = reader.readVarInt();
+			}
+		}
+		return new EventDigest(sourceIds, firstIds, lengths, numRuns, ttls);
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                 CYCLON                                    */
+/*---------------------------------------------------------------------------*/
+
+	private static byte[] writeShuffle(CyclonShufflingMsg msg) {
+		Map<ActorRef, Integer> table = new LinkedHashMap<>();
+		indexOf(table, msg.getSender());
+		indexOf(table, msg.getReceiver());
+		for (ActorRef ref : msg.getUpdatingCache().keySet()) {
+			indexOf(table, ref);
+		}
+		ByteWriter writer = new ByteWriter(64 * table.size() + 16);
+		writeTable(writer, table);
+		writer.writeVarInt(msg.getId());
+		writer.writeVarInt(table.get(msg.getSender()));
+		writer.writeVarInt(table.get(msg.getReceiver()));
+		writer.writeVarInt(msg.getUpdatingCache().size());
+		for (Map.Entry<ActorRef, Long> entry : msg.getUpdatingCache().entrySet()) {
+			writer.writeVarInt(table.get(entry.getKey()));
+			writer.writeVarLong(entry.getValue());
+		}
+		return writer.toByteArray();
+	}
+
+	private CyclonShufflingMsg readShuffle(ByteReader reader, String manifest)
+			throws NotSerializableException {
+		ActorRef[] table = readTable(reader);
+		int      id       = reader.readVarInt();
+		ActorRef sender   = lookup(table, reader.readVarInt());
+		ActorRef receiver = lookup(table, reader.readVarInt());
+		int size = reader.readCount(2);
+		Map<ActorRef, Long> cache = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			ActorRef ref = lookup(table, reader.readVarInt());
+			cache.put(ref, reader.readVarLong());
+		}
+		switch (manifest) {
+		case REQUEST_MANIFEST:
+			return new RequestMsg(id, cache, sender, receiver);
+		case REPLY_MANIFEST:
+			return new ReplyMsg(id, cache, sender, receiver);
+		default:
+			return new CyclonShufflingMsg(id, cache, sender, receiver);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.ds2.jepto.actors.serialization;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ds2.jepto.actors.BallMsg;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.cyclon.CyclonActor;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+
+/**
+ * Compare the CPU time spent per round to send a ball to K
+ * remote peers when it is encoded once per peer against
+ * when it is encoded once and its bytes are shared, for
+ * increasing K and ball sizes.
+ *
+ * Each round builds a new {@link BallMsg}, as the node does,
+ * hence the cached bytes are never reused across rounds.
+ *
+ * Run it with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.serialization.FanOutComparison
+ * </pre>
+ */
+public class FanOutComparison {
+
+	private static final int[] NUM_RECEIVERS = new int[] {3, 8, 17, 32};
+	private static final int[] NUM_EVENTS    = new int[] {10, 100, 1000};
+	private static final int   NUM_SOURCES   = 10;
+
+	private static final long WARMUP_NANOS  = 500_000_000l;
+	private static final long MEASURE_NANOS = 1_000_000_000l;
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private static List<Event> makeEvents(List<ActorRef> sources, int numEvents, Random prng) {
+		List<Event> events = new ArrayList<>(numEvents);
+		for (int i = 0; i < numEvents; i++) {
+			events.add(new Event(i,
+					Action.values()[prng.nextInt(Action.values().length)],
+					sources.get(i % sources.size()),
+					i % sources.size(),
+					1000 + prng.nextInt(100_000),
+					prng.nextInt(43)));
+		}
+		return events;
+	}
+
+	/**
+	 * Send one round, return the bytes handed to the transport.
+	 */
+	private static long round(EptoSerializer serializer, List<Event> events,
+			int numReceivers, boolean once) {
+		BallMsg ball = new BallMsg(events);
+		long bytes = 0;
+		for (int i = 0; i < numReceivers; i++) {
+			bytes += once ?
+					serializer.toBinary(ball).length :
+					serializer.encode(ball).length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Return the CPU microseconds per round.
+	 */
+	private static double cpuPerRound(EptoSerializer serializer, List<Event> events,
+			int numReceivers, boolean once) {
+		long bytes = 0;
+		long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+		while (System.nanoTime() < warmupEnd)
+			bytes += round(serializer, events, numReceivers, once);
+		long rounds = 0;
+		long start = THREADS.getCurrentThreadCpuTime();
+		long end   = System.nanoTime() + MEASURE_NANOS;
+		do {
+			bytes += round(serializer, events, numReceivers, once);
+			rounds++;
+		} while (System.nanoTime() < end);
+		long cpu = THREADS.getCurrentThreadCpuTime() - start;
+		if (bytes == 0)
+			throw new IllegalStateException("Nothing encoded");
+		return cpu / 1e3 / rounds;
+	}
+
+	public static void main(String[] args) {
+		Config config = ConfigFactory.parseString(
+				"akka.actor.provider = remote\n" +
+				"akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n" +
+				"akka.remote.netty.tcp.port = 0\n")
+				.withFallback(ConfigFactory.parseResources("serialization.conf"))
+				.withFallback(ConfigFactory.load());
+		ActorSystem system = ActorSystem.create("epto", config);
+		EptoSerializer epto = new EptoSerializer((ExtendedActorSystem) system);
+		Random prng = new Random(42);
+
+		List<ActorRef> sources = new ArrayList<>(NUM_SOURCES);
+		for (int i = 0; i < NUM_SOURCES; i++) {
+			sources.add(system.actorOf(CyclonActor.props(1, 1, 100_000l, i), "actor_" + i));
+		}
+
+		System.out.println(String.format("%8s %4s %12s %14s %12s %12s %8s",
+				"events", "K", "ball_bytes", "per_peer_us", "once_us", "saved_us", "saved_%"));
+		for (int numEvents : NUM_EVENTS) {
+			List<Event> events = makeEvents(sources, numEvents, prng);
+			int ballBytes = epto.encode(new BallMsg(events)).length;
+			for (int numReceivers : NUM_RECEIVERS) {
+				double perPeer = cpuPerRound(epto, events, numReceivers, false);
+				double once    = cpuPerRound(epto, events, numReceivers, true);
+				System.out.println(String.format("%8d %4d %12d %14.1f %12.1f %12.1f %8.1f",
+						numEvents,
+						numReceivers,
+						ballBytes,
+						perPeer,
+						once,
+						perPeer - once,
+						100.0 * (perPeer - once) / perPeer));
+			}
+		}
+		system.terminate();
+	}
+}
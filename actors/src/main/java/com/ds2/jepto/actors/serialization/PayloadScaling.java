@@ -0,0 +1,125 @@
+package com.ds2.jepto.actors.serialization;
+
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ds2.jepto.actors.BallMsg;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.EventMap;
+import com.ds2.jepto.actors.cyclon.CyclonActor;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+
+/**
+ * Measure how the ball throughput scales with the size of the
+ * event payloads: encoding a ball, decoding it, and merging the
+ * decoded events into an {@link EventMap}, as done by a receiving
+ * node. Decoded payloads share the received bytes, hence neither
+ * decoding nor merging copies them.
+ *
+ * Run it with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.serialization.PayloadScaling
+ * </pre>
+ */
+public class PayloadScaling {
+
+	private static final int[] PAYLOAD_SIZES = new int[] {
+			16, 64, 256, 1024, 4096, 16384, 65536};
+
+	private static final int NUM_EVENTS  = 32;
+	private static final int NUM_SOURCES = 8;
+
+	private static final long WARMUP_NANOS  = 500_000_000l;
+	private static final long MEASURE_NANOS = 1_000_000_000l;
+
+	private interface Operation {
+		public void run() throws NotSerializableException;
+	}
+
+	private static BallMsg makeBall(List<ActorRef> sources, int payloadSize, Random prng) {
+		List<Event> events = new ArrayList<>(NUM_EVENTS);
+		for (int i = 0; i < NUM_EVENTS; i++) {
+			byte[] payload = new byte[payloadSize];
+			prng.nextBytes(payload);
+			events.add(new Event(i,
+					Action.values()[prng.nextInt(Action.values().length)],
+					sources.get(i % sources.size()),
+					i % sources.size(),
+					1000 + prng.nextInt(100_000),
+					prng.nextInt(43),
+					ByteBuffer.wrap(payload)));
+		}
+		return new BallMsg(events);
+	}
+
+	/**
+	 * Return the number of operations per second.
+	 */
+	private static double rate(Operation operation) throws NotSerializableException {
+		long ops = 0;
+		long start = System.nanoTime();
+		long warmupEnd = start + WARMUP_NANOS;
+		while (System.nanoTime() < warmupEnd)
+			operation.run();
+		start = System.nanoTime();
+		long end = start + MEASURE_NANOS;
+		long now;
+		do {
+			operation.run();
+			ops++;
+		} while ((now = System.nanoTime()) < end);
+		return ops * 1e9 / (now - start);
+	}
+
+	public static void main(String[] args) throws NotSerializableException {
+		Config config = ConfigFactory.parseString(
+				"akka.actor.provider = remote\n" +
+				"akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n" +
+				"akka.remote.netty.tcp.port = 0\n")
+				.withFallback(ConfigFactory.parseResources("serialization.conf"))
+				.withFallback(ConfigFactory.load());
+		ActorSystem system = ActorSystem.create("epto", config);
+		EptoSerializer epto = new EptoSerializer((ExtendedActorSystem) system);
+		Random prng = new Random(42);
+
+		List<ActorRef> sources = new ArrayList<>(NUM_SOURCES);
+		for (int i = 0; i < NUM_SOURCES; i++) {
+			sources.add(system.actorOf(CyclonActor.props(1, 1, 100_000l, i), "actor_" + i));
+		}
+
+		System.out.println(String.format("%8s %10s %12s %12s %12s %10s %10s",
+				"payload", "ball_bytes", "enc/s", "dec/s", "dec+merge/s",
+				"enc_MB/s", "dec_MB/s"));
+		for (int payloadSize : PAYLOAD_SIZES) {
+			BallMsg ball = makeBall(sources, payloadSize, prng);
+			String manifest = epto.manifest(ball);
+			byte[] bytes = epto.toBinary(ball);
+			double encode = rate(() -> epto.encode(ball));
+			double decode = rate(() -> epto.fromBinary(bytes, manifest));
+			double merge  = rate(() -> {
+				EventMap nextBall = new EventMap();
+				for (Event event : ((BallMsg) epto.fromBinary(bytes, manifest)).getBall()) {
+					nextBall.merge(event);
+				}
+			});
+			System.out.println(String.format("%8d %10d %12.0f %12.0f %12.0f %10.1f %10.1f",
+					payloadSize,
+					bytes.length,
+					encode,
+					decode,
+					merge,
+					encode * bytes.length / 1e6,
+					decode * bytes.length / 1e6));
+		}
+		system.terminate();
+	}
+}
@@ -0,0 +1,144 @@
+package com.ds2.jepto.actors.serialization;
+
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ds2.jepto.actors.BallMsg;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.cyclon.CyclonActor;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.JavaSerializer;
+import akka.serialization.Serializer;
+
+/**
+ * Compare the size and the encoding/decoding throughput
+ * of the {@link EptoSerializer} against the java serializer
+ * on balls of increasing size.
+ *
+ * Run it with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.serialization.SerializerComparison
+ * </pre>
+ */
+public class SerializerComparison {
+
+	private static final int[] NUM_EVENTS  = new int[] {10, 100, 500, 2000};
+	private static final int[] NUM_SOURCES = new int[] {1, 10, 100};
+
+	private static final long WARMUP_NANOS  = 500_000_000l;
+	private static final long MEASURE_NANOS = 1_000_000_000l;
+
+	private static BallMsg makeBall(List<ActorRef> sources, int numEvents, Random prng) {
+		List<Event> events = new ArrayList<>(numEvents);
+		for (int i = 0; i < numEvents; i++) {
+			events.add(new Event(i,
+					Action.values()[prng.nextInt(Action.values().length)],
+					sources.get(i % sources.size()),
+					i % sources.size(),
+					1000 + prng.nextInt(100_000),
+					prng.nextInt(43)));
+		}
+		return new BallMsg(events);
+	}
+
+	/**
+	 * Return the number of operations per second.
+	 */
+	private static double encodeRate(Serializer serializer, Object msg) {
+		long ops = 0;
+		long start = System.nanoTime();
+		long warmupEnd = start + WARMUP_NANOS;
+		while (System.nanoTime() < warmupEnd)
+			encode(serializer, msg);
+		start = System.nanoTime();
+		long end = start + MEASURE_NANOS;
+		long now;
+		do {
+			encode(serializer, msg);
+			ops++;
+		} while ((now = System.nanoTime()) < end);
+		return ops * 1e9 / (now - start);
+	}
+
+	private static double decodeRate(Serializer serializer, byte[] bytes, String manifest)
+			throws NotSerializableException {
+		long ops = 0;
+		long start = System.nanoTime();
+		long warmupEnd = start + WARMUP_NANOS;
+		while (System.nanoTime() < warmupEnd)
+			decode(serializer, bytes, manifest);
+		start = System.nanoTime();
+		long end = start + MEASURE_NANOS;
+		long now;
+		do {
+			decode(serializer, bytes, manifest);
+			ops++;
+		} while ((now = System.nanoTime()) < end);
+		return ops * 1e9 / (now - start);
+	}
+
+	// the balls cache their bytes, encode them every time
+	private static byte[] encode(Serializer serializer, Object msg) {
+		if (serializer instanceof EptoSerializer)
+			return ((EptoSerializer) serializer).encode(msg);
+		return serializer.toBinary(msg);
+	}
+
+	private static Object decode(Serializer serializer, byte[] bytes, String manifest)
+			throws NotSerializableException {
+		if (serializer instanceof EptoSerializer)
+			return ((EptoSerializer) serializer).fromBinary(bytes, manifest);
+		return serializer.fromBinary(bytes);
+	}
+
+	public static void main(String[] args) throws NotSerializableException {
+		Config config = ConfigFactory.parseString(
+				"akka.actor.provider = remote\n" +
+				"akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n" +
+				"akka.remote.netty.tcp.port = 0\n")
+				.withFallback(ConfigFactory.parseResources("serialization.conf"))
+				.withFallback(ConfigFactory.load());
+		ActorSystem system = ActorSystem.create("epto", config);
+		ExtendedActorSystem extended = (ExtendedActorSystem) system;
+		EptoSerializer epto   = new EptoSerializer(extended);
+		JavaSerializer java   = new JavaSerializer(extended);
+		Random prng = new Random(42);
+
+		int maxSources = NUM_SOURCES[NUM_SOURCES.length - 1];
+		List<ActorRef> sources = new ArrayList<>(maxSources);
+		for (int i = 0; i < maxSources; i++) {
+			sources.add(system.actorOf(CyclonActor.props(1, 1, 100_000l, i), "actor_" + i));
+		}
+
+		System.out.println(String.format("%8s %8s %12s %12s %8s %14s %14s %14s %14s",
+				"events", "sources", "java_bytes", "epto_bytes", "ratio",
+				"java_enc/s", "epto_enc/s", "java_dec/s", "epto_dec/s"));
+		for (int numEvents : NUM_EVENTS) {
+			for (int numSources : NUM_SOURCES) {
+				BallMsg ball = makeBall(sources.subList(0, numSources), numEvents, prng);
+				String manifest = epto.manifest(ball);
+				byte[] javaBytes = java.toBinary(ball);
+				byte[] eptoBytes = epto.toBinary(ball);
+				System.out.println(String.format("%8d %8d %12d %12d %8.2f %14.0f %14.0f %14.0f %14.0f",
+						numEvents,
+						numSources,
+						javaBytes.length,
+						eptoBytes.length,
+						(double) javaBytes.length / eptoBytes.length,
+						encodeRate(java, ball),
+						encodeRate(epto, ball),
+						decodeRate(java, javaBytes, manifest),
+						decodeRate(epto, eptoBytes, manifest)));
+			}
+		}
+		system.terminate();
+	}
+}
@@ -0,0 +1,92 @@
+package com.ds2.jepto.actors.simulation;
+
+import java.util.PriorityQueue;
+
+/**
+ * Virtual clock of the simulation and the actions scheduled
+ * on it, in milliseconds.
+ *
+ * Actions scheduled at the same time run in the order they
+ * were scheduled, hence a run depends on the seed only.
+ */
+public class EventQueue {
+
+	private static class Entry implements Comparable<Entry> {
+		private final long     time;
+		private final long     seq;
+		private final Runnable action;
+
+		private Entry(long time, long seq, Runnable action) {
+			this.time   = time;
+			this.seq    = seq;
+			this.action = action;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int cmp = Long.compare(this.time, other.time);
+			if (cmp != 0)
+				return cmp;
+			return Long.compare(this.seq, other.seq);
+		}
+	}
+
+	private final PriorityQueue<Entry> entries;
+	private long now;
+	private long seq;       // number of actions scheduled
+	private long processed; // number of actions run
+
+	public EventQueue() {
+		this.entries   = new PriorityQueue<>(1 << 16);
+		this.now       = 0;
+		this.seq       = 0;
+		this.processed = 0;
+	}
+
+	public long now() {
+		return this.now;
+	}
+
+	/**
+	 * Schedule the action at the given time, not earlier
+	 * than the current one.
+	 *
+	 * @param time
+	 * @param action
+	 */
+	public void at(long time, Runnable action) {
+		if (time < this.now)
+			throw new IllegalArgumentException("Cannot schedule at " + time +
+					", the time is " + this.now);
+		this.entries.add(new Entry(time, this.seq++, action));
+	}
+
+	public void after(long delay, Runnable action) {
+		this.at(this.now + delay, action);
+	}
+
+	/**
+	 * Run the actions scheduled up to the given time,
+	 * included, then move the clock to it.
+	 *
+	 * @param end
+	 */
+	public void runUntil(long end) {
+		Entry entry;
+		while ((entry = this.entries.peek()) != null && entry.time <= end) {
+			this.entries.poll();
+			this.now = entry.time;
+			entry.action.run();
+			this.processed++;
+		}
+		this.now = Math.max(this.now, end);
+	}
+
+	public int size() {
+		return this.entries.size();
+	}
+
+	public long getProcessed() {
+		return processed;
+	}
+}
@@ -0,0 +1,48 @@
+package com.ds2.jepto.actors.simulation;
+
+import java.util.Random;
+
+import com.typesafe.config.Config;
+
+/**
+ * Delay, in milliseconds, of a message between two nodes.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+	public long sample(int from, int to, Random prng);
+
+	/**
+	 * Return the model described by the configuration:
+	 * <pre>
+	 * { model = constant, delay = 50 }
+	 * { model = uniform, min = 10, max = 100 }
+	 * { model = exponential, min = 10, mean = 50 }
+	 * </pre>
+	 * The exponential model adds to min an exponential delay
+	 * with the given mean, giving a long tail.
+	 *
+	 * @param config
+	 * @return
+	 */
+	public static LatencyModel fromConfig(Config config) {
+		String model = config.getString("model");
+		switch (model) {
+		case "constant":
+			long delay = config.getLong("delay");
+			return (from, to, prng) -> delay;
+		case "uniform":
+			long min = config.getLong("min");
+			long max = config.getLong("max");
+			if (max < min)
+				throw new IllegalArgumentException("Latency max lower than min");
+			return (from, to, prng) -> min + (long) (prng.nextDouble() * (max - min + 1));
+		case "exponential":
+			long base = config.getLong("min");
+			double mean = config.getDouble("mean");
+			return (from, to, prng) -> base + (long) (-mean * Math.log(1.0 - prng.nextDouble()));
+		default:
+			throw new IllegalArgumentException("Unknown latency model " + model);
+		}
+	}
+}
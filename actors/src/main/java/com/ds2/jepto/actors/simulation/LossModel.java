@@ -0,0 +1,39 @@
+package com.ds2.jepto.actors.simulation;
+
+import java.util.Random;
+
+import com.typesafe.config.Config;
+
+/**
+ * Decide whether a message between two nodes is lost.
+ */
+@FunctionalInterface
+public interface LossModel {
+
+	public boolean drop(int from, int to, Random prng);
+
+	/**
+	 * Return the model described by the configuration:
+	 * <pre>
+	 * { model = none }
+	 * { model = bernoulli, rate = 0.01 }
+	 * </pre>
+	 *
+	 * @param config
+	 * @return
+	 */
+	public static LossModel fromConfig(Config config) {
+		String model = config.getString("model");
+		switch (model) {
+		case "none":
+			return (from, to, prng) -> false;
+		case "bernoulli":
+			double rate = config.getDouble("rate");
+			if (rate <= 0)
+				return (from, to, prng) -> false;
+			return (from, to, prng) -> prng.nextDouble() < rate;
+		default:
+			throw new IllegalArgumentException("Unknown loss model " + model);
+		}
+	}
+}
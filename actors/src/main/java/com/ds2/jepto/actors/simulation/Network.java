@@ -0,0 +1,53 @@
+package com.ds2.jepto.actors.simulation;
+
+import java.util.Random;
+
+/**
+ * Deliver the messages between the simulated nodes through
+ * the event queue, delayed and dropped by the given models.
+ */
+public class Network {
+
+	private final EventQueue   queue;
+	private final LatencyModel latency;
+	private final LossModel    loss;
+	private final Random       prng;
+
+	private long sent;
+	private long dropped;
+
+	public Network(EventQueue queue, LatencyModel latency, LossModel loss, long seed) {
+		super();
+		this.queue   = queue;
+		this.latency = latency;
+		this.loss    = loss;
+		this.prng    = new Random(seed);
+		this.sent    = 0;
+		this.dropped = 0;
+	}
+
+	/**
+	 * Run the delivery of a message from a node to
+	 * another one, unless the message is lost.
+	 *
+	 * @param from
+	 * @param to
+	 * @param delivery
+	 */
+	public void send(int from, int to, Runnable delivery) {
+		this.sent++;
+		if (this.loss.drop(from, to, this.prng)) {
+			this.dropped++;
+			return;
+		}
+		this.queue.after(this.latency.sample(from, to, this.prng), delivery);
+	}
+
+	public long getSent() {
+		return sent;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+}
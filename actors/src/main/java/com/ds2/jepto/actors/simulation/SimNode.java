@@ -0,0 +1,216 @@
+package com.ds2.jepto.actors.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.ds2.jepto.actors.DeliveredSet;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.EventBuffer;
+import com.ds2.jepto.actors.EventMap;
+import com.ds2.jepto.actors.OrderingComponent;
+import com.ds2.jepto.actors.PackedEventMap;
+import com.ds2.jepto.actors.cyclon.CyclonView;
+import com.ds2.jepto.actors.cyclon.ShuffleRate;
+
+/**
+ * A simulated EpTO node: the dissemination component as run
+ * by the actor, without eager relays nor push-pull, and the
+ * ordering component and the Cyclon view shared with it.
+ *
+ * Nodes are identified by their index in the list of nodes,
+ * which is also the node id stamped on their events.
+ */
+public class SimNode {
+
+	// ids tracked above the watermark of each source, kept
+	// small as every node tracks every sender
+	private static final int DELIVERED_WINDOW = 128;
+
+	private final int                id;
+	private final List<SimNode>      nodes;
+	private final EventQueue         queue;
+	private final Network            network;
+	private final SimReport          report;
+	private final CyclonView<Integer> view;
+	private final OrderingComponent  ordering;
+
+	private final int  numReceivers;
+	private final long roundInterval;
+	private final ShuffleRate shuffleRate;
+	private int        shuffleTimer;    // the only scheduled shuffle not cancelled
+	private long       shuffleMessages; // requests and replies, sent
+
+	private EventBuffer nextBall;
+	private long        clock;       // logical clock
+	private int         nextEventId;
+	private List<Long>  submitted;   // submission times, broadcast at the next round
+
+	public SimNode(int id,
+			List<SimNode> nodes,
+			EventQueue queue,
+			Network network,
+			SimReport report,
+			long maxTtl,
+			int numReceivers,
+			long roundInterval,
+			int viewSize,
+			int shuffleLength,
+			long shufflePeriod,
+			long shufflePeriodMax,
+			long seed,
+			boolean asPaper,
+			boolean packedBalls) {
+		super();
+		this.id       = id;
+		this.nodes    = nodes;
+		this.queue    = queue;
+		this.network  = network;
+		this.report   = report;
+		this.view     = new CyclonView<Integer>(viewSize, shuffleLength, new Random(seed));
+		this.ordering = new OrderingComponent(maxTtl, asPaper, new DeliveredSet(DELIVERED_WINDOW));
+		this.numReceivers  = numReceivers;
+		this.roundInterval = roundInterval;
+		this.shuffleRate   = new ShuffleRate(shufflePeriod, shufflePeriodMax);
+		this.shuffleTimer    = 0;
+		this.shuffleMessages = 0;
+		this.nextBall    = packedBalls ? new PackedEventMap() : new EventMap();
+		this.clock       = 0;
+		this.nextEventId = 0;
+		this.submitted   = new ArrayList<>();
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public CyclonView<Integer> getView() {
+		return view;
+	}
+
+	public long getShuffleMessages() {
+		return shuffleMessages;
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                  CYCLON                                   */
+/*---------------------------------------------------------------------------*/
+	public void join(int tracker) {
+		if (tracker != this.id)
+			this.view.join(tracker);
+	}
+
+	/**
+	 * Start shuffling the view after the given delay, then
+	 * once per shuffle period, adapted as by the actors.
+	 *
+	 * @param delay
+	 */
+	public void startShuffling(long delay) {
+		this.scheduleShuffle(delay);
+	}
+
+	private void scheduleShuffle(long delay) {
+		int timer = ++this.shuffleTimer;
+		this.queue.after(delay, () -> {
+			if (timer == this.shuffleTimer)
+				this.shuffle();
+		});
+	}
+
+	private void shuffle() {
+		CyclonView.Shuffle<Integer> shuffle = this.view.startShuffle(this.id);
+		if (shuffle != null) {
+			SimNode target = this.nodes.get(shuffle.getTarget());
+			this.shuffleMessages++;
+			this.network.send(this.id, target.id,
+					() -> target.onShuffleRequest(this.id, shuffle.getId(), shuffle.getEntries()));
+		}
+		this.scheduleShuffle(this.shuffleRate.next(this.view));
+	}
+
+	private void onShuffleRequest(int from, int shuffleId, Map<Integer, Long> entries) {
+		Map<Integer, Long> reply = this.view.onRequest(entries, this.id);
+		SimNode sender = this.nodes.get(from);
+		this.shuffleMessages++;
+		this.network.send(this.id, from,
+				() -> sender.onShuffleReply(shuffleId, reply));
+		this.onMerge();
+	}
+
+	private void onShuffleReply(int shuffleId, Map<Integer, Long> reply) {
+		this.view.onReply(shuffleId, reply, this.id);
+		this.onMerge();
+	}
+
+	private void onMerge() {
+		if (this.shuffleRate.onMerge(this.view) && this.shuffleTimer > 0)
+			this.scheduleShuffle(this.shuffleRate.getPeriod());
+	}
+
+/*---------------------------------------------------------------------------*/
+/*                                   EpTO                                    */
+/*---------------------------------------------------------------------------*/
+	/**
+	 * Start the rounds after the given delay.
+	 *
+	 * @param delay
+	 */
+	public void startRounds(long delay) {
+		this.queue.after(delay, this::round);
+	}
+
+	/**
+	 * Submit an event, broadcast at the next round.
+	 */
+	public void submit() {
+		this.submitted.add(this.queue.now());
+	}
+
+	private void broadcast() {
+		for (long submitTime : this.submitted) {
+			Event event = new Event(this.nextEventId++,
+					Action.DO,
+					null,
+					this.id,
+					++this.clock,
+					0);
+			this.nextBall.insert(event);
+			this.report.broadcast(this.id, event.getId(), submitTime);
+		}
+		this.submitted.clear();
+	}
+
+	private void receiveBall(List<Event> events) {
+		for (Event event : events) {
+			if (event.getTtl() < this.ordering.MAX_TTL)
+				this.nextBall.merge(event);
+			if (event.getTimestamp() > this.clock)
+				this.clock = event.getTimestamp();
+		}
+	}
+
+	private void round() {
+		this.broadcast();
+		this.nextBall.incrementTtl();
+		EventBuffer ball = this.nextBall.freeze();
+		this.nextBall = ball.next();
+		List<Event> events = ball.toList();
+		if (!events.isEmpty()) {
+			for (Integer peer : this.view.getPeers(this.numReceivers)) {
+				SimNode receiver = this.nodes.get(peer);
+				this.network.send(this.id, receiver.id, () -> receiver.receiveBall(events));
+			}
+		}
+		this.ordering.nextRound();
+		for (Event event : events) {
+			this.ordering.receive(event);
+		}
+		List<Event> delivered = this.ordering.deliver();
+		if (!delivered.isEmpty())
+			this.report.deliver(this.id, delivered, this.queue.now());
+		this.queue.after(this.roundInterval, this::round);
+	}
+}
@@ -0,0 +1,202 @@
+package com.ds2.jepto.actors.simulation;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.EventKey;
+
+/**
+ * Collect the broadcasts and the deliveries of a simulation:
+ * the distribution of the delivery latency, from the submission
+ * of an event to its delivery by each node, the order violations
+ * and the missing deliveries.
+ *
+ * Every node must deliver the events in increasing (timestamp,
+ * source id) order, hence a delivery not following the previous
+ * one of the same node in this order is a violation, and any
+ * two nodes deliver the events they have in common in the same
+ * order. A hole is a delivery missing at a node, because the
+ * event was discarded or never received.
+ *
+ * The report also keeps a digest of every delivery, with
+ * its node and its time: two runs with the same seed and
+ * configuration must have the same digest.
+ */
+public class SimReport {
+
+	private static class Record {
+		private final long submitTime;
+		private int        deliveries;
+
+		private Record(long submitTime) {
+			this.submitTime = submitTime;
+			this.deliveries = 0;
+		}
+	}
+
+	private final int               numNodes;
+	private final Map<Long, Record> events;    // by packed event key
+	private final long[]            lastOrderKey; // per node
+
+	private long[] latencies; // number of deliveries per latency millis
+	private long   deliveries;
+	private long   violations;
+	private long   digest;
+
+	public SimReport(int numNodes) {
+		super();
+		this.numNodes     = numNodes;
+		this.events       = new HashMap<>();
+		this.lastOrderKey = new long[numNodes];
+		Arrays.fill(this.lastOrderKey, Long.MIN_VALUE);
+		this.latencies  = new long[1024];
+		this.deliveries = 0;
+		this.violations = 0;
+		this.digest     = 17;
+	}
+
+	public void broadcast(int sourceId, int eventId, long submitTime) {
+		this.events.put(EventKey.pack(sourceId, eventId), new Record(submitTime));
+	}
+
+	/**
+	 * Record the events delivered by a node within a round.
+	 *
+	 * @param nodeId
+	 * @param delivered in delivery order
+	 * @param time
+	 */
+	public void deliver(int nodeId, List<Event> delivered, long time) {
+		for (Event event : delivered) {
+			long key = EventKey.pack(event.getSourceId(), event.getId());
+			long orderKey = event.getOrderKey();
+			if (orderKey <= this.lastOrderKey[nodeId])
+				this.violations++;
+			this.lastOrderKey[nodeId] = orderKey;
+			this.deliveries++;
+			this.digest = 31 * (31 * (31 * this.digest + nodeId) + key) + time;
+			Record record = this.events.get(key);
+			if (record == null)
+				continue;
+			record.deliveries++;
+			int latency = (int) Math.min(Integer.MAX_VALUE - 1, time - record.submitTime);
+			if (latency >= this.latencies.length)
+				this.latencies = Arrays.copyOf(this.latencies,
+						Math.max(latency + 1, this.latencies.length << 1));
+			this.latencies[latency]++;
+		}
+	}
+
+	public long getBroadcasts() {
+		return this.events.size();
+	}
+
+	public long getDeliveries() {
+		return deliveries;
+	}
+
+	public long getViolations() {
+		return violations;
+	}
+
+	/**
+	 * Return the number of deliveries missing, over all the
+	 * events broadcast and all the nodes.
+	 */
+	public long getHoles() {
+		long holes = 0;
+		for (Record record : this.events.values()) {
+			holes += this.numNodes - record.deliveries;
+		}
+		return holes;
+	}
+
+	/**
+	 * Return the number of events delivered by every node.
+	 */
+	public long getComplete() {
+		long complete = 0;
+		for (Record record : this.events.values()) {
+			if (record.deliveries == this.numNodes)
+				complete++;
+		}
+		return complete;
+	}
+
+	public long getDigest() {
+		return digest;
+	}
+
+	/**
+	 * Return the latency, in millis, below which the given
+	 * fraction of the deliveries falls, -1 if none.
+	 *
+	 * @param fraction
+	 * @return
+	 */
+	public long getLatencyPercentile(double fraction) {
+		long total = 0;
+		for (long count : this.latencies)
+			total += count;
+		if (total == 0)
+			return -1;
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int latency = 0; latency < this.latencies.length; latency++) {
+			seen += this.latencies[latency];
+			if (seen >= Math.max(1, rank))
+				return latency;
+		}
+		return this.latencies.length - 1;
+	}
+
+	public double getLatencyMean() {
+		double sum = 0;
+		long total = 0;
+		for (int latency = 0; latency < this.latencies.length; latency++) {
+			sum   += (double) latency * this.latencies[latency];
+			total += this.latencies[latency];
+		}
+		return total == 0 ? 0 : sum / total;
+	}
+
+	public void print(PrintStream out) {
+		out.println(String.format("Broadcasts:\t\t%d", this.getBroadcasts()));
+		out.println(String.format("Deliveries:\t\t%d", this.deliveries));
+		out.println(String.format("Delivered by all:\t%d (%.2f %%)",
+				this.getComplete(),
+				this.events.isEmpty() ? 0.0 : 100.0 * this.getComplete() / this.events.size()));
+		out.println(String.format("Holes:\t\t\t%d", this.getHoles()));
+		out.println(String.format("Order violations:\t%d", this.violations));
+		out.println(String.format("Latency ms:\t\tmean %.1f p50 %d p90 %d p99 %d p99.9 %d max %d",
+				this.getLatencyMean(),
+				this.getLatencyPercentile(0.5),
+				this.getLatencyPercentile(0.9),
+				this.getLatencyPercentile(0.99),
+				this.getLatencyPercentile(0.999),
+				this.getLatencyPercentile(1.0)));
+		out.println(String.format("Digest:\t\t\t%016x", this.digest));
+	}
+
+	/**
+	 * Write the latency distribution as csv lines
+	 * (latency millis, deliveries), omitting empty ones.
+	 *
+	 * @param path
+	 * @throws FileNotFoundException
+	 */
+	public void writeLatencies(String path) throws FileNotFoundException {
+		try (PrintStream out = new PrintStream(path)) {
+			out.println("latency_ms,deliveries");
+			for (int latency = 0; latency < this.latencies.length; latency++) {
+				if (this.latencies[latency] > 0)
+					out.println(latency + "," + this.latencies[latency]);
+			}
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package com.ds2.jepto.actors.simulation;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Deterministic discrete-event simulation of EpTO over Cyclon,
+ * in virtual time, within a single thread.
+ *
+ * Every node joins the first one, as in the star topology of
+ * {@link com.ds2.jepto.actors.EptoMain}, and shuffles its view
+ * during the warm-up, then the rounds start, each node with a
+ * random phase. The senders submit events at the given rate,
+ * with exponential inter-arrival times, for the given duration,
+ * and the rounds go on until every event can be delivered.
+ *
+ * Every random choice derives from the seed, and actions
+ * scheduled at the same time run in scheduling order, hence
+ * two runs with the same configuration are identical.
+ *
+ * Run it with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.simulation.Simulator -Drun.config=simulation.conf
+ * </pre>
+ */
+public class Simulator {
+
+	private static final String PREFIX = "jepto.simulation.";
+
+	private final int     numNodes;
+	private final int     numReceivers;
+	private final long    maxTtl;
+	private final long    roundInterval;
+	private final boolean asPaper;
+	private final boolean packedBalls;
+	private final int     viewSize;
+	private final int     shuffleLength;
+	private final long    shufflePeriod;
+	private final long    shufflePeriodMax;
+	private final int     warmupShuffles;
+	private final int     numSenders;
+	private final double  rate;     // events/s, over all the senders
+	private final long    duration; // millis of event submissions
+	private final long    seed;
+
+	private final EventQueue    queue;
+	private final Network       network;
+	private final SimReport     report;
+	private final List<SimNode> nodes;
+	private final Random        prng; // workload
+
+	private List<SimNode> senders;
+	private long lastViewsTime;
+	private long lastViewsMessages;
+	private long          workloadEnd;
+
+	public Simulator(Config config) {
+		this(config, LatencyModel.fromConfig(config.getConfig(PREFIX + "network.latency")),
+				LossModel.fromConfig(config.getConfig(PREFIX + "network.loss")));
+	}
+
+	public Simulator(Config config, LatencyModel latency, LossModel loss) {
+		super();
+		this.numNodes = config.getInt(PREFIX + "num-nodes");
+		if (this.numNodes < 2)
+			throw new IllegalArgumentException("Too few nodes defined");
+		// 0 for the formulas of the readme, with c = 1
+		int k = config.getInt(PREFIX + "num-receivers");
+		this.numReceivers = k > 0 ? k :
+			(int) Math.ceil(2 * Math.E * Math.log(this.numNodes) / Math.log(Math.log(this.numNodes)));
+		long ttl = config.getLong(PREFIX + "max-ttl");
+		this.maxTtl = ttl > 0 ? ttl :
+			2 * (long) Math.ceil(2 * Math.log(this.numNodes) / Math.log(2)) + 1;
+		this.roundInterval  = config.getLong(PREFIX + "round-interval");
+		this.asPaper        = config.getBoolean(PREFIX + "as-paper");
+		this.packedBalls    = config.getBoolean(PREFIX + "packed-balls");
+		this.viewSize       = config.getInt(PREFIX + "cyclon.view-size");
+		this.shuffleLength  = config.getInt(PREFIX + "cyclon.shuffle-length");
+		this.shufflePeriod  = config.getLong(PREFIX + "cyclon.shuffle-period-millis");
+		this.warmupShuffles = config.getInt(PREFIX + "cyclon.warmup-shuffles");
+		// 0, or missing, to keep the shuffle period fixed
+		this.shufflePeriodMax = config.hasPath(PREFIX + "cyclon.shuffle-period-max-millis") ?
+				config.getLong(PREFIX + "cyclon.shuffle-period-max-millis") : 0l;
+		this.numSenders = Math.min(config.getInt(PREFIX + "workload.num-senders"), this.numNodes);
+		this.rate       = config.getDouble(PREFIX + "workload.rate");
+		this.duration   = config.getLong(PREFIX + "workload.duration") * 1000l;
+		this.seed       = config.getLong(PREFIX + "seed");
+
+		this.queue   = new EventQueue();
+		this.network = new Network(this.queue, latency, loss, this.seed);
+		this.report  = new SimReport(this.numNodes);
+		this.prng    = new Random(this.seed + 1);
+		this.nodes   = new ArrayList<>(this.numNodes);
+		for (int i = 0; i < this.numNodes; i++) {
+			this.nodes.add(new SimNode(i,
+					this.nodes,
+					this.queue,
+					this.network,
+					this.report,
+					this.maxTtl,
+					this.numReceivers,
+					this.roundInterval,
+					this.viewSize,
+					this.shuffleLength,
+					this.shufflePeriod,
+					this.shufflePeriodMax > 0 ? this.shufflePeriodMax : this.shufflePeriod,
+					// as the seeds of the actors
+					this.seed + i,
+					this.asPaper,
+					this.packedBalls));
+		}
+	}
+
+	public int getNumReceivers() {
+		return numReceivers;
+	}
+
+	public long getMaxTtl() {
+		return maxTtl;
+	}
+
+	public SimReport getReport() {
+		return report;
+	}
+
+	private void submit() {
+		this.senders.get(this.prng.nextInt(this.senders.size())).submit();
+		long delay = (long) (-1000.0 / this.rate * Math.log(1.0 - this.prng.nextDouble()));
+		if (this.queue.now() + delay < this.workloadEnd)
+			this.queue.after(delay, this::submit);
+	}
+
+	/**
+	 * Print the in-degree of the nodes within the views, far
+	 * from uniform if the warm-up is too short, and the shuffle
+	 * messages sent per node and per second since the last time.
+	 * Its standard deviation measures how random the views are:
+	 * about sqrt(view size) for views of peers picked at random.
+	 *
+	 * @param when
+	 */
+	private void printViews(String when) {
+		int[] inDegree = new int[this.numNodes];
+		long messages = 0;
+		for (SimNode node : this.nodes) {
+			for (Integer peer : node.getView().getAges().keySet()) {
+				inDegree[peer]++;
+			}
+			messages += node.getShuffleMessages();
+		}
+		int isolated = 0;
+		int max = 0;
+		long sum = 0;
+		long squares = 0;
+		for (int degree : inDegree) {
+			if (degree == 0)
+				isolated++;
+			max = Math.max(max, degree);
+			sum += degree;
+			squares += (long) degree * degree;
+		}
+		double mean = (double) sum / this.numNodes;
+		double deviation = Math.sqrt(Math.max(0, (double) squares / this.numNodes - mean * mean));
+		long elapsed = this.queue.now() - this.lastViewsTime;
+		System.out.println(String.format("Views %s: isolated nodes %d, max in-degree %d, " +
+				"in-degree std dev %.2f, shuffle messages %.3f per node per second",
+				when, isolated, max, deviation,
+				elapsed == 0 ? 0 : (messages - this.lastViewsMessages) * 1000.0 / elapsed / this.numNodes));
+		this.lastViewsTime     = this.queue.now();
+		this.lastViewsMessages = messages;
+	}
+
+	/**
+	 * Run the simulation, printing the progress every
+	 * tenth of it when verbose.
+	 *
+	 * @param verbose
+	 * @return the virtual millis simulated
+	 */
+	public long run(boolean verbose) {
+		// star topology centered at the first node
+		for (SimNode node : this.nodes) {
+			node.join(0);
+			node.startShuffling(Math.floorMod(this.prng.nextLong(), this.shufflePeriod));
+		}
+		long start = this.warmupShuffles * this.shufflePeriod;
+		for (SimNode node : this.nodes) {
+			node.startRounds(start + Math.floorMod(this.prng.nextLong(), this.roundInterval));
+		}
+		List<SimNode> shuffled = new ArrayList<>(this.nodes);
+		Collections.shuffle(shuffled, this.prng);
+		this.senders     = shuffled.subList(0, this.numSenders);
+		this.workloadEnd = start + this.duration;
+		if (this.rate > 0 && this.duration > 0)
+			this.queue.at(start, this::submit);
+		// every event submitted is delivered within max ttl + 2
+		// rounds, the last one being stamped at the next round
+		long end = this.workloadEnd + 2 * (this.maxTtl + 2) * this.roundInterval;
+		this.queue.runUntil(start);
+		if (verbose)
+			this.printViews("after warm-up");
+		long wallStart = System.nanoTime();
+		for (int step = 1; step <= 10; step++) {
+			this.queue.runUntil(end * step / 10);
+			if (verbose)
+				System.out.println(String.format("%3d %% virtual %8d s wall %8.1f s actions %12d queued %10d",
+						step * 10,
+						this.queue.now() / 1000,
+						(System.nanoTime() - wallStart) / 1e9,
+						this.queue.getProcessed(),
+						this.queue.size()));
+		}
+		if (verbose)
+			this.printViews("at the end");
+		return end;
+	}
+
+	public static void main(String[] args) throws FileNotFoundException {
+		String runConfigPath = System.getProperty("run.config", "simulation.conf");
+		// try to parse the config file as an external
+		// file. If it fails, default to a file within the classpath
+		File configFile = new File(runConfigPath);
+		Config config = configFile.exists() ?
+				ConfigFactory.parseFile(configFile).withFallback(ConfigFactory.parseResources("simulation.conf")) :
+				ConfigFactory.parseResources(runConfigPath);
+		config = config.resolve();
+
+		Simulator simulator = new Simulator(config);
+		System.out.println(String.format("Nodes %d, K %d, max ttl %d, round interval %d ms",
+				simulator.numNodes, simulator.numReceivers, simulator.maxTtl, simulator.roundInterval));
+		long wallStart = System.nanoTime();
+		long end = simulator.run(true);
+		double wall = (System.nanoTime() - wallStart) / 1e9;
+		System.out.println(String.format("Simulated %d s, %d rounds per node, in %.1f s",
+				end / 1000, (end - simulator.workloadEnd + simulator.duration) / simulator.roundInterval, wall));
+		System.out.println(String.format("Messages:\t\t%d sent, %d dropped",
+				simulator.network.getSent(), simulator.network.getDropped()));
+		simulator.report.print(System.out);
+		if (config.hasPath(PREFIX + "report-file") &&
+				!config.getString(PREFIX + "report-file").isEmpty()) {
+			simulator.report.writeLatencies(config.getString(PREFIX + "report-file"));
+		}
+	}
+}
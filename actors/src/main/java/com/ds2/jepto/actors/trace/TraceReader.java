@@ -0,0 +1,225 @@
+package com.ds2.jepto.actors.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Read a trace written by a {@link TraceRecorder}, memory
+ * mapping the file. The header takes 32 bytes:
+ * <pre>
+ * long magic    "EPTOTRC1"
+ * int  size     of a record, in bytes
+ * int  reserved
+ * long count    of the records flushed
+ * long dropped  records, the rings being full
+ * </pre>
+ * followed by the records (see {@link TraceRecord}).
+ *
+ * Records are accessed by index, in file order, without
+ * allocations. Run it to print a summary of a trace, or
+ * every record in time order:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.ds2.jepto.actors.trace.TraceReader -Dexec.args="trace.bin [dump]"
+ * </pre>
+ */
+public class TraceReader implements AutoCloseable {
+
+	/**
+	 * Receive the fields of every record.
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+		public void visit(int type, int node, long time, long clock, int a, int b);
+	}
+
+	// records of a mapped buffer, a power of 2
+	private static final int CHUNK_SHIFT   = 25;
+	private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK    = CHUNK_RECORDS - 1;
+
+	private final RandomAccessFile   raf;
+	private final MappedByteBuffer[] chunks;
+	private final long size;
+	private final long dropped;
+
+	public TraceReader(File file) throws IOException {
+		super();
+		this.raf = new RandomAccessFile(file, "r");
+		FileChannel channel = this.raf.getChannel();
+		if (channel.size() < TraceRecorder.HEADER_SIZE)
+			throw new IOException("Not a trace: " + file);
+		MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, TraceRecorder.HEADER_SIZE);
+		if (header.getLong(0) != TraceRecorder.MAGIC || header.getInt(8) != TraceRecord.SIZE)
+			throw new IOException("Not a trace: " + file);
+		long available = (channel.size() - TraceRecorder.HEADER_SIZE) / TraceRecord.SIZE;
+		this.size    = Math.min(header.getLong(16), available);
+		this.dropped = header.getLong(24);
+		int numChunks = (int) ((this.size + CHUNK_RECORDS - 1) >>> CHUNK_SHIFT);
+		this.chunks = new MappedByteBuffer[numChunks];
+		for (int i = 0; i < numChunks; i++) {
+			long first = (long) i << CHUNK_SHIFT;
+			long records = Math.min(CHUNK_RECORDS, this.size - first);
+			this.chunks[i] = channel.map(MapMode.READ_ONLY,
+					TraceRecorder.HEADER_SIZE + first * TraceRecord.SIZE,
+					records * TraceRecord.SIZE);
+		}
+	}
+
+	public long size() {
+		return this.size;
+	}
+
+	public long getDropped() {
+		return this.dropped;
+	}
+
+	private MappedByteBuffer chunk(long index) {
+		return this.chunks[(int) (index >>> CHUNK_SHIFT)];
+	}
+
+	private static int offset(long index) {
+		return (int) (index & CHUNK_MASK) * TraceRecord.SIZE;
+	}
+
+	public int getType(long index) {
+		return this.chunk(index).getInt(offset(index));
+	}
+
+	public int getNode(long index) {
+		return this.chunk(index).getInt(offset(index) + 4);
+	}
+
+	public long getTime(long index) {
+		return this.chunk(index).getLong(offset(index) + 8);
+	}
+
+	public long getClock(long index) {
+		return this.chunk(index).getLong(offset(index) + 16);
+	}
+
+	public int getA(long index) {
+		return this.chunk(index).getInt(offset(index) + 24);
+	}
+
+	public int getB(long index) {
+		return this.chunk(index).getInt(offset(index) + 28);
+	}
+
+	public void visit(long index, Visitor visitor) {
+		MappedByteBuffer chunk = this.chunk(index);
+		int offset = offset(index);
+		visitor.visit(chunk.getInt(offset),
+				chunk.getInt(offset + 4),
+				chunk.getLong(offset + 8),
+				chunk.getLong(offset + 16),
+				chunk.getInt(offset + 24),
+				chunk.getInt(offset + 28));
+	}
+
+	/**
+	 * Visit the records in file order: the records made
+	 * by the same thread are in the order they were made.
+	 *
+	 * @param visitor
+	 */
+	public void forEach(Visitor visitor) {
+		for (long i = 0; i < this.size; i++) {
+			this.visit(i, visitor);
+		}
+	}
+
+	/**
+	 * Visit the records in time order, ties in file order.
+	 * Takes 12 bytes of heap per record.
+	 *
+	 * @param visitor
+	 */
+	public void forEachByTime(Visitor visitor) {
+		if (this.size > Integer.MAX_VALUE)
+			throw new IllegalStateException("Too many records to be sorted");
+		int n = (int) this.size;
+		long[] times = new long[n];
+		for (int i = 0; i < n; i++) {
+			times[i] = this.getTime(i);
+		}
+		for (int i : sortByTime(times)) {
+			this.visit(i, visitor);
+		}
+	}
+
+	/*
+	 * Stable bottom-up merge sort of the indexes.
+	 */
+	private static int[] sortByTime(long[] times) {
+		int n = times.length;
+		int[] order = new int[n];
+		int[] tmp   = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		for (int width = 1; width < n; width <<= 1) {
+			for (int lo = 0; lo < n - width; lo += width << 1) {
+				int mid = lo + width;
+				int hi  = Math.min(lo + (width << 1), n);
+				int i = lo, j = mid, k = lo;
+				while (i < mid && j < hi)
+					tmp[k++] = times[order[j]] < times[order[i]] ? order[j++] : order[i++];
+				while (i < mid)
+					tmp[k++] = order[i++];
+				while (j < hi)
+					tmp[k++] = order[j++];
+				System.arraycopy(tmp, lo, order, lo, hi - lo);
+			}
+		}
+		return order;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.raf.close();
+	}
+
+	private static void printSummary(TraceReader reader, PrintStream out) {
+		long[] counts = new long[8];
+		Map<Integer, Long> nodes = new TreeMap<>();
+		long[] span = new long[] {Long.MAX_VALUE, Long.MIN_VALUE};
+		reader.forEach((type, node, time, clock, a, b) -> {
+			counts[type > 0 && type < counts.length ? type : 0]++;
+			nodes.merge(node, 1l, Long::sum);
+			span[0] = Math.min(span[0], time);
+			span[1] = Math.max(span[1], time);
+		});
+		out.println(String.format("Records:\t%d (%d dropped)", reader.size(), reader.getDropped()));
+		out.println(String.format("Nodes:\t\t%d", nodes.size()));
+		if (reader.size() > 0)
+			out.println(String.format("Span:\t\t%.3f s", (span[1] - span[0]) / 1e9));
+		for (int type = 0; type < counts.length; type++) {
+			if (counts[type] > 0)
+				out.println(String.format("%-14s\t%d", TraceRecord.name(type), counts[type]));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: TraceReader <trace file> [dump]");
+			System.exit(1);
+		}
+		try (TraceReader reader = new TraceReader(new File(args[0]))) {
+			if (args.length > 1 && args[1].equals("dump")) {
+				// time node type clock a b
+				PrintStream out = System.out;
+				reader.forEachByTime((type, node, time, clock, a, b) ->
+				out.println(time + " " + node + " " + TraceRecord.name(type) + " " +
+						clock + " " + a + " " + b));
+			} else {
+				printSummary(reader, System.out);
+			}
+		}
+	}
+}
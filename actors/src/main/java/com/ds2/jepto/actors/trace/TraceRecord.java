@@ -0,0 +1,40 @@
+package com.ds2.jepto.actors.trace;
+
+/**
+ * Layout and types of the records of a trace. Each record
+ * takes 32 bytes, in big endian order:
+ * <pre>
+ * int  type
+ * int  node   id of the node recording it
+ * long time   epoch nanos
+ * long clock
+ * int  a
+ * int  b
+ * </pre>
+ * The meaning of clock, a and b depends on the type.
+ */
+public final class TraceRecord {
+
+	public static final int SIZE = 32;
+
+	/** clock: timestamp, a: event id, b: payload bytes */
+	public static final int BROADCAST     = 1;
+	/** clock: logical clock, a: peers, b: events */
+	public static final int BALL_SENT     = 2;
+	/** clock: logical clock, a: events, b: chunk index, -1 for whole balls */
+	public static final int BALL_RECEIVED = 3;
+	/** clock: timestamp, a: source id, b: event id */
+	public static final int DELIVER       = 4;
+	/** clock: logical clock, a: received set size, b: events of the ball sent */
+	public static final int ROUND         = 5;
+
+	private static final String[] NAMES = new String[] {
+			"unknown", "broadcast", "ball_sent", "ball_received", "deliver", "round"};
+
+	private TraceRecord() {
+	}
+
+	public static String name(int type) {
+		return type > 0 && type < NAMES.length ? NAMES[type] : NAMES[0];
+	}
+}
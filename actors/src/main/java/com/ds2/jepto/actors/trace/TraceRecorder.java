@@ -0,0 +1,246 @@
+package com.ds2.jepto.actors.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Binary trace of the protocol, an alternative to the DEBUG
+ * logs. Records have a fixed size (see {@link TraceRecord})
+ * and are written, without locks nor allocations, to a ring
+ * buffer owned by the calling thread. A background thread
+ * drains the rings into a memory-mapped file, every few
+ * millis. A record not fitting into a full ring is dropped
+ * and counted, the callers never block.
+ *
+ * Records of the same thread are stored in the order they
+ * were made, records of different threads are interleaved:
+ * an actor moving between the threads of its dispatcher
+ * must be ordered by time, as {@link TraceReader} allows.
+ *
+ * The file starts with a header (see {@link TraceReader}),
+ * whose count of records is updated at every flush: a run
+ * killed abruptly leaves a readable trace, up to the last
+ * flush.
+ */
+public class TraceRecorder implements AutoCloseable {
+
+	static final long MAGIC       = 0x45_50_54_4f_54_52_43_31l; // EPTOTRC1
+	static final int  HEADER_SIZE = 32;
+
+	private static final int  RING_CAPACITY = 1 << 14; // records per thread
+	private static final int  RING_MASK     = RING_CAPACITY - 1;
+	private static final long CHUNK_SIZE    = 64l << 20; // bytes mapped at once
+	private static final long FLUSH_MILLIS  = 10l;
+
+	// the recorder of the JVM, if any
+	private static volatile TraceRecorder current = null;
+
+	/**
+	 * Single producer, single consumer ring of records,
+	 * packed into 4 longs each.
+	 */
+	private static class Ring {
+		private final long[]     slots = new long[RING_CAPACITY * 4];
+		private final AtomicLong head  = new AtomicLong(); // next record written
+		private volatile long    tail  = 0;                // next record flushed
+		private long             cachedTail = 0;
+
+		private boolean offer(long word0, long word1, long word2, long word3) {
+			long h = this.head.get();
+			if (h - this.cachedTail >= RING_CAPACITY) {
+				this.cachedTail = this.tail;
+				if (h - this.cachedTail >= RING_CAPACITY)
+					return false;
+			}
+			int i = (int) (h & RING_MASK) << 2;
+			this.slots[i]     = word0;
+			this.slots[i + 1] = word1;
+			this.slots[i + 2] = word2;
+			this.slots[i + 3] = word3;
+			this.head.lazySet(h + 1);
+			return true;
+		}
+	}
+
+	private final File             file;
+	private final RandomAccessFile raf;
+	private final FileChannel      channel;
+	private final MappedByteBuffer header;
+	private MappedByteBuffer       chunk;
+	private long                   chunkStart;  // file offset of the chunk
+	private long                   count;       // records flushed
+
+	private final long baseNanos; // epoch nanos minus nano time
+	private final List<Ring>        rings;
+	private final ThreadLocal<Ring> ring;
+	private final LongAdder         dropped;
+	private final Thread            flusher;
+	private volatile boolean        closed;
+
+	public TraceRecorder(File file) throws IOException {
+		super();
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (!parent.mkdirs() && !parent.exists())
+			throw new IOException("Couldn't create dir: " + parent);
+		this.file    = file;
+		this.raf     = new RandomAccessFile(file, "rw");
+		this.raf.setLength(0);
+		this.channel = this.raf.getChannel();
+		this.header  = this.channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+		this.chunkStart = HEADER_SIZE;
+		this.chunk   = this.channel.map(MapMode.READ_WRITE, this.chunkStart, CHUNK_SIZE);
+		this.count   = 0;
+		this.baseNanos = System.currentTimeMillis() * 1_000_000l - System.nanoTime();
+		this.rings   = new CopyOnWriteArrayList<>();
+		this.ring    = ThreadLocal.withInitial(() -> {
+			Ring ring = new Ring();
+			this.rings.add(ring);
+			return ring;
+		});
+		this.dropped = new LongAdder();
+		this.closed  = false;
+		this.header.putLong(0, MAGIC);
+		this.header.putInt(8, TraceRecord.SIZE);
+		this.header.putInt(12, 0);
+		this.header.putLong(16, 0l);
+		this.header.putLong(24, 0l);
+		this.flusher = new Thread(this::flushLoop, "trace-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Start recording to the given file, for the whole JVM.
+	 *
+	 * @param file
+	 * @return the recorder
+	 * @throws IOException
+	 */
+	public static synchronized TraceRecorder install(File file) throws IOException {
+		if (current != null)
+			current.close();
+		TraceRecorder recorder = new TraceRecorder(file);
+		Runtime.getRuntime().addShutdownHook(new Thread(recorder::close));
+		current = recorder;
+		return recorder;
+	}
+
+	/**
+	 * Return the recorder of the JVM, null if the
+	 * protocol is not traced.
+	 */
+	public static TraceRecorder current() {
+		return current;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Record an event of the given node, at the current time.
+	 *
+	 * @param type one of the {@link TraceRecord} types
+	 * @param node the id of the node
+	 * @param clock logical time, meaning depending on the type
+	 * @param a
+	 * @param b
+	 */
+	public void record(int type, int node, long clock, int a, int b) {
+		if (!this.ring.get().offer(
+				((long) type << 32) | (node & 0xffffffffl),
+				this.baseNanos + System.nanoTime(),
+				clock,
+				((long) a << 32) | (b & 0xffffffffl)))
+			this.dropped.increment();
+	}
+
+	public long getDropped() {
+		return this.dropped.sum();
+	}
+
+	private void flushLoop() {
+		while (!this.closed) {
+			try {
+				Thread.sleep(FLUSH_MILLIS);
+				synchronized (this) {
+					// records made after closing are lost
+					if (!this.closed)
+						this.flush();
+				}
+			} catch (InterruptedException e) {
+				// closing
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Drain every ring to the file, then update the header.
+	 */
+	private synchronized void flush() throws IOException {
+		for (Ring ring : this.rings) {
+			long head = ring.head.get();
+			for (long t = ring.tail; t < head; t++) {
+				if (this.chunk.remaining() < TraceRecord.SIZE) {
+					this.chunkStart += this.chunk.position();
+					this.chunk = this.channel.map(MapMode.READ_WRITE, this.chunkStart, CHUNK_SIZE);
+				}
+				int i = (int) (t & RING_MASK) << 2;
+				long word0 = ring.slots[i];
+				long word3 = ring.slots[i + 3];
+				this.chunk.putInt((int) (word0 >>> 32));
+				this.chunk.putInt((int) word0);
+				this.chunk.putLong(ring.slots[i + 1]);
+				this.chunk.putLong(ring.slots[i + 2]);
+				this.chunk.putInt((int) (word3 >>> 32));
+				this.chunk.putInt((int) word3);
+				this.count++;
+			}
+			ring.tail = head;
+		}
+		this.header.putLong(16, this.count);
+		this.header.putLong(24, this.dropped.sum());
+	}
+
+	/**
+	 * Flush the records left, then trim the file to
+	 * the records written.
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.closed)
+			return;
+		this.closed = true;
+		this.flusher.interrupt();
+		try {
+			this.flush();
+			this.header.force();
+			this.chunk.force();
+			long size = this.chunkStart + this.chunk.position();
+			this.channel.close();
+			this.raf.close();
+			// the mapping stays until collected, and prevents
+			// the file from shrinking on some platforms
+			try (RandomAccessFile trim = new RandomAccessFile(this.file, "rw")) {
+				trim.setLength(size);
+			} catch (IOException e) {
+				// the header tells where the records end
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if (current == this)
+			current = null;
+	}
+}
@@ -0,0 +1,112 @@
+package com.ds2.jepto.actors;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Records written from the background thread, in order and
+ * formatted as by a FileHandler with a SimpleFormatter.
+ */
+public class AsyncFileHandlerTest
+    extends TestCase
+{
+    public AsyncFileHandlerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( AsyncFileHandlerTest.class );
+    }
+
+    public void testWrittenInOrder() throws Exception
+    {
+        File file = File.createTempFile( "jepto", ".log" );
+        Logger logger = Logger.getLogger( AsyncFileHandlerTest.class.getName() );
+        logger.setUseParentHandlers( false );
+        AsyncFileHandler handler = new AsyncFileHandler( file.getPath() );
+        handler.setLevel( Level.INFO );
+        logger.addHandler( handler );
+        try
+        {
+            for ( int i = 0; i < 5000; i++ )
+            {
+                logger.logp( Level.INFO, "Source", "method",
+                        "EpTO: {0} at_{1}_{2} delivered", new Object[] { "actor_1", "100", i } );
+            }
+            logger.logp( DebugLevel.DEBUG, "Source", "method", "EpTO: filtered" );
+            handler.flush();
+            List<String> lines = Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 );
+            assertEquals( 2 * 5000, lines.size() );
+
+            logger.removeHandler( handler );
+            handler.close();
+            lines = Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 );
+            assertTrue( lines.get( 0 ).endsWith( "Source method" ) );
+            assertEquals( "INFO: EpTO: actor_1 at_100_0 delivered", lines.get( 1 ) );
+            int last = -1;
+            for ( int i = 1; i < lines.size(); i += 2 )
+            {
+                String line = lines.get( i );
+                int clock = Integer.parseInt( line.substring( line.lastIndexOf( '_' ) + 1,
+                        line.lastIndexOf( ' ' ) ).replace( ",", "" ) );
+                assertTrue( clock > last );
+                last = clock;
+            }
+        }
+        finally
+        {
+            logger.removeHandler( handler );
+            handler.close();
+            file.delete();
+        }
+    }
+
+    public void testNothingDroppedWhenFull() throws Exception
+    {
+        File file = File.createTempFile( "jepto", ".log" );
+        final AsyncFileHandler handler = new AsyncFileHandler( file.getPath(), 8 );
+        handler.setLevel( Level.INFO );
+        try
+        {
+            Thread[] threads = new Thread[4];
+            for ( int t = 0; t < threads.length; t++ )
+            {
+                threads[t] = new Thread( () -> {
+                    for ( int i = 0; i < 2000; i++ )
+                    {
+                        LogRecord record = new LogRecord( Level.INFO, "EpTO: record" );
+                        record.setSourceClassName( "Source" );
+                        record.setSourceMethodName( "method" );
+                        handler.publish( record );
+                    }
+                } );
+                threads[t].start();
+            }
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+            handler.close();
+            // ignored once closed
+            handler.publish( new LogRecord( Level.INFO, "EpTO: late" ) );
+            List<String> lines = Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 );
+            assertEquals( 2 * 4 * 2000, lines.size() );
+        }
+        finally
+        {
+            handler.close();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ds2.jepto.actors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Delivered ids tracked by a watermark and a window above
+ * it, the window sliding past the ids never delivered.
+ */
+public class DeliveredSetTest
+    extends TestCase
+{
+    public DeliveredSetTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( DeliveredSetTest.class );
+    }
+
+    public void testOutOfOrderWithinWindow()
+    {
+        DeliveredSet delivered = new DeliveredSet();
+        int[] ids = new int[] { 5, 3, 4, 0, 2, 1 };
+        for ( int id : ids )
+        {
+            assertFalse( delivered.contains( 7, id ) );
+            delivered.add( 7, id );
+            assertTrue( delivered.contains( 7, id ) );
+        }
+        // added twice, counted once
+        delivered.add( 7, 3 );
+        assertEquals( ids.length, delivered.size() );
+        for ( int id = 0; id < ids.length; id++ )
+        {
+            assertTrue( delivered.contains( 7, id ) );
+        }
+        assertFalse( delivered.contains( 7, ids.length ) );
+        assertFalse( delivered.contains( 6, 0 ) );
+        assertFalse( delivered.contains( 100, 0 ) );
+    }
+
+    public void testGapKeepsWatermark()
+    {
+        DeliveredSet delivered = new DeliveredSet();
+        delivered.add( 1, 0 );
+        for ( int id = 2; id < DeliveredSet.DEFAULT_WINDOW; id++ )
+        {
+            delivered.add( 1, id );
+        }
+        // the watermark waits at 1, every later id is in the window
+        assertFalse( delivered.contains( 1, 1 ) );
+        assertTrue( delivered.contains( 1, 2 ) );
+        assertTrue( delivered.contains( 1, DeliveredSet.DEFAULT_WINDOW - 1 ) );
+        assertFalse( delivered.contains( 1, DeliveredSet.DEFAULT_WINDOW ) );
+
+        // filled in, the watermark moves over the ids above it
+        delivered.add( 1, 1 );
+        assertTrue( delivered.contains( 1, 1 ) );
+        delivered.add( 1, 2 * DeliveredSet.DEFAULT_WINDOW - 1 );
+        assertTrue( delivered.contains( 1, 2 * DeliveredSet.DEFAULT_WINDOW - 1 ) );
+        assertFalse( delivered.contains( 1, 2 * DeliveredSet.DEFAULT_WINDOW - 2 ) );
+        assertEquals( DeliveredSet.DEFAULT_WINDOW + 1, delivered.size() );
+    }
+
+    public void testWindowSlides()
+    {
+        int window = DeliveredSet.DEFAULT_WINDOW;
+        DeliveredSet delivered = new DeliveredSet();
+        delivered.add( 2, 0 );
+        // 1 is never delivered
+        for ( int id = 2; id <= window; id++ )
+        {
+            delivered.add( 2, id );
+        }
+        assertFalse( delivered.contains( 2, 1 ) );
+
+        // the window slides past the gap, regarded as delivered
+        delivered.add( 2, window + 1 );
+        assertTrue( delivered.contains( 2, 1 ) );
+        for ( int id = 0; id <= window + 1; id++ )
+        {
+            assertTrue( delivered.contains( 2, id ) );
+        }
+        assertFalse( delivered.contains( 2, window + 2 ) );
+    }
+
+    public void testBelowWatermark()
+    {
+        int window = DeliveredSet.DEFAULT_WINDOW;
+        DeliveredSet delivered = new DeliveredSet();
+        // far beyond the window: every id left behind is below
+        // the watermark, the ones above it are not delivered
+        delivered.add( 3, 10 * window );
+        assertTrue( delivered.contains( 3, 0 ) );
+        assertTrue( delivered.contains( 3, 9 * window ) );
+        assertTrue( delivered.contains( 3, 10 * window ) );
+        assertFalse( delivered.contains( 3, 9 * window + 1 ) );
+        assertFalse( delivered.contains( 3, 10 * window - 1 ) );
+        assertFalse( delivered.contains( 3, 10 * window + 1 ) );
+
+        // adding an id below the watermark changes nothing
+        delivered.add( 3, 5 );
+        assertEquals( 1, delivered.size() );
+        delivered.add( 3, 9 * window + 1 );
+        assertTrue( delivered.contains( 3, 9 * window + 1 ) );
+        assertEquals( 2, delivered.size() );
+    }
+}
@@ -0,0 +1,57 @@
+package com.ds2.jepto.actors;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ds2.jepto.actors.Event.Action;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.PatternsCS;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Submissions to a node not running its rounds yet,
+ * rejected once too many are waiting.
+ */
+public class EptoActorTest
+    extends TestCase
+{
+    private ActorSystem system;
+
+    public EptoActorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( EptoActorTest.class );
+    }
+
+    protected void setUp()
+    {
+        system = ActorSystem.create( "EptoActorTest" );
+    }
+
+    protected void tearDown()
+    {
+        system.terminate();
+    }
+
+    public void testBroadcastRejected() throws Exception
+    {
+        ActorRef node = system.actorOf( EptoActor.props( 2, 3, 100000l, 1, 1, 100000l, 0l, 1l,
+                false, false, 0, 0, false, 0l, false, 16, 0, false ), "actor_0" );
+        for ( int i = 0; i < 16; i++ )
+        {
+            node.tell( new BroadcastMsg( Action.DO ), ActorRef.noSender() );
+        }
+        Object reply = PatternsCS.ask( node, new BroadcastMsg( Action.DONT ), 5000l )
+                .toCompletableFuture().get( 5, TimeUnit.SECONDS );
+
+        assertTrue( reply instanceof BroadcastRejectedMsg );
+        assertEquals( Action.DONT, ( (BroadcastRejectedMsg) reply ).getBroadcast().getAction() );
+    }
+}
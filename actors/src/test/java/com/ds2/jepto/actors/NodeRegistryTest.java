@@ -0,0 +1,66 @@
+package com.ds2.jepto.actors;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Order keys packing a timestamp and a node id, and
+ * their bounds.
+ */
+public class NodeRegistryTest
+    extends TestCase
+{
+    public NodeRegistryTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( NodeRegistryTest.class );
+    }
+
+    public void testOrder()
+    {
+        long max = NodeRegistry.MAX_TIMESTAMP;
+        int lastNode = NodeRegistry.MAX_NODES - 1;
+        long[] keys = new long[] {
+                NodeRegistry.orderKey( 0l, 0 ),
+                NodeRegistry.orderKey( 0l, lastNode ),
+                NodeRegistry.orderKey( 1l, 0 ),
+                NodeRegistry.orderKey( 1l, 1 ),
+                NodeRegistry.orderKey( max - 1, lastNode ),
+                NodeRegistry.orderKey( max, 0 ),
+                NodeRegistry.orderKey( max, lastNode ) };
+        for ( int i = 1; i < keys.length; i++ )
+        {
+            assertTrue( keys[i - 1] < keys[i] );
+        }
+        assertEquals( Long.MAX_VALUE, keys[keys.length - 1] );
+    }
+
+    private static void assertOutOfRange( long timestamp, int nodeId )
+    {
+        try
+        {
+            NodeRegistry.orderKey( timestamp, nodeId );
+            fail( "Packed " + timestamp + ", " + nodeId );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    public void testOutOfRange()
+    {
+        // would wrap into the key of an earlier event
+        assertOutOfRange( NodeRegistry.MAX_TIMESTAMP + 1, 0 );
+        assertOutOfRange( Long.MAX_VALUE, 0 );
+        assertOutOfRange( -1l, 0 );
+        // would spill over the timestamp
+        assertOutOfRange( 0l, NodeRegistry.MAX_NODES );
+        assertOutOfRange( 0l, -1 );
+    }
+}
@@ -0,0 +1,238 @@
+package com.ds2.jepto.actors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ds2.jepto.actors.Event.Action;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Open addressing table of the packed buffer, under
+ * removals, growth and the hand over of its arrays, and
+ * compared to the map based buffer.
+ */
+public class PackedEventMapTest
+    extends TestCase
+{
+    public PackedEventMapTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PackedEventMapTest.class );
+    }
+
+    private static Event event( int sourceId, int id, int ttl )
+    {
+        return new Event( id, Action.DO, null, sourceId, 10l * id + sourceId, ttl );
+    }
+
+    /**
+     * Slot of the key in a table of the given size, as
+     * hashed by PackedEventMap.
+     */
+    private static int home( int sourceId, int eventId, int numSlots )
+    {
+        long key = EventKey.pack( sourceId, eventId );
+        return (int) ( ( key * 0x9E3779B97F4A7C15l ) >>> 32 ) & ( numSlots - 1 );
+    }
+
+    public void testRemoveWrappedCluster()
+    {
+        // 4 entries, 8 slots: pick keys at home in the last two
+        // slots, so that their cluster wraps to the first ones
+        int numSlots = 8;
+        List<Event> cluster = new ArrayList<>();
+        for ( int id = 0; cluster.size() < 4; id++ )
+        {
+            int home = home( 1, id, numSlots );
+            if ( home == numSlots - 2 + cluster.size() % 2 )
+                cluster.add( event( 1, id, cluster.size() ) );
+        }
+        for ( int removed = 0; removed < cluster.size(); removed++ )
+        {
+            PackedEventMap map = new PackedEventMap( 4 );
+            for ( Event event : cluster )
+            {
+                map.insert( event );
+            }
+            map.remove( cluster.get( removed ) );
+            assertEquals( cluster.size() - 1, map.size() );
+            for ( int i = 0; i < cluster.size(); i++ )
+            {
+                Event event = cluster.get( i );
+                assertEquals( i != removed, map.contains( event ) );
+                assertEquals( i != removed ? i : -1, map.getTtl( event ) );
+            }
+            // removing it again, or a missing key, changes nothing
+            map.remove( cluster.get( removed ) );
+            map.remove( event( 2, 0, 0 ) );
+            assertEquals( cluster.size() - 1, map.size() );
+            map.insert( cluster.get( removed ) );
+            for ( Event event : cluster )
+            {
+                assertTrue( map.contains( event ) );
+            }
+        }
+    }
+
+    public void testGrowWithLiveEntries()
+    {
+        PackedEventMap map = new PackedEventMap( 2 );
+        int numEvents = 1000;
+        for ( int id = 0; id < numEvents; id++ )
+        {
+            map.insert( event( id % 7, id, id % 5 ) );
+            if ( id % 3 == 0 )
+                map.incrementTtl();
+        }
+        assertEquals( numEvents, map.size() );
+        map.incrementTtl();
+        for ( int id = 0; id < numEvents; id++ )
+        {
+            Event event = event( id % 7, id, 0 );
+            // aged by the rounds following its insertion
+            int rounds = 1 + ( numEvents + 2 ) / 3 - ( id + 2 ) / 3;
+            assertEquals( id % 5 + rounds, map.getTtl( event ) );
+            assertEquals( event.getTimestamp(), map.get( event ).getTimestamp() );
+        }
+        for ( int id = 0; id < numEvents; id += 2 )
+        {
+            map.remove( event( id % 7, id, 0 ) );
+        }
+        assertEquals( numEvents / 2, map.size() );
+        for ( int id = 0; id < numEvents; id++ )
+        {
+            assertEquals( id % 2 == 1, map.contains( event( id % 7, id, 0 ) ) );
+        }
+    }
+
+    public void testFreezeAndNext()
+    {
+        PackedEventMap map = new PackedEventMap( 4 );
+        for ( int id = 0; id < 10; id++ )
+        {
+            map.insert( event( 1, id, id ) );
+        }
+        map.incrementTtl();
+        assertSame( map, map.freeze() );
+        List<Event> frozen = map.toList();
+        assertEquals( 10, frozen.size() );
+        try
+        {
+            map.insert( event( 2, 0, 0 ) );
+            fail( "Inserted into a frozen buffer" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+
+        // the arrays are handed over to the next buffer, which
+        // starts empty and reuses them without touching the
+        // events of the frozen one
+        PackedEventMap next = map.next();
+        assertFalse( next.isFrozen() );
+        assertTrue( next.isEmpty() );
+        for ( int id = 0; id < 20; id++ )
+        {
+            next.insert( event( 3, id, 0 ) );
+        }
+        next.remove( event( 3, 0, 0 ) );
+        assertEquals( 19, next.size() );
+        assertFalse( next.contains( event( 1, 0, 0 ) ) );
+
+        assertSame( frozen, map.toList() );
+        assertEquals( 10, map.size() );
+        for ( int id = 0; id < 10; id++ )
+        {
+            Event event = frozen.get( id );
+            assertEquals( 1, event.getSourceId() );
+            assertEquals( id, event.getId() );
+            assertEquals( id + 1, event.getTtl() );
+            assertTrue( map.contains( event ) );
+            assertEquals( id + 1, map.getTtl( event ) );
+            assertEquals( id + 1, map.get( event ).getTtl() );
+        }
+        assertFalse( map.contains( event( 3, 1, 0 ) ) );
+        assertEquals( -1, map.getTtl( event( 3, 1, 0 ) ) );
+
+        // a frozen buffer without its arrays hands out a new one
+        PackedEventMap other = map.next();
+        assertNotSame( next, other );
+        assertTrue( other.isEmpty() );
+    }
+
+    private static void assertSameEvents( EventBuffer expected, EventBuffer actual )
+    {
+        List<Event> expectedList = expected.toSortedList();
+        List<Event> actualList = actual.toSortedList();
+        assertEquals( expectedList.size(), actualList.size() );
+        for ( int i = 0; i < expectedList.size(); i++ )
+        {
+            Event expectedEvent = expectedList.get( i );
+            Event actualEvent = actualList.get( i );
+            assertEquals( expectedEvent.getSourceId(), actualEvent.getSourceId() );
+            assertEquals( expectedEvent.getId(), actualEvent.getId() );
+            assertEquals( expectedEvent.getTtl(), actualEvent.getTtl() );
+            assertEquals( expectedEvent.getTimestamp(), actualEvent.getTimestamp() );
+        }
+    }
+
+    public void testSameAsEventMap()
+    {
+        Random prng = new Random( 11 );
+        EventBuffer expected = new EventMap();
+        EventBuffer actual = new PackedEventMap( 2 );
+        for ( int round = 0; round < 50; round++ )
+        {
+            for ( int step = 0; step < 200; step++ )
+            {
+                Event event = event( prng.nextInt( 4 ), prng.nextInt( 64 ), prng.nextInt( 6 ) );
+                switch ( prng.nextInt( 6 ) )
+                {
+                    case 0:
+                        expected.insert( event );
+                        actual.insert( event );
+                        break;
+                    case 1:
+                        expected.remove( event );
+                        actual.remove( event );
+                        break;
+                    case 2:
+                        expected.update( event );
+                        actual.update( event );
+                        break;
+                    case 3:
+                        assertEquals( expected.raiseTtl( event.getSourceId(), event.getId(), event.getTtl() ),
+                                actual.raiseTtl( event.getSourceId(), event.getId(), event.getTtl() ) );
+                        break;
+                    default:
+                        expected.merge( event );
+                        actual.merge( event );
+                        break;
+                }
+                assertEquals( expected.size(), actual.size() );
+                assertEquals( expected.contains( event ), actual.contains( event ) );
+                assertEquals( expected.getTtl( event ), actual.getTtl( event ) );
+            }
+            expected.incrementTtl();
+            actual.incrementTtl();
+            assertSameEvents( expected, actual );
+            if ( round % 10 == 9 )
+            {
+                // hand the round over, as the dissemination does
+                assertSameEvents( expected.freeze(), actual.freeze() );
+                expected = expected.next();
+                actual = actual.next();
+                assertTrue( actual.isEmpty() );
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.ds2.jepto.actors;
+
+import java.util.List;
+
+import com.ds2.jepto.actors.Event.Action;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Deliverable events taken from the received set, in
+ * delivery order and bounded by the events that are not
+ * deliverable yet.
+ */
+public class ReceivedSetTest
+    extends TestCase
+{
+    private static final long MAX_TTL = 3;
+
+    public ReceivedSetTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ReceivedSetTest.class );
+    }
+
+    private static Event event( int sourceId, int id, long timestamp, int ttl )
+    {
+        return new Event( id, Action.DO, null, sourceId, timestamp, ttl );
+    }
+
+    private static void assertEvents( List<Event> events, int... sourceIdAndId )
+    {
+        assertEquals( sourceIdAndId.length / 2, events.size() );
+        for ( int i = 0; i < events.size(); i++ )
+        {
+            assertEquals( sourceIdAndId[2 * i], events.get( i ).getSourceId() );
+            assertEquals( sourceIdAndId[2 * i + 1], events.get( i ).getId() );
+        }
+    }
+
+    private static ReceivedSet boundedBy( int boundSourceId )
+    {
+        ReceivedSet received = new ReceivedSet();
+        received.merge( event( 1, 0, 1l, 5 ) );
+        received.merge( event( 1, 1, 2l, 5 ) );
+        // not deliverable, sharing the timestamp of the second
+        received.merge( event( boundSourceId, 0, 2l, 0 ) );
+        received.merge( event( 1, 2, 3l, 5 ) );
+        return received;
+    }
+
+    public void testBoundNotInclusive()
+    {
+        for ( int boundSourceId : new int[] { 0, 2 } )
+        {
+            ReceivedSet received = boundedBy( boundSourceId );
+            assertEvents( received.removeDeliverable( MAX_TTL, false ), 1, 0 );
+            assertEquals( 3, received.size() );
+            assertFalse( received.contains( event( 1, 0, 1l, 5 ) ) );
+            assertTrue( received.contains( event( 1, 1, 2l, 5 ) ) );
+        }
+    }
+
+    public void testBoundInclusive()
+    {
+        // as in the paper, whether the bound precedes or
+        // follows the deliverable event sharing its timestamp
+        for ( int boundSourceId : new int[] { 0, 2 } )
+        {
+            ReceivedSet received = boundedBy( boundSourceId );
+            assertEvents( received.removeDeliverable( MAX_TTL, true ), 1, 0, 1, 1 );
+            assertEquals( 2, received.size() );
+            assertTrue( received.contains( event( boundSourceId, 0, 2l, 0 ) ) );
+            assertTrue( received.contains( event( 1, 2, 3l, 5 ) ) );
+        }
+    }
+
+    public void testTiesBrokenByNodeId()
+    {
+        ReceivedSet received = new ReceivedSet();
+        received.merge( event( 3, 0, 7l, 5 ) );
+        received.merge( event( 1, 4, 7l, 5 ) );
+        received.merge( event( 2, 1, 7l, 5 ) );
+        received.merge( event( 1, 2, 7l, 5 ) );
+        received.merge( event( 9, 0, 6l, 5 ) );
+
+        List<Event> delivered = received.removeDeliverable( MAX_TTL, false );
+        assertEvents( delivered, 9, 0, 1, 2, 1, 4, 2, 1, 3, 0 );
+        assertTrue( received.isEmpty() );
+        // no longer bound to the clock of the set
+        received.nextRound();
+        assertEquals( 5, delivered.get( 0 ).getTtl() );
+    }
+
+    public void testHigherTtlUpdatesStoredEvent()
+    {
+        ReceivedSet received = new ReceivedSet();
+        received.merge( event( 1, 0, 1l, 0 ) );
+        received.merge( event( 2, 0, 2l, 5 ) );
+        assertEquals( 0, received.removeDeliverable( MAX_TTL, false ).size() );
+
+        // received again within a ball of a peer that got it earlier
+        received.merge( event( 1, 0, 1l, 4 ) );
+        assertEquals( 2, received.size() );
+        assertEquals( 4, received.getTtl( event( 1, 0, 1l, 0 ) ) );
+        // a lower ttl leaves it unchanged
+        received.merge( event( 1, 0, 1l, 2 ) );
+        assertEquals( 4, received.getTtl( event( 1, 0, 1l, 0 ) ) );
+        received.nextRound();
+        assertEquals( 5, received.getTtl( event( 1, 0, 1l, 0 ) ) );
+
+        assertEvents( received.removeDeliverable( MAX_TTL, false ), 1, 0, 2, 0 );
+        assertTrue( received.isEmpty() );
+    }
+
+    public void testAgedByRounds()
+    {
+        ReceivedSet received = new ReceivedSet();
+        received.merge( event( 1, 0, 1l, 0 ) );
+        for ( int round = 0; round < MAX_TTL; round++ )
+        {
+            received.nextRound();
+            assertEquals( 0, received.removeDeliverable( MAX_TTL, false ).size() );
+        }
+        received.nextRound();
+        assertEvents( received.removeDeliverable( MAX_TTL, false ), 1, 0 );
+    }
+}
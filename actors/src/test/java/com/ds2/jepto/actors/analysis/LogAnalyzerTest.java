@@ -0,0 +1,62 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Statistics of a small execution log.
+ */
+public class LogAnalyzerTest
+    extends TestCase
+{
+    public LogAnalyzerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( LogAnalyzerTest.class );
+    }
+
+    public void testRun() throws Exception
+    {
+        File log = File.createTempFile( "jepto", ".log" );
+        try
+        {
+            try ( PrintWriter out = new PrintWriter( log ) )
+            {
+                out.println( "INFO: Run parameters" );
+                out.println( "Round interval:\t\t100" );
+                out.println( "INFO: EpTO: actor_1 at_1000_1 broadcast Event [timestamp=1, source=actor_1, id=0, action=DO, ttl=0]" );
+                out.println( "DEBUG: EpTO: actor_1 at_1010_1 sent_ball_to [actor_2, actor_3]" );
+                out.println( "DEBUG: EpTO: actor_2 at_1020_1 received_ball_from actor_1 { Event [timestamp=1, source=actor_1, id=0, action=DO, ttl=1] }" );
+                out.println( "INFO: EpTO: actor_1 at_1150_2 delivered { Event [timestamp=1, source=actor_1, id=0, action=DO, ttl=3] }" );
+                out.println( "INFO: EpTO: actor_2 at_1250_2 delivered { Event [timestamp=1, source=actor_1, id=0, action=DO, ttl=3] }" );
+            }
+            LogAnalyzer analyzer = new LogAnalyzer( 5000 );
+            analyzer.analyze( log );
+
+            assertEquals( 1, analyzer.getRuns() );
+            assertEquals( 2, analyzer.getDeliveries() );
+            assertEquals( 150, analyzer.getDelays().getMinValue() );
+            assertEquals( 250, analyzer.getDelays().getMaxValue() );
+            // windows of 100 ms from the first record
+            assertEquals( 3, analyzer.getRounds() );
+            double[] first = analyzer.getRound( 0 );
+            assertEquals( 1.0, first[0] );
+            assertEquals( 2.0, first[1] );
+            assertEquals( 1.0, first[2] );
+            assertEquals( 1.0, first[3] );
+            assertEquals( 1.0, analyzer.getRound( 1 )[4] );
+        }
+        finally
+        {
+            log.delete();
+        }
+    }
+}
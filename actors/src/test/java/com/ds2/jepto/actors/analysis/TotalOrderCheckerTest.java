@@ -0,0 +1,95 @@
+package com.ds2.jepto.actors.analysis;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import com.ds2.jepto.actors.NodeRegistry;
+import com.ds2.jepto.actors.analysis.Violation.Kind;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Violations of the total order found in the deliveries.
+ */
+public class TotalOrderCheckerTest
+    extends TestCase
+{
+    public TotalOrderCheckerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( TotalOrderCheckerTest.class );
+    }
+
+    private static long rank( long timestamp, int source )
+    {
+        return NodeRegistry.orderKey( timestamp, source );
+    }
+
+    public void testDeliveries()
+    {
+        TotalOrderChecker checker = new TotalOrderChecker();
+        for ( String node : Arrays.asList( "a", "b", "c" ) )
+        {
+            checker.deliver( node, rank( 1, 0 ), 0, 10 );
+            checker.deliver( node, rank( 1, 1 ), 0, 10 );
+        }
+        // c misses (2, 0), then b swaps (3, 0) and (3, 1)
+        checker.deliver( "a", rank( 2, 0 ), 1, 20 );
+        checker.deliver( "b", rank( 2, 0 ), 1, 20 );
+        checker.deliver( "a", rank( 3, 0 ), 2, 30 );
+        checker.deliver( "a", rank( 3, 1 ), 1, 30 );
+        checker.deliver( "b", rank( 3, 1 ), 1, 31 );
+        assertFalse( checker.deliver( "b", rank( 3, 0 ), 2, 31 ) );
+        checker.deliver( "c", rank( 3, 0 ), 2, 30 );
+        checker.deliver( "c", rank( 3, 0 ), 2, 30 );
+
+        Violation first = checker.check();
+        assertEquals( Kind.DUPLICATE, first.getKind() );
+        assertEquals( "c", first.getNode() );
+        assertEquals( 1, checker.getViolations( Kind.ORDER ) );
+        assertEquals( 1, checker.getViolations( Kind.DUPLICATE ) );
+        assertEquals( 1, checker.getViolations( Kind.AGREEMENT ) );
+        assertEquals( 14, checker.getDeliveries() );
+    }
+
+    public void testLogs() throws Exception
+    {
+        File log = File.createTempFile( "jepto", ".log" );
+        try
+        {
+            try ( PrintWriter out = new PrintWriter( log ) )
+            {
+                out.println( "INFO: EpTO: actor_1 at_100_0 node_id 1" );
+                out.println( "INFO: EpTO: actor_2 at_100_0 node_id 0" );
+                out.println( "INFO: EpTO: actor_1 at_101_1 broadcast Event [timestamp=1, source=actor_1, id=0, action=DO, ttl=0]" );
+                out.println( "INFO: EpTO: actor_2 at_101_1 broadcast Event [timestamp=1, source=actor_2, id=0, action=DO, ttl=0]" );
+                out.println( "Oct 18, 2026 2:21:20 AM com.ds2.jepto.actors.EptoActor deliverEvents" );
+                // actor_2 has the lowest id, hence comes first
+                out.println( "INFO: EpTO: actor_1 at_102_5 delivered { Event [timestamp=1, source=actor_2, id=0, action=DO, ttl=3], "
+                        + "Event [timestamp=1, source=actor_1, id=0, action=DO, ttl=3] }" );
+                out.println( "INFO: EpTO: actor_2 at_103_5 delivered { Event [timestamp=1, source=actor_1, id=0, action=DO, ttl=3], "
+                        + "Event [timestamp=1, source=actor_2, id=0, action=DO, ttl=3] }" );
+            }
+            TotalOrderChecker checker = TotalOrderChecker.checkLogs( Arrays.asList( log ) );
+            Violation first = checker.getFirstViolation();
+            assertEquals( Kind.ORDER, first.getKind() );
+            assertEquals( "actor_2", first.getNode() );
+            assertEquals( 1, first.getPosition() );
+            assertEquals( 103, first.getWall() );
+            assertEquals( 4, checker.getDeliveries() );
+            assertEquals( 0, checker.getViolations( Kind.UNKNOWN ) );
+            assertTrue( checker.describe( first ).contains( "actor_2:0@1 after actor_1:0@1" ) );
+        }
+        finally
+        {
+            log.delete();
+        }
+    }
+}
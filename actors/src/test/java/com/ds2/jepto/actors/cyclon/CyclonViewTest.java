@@ -0,0 +1,101 @@
+package com.ds2.jepto.actors.cyclon;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Shuffles between views, checking that the oldest peer is
+ * picked and the samples are distinct peers of the view.
+ */
+public class CyclonViewTest
+    extends TestCase
+{
+    public CyclonViewTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( CyclonViewTest.class );
+    }
+
+    public void testShuffles()
+    {
+        int numNodes = 50;
+        Random prng = new Random( 7 );
+        @SuppressWarnings( "unchecked" )
+        CyclonView<Integer>[] views = new CyclonView[numNodes];
+        for ( int i = 0; i < numNodes; i++ )
+        {
+            views[i] = new CyclonView<Integer>( 8, 3, new Random( i ) );
+            views[i].join( ( i + 1 ) % numNodes );
+        }
+        for ( int step = 0; step < 20000; step++ )
+        {
+            int p = prng.nextInt( numNodes );
+            CyclonView<Integer> view = views[p];
+            CyclonView.Shuffle<Integer> shuffle = view.startShuffle( p );
+            assertNotNull( shuffle );
+            long oldest = Long.MIN_VALUE;
+            for ( long age : view.getAges().values() )
+            {
+                oldest = Math.max( oldest, age );
+            }
+            assertEquals( oldest, view.getAges().get( shuffle.getTarget() ).longValue() );
+            assertFalse( shuffle.getEntries().containsKey( shuffle.getTarget() ) );
+            assertEquals( Long.valueOf( 0 ), shuffle.getEntries().get( p ) );
+            assertEquals( Math.min( 3, view.size() ), shuffle.getEntries().size() );
+            // lose some of the replies
+            if ( prng.nextInt( 10 ) > 0 )
+            {
+                int q = shuffle.getTarget();
+                Map<Integer, Long> reply = views[q].onRequest( shuffle.getEntries(), q );
+                view.onReply( shuffle.getId(), reply, p );
+            }
+            assertTrue( view.size() <= 8 );
+            assertFalse( view.contains( p ) );
+            List<Integer> peers = view.getPeers( 5 );
+            Set<Integer> distinct = new HashSet<Integer>( peers );
+            assertEquals( Math.min( 5, view.size() ), distinct.size() );
+            assertEquals( peers.size(), distinct.size() );
+            assertTrue( view.getAges().keySet().containsAll( distinct ) );
+        }
+        int full = 0;
+        for ( CyclonView<Integer> view : views )
+        {
+            if ( view.size() == 8 )
+                full++;
+        }
+        assertTrue( full > numNodes / 2 );
+    }
+
+    public void testKnownCapped()
+    {
+        CyclonView<Integer> view = new CyclonView<Integer>( 4, 2, new Random( 3 ) );
+        int numPeers = CyclonView.MAX_KNOWN + 100;
+        for ( int peer = 1; peer <= numPeers; peer++ )
+        {
+            view.onRequest( Collections.singletonMap( peer, 0l ), 0 );
+        }
+        assertEquals( numPeers, view.getDiscoveries() );
+
+        // the last ones seen are still known, the first ones
+        // are forgotten and discovered again
+        view.onRequest( Collections.singletonMap( numPeers, 0l ), 0 );
+        assertEquals( numPeers, view.getDiscoveries() );
+        view.onRequest( Collections.singletonMap( 1, 0l ), 0 );
+        assertEquals( numPeers + 1, view.getDiscoveries() );
+        // seen again, it is known
+        view.onRequest( Collections.singletonMap( 1, 0l ), 0 );
+        assertEquals( numPeers + 1, view.getDiscoveries() );
+    }
+}
@@ -0,0 +1,72 @@
+package com.ds2.jepto.actors.cyclon;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * The shuffle period backs off while shuffles are replied
+ * and discover fewer peers than shuffles, and is reset by
+ * a timeout or a wave of peers not known.
+ */
+public class ShuffleRateTest
+    extends TestCase
+{
+    public ShuffleRateTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ShuffleRateTest.class );
+    }
+
+    public void testBackOff()
+    {
+        CyclonView<Integer> view = new CyclonView<Integer>( 4, 2, new Random( 1 ) );
+        ShuffleRate rate = new ShuffleRate( 100l, 1000l );
+        view.join( 1 );
+        view.join( 2 );
+        // the peers joined are fewer than the shuffles
+        for ( int i = 0; i < ShuffleRate.STABLE_SHUFFLES - 1; i++ )
+        {
+            assertEquals( 100l, rate.next( view ) );
+        }
+        assertEquals( 200l, rate.next( view ) );
+        for ( int i = 0; i < 3 * ShuffleRate.STABLE_SHUFFLES; i++ )
+        {
+            rate.next( view );
+        }
+        assertEquals( 1000l, rate.getPeriod() );
+        assertFalse( rate.onMerge( view ) );
+
+        // a peer never seen before, as in a system larger than
+        // the view, does not reset it
+        view.onRequest( Collections.singletonMap( 3, 0l ), 0 );
+        assertFalse( rate.onMerge( view ) );
+        assertEquals( 1000l, rate.getPeriod() );
+
+        // more peers than shuffles in the window do
+        Map<Integer, Long> joined = new HashMap<Integer, Long>();
+        for ( int peer = 10; peer < 10 + ShuffleRate.STABLE_SHUFFLES; peer++ )
+        {
+            joined.put( peer, 0l );
+        }
+        view.onRequest( joined, 0 );
+        assertTrue( rate.onMerge( view ) );
+        assertEquals( 100l, rate.getPeriod() );
+
+        // a shuffle not replied
+        rate.next( view );
+        view.startShuffle( 0 );
+        view.startShuffle( 0 );
+        assertEquals( 1, view.getTimeouts() );
+        assertEquals( 100l, rate.next( view ) );
+    }
+}
@@ -0,0 +1,77 @@
+package com.ds2.jepto.actors.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.ObjectName;
+
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * The metrics of a node, as read through JMX.
+ */
+public class NodeMetricsTest
+    extends TestCase
+{
+    public NodeMetricsTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( NodeMetricsTest.class );
+    }
+
+    public void testLatencyOfOwnEvents() throws Exception
+    {
+        NodeMetrics metrics = new NodeMetrics();
+        metrics.onSubmitted();
+        metrics.onSubmitted();
+        metrics.onBroadcast( 0 );
+        metrics.onBroadcast( 1 );
+        metrics.onDelivered( Arrays.asList(
+                new Event( 0, Action.DO, null, 3, 1l, 5 ),
+                new Event( 0, Action.DO, null, 4, 1l, 5 ),
+                new Event( 1, Action.DO, null, 3, 2l, 5 ) ), 3 );
+        // delivered again, not measured twice
+        metrics.onDelivered( Arrays.asList(
+                new Event( 1, Action.DO, null, 3, 2l, 5 ) ), 3 );
+
+        assertEquals( 2, metrics.getEventsBroadcast() );
+        assertEquals( 4, metrics.getEventsDelivered() );
+        assertEquals( 2, metrics.getLatencyCount() );
+        assertTrue( metrics.getLatencyMax() >= metrics.getLatencyP50() );
+        metrics.reset();
+        assertEquals( 0, metrics.getLatencyCount() );
+    }
+
+    public void testRegistered() throws Exception
+    {
+        NodeMetrics metrics = new NodeMetrics();
+        metrics.onBallReceived( 10 );
+        metrics.onBallReceived( 20 );
+        metrics.onRound( System.nanoTime(), 1, 2, 3l, 4l );
+        metrics.register( "test", "actor_0" );
+        try
+        {
+            ObjectName name = new ObjectName(
+                    "com.ds2.jepto:type=Node,system=\"test\",name=\"actor_0\"" );
+            Object perBall = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute( name, "EventsPerBall" );
+            Object discarded = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute( name, "EventsDiscarded" );
+            assertEquals( 15.0, perBall );
+            assertEquals( 4l, discarded );
+        }
+        finally
+        {
+            metrics.unregister();
+        }
+    }
+}
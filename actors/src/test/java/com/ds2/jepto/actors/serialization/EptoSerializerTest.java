@@ -0,0 +1,370 @@
+package com.ds2.jepto.actors.serialization;
+
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ds2.jepto.actors.BallAssembler;
+import com.ds2.jepto.actors.BallChunkMsg;
+import com.ds2.jepto.actors.BallMsg;
+import com.ds2.jepto.actors.BallSplitter;
+import com.ds2.jepto.actors.BroadcastMsg;
+import com.ds2.jepto.actors.BroadcastRejectedMsg;
+import com.ds2.jepto.actors.DeliveryAckMsg;
+import com.ds2.jepto.actors.DeliveryBatch;
+import com.ds2.jepto.actors.DeliveredSet;
+import com.ds2.jepto.actors.DigestMsg;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.EventDigest;
+import com.ds2.jepto.actors.EventMap;
+import com.ds2.jepto.actors.NodeRegistry;
+import com.ds2.jepto.actors.PullMsg;
+import com.ds2.jepto.actors.PushPull;
+import com.ds2.jepto.actors.ReceivedSet;
+import com.ds2.jepto.actors.SubscriptionDroppedMsg;
+import com.ds2.jepto.actors.cyclon.CyclonActor;
+import com.ds2.jepto.actors.cyclon.CyclonShufflingMsg;
+import com.ds2.jepto.actors.cyclon.ReplyMsg;
+import com.ds2.jepto.actors.cyclon.RequestMsg;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.Serialization;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Round trip of the protocol messages through the
+ * binary serializer.
+ */
+public class EptoSerializerTest
+    extends TestCase
+{
+    private ActorSystem system;
+    private EptoSerializer serializer;
+    private ActorRef a, b, c;
+
+    public EptoSerializerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( EptoSerializerTest.class );
+    }
+
+    protected void setUp()
+    {
+        system = ActorSystem.create( "EptoSerializerTest" );
+        serializer = new EptoSerializer( (ExtendedActorSystem) system );
+        a = system.actorOf( CyclonActor.props( 1, 1, 100000l, 1l ), "actor_a" );
+        b = system.actorOf( CyclonActor.props( 1, 1, 100000l, 2l ), "actor_b" );
+        c = system.actorOf( CyclonActor.props( 1, 1, 100000l, 3l ), "actor_c" );
+    }
+
+    protected void tearDown()
+    {
+        system.terminate();
+    }
+
+    private Object roundTrip( Object msg ) throws Exception
+    {
+        return serializer.fromBinary( serializer.toBinary( msg ), serializer.manifest( msg ) );
+    }
+
+    public void testBall() throws Exception
+    {
+        List<Event> events = new ArrayList<>();
+        events.add( new Event( 0, Action.DO, a, 0, 1l, 0 ) );
+        events.add( new Event( 7, Action.DONT, b, 5, 1l << 40, 42 ) );
+        events.add( new Event( 1, Action.DO, a, 0, 300l, 3 ) );
+        BallMsg copy = (BallMsg) roundTrip( new BallMsg( events ) );
+
+        assertEquals( events.size(), copy.getBall().size() );
+        for ( int i = 0; i < events.size(); i++ )
+        {
+            Event expected = events.get( i );
+            Event actual = copy.getBall().get( i );
+            assertEquals( expected.getId(), actual.getId() );
+            assertEquals( expected.getSource(), actual.getSource() );
+            assertEquals( expected.getSourceId(), actual.getSourceId() );
+            assertEquals( expected.getTimestamp(), actual.getTimestamp() );
+            assertEquals( expected.getTtl(), actual.getTtl() );
+            assertEquals( expected.getAction(), actual.getAction() );
+        }
+    }
+
+    public void testEncodedOnce() throws Exception
+    {
+        List<Event> events = new ArrayList<>();
+        events.add( new Event( 0, Action.DO, a, 0, 1l, 2 ) );
+        BallMsg ball = new BallMsg( events );
+        byte[] bytes = serializer.toBinary( ball );
+
+        // every peer gets the same bytes, equal to a fresh encoding
+        assertSame( bytes, serializer.toBinary( ball ) );
+        assertTrue( Arrays.equals( bytes, serializer.encode( ball ) ) );
+    }
+
+    public void testPayload() throws Exception
+    {
+        byte[] bytes = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7 };
+        List<Event> events = new ArrayList<>();
+        events.add( new Event( 0, Action.DO, a, 0, 1l, 0, ByteBuffer.wrap( bytes, 2, 5 ) ) );
+        events.add( new Event( 1, Action.DO, a, 0, 2l, 0 ) );
+        BallMsg copy = (BallMsg) roundTrip( new BallMsg( events ) );
+
+        ByteBuffer payload = copy.getBall().get( 0 ).getPayload();
+        assertTrue( payload.isReadOnly() );
+        assertEquals( ByteBuffer.wrap( bytes, 2, 5 ), payload );
+        assertEquals( 0, copy.getBall().get( 1 ).getPayloadSize() );
+        // copies share the payload
+        assertEquals( payload, new Event( copy.getBall().get( 0 ) ).getPayload() );
+    }
+
+    public void testBallChunks() throws Exception
+    {
+        int maxBytes = 600;
+        List<Event> events = new ArrayList<>();
+        for ( int i = 0; i < 20; i++ )
+        {
+            events.add( new Event( i, Action.DO, i % 2 == 0 ? a : b, i % 2, i, i % 7,
+                    ByteBuffer.wrap( new byte[i * 10] ) ) );
+        }
+        BallSplitter splitter = new BallSplitter( maxBytes, 5 );
+        assertFalse( splitter.fits( events ) );
+        List<List<Event>> chunks = splitter.split( events );
+        assertTrue( chunks.size() > 1 );
+        assertEquals( 6, chunks.get( 0 ).get( 0 ).getTtl() );
+
+        BallAssembler assembler = new BallAssembler();
+        List<List<Event>> ready = new ArrayList<>();
+        for ( int i = 0; i < chunks.size(); i++ )
+        {
+            // the widest header
+            BallChunkMsg chunk = new BallChunkMsg( Long.MAX_VALUE, i, chunks.size(), chunks.get( i ) );
+            assertTrue( chunks.get( i ).size() <= 5 );
+            assertTrue( serializer.toBinary( chunk ).length <= maxBytes );
+            ready.addAll( assembler.add( c, (BallChunkMsg) roundTrip( chunk ) ) );
+        }
+        assertEquals( 1, ready.size() );
+        assertEquals( events.size(), ready.get( 0 ).size() );
+        assertTrue( assembler.isEmpty() );
+    }
+
+    public void testDigest() throws Exception
+    {
+        List<Event> events = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            if ( i != 4 )
+                events.add( new Event( i, Action.DO, a, 0, i, i % 3 ) );
+        }
+        events.add( new Event( 100, Action.DONT, b, 5, 7l, 1 ) );
+        events.add( new Event( 3, Action.DO, b, 5, 8l, 2 ) );
+        PushPull pushPull = new PushPull( 5 );
+        DigestMsg digest = (DigestMsg) roundTrip(
+                new DigestMsg( 1l, pushPull.offer( 1l, events ) ) );
+        assertEquals( events.size(), digest.getDigest().size() );
+        assertEquals( 4, digest.getDigest().getNumRuns() );
+
+        // the receiver knows a single event, with a lower ttl
+        EventMap nextBall = new EventMap();
+        nextBall.insert( new Event( 100, Action.DONT, b, 5, 7l, 0 ) );
+        EventDigest missing = pushPull.merge( digest.getDigest(), nextBall,
+                new ReceivedSet(), new DeliveredSet() );
+        assertEquals( 1, nextBall.getTtl( events.get( 9 ) ) );
+        assertEquals( events.size() - 1, missing.size() );
+
+        PullMsg pull = (PullMsg) roundTrip( new PullMsg( 1l, missing ) );
+        assertFalse( pull.getMissing().hasTtl() );
+        List<Event> pulled = pushPull.pull( pull.getBallId(), pull.getMissing() );
+        assertEquals( events.size() - 1, pulled.size() );
+        for ( Event event : pulled )
+        {
+            assertFalse( event.getId() == 100 );
+        }
+    }
+
+    public void testDeliveryBatch() throws Exception
+    {
+        List<Event> events = new ArrayList<>();
+        events.add( new Event( 3, Action.DO, a, 0, 10l, 5 ) );
+        events.add( new Event( 4, Action.DONT, c, 2, 11l, 5 ) );
+        DeliveryBatch copy = (DeliveryBatch) roundTrip( new DeliveryBatch( 1l << 33, events ) );
+        DeliveryAckMsg ack = (DeliveryAckMsg) roundTrip( new DeliveryAckMsg( 1l << 33 ) );
+
+        assertEquals( 1l << 33, copy.getSequence() );
+        assertEquals( 1l << 33, ack.getSequence() );
+        assertEquals( events.size(), copy.getEvents().size() );
+        assertEquals( c, copy.getEvents().get( 1 ).getSource() );
+        assertEquals( 11l, copy.getEvents().get( 1 ).getTimestamp() );
+    }
+
+    public void testBackPressure() throws Exception
+    {
+        BroadcastRejectedMsg rejected = (BroadcastRejectedMsg) roundTrip( new BroadcastRejectedMsg(
+                new BroadcastMsg( Action.DONT, ByteBuffer.wrap( new byte[] { 1, 2, 3 } ) ) ) );
+        SubscriptionDroppedMsg dropped = (SubscriptionDroppedMsg) roundTrip(
+                new SubscriptionDroppedMsg( 1l << 33 ) );
+
+        assertEquals( Action.DONT, rejected.getBroadcast().getAction() );
+        assertEquals( ByteBuffer.wrap( new byte[] { 1, 2, 3 } ), rejected.getBroadcast().getPayload() );
+        assertEquals( 1l << 33, dropped.getSequence() );
+    }
+
+    public void testExactSize() throws Exception
+    {
+        for ( long value : new long[] { 0l, 127l, 128l, 1l << 35, Long.MAX_VALUE, -1l } )
+        {
+            ByteWriter writer = new ByteWriter( ByteWriter.sizeOfVarLong( value ) );
+            writer.writeVarLong( value );
+            // filled exactly, the bytes are not copied again
+            assertSame( writer.toByteArray(), writer.toByteArray() );
+            writer = new ByteWriter( ByteWriter.sizeOfVarInt( (int) value ) );
+            writer.writeVarInt( (int) value );
+            assertSame( writer.toByteArray(), writer.toByteArray() );
+        }
+
+        List<Event> events = new ArrayList<>();
+        events.add( new Event( 0, Action.DO, a, 0, 1l, 0, ByteBuffer.wrap( new byte[300] ) ) );
+        events.add( new Event( 1 << 20, Action.DONT, b, 5, 1l << 40, 42 ) );
+        BallMsg ball = new BallMsg( events );
+        BallMsg copy = (BallMsg) roundTrip( ball );
+        assertEquals( 300, copy.getBall().get( 0 ).getPayloadSize() );
+        assertEquals( 1 << 20, copy.getBall().get( 1 ).getId() );
+    }
+
+    private void assertRejected( byte[] bytes, String manifest ) throws Exception
+    {
+        try
+        {
+            serializer.fromBinary( bytes, manifest );
+            fail( "Decoded a malformed message" );
+        }
+        catch ( NotSerializableException e )
+        {
+            // expected
+        }
+    }
+
+    public void testTruncated() throws Exception
+    {
+        List<Event> events = new ArrayList<>();
+        events.add( new Event( 0, Action.DO, a, 0, 1l, 0, ByteBuffer.wrap( new byte[] { 1, 2, 3 } ) ) );
+        events.add( new Event( 7, Action.DONT, b, 5, 1l << 40, 42 ) );
+        BallMsg ball = new BallMsg( events );
+        byte[] bytes = serializer.toBinary( ball );
+
+        for ( int length = 0; length < bytes.length; length++ )
+        {
+            assertRejected( Arrays.copyOf( bytes, length ), serializer.manifest( ball ) );
+        }
+    }
+
+    public void testNegativeLength() throws Exception
+    {
+        String manifest = serializer.manifest( new BallMsg( new ArrayList<Event>() ) );
+
+        // a source path of negative length
+        ByteWriter writer = new ByteWriter( 16 );
+        writer.writeVarInt( 1 );
+        writer.writeVarInt( -1 );
+        assertRejected( writer.toByteArray(), manifest );
+
+        // an event payload of negative length
+        writer = new ByteWriter( 128 );
+        writer.writeVarInt( 1 );
+        writer.writeString( Serialization.serializedActorPath( a ) );
+        writer.writeVarInt( 0 );
+        writer.writeVarInt( 1 );
+        writer.writeVarInt( 0 );
+        writer.writeVarInt( 0 );
+        writer.writeVarLong( 1l );
+        writer.writeVarInt( 0 );
+        writer.writeByte( 0 );
+        writer.writeVarInt( Integer.MIN_VALUE );
+        assertRejected( writer.toByteArray(), manifest );
+    }
+
+    public void testTimestampOutOfRange() throws Exception
+    {
+        List<Event> events = new ArrayList<>();
+        events.add( new Event( 0, Action.DO, a, 0, NodeRegistry.MAX_TIMESTAMP, 0 ) );
+        BallMsg copy = (BallMsg) roundTrip( new BallMsg( events ) );
+        assertEquals( NodeRegistry.MAX_TIMESTAMP, copy.getBall().get( 0 ).getTimestamp() );
+
+        // timestamps not fitting in an order key are rejected
+        // before they reach the logical clock
+        for ( long timestamp : new long[] { NodeRegistry.MAX_TIMESTAMP + 1, -1l } )
+        {
+            events.set( 0, new Event( 0, Action.DO, a, 0, timestamp, 0 ) );
+            BallMsg ball = new BallMsg( events );
+            assertRejected( serializer.toBinary( ball ), serializer.manifest( ball ) );
+        }
+    }
+
+    public void testOversizedCounts() throws Exception
+    {
+        List<Event> events = new ArrayList<>();
+        events.add( new Event( 0, Action.DO, a, 0, 1l, 0 ) );
+        String ballManifest = serializer.manifest( new BallMsg( events ) );
+        PushPull pushPull = new PushPull( 10 );
+        String digestManifest = serializer.manifest(
+                new DigestMsg( 1l, pushPull.offer( 1l, events ) ) );
+
+        // counts far beyond the bytes of the message, or negative,
+        // rejected before anything is allocated for them
+        for ( int count : new int[] { Integer.MAX_VALUE, 1 << 20, -1 } )
+        {
+            ByteWriter writer = new ByteWriter( 16 );
+            writer.writeVarInt( count );
+            assertRejected( writer.toByteArray(), ballManifest );
+
+            writer = new ByteWriter( 16 );
+            writer.writeVarInt( 0 );
+            writer.writeVarInt( count );
+            assertRejected( writer.toByteArray(), ballManifest );
+
+            writer = new ByteWriter( 16 );
+            writer.writeVarLong( 1l );
+            writer.writeVarInt( count );
+            assertRejected( writer.toByteArray(), digestManifest );
+        }
+
+        // runs adding up to more ttls than bytes left
+        ByteWriter writer = new ByteWriter( 32 );
+        writer.writeVarLong( 1l );
+        writer.writeVarInt( 1 );
+        writer.writeVarInt( 0 );
+        writer.writeVarInt( 0 );
+        writer.writeVarInt( Integer.MAX_VALUE );
+        writer.writeByte( 1 );
+        assertRejected( writer.toByteArray(), digestManifest );
+    }
+
+    public void testShuffling() throws Exception
+    {
+        Map<ActorRef, Long> cache = new HashMap<>();
+        cache.put( a, 0l );
+        cache.put( c, 12l );
+        CyclonShufflingMsg request = (CyclonShufflingMsg) roundTrip( new RequestMsg( 3, cache, a, b ) );
+        CyclonShufflingMsg reply = (CyclonShufflingMsg) roundTrip( new ReplyMsg( 3, cache, b, a ) );
+
+        assertTrue( request instanceof RequestMsg );
+        assertTrue( reply instanceof ReplyMsg );
+        assertEquals( 3, request.getId() );
+        assertEquals( a, request.getSender() );
+        assertEquals( b, request.getReceiver() );
+        assertEquals( cache, request.getUpdatingCache() );
+        assertEquals( cache, reply.getUpdatingCache() );
+    }
+}
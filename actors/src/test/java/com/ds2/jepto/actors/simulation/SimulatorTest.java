@@ -0,0 +1,72 @@
+package com.ds2.jepto.actors.simulation;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Small simulations, checking that runs are
+ * reproducible and deliver in total order.
+ */
+public class SimulatorTest
+    extends TestCase
+{
+    public SimulatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( SimulatorTest.class );
+    }
+
+    private static Config config( long seed, double loss )
+    {
+        return ConfigFactory.parseString(
+                "jepto.simulation {\n" +
+                "  num-nodes = 100\n" +
+                "  seed = " + seed + "\n" +
+                "  cyclon.view-size = 10\n" +
+                "  cyclon.shuffle-length = 4\n" +
+                "  workload.num-senders = 10\n" +
+                "  workload.rate = 5\n" +
+                "  workload.duration = 10\n" +
+                "  network.loss.rate = " + loss + "\n" +
+                "}" )
+                .withFallback( ConfigFactory.parseResources( "simulation.conf" ) )
+                .resolve();
+    }
+
+    private static SimReport run( Config config )
+    {
+        Simulator simulator = new Simulator( config );
+        simulator.run( false );
+        return simulator.getReport();
+    }
+
+    public void testReproducible()
+    {
+        SimReport first = run( config( 7l, 0.01 ) );
+        SimReport second = run( config( 7l, 0.01 ) );
+        SimReport other = run( config( 8l, 0.01 ) );
+
+        assertTrue( first.getDeliveries() > 0 );
+        assertEquals( first.getDigest(), second.getDigest() );
+        assertEquals( first.getDeliveries(), second.getDeliveries() );
+        assertFalse( first.getDigest() == other.getDigest() );
+    }
+
+    public void testTotalOrder()
+    {
+        SimReport report = run( config( 42l, 0.0 ) );
+
+        assertTrue( report.getBroadcasts() > 0 );
+        assertEquals( 0, report.getViolations() );
+        assertEquals( 0, report.getHoles() );
+        assertEquals( report.getBroadcasts() * 100, report.getDeliveries() );
+    }
+}
@@ -0,0 +1,74 @@
+package com.ds2.jepto.actors.trace;
+
+import java.io.File;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Records written by a recorder and read back.
+ */
+public class TraceRecorderTest
+    extends TestCase
+{
+    public TraceRecorderTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( TraceRecorderTest.class );
+    }
+
+    public void testRoundTrip() throws Exception
+    {
+        File file = File.createTempFile( "jepto", ".trace" );
+        try
+        {
+            TraceRecorder recorder = new TraceRecorder( file );
+            for ( int i = 0; i < 1000; i++ )
+            {
+                recorder.record( TraceRecord.DELIVER, 3, 100l + i, -1, i );
+            }
+            Thread worker = new Thread( () -> recorder.record( TraceRecord.ROUND, 4, 7l, 1, 2 ) );
+            worker.start();
+            worker.join();
+            recorder.close();
+            assertEquals( TraceRecorder.HEADER_SIZE + 1001 * TraceRecord.SIZE, file.length() );
+
+            try ( TraceReader reader = new TraceReader( file ) )
+            {
+                assertEquals( 1001, reader.size() );
+                assertEquals( 0, reader.getDropped() );
+                long[] last = new long[] { -1, Long.MIN_VALUE };
+                int[] rounds = new int[1];
+                reader.forEachByTime( ( type, node, time, clock, a, b ) -> {
+                    assertTrue( time >= last[1] );
+                    last[1] = time;
+                    if ( type == TraceRecord.ROUND )
+                    {
+                        assertEquals( 4, node );
+                        assertEquals( 7l, clock );
+                        assertEquals( 2, b );
+                        rounds[0]++;
+                        return;
+                    }
+                    // the records of a thread keep their order
+                    assertEquals( TraceRecord.DELIVER, type );
+                    assertEquals( -1, a );
+                    assertEquals( last[0] + 1, b );
+                    assertEquals( 100l + b, clock );
+                    last[0] = b;
+                } );
+                assertEquals( 1, rounds[0] );
+                assertEquals( 999, last[0] );
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ds2.jepto.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.EventBuffer;
+import com.ds2.jepto.actors.EventMap;
+import com.ds2.jepto.actors.PackedEventMap;
+
+/**
+ * The merges done by EptoActor.onBallMsg within a round:
+ * the K balls received are merged into an empty next ball,
+ * which is then frozen and handed off.
+ *
+ * The balls carry random subsets of the events alive in the
+ * system, twice the ball size, hence they overlap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BallMergeBenchmark {
+
+	private static final int MAX_TTL      = 43;
+	private static final int NUM_INCOMING = 17; // K
+
+	@Param({"10", "100", "1000", "5000"})
+	public int ballSize;
+
+	@Param({"10", "100"})
+	public int numSources;
+
+	@Param({"map", "packed"})
+	public String buffer;
+
+	private List<List<Event>> incoming;
+	private EventBuffer       nextBall;
+
+	@Setup
+	public void setUp() {
+		Random prng = new Random(42);
+		List<Event> alive = Events.make(2 * this.ballSize, this.numSources, MAX_TTL, null, prng);
+		this.incoming = new ArrayList<>(NUM_INCOMING);
+		for (int i = 0; i < NUM_INCOMING; i++) {
+			List<Event> ball = new ArrayList<>(this.ballSize);
+			for (int j = 0; j < this.ballSize; j++) {
+				ball.add(alive.get(prng.nextInt(alive.size())));
+			}
+			this.incoming.add(ball);
+		}
+		this.nextBall = this.buffer.equals("packed") ? new PackedEventMap() : new EventMap();
+	}
+
+	@Benchmark
+	public EventBuffer round() {
+		for (List<Event> ball : this.incoming) {
+			for (Event event : ball) {
+				if (event.getTtl() < MAX_TTL)
+					this.nextBall.merge(event);
+			}
+		}
+		this.nextBall.incrementTtl();
+		EventBuffer ball = this.nextBall.freeze();
+		this.nextBall = ball.next();
+		return ball;
+	}
+}
@@ -0,0 +1,39 @@
+package com.ds2.jepto.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the JMH command line options,
+ * always adding the GC profiler: the allocation rate of
+ * every benchmark is reported as gc.alloc.rate.norm, in
+ * bytes per operation.
+ *
+ * Run it with:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [regexp] [jmh options]
+ * </pre>
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args)
+			throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		if (cmdOptions.shouldHelp()) {
+			cmdOptions.showHelp();
+			return;
+		}
+		Options options = new OptionsBuilder()
+				.parent(cmdOptions)
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
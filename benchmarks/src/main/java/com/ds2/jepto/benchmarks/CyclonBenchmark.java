@@ -0,0 +1,75 @@
+package com.ds2.jepto.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ds2.jepto.actors.cyclon.CyclonView;
+
+/**
+ * A Cyclon shuffle between two full views, as run by the
+ * CyclonActor: the request, merged by the receiver, and the
+ * reply, merged by the sender. And the sampling of the K peers
+ * a ball is sent to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CyclonBenchmark {
+
+	private static final Integer P = -1;
+	private static final int     K = 17;
+
+	@Param({"20", "100", "1000"})
+	public int viewSize;
+
+	// fraction of the view exchanged
+	@Param({"0.1", "0.3"})
+	public double shuffleFraction;
+
+	private CyclonView<Integer> p;
+	private CyclonView<Integer> q;
+
+	@Setup
+	public void setUp() {
+		int shuffleLength = Math.max(1, (int) (this.viewSize * this.shuffleFraction));
+		this.p = new CyclonView<>(this.viewSize, shuffleLength, new Random(1));
+		this.q = new CyclonView<>(this.viewSize, shuffleLength, new Random(2));
+		// peers drawn from a population ten times the view
+		Random prng = new Random(42);
+		while (this.p.size() < this.viewSize)
+			this.p.join(prng.nextInt(10 * this.viewSize));
+		while (this.q.size() < this.viewSize)
+			this.q.join(prng.nextInt(10 * this.viewSize));
+	}
+
+	@Benchmark
+	public Map<Integer, Long> shuffle() {
+		CyclonView.Shuffle<Integer> request = this.p.startShuffle(P);
+		// q answers, whatever the target picked
+		Map<Integer, Long> reply = this.q.onRequest(request.getEntries(), request.getTarget());
+		this.p.onReply(request.getId(), reply, P);
+		return reply;
+	}
+
+	@Benchmark
+	public List<Integer> peers() {
+		return this.p.getPeers(K);
+	}
+}
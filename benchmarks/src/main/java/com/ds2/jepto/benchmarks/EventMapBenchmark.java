@@ -0,0 +1,87 @@
+package com.ds2.jepto.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.EventMap;
+
+/**
+ * Operations of the {@link EventMap} over all of its events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventMapBenchmark {
+
+	private static final int MAX_TTL = 43;
+
+	@Param({"100", "1000", "10000"})
+	public int numEvents;
+
+	@Param({"1", "10", "100"})
+	public int numSources;
+
+	private List<Event> events;
+	private EventMap    map;
+
+	@Setup
+	public void setUp() {
+		this.events = Events.make(this.numEvents, this.numSources, MAX_TTL, null, new Random(42));
+		this.map = new EventMap();
+		for (Event event : this.events) {
+			this.map.insert(event);
+		}
+	}
+
+	@Benchmark
+	public EventMap insert() {
+		EventMap map = new EventMap();
+		for (Event event : this.events) {
+			map.insert(event);
+		}
+		return map;
+	}
+
+	@Benchmark
+	public EventMap update() {
+		for (Event event : this.events) {
+			this.map.update(event);
+		}
+		return this.map;
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (Event event : this.events) {
+			blackhole.consume(this.map.get(event));
+		}
+	}
+
+	@Benchmark
+	public EventMap cloneMap() {
+		return this.map.clone();
+	}
+
+	@Benchmark
+	public List<Event> toSortedList() {
+		return this.map.toSortedList();
+	}
+}
@@ -0,0 +1,46 @@
+package com.ds2.jepto.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+
+import akka.actor.ActorRef;
+
+/**
+ * Events shared by the benchmarks.
+ */
+public class Events {
+
+	private Events() {
+	}
+
+	/**
+	 * Return events from the given number of sources, the ids
+	 * of each source being consecutive, with random timestamps
+	 * and ttls.
+	 *
+	 * @param numEvents
+	 * @param numSources
+	 * @param maxTtl
+	 * @param sources the refs of the sources, null for none
+	 * @param prng
+	 * @return
+	 */
+	public static List<Event> make(int numEvents, int numSources, int maxTtl,
+			List<ActorRef> sources, Random prng) {
+		List<Event> events = new ArrayList<>(numEvents);
+		for (int i = 0; i < numEvents; i++) {
+			int sourceId = i % numSources;
+			events.add(new Event(i / numSources,
+					Action.values()[prng.nextInt(Action.values().length)],
+					sources == null ? null : sources.get(sourceId),
+					sourceId,
+					1000 + prng.nextInt(100_000),
+					prng.nextInt(maxTtl + 1)));
+		}
+		return events;
+	}
+}
@@ -0,0 +1,80 @@
+package com.ds2.jepto.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.OrderingComponent;
+
+/**
+ * A round of the ordering component, as run by
+ * EptoActor.orderEvents, with (asPaper) or without the
+ * changes to the paper, in steady state: each round the
+ * ball brings new events and the oldest ones are delivered,
+ * hence the received set keeps the given size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderingBenchmark {
+
+	private static final int MAX_TTL = 43;
+
+	@Param({"1000", "10000", "100000"})
+	public int receivedSize;
+
+	@Param({"10", "100"})
+	public int numSources;
+
+	@Param({"false", "true"})
+	public boolean asPaper;
+
+	private OrderingComponent ordering;
+	private int[]             nextIds; // per source
+	private long              timestamp;
+	private int               ballSize;
+
+	@Setup
+	public void setUp() {
+		this.ordering  = new OrderingComponent(MAX_TTL, this.asPaper);
+		this.nextIds   = new int[this.numSources];
+		this.timestamp = 0;
+		this.ballSize  = Math.max(1, this.receivedSize / (MAX_TTL + 1));
+		// fill the received set
+		for (int i = 0; i < MAX_TTL + 1; i++) {
+			this.round();
+		}
+	}
+
+	@Benchmark
+	public List<Event> round() {
+		this.ordering.nextRound();
+		for (int i = 0; i < this.ballSize; i++) {
+			int sourceId = (int) (this.timestamp % this.numSources);
+			Event event = new Event(this.nextIds[sourceId]++,
+					Action.DO,
+					null,
+					sourceId,
+					++this.timestamp,
+					0);
+			this.ordering.receive(event);
+		}
+		return this.ordering.deliver();
+	}
+}
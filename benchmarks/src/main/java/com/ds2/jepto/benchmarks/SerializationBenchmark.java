@@ -0,0 +1,94 @@
+package com.ds2.jepto.benchmarks;
+
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ds2.jepto.actors.BallMsg;
+import com.ds2.jepto.actors.cyclon.CyclonActor;
+import com.ds2.jepto.actors.serialization.EptoSerializer;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+
+/**
+ * Encoding and decoding of a {@link BallMsg} by the
+ * {@link EptoSerializer}. Encoding bypasses the bytes
+ * cached by the message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+	private static final int MAX_TTL = 43;
+
+	@Param({"10", "100", "1000"})
+	public int numEvents;
+
+	@Param({"1", "10", "100"})
+	public int numSources;
+
+	private ActorSystem    system;
+	private EptoSerializer serializer;
+	private BallMsg        ball;
+	private byte[]         bytes;
+	private String         manifest;
+
+	@Setup
+	public void setUp() {
+		Config config = ConfigFactory.parseString(
+				"akka.actor.provider = remote\n" +
+				"akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n" +
+				"akka.remote.netty.tcp.port = 0\n" +
+				"akka.loglevel = WARNING\n")
+				.withFallback(ConfigFactory.parseResources("serialization.conf"))
+				.withFallback(ConfigFactory.load());
+		this.system = ActorSystem.create("epto", config);
+		this.serializer = new EptoSerializer((ExtendedActorSystem) this.system);
+		List<ActorRef> sources = new ArrayList<>(this.numSources);
+		for (int i = 0; i < this.numSources; i++) {
+			sources.add(this.system.actorOf(CyclonActor.props(1, 1, 100_000l, i), "actor_" + i));
+		}
+		this.ball = new BallMsg(Events.make(this.numEvents, this.numSources, MAX_TTL,
+				sources, new Random(42)));
+		this.bytes    = this.serializer.encode(this.ball);
+		this.manifest = this.serializer.manifest(this.ball);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.system.terminate();
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		return this.serializer.encode(this.ball);
+	}
+
+	@Benchmark
+	public Object decode() throws NotSerializableException {
+		return this.serializer.fromBinary(this.bytes, this.manifest);
+	}
+}
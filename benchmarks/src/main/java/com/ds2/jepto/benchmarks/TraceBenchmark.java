@@ -0,0 +1,115 @@
+package com.ds2.jepto.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ds2.jepto.actors.AsyncFileHandler;
+import com.ds2.jepto.actors.Event;
+import com.ds2.jepto.actors.Event.Action;
+import com.ds2.jepto.actors.trace.TraceRecord;
+import com.ds2.jepto.actors.trace.TraceRecorder;
+
+/**
+ * The cost of recording the delivery of an event, to the
+ * binary trace or as a line of the execution log, the way
+ * EptoActor logs it through a FileHandler or, from a background
+ * thread, through an AsyncFileHandler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceBenchmark {
+
+	private File             traceFile;
+	private File             logFile;
+	private TraceRecorder    recorder;
+	private FileHandler      handler;
+	private Logger           logger;
+	private File             asyncLogFile;
+	private AsyncFileHandler asyncHandler;
+	private Logger           asyncLogger;
+	private Event            event;
+	private long             clock;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.traceFile = File.createTempFile("jepto", ".trace");
+		this.logFile   = File.createTempFile("jepto", ".log");
+		this.recorder  = new TraceRecorder(this.traceFile);
+		this.handler   = new FileHandler(this.logFile.getPath());
+		this.handler.setFormatter(new SimpleFormatter());
+		this.logger    = Logger.getLogger(TraceBenchmark.class.getName());
+		this.logger.setUseParentHandlers(false);
+		this.logger.addHandler(this.handler);
+		this.asyncLogFile = File.createTempFile("jepto", ".log");
+		this.asyncHandler = new AsyncFileHandler(this.asyncLogFile.getPath());
+		this.asyncLogger  = Logger.getLogger(TraceBenchmark.class.getName() + ".async");
+		this.asyncLogger.setUseParentHandlers(false);
+		this.asyncLogger.addHandler(this.asyncHandler);
+		this.event = new Event(7, Action.DO, null, 3, 42l, 5);
+		this.clock = 0;
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.recorder.close();
+		this.logger.removeHandler(this.handler);
+		this.handler.close();
+		this.asyncLogger.removeHandler(this.asyncHandler);
+		this.asyncHandler.close();
+		this.asyncLogFile.delete();
+		this.traceFile.delete();
+		this.logFile.delete();
+	}
+
+	@Benchmark
+	public void trace() {
+		this.recorder.record(TraceRecord.DELIVER, 3, this.event.getTimestamp(),
+				this.event.getSourceId(), this.event.getId());
+	}
+
+	@Benchmark
+	public void log() {
+		this.log(this.logger);
+	}
+
+	@Benchmark
+	public void asyncLog() {
+		this.log(this.asyncLogger);
+	}
+
+	private void log(Logger logger) {
+		logger.logp(Level.INFO, TraceBenchmark.class.getName(), "log",
+				"EpTO: {0} at_{2}_{3} delivered '{' {1} '}'",
+				new Object[] {
+						"actor_3",
+						// Event.toString, without an actor system
+						"Event [timestamp=" + this.event.getTimestamp() +
+						", source=actor_3" +
+						", id=" + this.event.getId() +
+						", action=" + this.event.getAction() +
+						", ttl=" + this.event.getTtl() + "]",
+						Long.toString(System.currentTimeMillis()),
+						this.clock++});
+	}
+}